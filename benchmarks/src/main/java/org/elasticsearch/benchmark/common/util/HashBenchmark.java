@@ -0,0 +1,102 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.common.util;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.LongHash;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures adding a stream of keys with the given number of distinct values to {@link BytesRefHash} and {@link LongHash},
+ * like a terms aggregation does for every value it collects.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class HashBenchmark {
+    private static final int NUM_VALUES = 1_000_000;
+
+    @Param({"1000", "100000", "1000000"})
+    private int cardinality = 100000;
+
+    // the length of the string keys
+    @Param({"8", "32"})
+    private int length = 8;
+
+    private BytesRef[] bytesValues;
+    private long[] longValues;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(0);
+        final BytesRef[] distinctBytes = new BytesRef[cardinality];
+        final long[] distinctLongs = new long[cardinality];
+        for (int i = 0; i < cardinality; i++) {
+            final byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            distinctBytes[i] = new BytesRef(bytes);
+            distinctLongs[i] = random.nextLong();
+        }
+        bytesValues = new BytesRef[NUM_VALUES];
+        longValues = new long[NUM_VALUES];
+        for (int i = 0; i < NUM_VALUES; i++) {
+            final int value = random.nextInt(cardinality);
+            bytesValues[i] = distinctBytes[value];
+            longValues[i] = distinctLongs[value];
+        }
+    }
+
+    @Benchmark
+    public void addBytesRefs(Blackhole bh) {
+        try (BytesRefHash hash = new BytesRefHash(1, BigArrays.NON_RECYCLING_INSTANCE)) {
+            for (BytesRef value : bytesValues) {
+                bh.consume(hash.add(value));
+            }
+        }
+    }
+
+    @Benchmark
+    public void addLongs(Blackhole bh) {
+        try (LongHash hash = new LongHash(1, BigArrays.NON_RECYCLING_INSTANCE)) {
+            for (long value : longValues) {
+                bh.consume(hash.add(value));
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.concurrent;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of handing work off to another thread with its thread context, i.e. what thread pools do for
+ * every task they execute. The runnable is wrapped on the calling thread like {@code EsThreadPoolExecutor#execute}
+ * does and then run from a thread that has the default context, like a thread pool worker.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class ThreadContextBenchmark {
+    // the number of request headers and transient headers in the forking context
+    @Param({"0", "4"})
+    private int headers = 0;
+
+    private ThreadContext threadContext;
+
+    @Setup
+    public void setUp() {
+        threadContext = new ThreadContext(Settings.EMPTY);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        threadContext.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Caller {
+        private ThreadContext.StoredContext callersContext;
+
+        @Setup(Level.Iteration)
+        public void setUp(ThreadContextBenchmark benchmark) {
+            callersContext = benchmark.threadContext.stashContext();
+            for (int i = 0; i < benchmark.headers; i++) {
+                benchmark.threadContext.putHeader("header_" + i, "value_" + i);
+                benchmark.threadContext.putTransient("transient_" + i, new Object());
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            callersContext.restore();
+        }
+    }
+
+    @Benchmark
+    public void preserveAndRun(Caller caller, Blackhole blackhole) {
+        Runnable runnable = threadContext.preserveContext(() -> blackhole.consume(threadContext.getHeader("header_0")));
+        try (ThreadContext.StoredContext ignored = threadContext.stashContext()) {
+            runnable.run();
+        }
+    }
+
+    @Benchmark
+    public String stashAndRestore(Caller caller) {
+        try (ThreadContext.StoredContext ignored = threadContext.newStoredContext(false)) {
+            return threadContext.getHeader("header_0");
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.time;
+
+import org.elasticsearch.common.rounding.DateTimeUnit;
+import org.elasticsearch.common.rounding.Rounding;
+import org.elasticsearch.common.unit.TimeValue;
+import org.joda.time.DateTimeZone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares rounding a year of sorted timestamps, like the values a date_histogram collects from a shard, with the
+ * original rounding and with the rounding prepared for the range of those timestamps.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class RoundingBenchmark {
+    private static final long MIN = 1514764800000L; // 2018-01-01T00:00:00Z
+    private static final long MAX = MIN + TimeUnit.DAYS.toMillis(365);
+
+    @Param({"UTC", "America/New_York", "Europe/Berlin", "Asia/Kolkata"})
+    private String zone = "UTC";
+
+    @Param({"1h", "1d", "1M", "90m"})
+    private String interval = "1d";
+
+    @Param({"100000"})
+    private int count = 100000;
+
+    private long[] dates;
+    private Rounding rounding;
+    private Rounding.Prepared prepared;
+
+    @Setup
+    public void setUp() {
+        final DateTimeZone timeZone = DateTimeZone.forID(zone);
+        switch (interval) {
+            case "1h":
+                rounding = Rounding.builder(DateTimeUnit.HOUR_OF_DAY).timeZone(timeZone).build();
+                break;
+            case "1d":
+                rounding = Rounding.builder(DateTimeUnit.DAY_OF_MONTH).timeZone(timeZone).build();
+                break;
+            case "1M":
+                rounding = Rounding.builder(DateTimeUnit.MONTH_OF_YEAR).timeZone(timeZone).build();
+                break;
+            default:
+                rounding = Rounding.builder(TimeValue.parseTimeValue(interval, "interval")).timeZone(timeZone).build();
+                break;
+        }
+        prepared = rounding.prepare(MIN, MAX);
+        final Random random = new Random(0);
+        dates = new long[count];
+        for (int i = 0; i < count; i++) {
+            dates[i] = MIN + (long) (random.nextDouble() * (MAX - MIN));
+        }
+        Arrays.sort(dates);
+    }
+
+    @Benchmark
+    public void round(Blackhole bh) {
+        for (long date : dates) {
+            bh.consume(rounding.round(date));
+        }
+    }
+
+    @Benchmark
+    public void roundPrepared(Blackhole bh) {
+        for (long date : dates) {
+            bh.consume(prepared.round(date));
+        }
+    }
+}
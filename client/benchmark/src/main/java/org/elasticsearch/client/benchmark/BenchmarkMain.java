@@ -18,6 +18,7 @@
  */
 package org.elasticsearch.client.benchmark;
 
+import org.elasticsearch.client.benchmark.rest.HttpTransportsBenchmark;
 import org.elasticsearch.client.benchmark.rest.RestClientBenchmark;
 import org.elasticsearch.client.benchmark.transport.TransportClientBenchmark;
 import org.elasticsearch.common.SuppressForbidden;
@@ -36,6 +37,9 @@ public class BenchmarkMain {
             case "rest":
                 benchmark = new RestClientBenchmark();
                 break;
+            case "http-transports":
+                HttpTransportsBenchmark.main(Arrays.copyOfRange(args, 1, args.length));
+                return;
             default:
                 System.err.println("Unknown client type [" + type + "]");
                 System.exit(1);
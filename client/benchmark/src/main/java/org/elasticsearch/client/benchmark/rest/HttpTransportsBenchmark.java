@@ -0,0 +1,45 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.client.benchmark.rest;
+
+import org.elasticsearch.common.SuppressForbidden;
+
+/**
+ * Runs the same REST search benchmark against a node that uses the Netty HTTP transport and a node that uses the HTTP transport
+ * of the <code>transport-nio</code> plugin (<code>http.type: nio-http-transport</code>), one after the other.
+ */
+public final class HttpTransportsBenchmark {
+
+    private static final String[] TRANSPORTS = {"netty4", "nio-http-transport"};
+
+    @SuppressForbidden(reason = "system out is ok for a command line tool")
+    public static void main(String[] args) throws Exception {
+        if (args.length != 5) {
+            System.err.println(
+                "usage: nettyTargetHost[:port] nioTargetHost[:port] indexName searchRequestBody throughputRates");
+            System.exit(1);
+        }
+        for (int i = 0; i < TRANSPORTS.length; i++) {
+            System.out.println("##########################################");
+            System.out.println(" http.type [" + TRANSPORTS[i] + "] on [" + args[i] + "]");
+            System.out.println("##########################################");
+            new RestClientBenchmark().run(new String[] {"search", args[i], args[2], args[3], args[4]});
+        }
+    }
+}
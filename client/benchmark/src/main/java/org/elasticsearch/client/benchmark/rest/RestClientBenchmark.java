@@ -51,8 +51,12 @@ public final class RestClientBenchmark extends AbstractBenchmark<RestClient> {
 
     @Override
     protected RestClient client(String benchmarkTargetHost) {
+        // the port can be given so that several nodes on the same host can be benchmarked
+        final int separator = benchmarkTargetHost.lastIndexOf(':');
+        final HttpHost host = separator < 0 ? new HttpHost(benchmarkTargetHost, 9200) :
+            new HttpHost(benchmarkTargetHost.substring(0, separator), Integer.parseInt(benchmarkTargetHost.substring(separator + 1)));
         return RestClient
-            .builder(new HttpHost(benchmarkTargetHost, 9200))
+            .builder(host)
             .setHttpClientConfigCallback(b -> b.setDefaultHeaders(
                 Collections.singleton(new BasicHeader(HttpHeaders.ACCEPT_ENCODING, "gzip"))))
             .setRequestConfigCallback(b -> b.setContentCompressionEnabled(true))
@@ -37,7 +37,7 @@ import java.util.function.Supplier;
  */
 public final class InboundChannelBuffer implements AutoCloseable {
 
-    private static final int PAGE_SIZE = 1 << 14;
+    static final int PAGE_SIZE = 1 << 14;
     private static final int PAGE_MASK = PAGE_SIZE - 1;
     private static final int PAGE_SHIFT = Integer.numberOfTrailingZeros(PAGE_SIZE);
     private static final ByteBuffer[] EMPTY_BYTE_BUFFER_ARRAY = new ByteBuffer[0];
@@ -63,6 +63,13 @@ public final class InboundChannelBuffer implements AutoCloseable {
         return new InboundChannelBuffer(() -> new Page(ByteBuffer.allocate(PAGE_SIZE), () -> {}));
     }
 
+    /**
+     * Creates a buffer that takes its pages from the given cache and hands them back once they are released.
+     */
+    public static InboundChannelBuffer pageCacheInstance(PageCache pageCache) {
+        return new InboundChannelBuffer(pageCache::acquirePage);
+    }
+
     @Override
     public void close() {
         if (isClosed.compareAndSet(false, true)) {
@@ -104,6 +104,20 @@ public class NioGroup implements AutoCloseable {
         return factory.openNioChannel(address, socketSelectorSupplier.get());
     }
 
+    /**
+     * Returns the number of pages that were served from the page caches of this group's socket selectors.
+     */
+    public long getPageCacheHits() {
+        return socketSelectors.stream().mapToLong(s -> s.getPageCache().getHits()).sum();
+    }
+
+    /**
+     * Returns the number of pages that had to be allocated because the page cache of a socket selector was empty.
+     */
+    public long getPageCacheMisses() {
+        return socketSelectors.stream().mapToLong(s -> s.getPageCache().getMisses()).sum();
+    }
+
     @Override
     public void close() throws IOException {
         if (isOpen.compareAndSet(true, false)) {
@@ -0,0 +1,104 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.nio;
+
+import java.nio.ByteBuffer;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of {@link InboundChannelBuffer#PAGE_SIZE} byte buffers. Each {@link SocketSelector} owns one
+ * cache so that the pages read into and written from by its channels are reused instead of being allocated for
+ * every read or message. Pages can be acquired and released from any thread. Once the cache holds
+ * {@code maxPages} pages, released pages are dropped and left to the garbage collector.
+ */
+public final class PageCache {
+
+    private final Deque<ByteBuffer> pages = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final int maxPages;
+
+    public PageCache(int maxPages) {
+        if (maxPages < 0) {
+            throw new IllegalArgumentException("max pages must be >= 0 but was [" + maxPages + "]");
+        }
+        this.maxPages = maxPages;
+    }
+
+    /**
+     * Returns a cleared page, reusing a cached one if there is one. The page is handed back to the cache
+     * when the returned {@link InboundChannelBuffer.Page} is closed.
+     */
+    public InboundChannelBuffer.Page acquirePage() {
+        final ByteBuffer buffer = acquire();
+        return new InboundChannelBuffer.Page(buffer, () -> release(buffer));
+    }
+
+    /**
+     * Returns a cleared buffer of {@link InboundChannelBuffer#PAGE_SIZE} bytes. It should be handed back with
+     * {@link #release(ByteBuffer)} once nothing references it anymore.
+     */
+    public ByteBuffer acquire() {
+        final ByteBuffer buffer = pages.pollFirst();
+        if (buffer == null) {
+            misses.incrementAndGet();
+            return ByteBuffer.allocate(InboundChannelBuffer.PAGE_SIZE);
+        }
+        size.decrementAndGet();
+        hits.incrementAndGet();
+        return buffer;
+    }
+
+    public void release(ByteBuffer buffer) {
+        assert buffer.capacity() == InboundChannelBuffer.PAGE_SIZE : "only pages can be released, got [" + buffer.capacity() + "] bytes";
+        if (size.incrementAndGet() <= maxPages) {
+            buffer.clear();
+            // recently released pages are handed out first as they are the most likely to still be in the CPU caches
+            pages.addFirst(buffer);
+        } else {
+            size.decrementAndGet();
+        }
+    }
+
+    /**
+     * The number of pages that were served from the cache.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * The number of pages that had to be allocated because the cache was empty.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * The number of pages currently held by the cache.
+     */
+    public int getCachedPages() {
+        return size.get();
+    }
+}
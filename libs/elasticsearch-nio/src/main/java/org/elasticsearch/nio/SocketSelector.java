@@ -33,18 +33,30 @@ import java.util.function.BiConsumer;
  */
 public class SocketSelector extends ESSelector {
 
+    /**
+     * The number of pages each selector keeps around for reuse, 1mb with the default page size.
+     */
+    static final int DEFAULT_MAX_CACHED_PAGES = 64;
+
     private final ConcurrentLinkedQueue<NioSocketChannel> newChannels = new ConcurrentLinkedQueue<>();
     private final ConcurrentLinkedQueue<WriteOperation> queuedWrites = new ConcurrentLinkedQueue<>();
     private final SocketEventHandler eventHandler;
+    private final PageCache pageCache;
 
     public SocketSelector(SocketEventHandler eventHandler) throws IOException {
+        this(eventHandler, DEFAULT_MAX_CACHED_PAGES);
+    }
+
+    public SocketSelector(SocketEventHandler eventHandler, int maxCachedPages) throws IOException {
         super(eventHandler);
         this.eventHandler = eventHandler;
+        this.pageCache = new PageCache(maxCachedPages);
     }
 
     public SocketSelector(SocketEventHandler eventHandler, Selector selector) throws IOException {
         super(eventHandler, selector);
         this.eventHandler = eventHandler;
+        this.pageCache = new PageCache(DEFAULT_MAX_CACHED_PAGES);
     }
 
     @Override
@@ -95,6 +107,16 @@ public class SocketSelector extends ESSelector {
     }
 
 
+    /**
+     * Returns the cache of pages shared by the channels registered with this selector. Channels should read into and
+     * write from these pages so that the pages are reused by the next reads and writes on this selector.
+     *
+     * @return the page cache
+     */
+    public PageCache getPageCache() {
+        return pageCache;
+    }
+
     /**
      * Queues a write operation to be handled by the event loop. This can be called by any thread and is the
      * api available for non-selector threads to schedule writes.
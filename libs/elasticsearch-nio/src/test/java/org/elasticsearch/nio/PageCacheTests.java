@@ -0,0 +1,87 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.nio;
+
+import org.elasticsearch.test.ESTestCase;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PageCacheTests extends ESTestCase {
+
+    public void testReleasedPagesAreReused() {
+        PageCache pageCache = new PageCache(randomIntBetween(1, 10));
+
+        ByteBuffer page = pageCache.acquire();
+        assertEquals(InboundChannelBuffer.PAGE_SIZE, page.capacity());
+        assertEquals(0, pageCache.getHits());
+        assertEquals(1, pageCache.getMisses());
+
+        page.put((byte) 1);
+        pageCache.release(page);
+        assertEquals(1, pageCache.getCachedPages());
+
+        ByteBuffer reused = pageCache.acquire();
+        assertSame(page, reused);
+        assertEquals(0, reused.position());
+        assertEquals(InboundChannelBuffer.PAGE_SIZE, reused.remaining());
+        assertEquals(1, pageCache.getHits());
+        assertEquals(1, pageCache.getMisses());
+        assertEquals(0, pageCache.getCachedPages());
+    }
+
+    public void testCacheIsBounded() {
+        int maxPages = randomIntBetween(0, 10);
+        PageCache pageCache = new PageCache(maxPages);
+
+        List<ByteBuffer> pages = new ArrayList<>();
+        int acquired = maxPages + randomIntBetween(1, 10);
+        for (int i = 0; i < acquired; i++) {
+            pages.add(pageCache.acquire());
+        }
+        assertEquals(acquired, pageCache.getMisses());
+        pages.forEach(pageCache::release);
+        assertEquals(maxPages, pageCache.getCachedPages());
+
+        for (int i = 0; i < acquired; i++) {
+            pageCache.acquire();
+        }
+        assertEquals(maxPages, pageCache.getHits());
+        assertEquals(acquired * 2 - maxPages, pageCache.getMisses());
+    }
+
+    public void testChannelBufferReleasesPagesToCache() {
+        PageCache pageCache = new PageCache(10);
+        InboundChannelBuffer channelBuffer = InboundChannelBuffer.pageCacheInstance(pageCache);
+        channelBuffer.ensureCapacity(InboundChannelBuffer.PAGE_SIZE * 3);
+        assertEquals(3, pageCache.getMisses());
+
+        channelBuffer.release(InboundChannelBuffer.PAGE_SIZE * 2);
+        assertEquals(2, pageCache.getCachedPages());
+
+        channelBuffer.ensureCapacity(InboundChannelBuffer.PAGE_SIZE * 3);
+        assertEquals(2, pageCache.getHits());
+        assertEquals(3, pageCache.getMisses());
+
+        channelBuffer.close();
+        assertEquals(3, pageCache.getCachedPages());
+    }
+}
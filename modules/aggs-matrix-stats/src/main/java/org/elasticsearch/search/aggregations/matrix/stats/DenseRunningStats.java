@@ -0,0 +1,131 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.matrix.stats;
+
+import java.util.HashMap;
+
+/**
+ * The shard level counterpart of {@link RunningStats}: it gathers the same descriptive stats for a fixed set of fields, but keeps
+ * them in arrays indexed by the ordinal of the field, and the covariances in the upper triangle of a matrix, rather than in maps
+ * keyed by field name. This avoids boxing and hashing for each field of each document, and the covariance update for each pair of
+ * fields is a single array access. The stats are converted to a {@link RunningStats} once the shard is done collecting.
+ */
+final class DenseRunningStats {
+    private final String[] fieldNames;
+    /** count of observations (same number of observations per field) */
+    private long docCount = 0;
+    private final double[] fieldSum;
+    private final double[] means;
+    private final double[] variances;
+    private final double[] skewness;
+    private final double[] kurtosis;
+    /** covariance of the fields {@code i < j}, at {@code i * numFields + j} */
+    private final double[] covariances;
+    /** scratch space for the deltas of the document that is being added */
+    private final double[] deltas;
+
+    DenseRunningStats(String[] fieldNames) {
+        this.fieldNames = fieldNames;
+        final int numFields = fieldNames.length;
+        fieldSum = new double[numFields];
+        means = new double[numFields];
+        variances = new double[numFields];
+        skewness = new double[numFields];
+        kurtosis = new double[numFields];
+        covariances = new double[numFields * numFields];
+        deltas = new double[numFields];
+    }
+
+    /** updates running statistics with a documents field values, in the order of the field names **/
+    void add(final double[] fieldVals) {
+        assert fieldVals.length == fieldNames.length;
+        final int numFields = fieldNames.length;
+        // update total, mean, and variance
+        ++docCount;
+        double fieldValue;
+        double m1, m2, m3, m4;  // moments
+        double d, dn, dn2, t1;
+        for (int i = 0; i < numFields; ++i) {
+            fieldValue = fieldVals[i];
+            // update running sum
+            fieldSum[i] += fieldValue;
+            // update running deltas
+            deltas[i] = fieldValue * docCount - fieldSum[i];
+
+            // update running mean, variance, skewness, kurtosis
+            if (docCount > 1) {
+                // update running means
+                m1 = means[i];
+                d = fieldValue - m1;
+                means[i] = m1 + d / docCount;
+                // update running variances
+                dn = d / docCount;
+                t1 = d * dn * (docCount - 1);
+                m2 = variances[i];
+                variances[i] = m2 + t1;
+                m3 = skewness[i];
+                skewness[i] = m3 + (t1 * dn * (docCount - 2D) - 3D * dn * m2);
+                dn2 = dn * dn;
+                m4 = t1 * dn2 * (docCount * docCount - 3D * docCount + 3D) + 6D * dn2 * m2 - 4D * dn * m3;
+                kurtosis[i] += m4;
+            } else {
+                means[i] = fieldValue;
+            }
+        }
+
+        // update covariances, which are all 0 after the first document
+        if (docCount > 1) {
+            final double f = 1.0 / (docCount * (docCount - 1.0));
+            for (int i = 0; i < numFields; ++i) {
+                final double dR = f * deltas[i];
+                final int offset = i * numFields;
+                for (int j = i + 1; j < numFields; ++j) {
+                    covariances[offset + j] += dR * deltas[j];
+                }
+            }
+        }
+    }
+
+    /** Returns these stats as {@link RunningStats}, which are keyed by field name */
+    RunningStats toRunningStats() {
+        final RunningStats stats = new RunningStats();
+        if (docCount == 0) {
+            return stats;
+        }
+        final int numFields = fieldNames.length;
+        stats.docCount = docCount;
+        for (int i = 0; i < numFields; ++i) {
+            final String fieldName = fieldNames[i];
+            stats.counts.put(fieldName, docCount);
+            stats.fieldSum.put(fieldName, fieldSum[i]);
+            stats.means.put(fieldName, means[i]);
+            stats.variances.put(fieldName, variances[i]);
+            stats.skewness.put(fieldName, skewness[i]);
+            stats.kurtosis.put(fieldName, kurtosis[i]);
+            if (i < numFields - 1) {
+                final HashMap<String, Double> cFieldVals = new HashMap<>();
+                for (int j = i + 1; j < numFields; ++j) {
+                    cFieldVals.put(fieldNames[j], covariances[i * numFields + j]);
+                }
+                stats.covariances.put(fieldName, cFieldVals);
+            }
+        }
+        return stats;
+    }
+}
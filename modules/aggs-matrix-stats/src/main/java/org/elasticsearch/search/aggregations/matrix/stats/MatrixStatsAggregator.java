@@ -46,7 +46,7 @@ final class MatrixStatsAggregator extends MetricsAggregator {
     private final NumericMultiValuesSource valuesSources;
 
     /** array of descriptive stats, per shard, needed to compute the correlation */
-    ObjectArray<RunningStats> stats;
+    ObjectArray<DenseRunningStats> stats;
 
     MatrixStatsAggregator(String name, Map<String, ValuesSource.Numeric> valuesSources, SearchContext context,
                                  Aggregator parent, MultiValueMode multiValueMode, List<PipelineAggregator> pipelineAggregators,
@@ -86,14 +86,13 @@ final class MatrixStatsAggregator extends MetricsAggregator {
                 // get fields
                 if (includeDocument(doc) == true) {
                     stats = bigArrays.grow(stats, bucket + 1);
-                    RunningStats stat = stats.get(bucket);
+                    DenseRunningStats stat = stats.get(bucket);
                     // add document fields to correlation stats
                     if (stat == null) {
-                        stat = new RunningStats(fieldNames, fieldVals);
+                        stat = new DenseRunningStats(fieldNames);
                         stats.set(bucket, stat);
-                    } else {
-                        stat.add(fieldNames, fieldVals);
                     }
+                    stat.add(fieldVals);
                 }
             }
 
@@ -125,7 +124,9 @@ final class MatrixStatsAggregator extends MetricsAggregator {
         if (valuesSources == null || bucket >= stats.size()) {
             return buildEmptyAggregation();
         }
-        return new InternalMatrixStats(name, stats.size(), stats.get(bucket), null, pipelineAggregators(), metaData());
+        final DenseRunningStats stat = stats.get(bucket);
+        return new InternalMatrixStats(name, stats.size(), stat == null ? null : stat.toRunningStats(), null,
+            pipelineAggregators(), metaData());
     }
 
     @Override
@@ -51,6 +51,33 @@ public class RunningStatsTests extends BaseMatrixStatsTestCase {
         actualStats.assertNearlyEqual(results);
     }
 
+    /** Test that the array based shard stats are the same as the stats keyed by field name */
+    public void testDenseRunningStats() throws Exception {
+        final int numFields = randomIntBetween(1, 10);
+        final String[] fieldNames = new String[numFields];
+        for (int i = 0; i < numFields; ++i) {
+            fieldNames[i] = "field" + i;
+        }
+        final RunningStats expected = new RunningStats();
+        final DenseRunningStats stats = new DenseRunningStats(fieldNames);
+        final double[] fieldVals = new double[numFields];
+        final int numDocs = randomIntBetween(1, 1000);
+        for (int n = 0; n < numDocs; ++n) {
+            for (int i = 0; i < numFields; ++i) {
+                fieldVals[i] = randomDouble();
+            }
+            expected.add(fieldNames, fieldVals);
+            stats.add(fieldVals);
+        }
+        assertEquals(expected, stats.toRunningStats());
+
+        final DenseRunningStats twoFields = new DenseRunningStats(new String[] { fieldAKey, fieldBKey });
+        for (int n = 0; n < fieldA.size(); ++n) {
+            twoFields.add(new double[] { fieldA.get(n), fieldB.get(n) });
+        }
+        actualStats.assertNearlyEqual(new MatrixStatsResults(twoFields.toRunningStats()));
+    }
+
     private RunningStats createRunningStats(List<Double> fieldAObs, List<Double> fieldBObs) {
         RunningStats stats = new RunningStats();
         // create a document with two numeric fields
@@ -0,0 +1,171 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http.nio;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.logging.log4j.util.Supplier;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.nio.BytesWriteOperation;
+import org.elasticsearch.nio.InboundChannelBuffer;
+import org.elasticsearch.nio.PageCache;
+import org.elasticsearch.nio.SocketChannelContext;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Decodes the requests read from an HTTP channel, dispatches them to the REST layer and writes their responses back to the
+ * channel. With pipelining enabled, responses are written in the order in which the requests were received, regardless of the
+ * order in which they complete, and the channel is closed if a client sends more requests ahead of their responses than
+ * {@code http.pipelining.max_events}.
+ */
+final class HttpReadWriteHandler implements SocketChannelContext.ReadConsumer {
+
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    private final NioHttpChannel channel;
+    private final NioHttpServerTransport transport;
+    private final HttpRequestDecoder decoder;
+    private final ThreadContext threadContext;
+    private final Logger logger;
+
+    // only accessed by the selector thread
+    private int readSequence;
+    private boolean closing;
+
+    // guarded by this
+    private int writeSequence;
+    private final PriorityQueue<PendingResponse> pendingResponses = new PriorityQueue<>(Comparator.comparingInt(r -> r.sequence));
+
+    HttpReadWriteHandler(NioHttpChannel channel, NioHttpServerTransport transport, ThreadContext threadContext) {
+        this.channel = channel;
+        this.transport = transport;
+        this.threadContext = threadContext;
+        this.logger = transport.logger();
+        this.decoder = new HttpRequestDecoder(Math.toIntExact(transport.maxInitialLineLength.getBytes()),
+            Math.toIntExact(transport.maxHeaderSize.getBytes()), Math.toIntExact(transport.maxContentLength.getBytes()));
+    }
+
+    @Override
+    public int consumeReads(InboundChannelBuffer channelBuffer) throws IOException {
+        final int readBytes = Math.toIntExact(channelBuffer.getIndex());
+        if (closing) {
+            // the channel is about to be closed, there is no point in decoding further requests
+            return readBytes;
+        }
+        final BytesReference bytes = BytesReference.fromByteBuffers(channelBuffer.sliceBuffersTo(readBytes));
+        try {
+            final int consumed = decoder.decode(bytes, this::handleRequest);
+            if (consumed == 0 && decoder.takeContinueExpected()) {
+                write(ByteBuffer.wrap(CONTINUE), false, () -> {});
+            }
+            return consumed;
+        } catch (ElasticsearchStatusException e) {
+            logger.debug((Supplier<?>) () -> new ParameterizedMessage("failed to decode HTTP request on channel [{}]", channel), e);
+            closing = true;
+            final PageCache pageCache = pageCache();
+            final ByteBuffer headPage = pageCache.acquire();
+            sendResponse(readSequence++, NioHttpResponseChannel.encodeError(headPage, e), true, () -> pageCache.release(headPage));
+            return readBytes;
+        }
+    }
+
+    private void handleRequest(HttpRequestDecoder.Request request) {
+        final int sequence = readSequence++;
+        if (transport.pipelining && sequence - writeSequence() >= transport.pipeliningMaxEvents) {
+            logger.debug("closing channel [{}] with more than [{}] pipelined requests", channel, transport.pipeliningMaxEvents);
+            closing = true;
+            channel.close();
+            return;
+        }
+        final NioHttpRequest httpRequest = new NioHttpRequest(transport.xContentRegistry, request, channel);
+        final NioHttpResponseChannel responseChannel =
+            new NioHttpResponseChannel(transport, this, httpRequest, sequence, transport.detailedErrorsEnabled, threadContext);
+        transport.dispatchRequest(httpRequest, responseChannel);
+    }
+
+    /**
+     * The cache of the selector that this handler's channel is registered with, responses are encoded into its pages.
+     */
+    PageCache pageCache() {
+        return channel.getSelector().getPageCache();
+    }
+
+    private synchronized int writeSequence() {
+        return writeSequence;
+    }
+
+    /**
+     * Writes the response of the request with the given sequence number once all responses to earlier requests were written.
+     *
+     * @param onSent called once the response was written or failed to be written
+     */
+    void sendResponse(int sequence, ByteBuffer[] buffers, boolean close, Runnable onSent) {
+        if (transport.pipelining == false) {
+            write(buffers, close, onSent);
+            return;
+        }
+        synchronized (this) {
+            pendingResponses.add(new PendingResponse(sequence, buffers, close, onSent));
+            while (pendingResponses.isEmpty() == false && pendingResponses.peek().sequence == writeSequence) {
+                final PendingResponse response = pendingResponses.poll();
+                writeSequence++;
+                write(response.buffers, response.close, response.onSent);
+            }
+        }
+    }
+
+    private void write(ByteBuffer buffer, boolean close, Runnable onSent) {
+        write(new ByteBuffer[] { buffer }, close, onSent);
+    }
+
+    private void write(ByteBuffer[] buffers, boolean close, Runnable onSent) {
+        // always go through the selector's queue, even on the selector thread, so that responses can't overtake each other
+        channel.getSelector().queueWrite(new BytesWriteOperation(channel, buffers, (v, e) -> {
+            try {
+                onSent.run();
+            } finally {
+                if (close || e != null) {
+                    channel.close();
+                }
+            }
+        }));
+    }
+
+    private static final class PendingResponse {
+        final int sequence;
+        final ByteBuffer[] buffers;
+        final boolean close;
+        final Runnable onSent;
+
+        PendingResponse(int sequence, ByteBuffer[] buffers, boolean close, Runnable onSent) {
+            this.sequence = sequence;
+            this.buffers = buffers;
+            this.close = close;
+            this.onSent = onSent;
+        }
+    }
+}
@@ -0,0 +1,404 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http.nio;
+
+import com.carrotsearch.hppc.IntArrayList;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefIterator;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.Streams;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.rest.RestStatus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Decodes HTTP/1.x requests from the bytes read from a channel. A request is only handed over once it was read completely,
+ * including a body that was sent either with a content length or with chunked transfer encoding, so that all bytes of a request
+ * can be released from the channel buffer at once. The head of a request whose body was not read completely yet is kept across
+ * reads so that a large body doesn't cause the head to be parsed again on every read.
+ */
+final class HttpRequestDecoder {
+
+    private static final int MAX_CHUNK_SIZE_LINE_LENGTH = 1024;
+
+    private final int maxInitialLineLength;
+    private final int maxHeaderSize;
+    private final int maxContentLength;
+
+    // the request whose head was decoded but whose body wasn't read completely yet
+    private Request pending;
+    // how many bytes were already searched for the end of the head of the next request
+    private int scannedHeadBytes;
+
+    HttpRequestDecoder(int maxInitialLineLength, int maxHeaderSize, int maxContentLength) {
+        this.maxInitialLineLength = maxInitialLineLength;
+        this.maxHeaderSize = maxHeaderSize;
+        this.maxContentLength = maxContentLength;
+    }
+
+    /**
+     * Decodes at most one request from the start of the given bytes and passes it to the consumer.
+     *
+     * @return the number of bytes that were consumed, or {@code 0} if more bytes are needed to decode the next request
+     * @throws ElasticsearchStatusException if the bytes are not a valid request or exceed one of the configured limits
+     */
+    int decode(BytesReference bytes, Consumer<Request> consumer) {
+        if (pending == null) {
+            // line breaks preceding a request line are ignored
+            int lineBreaks = 0;
+            while (lineBreaks < bytes.length() && (bytes.get(lineBreaks) == '\r' || bytes.get(lineBreaks) == '\n')) {
+                lineBreaks++;
+            }
+            if (lineBreaks > 0) {
+                return lineBreaks;
+            }
+            final int headLength = findEndOfHead(bytes);
+            if (headLength < 0) {
+                return 0;
+            }
+            scannedHeadBytes = 0;
+            pending = parseHead(bytes.slice(0, headLength));
+        }
+
+        final int requestLength;
+        if (pending.chunked) {
+            requestLength = findEndOfChunkedBody(bytes);
+        } else {
+            requestLength = bytes.length() >= pending.headLength + pending.contentLength ? pending.headLength + pending.contentLength : -1;
+        }
+        if (requestLength < 0) {
+            return 0;
+        }
+
+        final Request request = pending;
+        pending = null;
+        final byte[] content = new byte[request.contentLength];
+        if (request.chunked) {
+            int offset = 0;
+            for (int i = 0; i < request.chunks.size(); i += 2) {
+                int length = request.chunks.get(i + 1);
+                copy(bytes.slice(request.chunks.get(i), length), content, offset);
+                offset += length;
+            }
+            request.headers.remove("Transfer-Encoding");
+        } else {
+            copy(bytes.slice(request.headLength, request.contentLength), content, 0);
+        }
+        request.content = decompress(request, new BytesArray(content));
+        if (request.content.length() > 0 || request.headers.containsKey("Content-Length")) {
+            request.headers.put("Content-Length", Collections.singletonList(Integer.toString(request.content.length())));
+        }
+        consumer.accept(request);
+        return requestLength;
+    }
+
+    /**
+     * Returns {@code true} once for every request that asked the server to confirm with a {@code 100 Continue} response that
+     * its body should be sent.
+     */
+    boolean takeContinueExpected() {
+        if (pending != null && pending.continueExpected) {
+            pending.continueExpected = false;
+            return true;
+        }
+        return false;
+    }
+
+    private int findEndOfHead(BytesReference bytes) {
+        final int maxHeadLength = maxInitialLineLength + maxHeaderSize + 4;
+        final int end = Math.min(bytes.length(), maxHeadLength);
+        for (int i = Math.max(3, scannedHeadBytes); i < end; i++) {
+            if (bytes.get(i) == '\n' && bytes.get(i - 1) == '\r' && bytes.get(i - 2) == '\n' && bytes.get(i - 3) == '\r') {
+                return i + 1;
+            }
+        }
+        if (bytes.length() >= maxHeadLength) {
+            throw new ElasticsearchStatusException("HTTP request head is larger than {} bytes.", RestStatus.BAD_REQUEST, maxHeadLength);
+        }
+        scannedHeadBytes = end;
+        return -1;
+    }
+
+    private Request parseHead(BytesReference head) {
+        final String[] lines = new String(BytesReference.toBytes(head), StandardCharsets.ISO_8859_1).split("\r\n");
+        final String initialLine = lines[0];
+        if (initialLine.length() > maxInitialLineLength) {
+            throw new ElasticsearchStatusException("An HTTP line is larger than {} bytes.", RestStatus.BAD_REQUEST, maxInitialLineLength);
+        }
+        final String[] parts = initialLine.split(" ");
+        if (parts.length != 3 || parts[0].isEmpty() || parts[1].isEmpty()) {
+            throw new ElasticsearchStatusException("invalid HTTP request line [{}]", RestStatus.BAD_REQUEST, initialLine);
+        }
+        final boolean http10;
+        if ("HTTP/1.1".equals(parts[2])) {
+            http10 = false;
+        } else if ("HTTP/1.0".equals(parts[2])) {
+            http10 = true;
+        } else {
+            throw new ElasticsearchStatusException("unsupported HTTP version [{}]", RestStatus.HTTP_VERSION_NOT_SUPPORTED, parts[2]);
+        }
+
+        final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        int headerSize = 0;
+        List<String> lastValues = null;
+        for (int i = 1; i < lines.length; i++) {
+            final String line = lines[i];
+            headerSize += line.length() + 2;
+            if (headerSize > maxHeaderSize) {
+                throw new ElasticsearchStatusException("HTTP header is larger than {} bytes.", RestStatus.BAD_REQUEST, maxHeaderSize);
+            }
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.charAt(0) == ' ' || line.charAt(0) == '\t') {
+                // obsolete line folding continues the value of the previous header
+                if (lastValues == null) {
+                    throw new ElasticsearchStatusException("invalid HTTP header [{}]", RestStatus.BAD_REQUEST, line);
+                }
+                final int last = lastValues.size() - 1;
+                lastValues.set(last, lastValues.get(last) + " " + line.trim());
+                continue;
+            }
+            final int colon = line.indexOf(':');
+            if (colon <= 0) {
+                throw new ElasticsearchStatusException("invalid HTTP header [{}]", RestStatus.BAD_REQUEST, line);
+            }
+            lastValues = headers.computeIfAbsent(line.substring(0, colon).trim(), k -> new ArrayList<>(1));
+            lastValues.add(line.substring(colon + 1).trim());
+        }
+
+        final Request request = new Request(parts[0], parts[1], http10, headers, head.length());
+        final String transferEncoding = header(headers, "Transfer-Encoding");
+        if (transferEncoding != null && transferEncoding.toLowerCase(Locale.ROOT).endsWith("chunked")) {
+            request.chunked = true;
+        } else {
+            final List<String> contentLengths = headers.get("Content-Length");
+            if (contentLengths != null) {
+                final long contentLength;
+                try {
+                    contentLength = contentLengths.stream().mapToLong(Long::parseLong).distinct()
+                        .reduce((a, b) -> { throw new NumberFormatException("conflicting content lengths"); }).getAsLong();
+                } catch (NumberFormatException e) {
+                    throw new ElasticsearchStatusException("invalid content length {}", RestStatus.BAD_REQUEST, e, contentLengths);
+                }
+                if (contentLength < 0) {
+                    throw new ElasticsearchStatusException("invalid content length {}", RestStatus.BAD_REQUEST, contentLengths);
+                }
+                ensureContentLength(contentLength);
+                request.contentLength = (int) contentLength;
+            }
+        }
+
+        final String expect = header(headers, "Expect");
+        if (expect != null) {
+            if ("100-continue".equalsIgnoreCase(expect) == false) {
+                throw new ElasticsearchStatusException("unsupported expectation [{}]", RestStatus.EXPECTATION_FAILED, expect);
+            }
+            request.continueExpected = http10 == false;
+        }
+        return request;
+    }
+
+    /**
+     * Walks the chunks of the body of the pending request that were read so far, starting from the first chunk that wasn't
+     * walked yet.
+     *
+     * @return the length of the whole request including the head, or {@code -1} if the body wasn't read completely yet
+     */
+    private int findEndOfChunkedBody(BytesReference bytes) {
+        while (true) {
+            final int lineStart = pending.chunkOffset;
+            final int lineEnd = findLineBreak(bytes, lineStart, pending.lastChunkRead ? maxHeaderSize : MAX_CHUNK_SIZE_LINE_LENGTH);
+            if (lineEnd < 0) {
+                return -1;
+            }
+            if (pending.lastChunkRead) {
+                // trailer fields are ignored until the empty line that ends the request
+                pending.chunkOffset = lineEnd + 2;
+                if (lineEnd == lineStart) {
+                    return pending.chunkOffset;
+                }
+                continue;
+            }
+            final int chunkSize = parseChunkSize(bytes.slice(lineStart, lineEnd - lineStart).utf8ToString());
+            if (chunkSize == 0) {
+                pending.lastChunkRead = true;
+                pending.chunkOffset = lineEnd + 2;
+                continue;
+            }
+            ensureContentLength((long) pending.contentLength + chunkSize);
+            final int chunkStart = lineEnd + 2;
+            final int chunkEnd = chunkStart + chunkSize;
+            if (bytes.length() < chunkEnd + 2) {
+                return -1;
+            }
+            if (bytes.get(chunkEnd) != '\r' || bytes.get(chunkEnd + 1) != '\n') {
+                throw new ElasticsearchStatusException("HTTP chunk of [{}] bytes isn't followed by a line break", RestStatus.BAD_REQUEST,
+                    chunkSize);
+            }
+            pending.chunks.add(chunkStart, chunkSize);
+            pending.contentLength += chunkSize;
+            pending.chunkOffset = chunkEnd + 2;
+        }
+    }
+
+    private static int findLineBreak(BytesReference bytes, int from, int maxLineLength) {
+        final int end = Math.min(bytes.length() - 1, from + maxLineLength);
+        for (int i = from; i < end; i++) {
+            if (bytes.get(i) == '\r' && bytes.get(i + 1) == '\n') {
+                return i;
+            }
+        }
+        if (bytes.length() - from > maxLineLength + 1) {
+            throw new ElasticsearchStatusException("An HTTP line is larger than {} bytes.", RestStatus.BAD_REQUEST, maxLineLength);
+        }
+        return -1;
+    }
+
+    private static int parseChunkSize(String line) {
+        final int extension = line.indexOf(';');
+        final String size = (extension < 0 ? line : line.substring(0, extension)).trim();
+        try {
+            final int chunkSize = Integer.parseInt(size, 16);
+            if (chunkSize < 0) {
+                throw new NumberFormatException("negative chunk size");
+            }
+            return chunkSize;
+        } catch (NumberFormatException e) {
+            throw new ElasticsearchStatusException("invalid HTTP chunk size [{}]", RestStatus.BAD_REQUEST, e, size);
+        }
+    }
+
+    private void ensureContentLength(long contentLength) {
+        if (contentLength > maxContentLength) {
+            throw new ElasticsearchStatusException("HTTP content length exceeded {} bytes.", RestStatus.REQUEST_ENTITY_TOO_LARGE,
+                maxContentLength);
+        }
+    }
+
+    private BytesReference decompress(Request request, BytesReference content) {
+        final String encoding = header(request.headers, "Content-Encoding");
+        if (encoding == null || content.length() == 0) {
+            return content;
+        }
+        try {
+            final InputStream in;
+            switch (encoding.toLowerCase(Locale.ROOT)) {
+                case "gzip":
+                case "x-gzip":
+                    in = new GZIPInputStream(content.streamInput());
+                    break;
+                case "deflate":
+                case "x-deflate":
+                    in = new InflaterInputStream(content.streamInput());
+                    break;
+                default:
+                    return content;
+            }
+            try (BytesStreamOutput out = new BytesStreamOutput()) {
+                Streams.copy(in, new OutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        ensureContentLength(out.size() + 1L);
+                        out.write(b);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        ensureContentLength((long) out.size() + len);
+                        out.write(b, off, len);
+                    }
+                });
+                request.headers.remove("Content-Encoding");
+                return out.bytes();
+            }
+        } catch (IOException e) {
+            throw new ElasticsearchStatusException("failed to decompress HTTP content with encoding [{}]", RestStatus.BAD_REQUEST, e,
+                encoding);
+        }
+    }
+
+    private static void copy(BytesReference source, byte[] dest, int offset) {
+        try {
+            final BytesRefIterator iterator = source.iterator();
+            BytesRef ref;
+            while ((ref = iterator.next()) != null) {
+                System.arraycopy(ref.bytes, ref.offset, dest, offset, ref.length);
+                offset += ref.length;
+            }
+        } catch (IOException e) {
+            throw new AssertionError("iterating over bytes in memory can't fail", e);
+        }
+    }
+
+    private static String header(Map<String, List<String>> headers, String name) {
+        final List<String> values = headers.get(name);
+        return values == null || values.isEmpty() ? null : values.get(values.size() - 1);
+    }
+
+    /**
+     * A decoded HTTP request.
+     */
+    static final class Request {
+
+        final String method;
+        final String uri;
+        final boolean http10;
+        final Map<String, List<String>> headers;
+        final int headLength;
+        BytesReference content;
+
+        // framing of the body while it is being read
+        private int contentLength;
+        private boolean chunked;
+        private boolean continueExpected;
+        private final IntArrayList chunks = new IntArrayList();
+        private int chunkOffset;
+        private boolean lastChunkRead;
+
+        private Request(String method, String uri, boolean http10, Map<String, List<String>> headers, int headLength) {
+            this.method = method;
+            this.uri = uri;
+            this.http10 = http10;
+            this.headers = headers;
+            this.headLength = headLength;
+            this.chunkOffset = headLength;
+        }
+
+        String header(String name) {
+            return HttpRequestDecoder.header(headers, name);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http.nio;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.rest.RestRequest;
+
+import java.net.SocketAddress;
+
+public class NioHttpRequest extends RestRequest {
+
+    private final HttpRequestDecoder.Request request;
+    private final NioHttpChannel channel;
+
+    NioHttpRequest(NamedXContentRegistry xContentRegistry, HttpRequestDecoder.Request request, NioHttpChannel channel) {
+        super(xContentRegistry, request.uri, request.headers);
+        this.request = request;
+        this.channel = channel;
+    }
+
+    HttpRequestDecoder.Request request() {
+        return request;
+    }
+
+    @Override
+    public Method method() {
+        switch (request.method) {
+            case "POST":
+                return Method.POST;
+            case "PUT":
+                return Method.PUT;
+            case "DELETE":
+                return Method.DELETE;
+            case "HEAD":
+                return Method.HEAD;
+            case "OPTIONS":
+                return Method.OPTIONS;
+            default:
+                return Method.GET;
+        }
+    }
+
+    @Override
+    public String uri() {
+        return request.uri;
+    }
+
+    @Override
+    public boolean hasContent() {
+        return request.content.length() > 0;
+    }
+
+    @Override
+    public BytesReference content() {
+        return request.content;
+    }
+
+    /**
+     * Returns the remote address where this rest request channel is "connected to".  The
+     * returned {@link SocketAddress} is supposed to be down-cast into more
+     * concrete type such as {@link java.net.InetSocketAddress} to retrieve
+     * the detailed information.
+     */
+    @Override
+    public SocketAddress getRemoteAddress() {
+        return channel.getRemoteAddress();
+    }
+
+    /**
+     * Returns the local address where this request channel is bound to.  The returned
+     * {@link SocketAddress} is supposed to be down-cast into more concrete
+     * type such as {@link java.net.InetSocketAddress} to retrieve the detailed
+     * information.
+     */
+    @Override
+    public SocketAddress getLocalAddress() {
+        return channel.getLocalAddress();
+    }
+
+    public NioHttpChannel getChannel() {
+        return channel;
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http.nio;
+
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.nio.PageCache;
+import org.elasticsearch.rest.AbstractRestChannel;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.RestResponse;
+import org.elasticsearch.rest.RestStatus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPOutputStream;
+
+final class NioHttpResponseChannel extends AbstractRestChannel {
+
+    private static final Map<RestStatus, String> REASON_PHRASES;
+
+    static {
+        // derive the reason phrases from the status names, e.g. TOO_MANY_REQUESTS becomes "Too Many Requests"
+        EnumMap<RestStatus, String> reasonPhrases = new EnumMap<>(RestStatus.class);
+        for (RestStatus status : RestStatus.values()) {
+            StringBuilder phrase = new StringBuilder();
+            for (String word : status.name().split("_")) {
+                if (phrase.length() > 0) {
+                    phrase.append(' ');
+                }
+                phrase.append(word.charAt(0)).append(word.substring(1).toLowerCase(Locale.ROOT));
+            }
+            reasonPhrases.put(status, phrase.toString());
+        }
+        REASON_PHRASES = Collections.unmodifiableMap(reasonPhrases);
+    }
+
+    private final NioHttpServerTransport transport;
+    private final HttpReadWriteHandler handler;
+    private final HttpRequestDecoder.Request httpRequest;
+    private final int sequence;
+    private final ThreadContext threadContext;
+
+    /**
+     * @param transport             The corresponding <code>NioHttpServerTransport</code> where this channel belongs to.
+     * @param handler               The handler of the connection the request was received on.
+     * @param request               The request that is handled by this channel.
+     * @param sequence              The position of the request among the requests received on its connection.
+     * @param detailedErrorsEnabled true iff error messages should include stack traces.
+     * @param threadContext         the thread context for the channel
+     */
+    NioHttpResponseChannel(NioHttpServerTransport transport, HttpReadWriteHandler handler, NioHttpRequest request, int sequence,
+                           boolean detailedErrorsEnabled, ThreadContext threadContext) {
+        super(request, detailedErrorsEnabled);
+        this.transport = transport;
+        this.handler = handler;
+        this.httpRequest = request.request();
+        this.sequence = sequence;
+        this.threadContext = threadContext;
+    }
+
+    @Override
+    protected BytesStreamOutput newBytesOutput() {
+        return new ReleasableBytesStreamOutput(transport.bigArrays);
+    }
+
+    @Override
+    public void sendResponse(RestResponse response) {
+        final BytesReference content = response.content();
+        boolean releaseContent = content instanceof Releasable;
+        boolean releaseBytesStreamOutput = bytesOutputOrNull() instanceof ReleasableBytesStreamOutput;
+        try {
+            final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            String opaque = httpRequest.header("X-Opaque-Id");
+            if (opaque != null) {
+                setHeaderField(headers, "X-Opaque-Id", opaque, true);
+            }
+
+            // Add all custom headers
+            addCustomHeaders(headers, response.getHeaders());
+            addCustomHeaders(headers, threadContext.getResponseHeaders());
+
+            // If our response doesn't specify a content-type header, set one
+            setHeaderField(headers, "Content-Type", response.contentType(), false);
+
+            BytesReference body = content;
+            if (shouldCompress(headers, body)) {
+                body = compress(body);
+                setHeaderField(headers, "Content-Encoding", "gzip", true);
+            }
+            // If our response has no content-length, calculate and set one
+            setHeaderField(headers, "Content-Length", String.valueOf(body.length()), false);
+            if (request.method() == RestRequest.Method.HEAD) {
+                body = BytesArray.EMPTY;
+            }
+
+            addCookies(headers);
+
+            final boolean close = isCloseConnection();
+            if (close) {
+                setHeaderField(headers, "Connection", "close", true);
+            } else if (httpRequest.http10) {
+                setHeaderField(headers, "Connection", "Keep-Alive", true);
+            }
+
+            final PageCache pageCache = handler.pageCache();
+            final ByteBuffer headPage = pageCache.acquire();
+            final ByteBuffer[] buffers;
+            try {
+                buffers = encode(headPage, httpRequest.http10, response.status(), headers, body);
+            } catch (RuntimeException e) {
+                pageCache.release(headPage);
+                throw e;
+            }
+            final boolean releaseContentOnSent = releaseContent;
+            final BytesStreamOutput bytesOutput = releaseBytesStreamOutput ? bytesOutputOrNull() : null;
+            handler.sendResponse(sequence, buffers, close, () -> {
+                pageCache.release(headPage);
+                if (releaseContentOnSent) {
+                    ((Releasable) content).close();
+                }
+                if (bytesOutput != null) {
+                    bytesOutput.close();
+                }
+            });
+            releaseContent = false;
+            releaseBytesStreamOutput = false;
+        } finally {
+            if (releaseContent) {
+                ((Releasable) content).close();
+            }
+            if (releaseBytesStreamOutput) {
+                bytesOutputOrNull().close();
+            }
+        }
+    }
+
+    private boolean shouldCompress(Map<String, List<String>> headers, BytesReference body) {
+        if (transport.compression == false || body.length() == 0 || request.method() == RestRequest.Method.HEAD
+            || headers.containsKey("Content-Encoding") || headers.containsKey("Content-Length")) {
+            return false;
+        }
+        final String acceptEncoding = httpRequest.header("Accept-Encoding");
+        return acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+    }
+
+    private BytesReference compress(BytesReference content) {
+        final BytesStreamOutput out = new BytesStreamOutput(content.length() / 4);
+        try (OutputStream gzip = new GZIPOutputStream(out) {
+                {
+                    def.setLevel(transport.compressionLevel);
+                }
+            }) {
+            content.writeTo(gzip);
+        } catch (IOException e) {
+            throw new AssertionError("compressing bytes in memory can't fail", e);
+        }
+        return out.bytes();
+    }
+
+    private void setHeaderField(Map<String, List<String>> headers, String headerField, String value, boolean override) {
+        if (override || headers.containsKey(headerField) == false) {
+            headers.computeIfAbsent(headerField, k -> new ArrayList<>(1)).add(value);
+        }
+    }
+
+    private void addCookies(Map<String, List<String>> headers) {
+        if (transport.resetCookies) {
+            String cookieString = httpRequest.header("Cookie");
+            if (cookieString != null) {
+                List<String> cookies = new ArrayList<>();
+                for (String cookie : cookieString.split(";")) {
+                    if (cookie.trim().isEmpty() == false) {
+                        cookies.add(cookie.trim());
+                    }
+                }
+                if (cookies.isEmpty() == false) {
+                    // Reset the cookies if necessary.
+                    headers.put("Set-Cookie", cookies);
+                }
+            }
+        }
+    }
+
+    private void addCustomHeaders(Map<String, List<String>> headers, Map<String, List<String>> customHeaders) {
+        if (customHeaders != null) {
+            for (Map.Entry<String, List<String>> headerEntry : customHeaders.entrySet()) {
+                for (String headerValue : headerEntry.getValue()) {
+                    setHeaderField(headers, headerEntry.getKey(), headerValue, true);
+                }
+            }
+        }
+    }
+
+    // Determine if the request connection should be closed on completion.
+    private boolean isCloseConnection() {
+        final String connection = httpRequest.header("Connection");
+        return "close".equalsIgnoreCase(connection) || (httpRequest.http10 && "keep-alive".equalsIgnoreCase(connection) == false);
+    }
+
+    /**
+     * Encodes the response to a request that couldn't be decoded. The connection is closed after this response.
+     */
+    static ByteBuffer[] encodeError(ByteBuffer headPage, ElasticsearchStatusException e) {
+        final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        final BytesReference body = new BytesArray(e.getMessage());
+        headers.put("Content-Type", Collections.singletonList("text/plain; charset=UTF-8"));
+        headers.put("Content-Length", Collections.singletonList(String.valueOf(body.length())));
+        headers.put("Connection", Collections.singletonList("close"));
+        return encode(headPage, false, e.status(), headers, body);
+    }
+
+    /**
+     * Encodes the status line and headers into the given page, or into a new buffer if they don't fit, followed by the body.
+     */
+    private static ByteBuffer[] encode(ByteBuffer headPage, boolean http10, RestStatus status, Map<String, List<String>> headers, BytesReference body) {
+        final StringBuilder head = new StringBuilder(256);
+        head.append(http10 ? "HTTP/1.0 " : "HTTP/1.1 ").append(status.getStatus()).append(' ').append(REASON_PHRASES.get(status))
+            .append("\r\n");
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            for (String value : header.getValue()) {
+                head.append(header.getKey()).append(": ").append(value).append("\r\n");
+            }
+        }
+        head.append("\r\n");
+        final ByteBuffer headBuffer = encodeHead(headPage, head);
+        if (body.length() == 0) {
+            return new ByteBuffer[] { headBuffer };
+        }
+        final ByteBuffer[] bodyBuffers = BytesReference.toByteBuffers(body);
+        final ByteBuffer[] buffers = new ByteBuffer[bodyBuffers.length + 1];
+        buffers[0] = headBuffer;
+        System.arraycopy(bodyBuffers, 0, buffers, 1, bodyBuffers.length);
+        return buffers;
+    }
+
+    private static ByteBuffer encodeHead(ByteBuffer headPage, CharSequence head) {
+        final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        if (encoder.encode(CharBuffer.wrap(head), headPage, true).isUnderflow() && encoder.flush(headPage).isUnderflow()) {
+            headPage.flip();
+            return headPage;
+        }
+        // the head is larger than a page, which only happens with very large custom headers
+        return ByteBuffer.wrap(head.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
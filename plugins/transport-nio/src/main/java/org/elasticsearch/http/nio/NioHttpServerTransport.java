@@ -0,0 +1,416 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http.nio;
+
+import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.IntSet;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.logging.log4j.util.Supplier;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.component.AbstractLifecycleComponent;
+import org.elasticsearch.common.network.NetworkAddress;
+import org.elasticsearch.common.network.NetworkService;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.transport.BoundTransportAddress;
+import org.elasticsearch.common.transport.NetworkExceptionHelper;
+import org.elasticsearch.common.transport.PortsRange;
+import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.http.BindHttpException;
+import org.elasticsearch.http.HttpInfo;
+import org.elasticsearch.http.HttpServerTransport;
+import org.elasticsearch.http.HttpStats;
+import org.elasticsearch.nio.AcceptingSelector;
+import org.elasticsearch.nio.AcceptorEventHandler;
+import org.elasticsearch.nio.BytesChannelContext;
+import org.elasticsearch.nio.ChannelFactory;
+import org.elasticsearch.nio.InboundChannelBuffer;
+import org.elasticsearch.nio.NioGroup;
+import org.elasticsearch.nio.NioSocketChannel;
+import org.elasticsearch.nio.ServerChannelContext;
+import org.elasticsearch.nio.SocketEventHandler;
+import org.elasticsearch.nio.SocketSelector;
+import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.BindTransportException;
+import org.elasticsearch.transport.Transports;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.elasticsearch.common.settings.Setting.intSetting;
+import static org.elasticsearch.common.util.concurrent.ConcurrentCollections.newConcurrentSet;
+import static org.elasticsearch.common.util.concurrent.EsExecutors.daemonThreadFactory;
+import static org.elasticsearch.http.HttpTransportSettings.SETTING_CORS_ENABLED;
+import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_BIND_HOST;
+import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_COMPRESSION;
+import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_COMPRESSION_LEVEL;
+import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_DETAILED_ERRORS_ENABLED;
+import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_MAX_CONTENT_LENGTH;
+import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_MAX_HEADER_SIZE;
+import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_MAX_INITIAL_LINE_LENGTH;
+import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_PORT;
+import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_PUBLISH_HOST;
+import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_PUBLISH_PORT;
+import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_RESET_COOKIES;
+import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_TCP_KEEP_ALIVE;
+import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_TCP_NO_DELAY;
+import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_TCP_RECEIVE_BUFFER_SIZE;
+import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_TCP_REUSE_ADDRESS;
+import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_TCP_SEND_BUFFER_SIZE;
+import static org.elasticsearch.http.HttpTransportSettings.SETTING_PIPELINING;
+import static org.elasticsearch.http.HttpTransportSettings.SETTING_PIPELINING_MAX_EVENTS;
+
+/**
+ * An {@link HttpServerTransport} on top of the elasticsearch-nio library. Every socket selector decodes the HTTP requests of
+ * the connections registered with it and writes their responses, so no Netty event loops are involved.
+ */
+public class NioHttpServerTransport extends AbstractLifecycleComponent implements HttpServerTransport {
+
+    public static final Setting<Integer> NIO_HTTP_WORKER_COUNT =
+        new Setting<>("http.nio.worker_count",
+            (s) -> Integer.toString(EsExecutors.numberOfProcessors(s) * 2),
+            (s) -> Setting.parseInt(s, 1, "http.nio.worker_count"), Property.NodeScope);
+
+    public static final Setting<Integer> NIO_HTTP_ACCEPTOR_COUNT =
+        intSetting("http.nio.acceptor_count", 1, 1, Property.NodeScope);
+
+    protected final NetworkService networkService;
+    protected final BigArrays bigArrays;
+    protected final ThreadPool threadPool;
+    protected final NamedXContentRegistry xContentRegistry;
+    private final Dispatcher dispatcher;
+
+    protected final ByteSizeValue maxContentLength;
+    protected final ByteSizeValue maxInitialLineLength;
+    protected final ByteSizeValue maxHeaderSize;
+    protected final boolean pipelining;
+    protected final int pipeliningMaxEvents;
+    protected final boolean compression;
+    protected final int compressionLevel;
+    protected final boolean resetCookies;
+    protected final boolean detailedErrorsEnabled;
+
+    protected final PortsRange port;
+    protected final String bindHosts[];
+    protected final String publishHosts[];
+
+    protected final boolean tcpNoDelay;
+    protected final boolean tcpKeepAlive;
+    protected final boolean reuseAddress;
+    protected final int tcpSendBufferSize;
+    protected final int tcpReceiveBufferSize;
+
+    private final Set<NioSocketChannel> openChannels = newConcurrentSet();
+    private final LongAdder totalChannels = new LongAdder();
+    private final List<NioHttpServerChannel> serverChannels = new ArrayList<>();
+    private volatile NioGroup nioGroup;
+    // the page cache counts of the groups that were stopped, so that they survive restarts of the transport
+    private volatile long stoppedPageCacheHits;
+    private volatile long stoppedPageCacheMisses;
+    private volatile BoundTransportAddress boundAddress;
+
+    public NioHttpServerTransport(Settings settings, NetworkService networkService, BigArrays bigArrays, ThreadPool threadPool,
+                                  NamedXContentRegistry xContentRegistry, Dispatcher dispatcher) {
+        super(settings);
+        if (SETTING_CORS_ENABLED.get(settings)) {
+            throw new IllegalArgumentException("the nio http transport does not support [" + SETTING_CORS_ENABLED.getKey() + "]");
+        }
+        this.networkService = networkService;
+        this.bigArrays = bigArrays;
+        this.threadPool = threadPool;
+        this.xContentRegistry = xContentRegistry;
+        this.dispatcher = dispatcher;
+
+        ByteSizeValue maxContentLength = SETTING_HTTP_MAX_CONTENT_LENGTH.get(settings);
+        this.maxHeaderSize = SETTING_HTTP_MAX_HEADER_SIZE.get(settings);
+        this.maxInitialLineLength = SETTING_HTTP_MAX_INITIAL_LINE_LENGTH.get(settings);
+        this.resetCookies = SETTING_HTTP_RESET_COOKIES.get(settings);
+        this.port = SETTING_HTTP_PORT.get(settings);
+        // we can't make the network.bind_host a fallback since we already fall back to http.host hence the extra conditional here
+        List<String> httpBindHost = SETTING_HTTP_BIND_HOST.get(settings);
+        this.bindHosts = (httpBindHost.isEmpty() ? NetworkService.GLOBAL_NETWORK_BINDHOST_SETTING.get(settings) : httpBindHost)
+            .toArray(Strings.EMPTY_ARRAY);
+        // we can't make the network.publish_host a fallback since we already fall back to http.host hence the extra conditional here
+        List<String> httpPublishHost = SETTING_HTTP_PUBLISH_HOST.get(settings);
+        this.publishHosts = (httpPublishHost.isEmpty() ? NetworkService.GLOBAL_NETWORK_PUBLISHHOST_SETTING.get(settings) : httpPublishHost)
+            .toArray(Strings.EMPTY_ARRAY);
+        this.tcpNoDelay = SETTING_HTTP_TCP_NO_DELAY.get(settings);
+        this.tcpKeepAlive = SETTING_HTTP_TCP_KEEP_ALIVE.get(settings);
+        this.reuseAddress = SETTING_HTTP_TCP_REUSE_ADDRESS.get(settings);
+        this.tcpSendBufferSize = Math.toIntExact(SETTING_HTTP_TCP_SEND_BUFFER_SIZE.get(settings).getBytes());
+        this.tcpReceiveBufferSize = Math.toIntExact(SETTING_HTTP_TCP_RECEIVE_BUFFER_SIZE.get(settings).getBytes());
+        this.detailedErrorsEnabled = SETTING_HTTP_DETAILED_ERRORS_ENABLED.get(settings);
+        this.compression = SETTING_HTTP_COMPRESSION.get(settings);
+        this.compressionLevel = SETTING_HTTP_COMPRESSION_LEVEL.get(settings);
+        this.pipelining = SETTING_PIPELINING.get(settings);
+        this.pipeliningMaxEvents = SETTING_PIPELINING_MAX_EVENTS.get(settings);
+
+        // validate max content length
+        if (maxContentLength.getBytes() > Integer.MAX_VALUE) {
+            logger.warn("maxContentLength[{}] set to high value, resetting it to [100mb]", maxContentLength);
+            maxContentLength = new ByteSizeValue(100, ByteSizeUnit.MB);
+        }
+        this.maxContentLength = maxContentLength;
+
+        logger.debug("using max_header_size[{}], max_initial_line_length[{}], max_content_length[{}], pipelining[{}], " +
+                "pipelining_max_events[{}]", maxHeaderSize, maxInitialLineLength, this.maxContentLength, pipelining, pipeliningMaxEvents);
+    }
+
+    Logger logger() {
+        return logger;
+    }
+
+    @Override
+    protected void doStart() {
+        boolean success = false;
+        try {
+            nioGroup = new NioGroup(logger, daemonThreadFactory(this.settings, Transports.NIO_HTTP_ACCEPTOR_THREAD_NAME_PREFIX),
+                NIO_HTTP_ACCEPTOR_COUNT.get(settings), AcceptorEventHandler::new,
+                daemonThreadFactory(this.settings, Transports.NIO_HTTP_WORKER_THREAD_NAME_PREFIX),
+                NIO_HTTP_WORKER_COUNT.get(settings), SocketEventHandler::new);
+
+            this.boundAddress = createBoundHttpAddress(new HttpChannelFactory());
+            if (logger.isInfoEnabled()) {
+                logger.info("{}", boundAddress);
+            }
+            success = true;
+        } catch (IOException e) {
+            throw new ElasticsearchException(e);
+        } finally {
+            if (success == false) {
+                doStop(); // otherwise we leak threads since we never moved to started
+            }
+        }
+    }
+
+    private BoundTransportAddress createBoundHttpAddress(HttpChannelFactory channelFactory) {
+        // Bind and start to accept incoming connections.
+        InetAddress hostAddresses[];
+        try {
+            hostAddresses = networkService.resolveBindHostAddresses(bindHosts);
+        } catch (IOException e) {
+            throw new BindHttpException("Failed to resolve host [" + Arrays.toString(bindHosts) + "]", e);
+        }
+
+        List<TransportAddress> boundAddresses = new ArrayList<>(hostAddresses.length);
+        for (InetAddress address : hostAddresses) {
+            boundAddresses.add(bindAddress(address, channelFactory));
+        }
+
+        final InetAddress publishInetAddress;
+        try {
+            publishInetAddress = networkService.resolvePublishHostAddresses(publishHosts);
+        } catch (Exception e) {
+            throw new BindTransportException("Failed to resolve publish address", e);
+        }
+
+        final int publishPort = resolvePublishPort(settings, boundAddresses, publishInetAddress);
+        final InetSocketAddress publishAddress = new InetSocketAddress(publishInetAddress, publishPort);
+        return new BoundTransportAddress(boundAddresses.toArray(new TransportAddress[0]), new TransportAddress(publishAddress));
+    }
+
+    // package private for tests
+    static int resolvePublishPort(Settings settings, List<TransportAddress> boundAddresses, InetAddress publishInetAddress) {
+        int publishPort = SETTING_HTTP_PUBLISH_PORT.get(settings);
+
+        if (publishPort < 0) {
+            for (TransportAddress boundAddress : boundAddresses) {
+                InetAddress boundInetAddress = boundAddress.address().getAddress();
+                if (boundInetAddress.isAnyLocalAddress() || boundInetAddress.equals(publishInetAddress)) {
+                    publishPort = boundAddress.getPort();
+                    break;
+                }
+            }
+        }
+
+        // if no matching boundAddress found, check if there is a unique port for all bound addresses
+        if (publishPort < 0) {
+            final IntSet ports = new IntHashSet();
+            for (TransportAddress boundAddress : boundAddresses) {
+                ports.add(boundAddress.getPort());
+            }
+            if (ports.size() == 1) {
+                publishPort = ports.iterator().next().value;
+            }
+        }
+
+        if (publishPort < 0) {
+            throw new BindHttpException("Failed to auto-resolve http publish port, multiple bound addresses " + boundAddresses +
+                " with distinct ports and none of them matched the publish address (" + publishInetAddress + "). " +
+                "Please specify a unique port by setting " + SETTING_HTTP_PORT.getKey() + " or " + SETTING_HTTP_PUBLISH_PORT.getKey());
+        }
+        return publishPort;
+    }
+
+    private TransportAddress bindAddress(final InetAddress hostAddress, HttpChannelFactory channelFactory) {
+        final AtomicReference<Exception> lastException = new AtomicReference<>();
+        final AtomicReference<InetSocketAddress> boundSocket = new AtomicReference<>();
+        boolean success = port.iterate(portNumber -> {
+            try {
+                synchronized (serverChannels) {
+                    NioHttpServerChannel channel = nioGroup.bindServerChannel(new InetSocketAddress(hostAddress, portNumber),
+                        channelFactory);
+                    serverChannels.add(channel);
+                    boundSocket.set(channel.getLocalAddress());
+                }
+            } catch (Exception e) {
+                lastException.set(e);
+                return false;
+            }
+            return true;
+        });
+        if (!success) {
+            throw new BindHttpException("Failed to bind to [" + port.getPortRangeString() + "]", lastException.get());
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("Bound http to address {{}}", NetworkAddress.format(boundSocket.get()));
+        }
+        return new TransportAddress(boundSocket.get());
+    }
+
+    @Override
+    protected void doStop() {
+        synchronized (serverChannels) {
+            for (NioHttpServerChannel channel : serverChannels) {
+                channel.close();
+            }
+            serverChannels.clear();
+        }
+
+        if (nioGroup != null) {
+            stoppedPageCacheHits += nioGroup.getPageCacheHits();
+            stoppedPageCacheMisses += nioGroup.getPageCacheMisses();
+            try {
+                // closing the selectors closes all channels that are still registered with them
+                nioGroup.close();
+            } catch (Exception e) {
+                logger.warn("unexpected exception while stopping nio group", e);
+            }
+            nioGroup = null;
+        }
+        openChannels.clear();
+    }
+
+    @Override
+    protected void doClose() {
+    }
+
+    @Override
+    public BoundTransportAddress boundAddress() {
+        return this.boundAddress;
+    }
+
+    @Override
+    public HttpInfo info() {
+        BoundTransportAddress boundTransportAddress = boundAddress();
+        if (boundTransportAddress == null) {
+            return null;
+        }
+        return new HttpInfo(boundTransportAddress, maxContentLength.getBytes());
+    }
+
+    @Override
+    public HttpStats stats() {
+        final NioGroup nioGroup = this.nioGroup;
+        long pageCacheHits = stoppedPageCacheHits;
+        long pageCacheMisses = stoppedPageCacheMisses;
+        if (nioGroup != null) {
+            pageCacheHits += nioGroup.getPageCacheHits();
+            pageCacheMisses += nioGroup.getPageCacheMisses();
+        }
+        return new HttpStats(openChannels.size(), totalChannels.sum(), pageCacheHits, pageCacheMisses);
+    }
+
+    void dispatchRequest(final RestRequest request, final RestChannel channel) {
+        final ThreadContext threadContext = threadPool.getThreadContext();
+        try (ThreadContext.StoredContext ignore = threadContext.stashContext()) {
+            dispatcher.dispatchRequest(request, channel, threadContext);
+        }
+    }
+
+    protected void exceptionCaught(NioSocketChannel channel, Exception cause) {
+        if (lifecycle.started() == false) {
+            // ignore
+            return;
+        }
+        if (NetworkExceptionHelper.isCloseConnectionException(cause) == false) {
+            logger.warn((Supplier<?>) () -> new ParameterizedMessage(
+                "caught exception while handling client http traffic, closing connection {}", channel), cause);
+        } else {
+            logger.debug((Supplier<?>) () -> new ParameterizedMessage(
+                "caught exception while handling client http traffic, closing connection {}", channel), cause);
+        }
+        channel.close();
+    }
+
+    protected void acceptChannel(NioSocketChannel channel) {
+        openChannels.add(channel);
+        totalChannels.increment();
+        channel.addCloseListener((v, e) -> openChannels.remove(channel));
+    }
+
+    private class HttpChannelFactory extends ChannelFactory<NioHttpServerChannel, NioHttpChannel> {
+
+        private HttpChannelFactory() {
+            super(new RawChannelFactory(tcpNoDelay, tcpKeepAlive, reuseAddress, tcpSendBufferSize, tcpReceiveBufferSize));
+        }
+
+        @Override
+        public NioHttpChannel createChannel(SocketSelector selector, SocketChannel channel) throws IOException {
+            NioHttpChannel nioChannel = new NioHttpChannel(channel, selector);
+            HttpReadWriteHandler handler = new HttpReadWriteHandler(nioChannel, NioHttpServerTransport.this,
+                threadPool.getThreadContext());
+            BytesChannelContext context = new BytesChannelContext(nioChannel, NioHttpServerTransport.this::exceptionCaught, handler,
+                InboundChannelBuffer.pageCacheInstance(selector.getPageCache()));
+            nioChannel.setContext(context);
+            return nioChannel;
+        }
+
+        @Override
+        public NioHttpServerChannel createServerChannel(AcceptingSelector selector, ServerSocketChannel channel) throws IOException {
+            NioHttpServerChannel nioChannel = new NioHttpServerChannel(channel, this, selector);
+            ServerChannelContext context = new ServerChannelContext(nioChannel, NioHttpServerTransport.this::acceptChannel,
+                (c, e) -> {});
+            nioChannel.setContext(context);
+            return nioChannel;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http.nio;
+
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class HttpRequestDecoderTests extends ESTestCase {
+
+    private final List<HttpRequestDecoder.Request> requests = new ArrayList<>();
+    private final HttpRequestDecoder decoder = new HttpRequestDecoder(4096, 8192, 1024);
+
+    public void testRequestWithoutBody() {
+        String request = "GET /_cluster/health?pretty HTTP/1.1\r\nHost: localhost\r\nX-Opaque-Id: 1\r\n\r\n";
+        assertThat(decode(request), equalTo(request.length()));
+        assertThat(requests.size(), equalTo(1));
+        HttpRequestDecoder.Request decoded = requests.get(0);
+        assertThat(decoded.method, equalTo("GET"));
+        assertThat(decoded.uri, equalTo("/_cluster/health?pretty"));
+        assertFalse(decoded.http10);
+        assertThat(decoded.header("x-opaque-id"), equalTo("1"));
+        assertThat(decoded.content.length(), equalTo(0));
+    }
+
+    public void testLeadingLineBreaksAreSkipped() {
+        assertThat(decode("\r\n\r\nGET / HTTP/1.1\r\n\r\n"), equalTo(4));
+        assertThat(requests.size(), equalTo(0));
+    }
+
+    public void testBodyWithContentLength() {
+        String head = "POST /index/type HTTP/1.1\r\nContent-Length: 13\r\n\r\n";
+        String body = "{\"foo\":\"bar\"}";
+        int split = randomIntBetween(0, head.length() + body.length() - 1);
+        assertThat(decode((head + body).substring(0, split)), equalTo(0));
+        assertThat(requests.size(), equalTo(0));
+        assertThat(decode(head + body + "GET"), equalTo(head.length() + body.length()));
+        assertThat(requests.size(), equalTo(1));
+        assertThat(requests.get(0).content.utf8ToString(), equalTo(body));
+    }
+
+    public void testChunkedBody() {
+        String request = "POST /_bulk HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n" +
+            "5\r\nhello\r\n" +
+            "7;name=value\r\n, world\r\n" +
+            "0\r\nTrailer: ignored\r\n\r\n";
+        for (int i = 0; i < request.length(); i += randomIntBetween(1, 10)) {
+            assertThat(decode(request.substring(0, i)), equalTo(0));
+        }
+        assertThat(decode(request), equalTo(request.length()));
+        assertThat(requests.size(), equalTo(1));
+        assertThat(requests.get(0).content.utf8ToString(), equalTo("hello, world"));
+        assertThat(requests.get(0).header("Transfer-Encoding"), nullValue());
+        assertThat(requests.get(0).header("Content-Length"), equalTo("12"));
+    }
+
+    public void testPipelinedRequests() {
+        String first = "GET / HTTP/1.1\r\nX-Opaque-Id: 0\r\n\r\n";
+        String second = "PUT /index HTTP/1.0\r\nContent-Length: 2\r\n\r\n{}";
+        String both = first + second;
+        assertThat(decode(both), equalTo(first.length()));
+        assertThat(decode(both.substring(first.length())), equalTo(second.length()));
+        assertThat(requests.size(), equalTo(2));
+        assertThat(requests.get(1).method, equalTo("PUT"));
+        assertTrue(requests.get(1).http10);
+        assertThat(requests.get(1).content.utf8ToString(), equalTo("{}"));
+    }
+
+    public void testContentTooLarge() {
+        ElasticsearchStatusException e = expectThrows(ElasticsearchStatusException.class,
+            () -> decode("POST / HTTP/1.1\r\nContent-Length: 1025\r\n\r\n"));
+        assertThat(e.status(), equalTo(RestStatus.REQUEST_ENTITY_TOO_LARGE));
+
+        HttpRequestDecoder chunkedDecoder = new HttpRequestDecoder(4096, 8192, 1024);
+        String chunk = new String(new char[600]).replace('\0', 'a');
+        String request = "POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n258\r\n" + chunk + "\r\n258\r\n" + chunk + "\r\n0\r\n\r\n";
+        e = expectThrows(ElasticsearchStatusException.class,
+            () -> chunkedDecoder.decode(new BytesArray(request), requests::add));
+        assertThat(e.status(), equalTo(RestStatus.REQUEST_ENTITY_TOO_LARGE));
+    }
+
+    public void testHeaderTooLarge() {
+        String header = "X-Large: " + new String(new char[8192]).replace('\0', 'a') + "\r\n";
+        ElasticsearchStatusException e = expectThrows(ElasticsearchStatusException.class,
+            () -> decode("GET / HTTP/1.1\r\n" + header + "\r\n"));
+        assertThat(e.status(), equalTo(RestStatus.BAD_REQUEST));
+    }
+
+    public void testInvalidRequests() {
+        ElasticsearchStatusException e = expectThrows(ElasticsearchStatusException.class, () -> decode("GET /\r\n\r\n"));
+        assertThat(e.status(), equalTo(RestStatus.BAD_REQUEST));
+        e = expectThrows(ElasticsearchStatusException.class, () -> decode("GET / HTTP/2.0\r\n\r\n"));
+        assertThat(e.status(), equalTo(RestStatus.HTTP_VERSION_NOT_SUPPORTED));
+        e = expectThrows(ElasticsearchStatusException.class, () -> decode("GET / HTTP/1.1\r\nContent-Length: abc\r\n\r\n"));
+        assertThat(e.status(), equalTo(RestStatus.BAD_REQUEST));
+        e = expectThrows(ElasticsearchStatusException.class, () -> decode("GET / HTTP/1.1\r\nno colon\r\n\r\n"));
+        assertThat(e.status(), equalTo(RestStatus.BAD_REQUEST));
+    }
+
+    public void testExpectContinue() {
+        String head = "PUT /index HTTP/1.1\r\nExpect: 100-continue\r\nContent-Length: 2\r\n\r\n";
+        assertThat(decode(head), equalTo(0));
+        assertTrue(decoder.takeContinueExpected());
+        assertFalse(decoder.takeContinueExpected());
+        assertThat(decode(head + "{}"), equalTo(head.length() + 2));
+        assertThat(requests.get(0).content.utf8ToString(), equalTo("{}"));
+    }
+
+    public void testGzipContentIsDecompressed() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write("{\"foo\":\"bar\"}".getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] head = ("POST / HTTP/1.1\r\nContent-Encoding: gzip\r\nContent-Length: " + out.size() + "\r\n\r\n")
+            .getBytes(StandardCharsets.ISO_8859_1);
+        byte[] request = new byte[head.length + out.size()];
+        System.arraycopy(head, 0, request, 0, head.length);
+        System.arraycopy(out.toByteArray(), 0, request, head.length, out.size());
+        assertThat(decoder.decode(new BytesArray(request), requests::add), equalTo(request.length));
+        assertThat(requests.get(0).content.utf8ToString(), equalTo("{\"foo\":\"bar\"}"));
+        assertThat(requests.get(0).header("Content-Encoding"), nullValue());
+    }
+
+    private int decode(String bytes) {
+        BytesReference reference = new BytesArray(bytes.getBytes(StandardCharsets.ISO_8859_1));
+        return decoder.decode(reference, requests::add);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http.nio;
+
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.NioIntegTestCase;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.common.network.NetworkModule;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.http.HttpServerTransport;
+import org.elasticsearch.test.ESIntegTestCase.ClusterScope;
+import org.elasticsearch.test.ESIntegTestCase.Scope;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+@ClusterScope(scope = Scope.TEST, supportsDedicatedMasters = false, numDataNodes = 1)
+public class NioHttpServerTransportIT extends NioIntegTestCase {
+
+    @Override
+    protected boolean ignoreExternalCluster() {
+        return true;
+    }
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return Settings.builder()
+            .put(super.nodeSettings(nodeOrdinal))
+            .put(NetworkModule.HTTP_ENABLED.getKey(), true)
+            .put("http.pipelining", true)
+            .build();
+    }
+
+    public void testRestRequests() throws IOException {
+        RestClient client = getRestClient();
+        Response response = client.performRequest("PUT", "/test/doc/1", Collections.singletonMap("refresh", "true"),
+            new StringEntity("{\"field\":\"value\"}", ContentType.APPLICATION_JSON));
+        assertThat(response.getStatusLine().getStatusCode(), equalTo(201));
+
+        response = client.performRequest("GET", "/test/doc/1");
+        assertThat(response.getStatusLine().getStatusCode(), equalTo(200));
+        assertThat(EntityUtils.toString(response.getEntity()), containsString("\"field\":\"value\""));
+
+        response = client.performRequest("HEAD", "/test/doc/1");
+        assertThat(response.getStatusLine().getStatusCode(), equalTo(200));
+        assertThat(Integer.parseInt(response.getHeader("Content-Length")), greaterThan(0));
+    }
+
+    public void testPipelinedResponsesAreWrittenInOrder() throws IOException {
+        String[] paths = new String[] { "/", "/_nodes/stats", "/", "/_cluster/state", "/" };
+        StringBuilder requests = new StringBuilder();
+        for (int i = 0; i < paths.length; i++) {
+            requests.append("GET ").append(paths[i]).append(" HTTP/1.1\r\nHost: localhost\r\nX-Opaque-Id: ").append(i).append("\r\n\r\n");
+        }
+
+        HttpServerTransport httpServerTransport = internalCluster().getInstance(HttpServerTransport.class);
+        TransportAddress transportAddress = randomFrom(httpServerTransport.boundAddress().boundAddresses());
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(transportAddress.address().getAddress(), transportAddress.address().getPort()));
+            OutputStream out = socket.getOutputStream();
+            out.write(requests.toString().getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+
+            InputStream in = socket.getInputStream();
+            for (int i = 0; i < paths.length; i++) {
+                Map<String, String> headers = readResponse(in);
+                assertThat(headers.get("x-opaque-id"), equalTo(String.valueOf(i)));
+            }
+        }
+    }
+
+    public void testContentTooLargeIsRejected() throws IOException {
+        HttpServerTransport httpServerTransport = internalCluster().getInstance(HttpServerTransport.class);
+        TransportAddress transportAddress = randomFrom(httpServerTransport.boundAddress().boundAddresses());
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(transportAddress.address().getAddress(), transportAddress.address().getPort()));
+            OutputStream out = socket.getOutputStream();
+            out.write("PUT /test/doc/1 HTTP/1.1\r\nContent-Length: 1000000000\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+
+            Map<String, String> headers = readResponse(socket.getInputStream());
+            assertThat(headers.get("status"), equalTo("413"));
+            assertThat(headers.get("connection"), equalTo("close"));
+        }
+    }
+
+    /**
+     * Reads a response with a content length and returns its status code and headers, with lower-cased header names.
+     */
+    private static Map<String, String> readResponse(InputStream in) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        int matched = 0;
+        while (matched < 4) {
+            int b = in.read();
+            assertThat("unexpected end of stream", b, greaterThan(-1));
+            head.write(b);
+            matched = (b == '\r' && (matched == 0 || matched == 2)) || (b == '\n' && (matched == 1 || matched == 3)) ? matched + 1 : 0;
+        }
+        String[] lines = new String(head.toByteArray(), StandardCharsets.ISO_8859_1).split("\r\n");
+        Map<String, String> headers = new HashMap<>();
+        headers.put("status", lines[0].split(" ")[1]);
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            headers.put(lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT), lines[i].substring(colon + 1).trim());
+        }
+        int contentLength = Integer.parseInt(headers.get("content-length"));
+        for (int i = 0; i < contentLength; i++) {
+            assertThat("unexpected end of stream", in.read(), greaterThan(-1));
+        }
+        return headers;
+    }
+}
@@ -45,6 +45,7 @@ public class NodesStatsRequest extends BaseNodesRequest<NodesStatsRequest> {
     private boolean discovery;
     private boolean ingest;
     private boolean adaptiveSelection;
+    private boolean admissionControl;
 
     public NodesStatsRequest() {
     }
@@ -74,6 +75,7 @@ public class NodesStatsRequest extends BaseNodesRequest<NodesStatsRequest> {
         this.discovery = true;
         this.ingest = true;
         this.adaptiveSelection = true;
+        this.admissionControl = true;
         return this;
     }
 
@@ -94,6 +96,7 @@ public class NodesStatsRequest extends BaseNodesRequest<NodesStatsRequest> {
         this.discovery = false;
         this.ingest = false;
         this.adaptiveSelection = false;
+        this.admissionControl = false;
         return this;
     }
 
@@ -281,6 +284,18 @@ public class NodesStatsRequest extends BaseNodesRequest<NodesStatsRequest> {
         return this;
     }
 
+    public boolean admissionControl() {
+        return admissionControl;
+    }
+
+    /**
+     * Should admission control statistics be returned.
+     */
+    public NodesStatsRequest admissionControl(boolean admissionControl) {
+        this.admissionControl = admissionControl;
+        return this;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
@@ -301,6 +316,11 @@ public class NodesStatsRequest extends BaseNodesRequest<NodesStatsRequest> {
         } else {
             adaptiveSelection = false;
         }
+        if (in.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            admissionControl = in.readBoolean();
+        } else {
+            admissionControl = false;
+        }
     }
 
     @Override
@@ -321,5 +341,8 @@ public class NodesStatsRequest extends BaseNodesRequest<NodesStatsRequest> {
         if (out.getVersion().onOrAfter(Version.V_6_1_0)) {
             out.writeBoolean(adaptiveSelection);
         }
+        if (out.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            out.writeBoolean(admissionControl);
+        }
     }
 }
@@ -142,4 +142,12 @@ public class NodesStatsRequestBuilder extends NodesOperationRequestBuilder<Nodes
         request.ingest(ingest);
         return this;
     }
+
+    /**
+     * Should admission control statistics be returned.
+     */
+    public NodesStatsRequestBuilder setAdmissionControl(boolean admissionControl) {
+        request.admissionControl(admissionControl);
+        return this;
+    }
 }
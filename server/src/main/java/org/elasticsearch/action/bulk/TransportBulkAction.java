@@ -48,7 +48,9 @@ import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
 import org.elasticsearch.cluster.metadata.MappingMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
@@ -59,6 +61,7 @@ import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.indices.IndexClosedException;
 import org.elasticsearch.ingest.IngestService;
+import org.elasticsearch.node.AdmissionController;
 import org.elasticsearch.node.NodeClosedException;
 import org.elasticsearch.tasks.Task;
 import org.elasticsearch.threadpool.ThreadPool;
@@ -92,8 +95,22 @@ public class TransportBulkAction extends HandledTransportAction<BulkRequest, Bul
     private final TransportCreateIndexAction createIndexAction;
     private final LongSupplier relativeTimeProvider;
     private final IngestActionForwarder ingestForwarder;
+    @Nullable
+    private final AdmissionController admissionController;
 
     @Inject
+    public TransportBulkAction(Settings settings, ThreadPool threadPool, TransportService transportService,
+                               ClusterService clusterService, IngestService ingestService,
+                               TransportShardBulkAction shardBulkAction, TransportCreateIndexAction createIndexAction,
+                               ActionFilters actionFilters, IndexNameExpressionResolver indexNameExpressionResolver,
+                               AutoCreateIndex autoCreateIndex, AdmissionController admissionController) {
+        this(settings, threadPool, transportService, clusterService, ingestService,
+                shardBulkAction, createIndexAction,
+                actionFilters, indexNameExpressionResolver,
+                autoCreateIndex,
+                System::nanoTime, admissionController);
+    }
+
     public TransportBulkAction(Settings settings, ThreadPool threadPool, TransportService transportService,
                                ClusterService clusterService, IngestService ingestService,
                                TransportShardBulkAction shardBulkAction, TransportCreateIndexAction createIndexAction,
@@ -111,6 +128,16 @@ public class TransportBulkAction extends HandledTransportAction<BulkRequest, Bul
                                TransportShardBulkAction shardBulkAction, TransportCreateIndexAction createIndexAction,
                                ActionFilters actionFilters, IndexNameExpressionResolver indexNameExpressionResolver,
                                AutoCreateIndex autoCreateIndex, LongSupplier relativeTimeProvider) {
+        this(settings, threadPool, transportService, clusterService, ingestService, shardBulkAction, createIndexAction, actionFilters,
+                indexNameExpressionResolver, autoCreateIndex, relativeTimeProvider, null);
+    }
+
+    public TransportBulkAction(Settings settings, ThreadPool threadPool, TransportService transportService,
+                               ClusterService clusterService, IngestService ingestService,
+                               TransportShardBulkAction shardBulkAction, TransportCreateIndexAction createIndexAction,
+                               ActionFilters actionFilters, IndexNameExpressionResolver indexNameExpressionResolver,
+                               AutoCreateIndex autoCreateIndex, LongSupplier relativeTimeProvider,
+                               @Nullable AdmissionController admissionController) {
         super(settings, BulkAction.NAME, threadPool, transportService, actionFilters, indexNameExpressionResolver, BulkRequest::new);
         Objects.requireNonNull(relativeTimeProvider);
         this.clusterService = clusterService;
@@ -120,6 +147,7 @@ public class TransportBulkAction extends HandledTransportAction<BulkRequest, Bul
         this.autoCreateIndex = autoCreateIndex;
         this.relativeTimeProvider = relativeTimeProvider;
         this.ingestForwarder = new IngestActionForwarder(transportService);
+        this.admissionController = admissionController;
         clusterService.addStateApplier(this.ingestForwarder);
     }
 
@@ -138,7 +166,27 @@ public class TransportBulkAction extends HandledTransportAction<BulkRequest, Bul
             }
             return;
         }
+        if (admissionController == null) {
+            executeAdmitted(task, bulkRequest, listener);
+            return;
+        }
+        // requests with pipelines are admitted once the ingest service hands them back without pipelines
+        final Releasable admission = admissionController.admitBulk(bulkRequest.estimatedSizeInBytes());
+        final ActionListener<BulkResponse> releasingListener = ActionListener.wrap(response -> {
+            admission.close();
+            listener.onResponse(response);
+        }, e -> {
+            admission.close();
+            listener.onFailure(e);
+        });
+        try {
+            executeAdmitted(task, bulkRequest, releasingListener);
+        } catch (Exception e) {
+            releasingListener.onFailure(e);
+        }
+    }
 
+    private void executeAdmitted(Task task, BulkRequest bulkRequest, ActionListener<BulkResponse> listener) {
         final long startTime = relativeTime();
         final AtomicArray<BulkItemResponse> responses = new AtomicArray<>(bulkRequest.requests.size());
 
@@ -62,7 +62,7 @@ public class TransportExplainAction extends TransportSingleShardAction<ExplainRe
                                   TransportService transportService, SearchService searchService, ActionFilters actionFilters,
                                   IndexNameExpressionResolver indexNameExpressionResolver) {
         super(settings, ExplainAction.NAME, threadPool, clusterService, transportService, actionFilters, indexNameExpressionResolver,
-                ExplainRequest::new, ThreadPool.Names.GET);
+                ExplainRequest::new, ThreadPool.Names.GET, searchService.getResponseCollectorService());
         this.searchService = searchService;
     }
 
@@ -148,7 +148,8 @@ public class TransportExplainAction extends TransportSingleShardAction<ExplainRe
     @Override
     protected ShardIterator shards(ClusterState state, InternalRequest request) {
         return clusterService.operationRouting().getShards(
-                clusterService.state(), request.concreteIndex(), request.request().id(), request.request().routing(), request.request().preference()
+                clusterService.state(), request.concreteIndex(), request.request().id(), request.request().routing(), request.request().preference(),
+                responseCollectorService
         );
     }
 }
@@ -36,6 +36,7 @@ import org.elasticsearch.index.get.GetResult;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
 
@@ -48,9 +49,10 @@ public class TransportShardMultiGetAction extends TransportSingleShardAction<Mul
     @Inject
     public TransportShardMultiGetAction(Settings settings, ClusterService clusterService, TransportService transportService,
                                         IndicesService indicesService, ThreadPool threadPool, ActionFilters actionFilters,
-                                        IndexNameExpressionResolver indexNameExpressionResolver) {
+                                        IndexNameExpressionResolver indexNameExpressionResolver,
+                                        ResponseCollectorService responseCollectorService) {
         super(settings, ACTION_NAME, threadPool, clusterService, transportService, actionFilters, indexNameExpressionResolver,
-                MultiGetShardRequest::new, ThreadPool.Names.GET);
+                MultiGetShardRequest::new, ThreadPool.Names.GET, responseCollectorService);
         this.indicesService = indicesService;
     }
 
@@ -72,7 +74,8 @@ public class TransportShardMultiGetAction extends TransportSingleShardAction<Mul
     @Override
     protected ShardIterator shards(ClusterState state, InternalRequest request) {
         return clusterService.operationRouting()
-                .getShards(state, request.request().index(), request.request().shardId(), request.request().preference());
+                .getShards(state, request.request().index(), request.request().shardId(), request.request().preference(),
+                        responseCollectorService);
     }
 
     @Override
@@ -26,6 +26,7 @@ import org.elasticsearch.action.support.TransportActions;
 import org.elasticsearch.cluster.routing.GroupShardsIterator;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.search.SearchPhaseResult;
@@ -117,7 +118,7 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
                             lastShard),
                     e);
             if (!lastShard) {
-                performPhaseOnShard(shardIndex, shardIt, nextShard);
+                performPhaseOnShard(shardIndex, shardIt, nextShard, false);
             } else {
                 maybeExecuteNext(); // move to the next execution if needed
                 // no more shards active, add a failure
@@ -150,7 +151,7 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
             for (int index = 0; index < maxConcurrentShardRequests; index++) {
                 final SearchShardIterator shardRoutings = shardsIts.get(index);
                 assert shardRoutings.skip() == false;
-                performPhaseOnShard(index, shardRoutings, shardRoutings.nextOrNull());
+                performPhaseOnShard(index, shardRoutings, shardRoutings.nextOrNull(), true);
             }
         }
     }
@@ -159,7 +160,7 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
         final int index = shardExecutionIndex.getAndIncrement();
         if (index < shardsIts.size()) {
             final SearchShardIterator shardRoutings = shardsIts.get(index);
-            performPhaseOnShard(index, shardRoutings, shardRoutings.nextOrNull());
+            performPhaseOnShard(index, shardRoutings, shardRoutings.nextOrNull(), true);
         }
     }
 
@@ -192,7 +193,12 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
         });
     }
 
-    private void performPhaseOnShard(final int shardIndex, final SearchShardIterator shardIt, final ShardRouting shard) {
+    /**
+     * Sends the request of this phase to a copy of a shard. Only the first request of a shard may be hedged, retries on the next copies
+     * after a failure are not.
+     */
+    private void performPhaseOnShard(final int shardIndex, final SearchShardIterator shardIt, final ShardRouting shard,
+                                     final boolean firstAttempt) {
         /*
          * We capture the thread that this phase is starting on. When we are called back after executing the phase, we are either on the
          * same thread (because we never went async, or the same thread was selected from the thread pool) or a different thread. If we
@@ -201,8 +207,17 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
          * we can continue (cf. InitialSearchPhase#maybeFork).
          */
         final Thread thread = Thread.currentThread();
+        final ShardSearchHedging hedging = firstAttempt ? hedging() : null;
         if (shard == null) {
             fork(() -> onShardFailure(shardIndex, null, null, shardIt, new NoShardAvailableActionException(shardIt.shardId())));
+        } else if (hedging != null) {
+            hedging.onShardRequest();
+            final HedgedShard hedgedShard = new HedgedShard();
+            performHedgeableRequest(thread, shardIndex, shardIt, shard, hedgedShard, hedging, false);
+            final long hedgeDelayNanos = hedging.getDelayNanos();
+            if (hedgeDelayNanos >= 0 && shardIt.remaining() > 0) {
+                hedging.schedule(hedgeDelayNanos, () -> maybeHedge(shardIndex, shardIt, hedgedShard, hedging));
+            }
         } else {
             try {
                 executePhaseOnShard(shardIt, shard, new SearchActionListener<FirstResult>(new SearchShardTarget(shard.currentNodeId(),
@@ -227,7 +242,113 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
         }
     }
 
+    /**
+     * The requests in flight for a shard whose request may be hedged. All fields are guarded by the instance's monitor.
+     */
+    private static final class HedgedShard {
+        // the number of requests sent for the shard that neither returned nor were accounted for in totalOps yet, starting with
+        // the original request
+        int inFlight = 1;
+        // set once a request for the shard succeeded or all requests sent for it failed, later responses are ignored
+        boolean done;
+        // failures of requests for the shard while another request for it was still in flight, neither recorded nor accounted
+        // for in totalOps until the shard is done since a later successful response supersedes them
+        final List<Tuple<SearchShardTarget, Exception>> failures = new ArrayList<>();
+    }
+
+    private void performHedgeableRequest(final Thread thread, final int shardIndex, final SearchShardIterator shardIt,
+                                         final ShardRouting shard, final HedgedShard hedgedShard, final ShardSearchHedging hedging,
+                                         final boolean isHedge) {
+        final long startNanos = System.nanoTime();
+        final SearchShardTarget shardTarget = new SearchShardTarget(shard.currentNodeId(), shardIt.shardId(),
+            shardIt.getClusterAlias(), shardIt.getOriginalIndices());
+        final SearchActionListener<FirstResult> listener = new SearchActionListener<FirstResult>(shardTarget, shardIndex) {
+            @Override
+            public void innerOnResponse(FirstResult result) {
+                hedging.onShardResponse(System.nanoTime() - startNanos);
+                final int attempts;
+                synchronized (hedgedShard) {
+                    attempts = hedgedShard.done ? 0 : hedgedShard.inFlight + hedgedShard.failures.size();
+                    hedgedShard.done = true;
+                    hedgedShard.inFlight--;
+                }
+                if (isHedge) {
+                    hedging.onHedgeDone(attempts > 0);
+                }
+                if (attempts > 0) {
+                    // requests that are still in flight for this shard will be ignored so we account for them now
+                    maybeFork(thread, () -> onShardResult(result, shardIt, attempts));
+                } else {
+                    onDiscardedShardResult(result);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception t) {
+                final boolean lastInFlight;
+                synchronized (hedgedShard) {
+                    hedgedShard.inFlight--;
+                    if (hedgedShard.done) {
+                        lastInFlight = false;
+                    } else if (hedgedShard.inFlight == 0) {
+                        lastInFlight = true;
+                        hedgedShard.done = true;
+                    } else {
+                        // another request for this shard is still in flight, we keep the failure and wait for that request
+                        lastInFlight = false;
+                        hedgedShard.failures.add(new Tuple<>(shardTarget, t));
+                    }
+                }
+                if (isHedge) {
+                    hedging.onHedgeDone(false);
+                }
+                if (lastInFlight) {
+                    // no request for the shard succeeded so the failures are final, the shard is done and the list is not
+                    // modified anymore
+                    maybeFork(thread, () -> {
+                        for (Tuple<SearchShardTarget, Exception> failure : hedgedShard.failures) {
+                            onShardFailure(shardIndex, failure.v1(), failure.v2());
+                        }
+                        final int xTotalOps = totalOps.addAndGet(hedgedShard.failures.size());
+                        assert xTotalOps < expectedTotalOps : "the last request is in flight but all ops are accounted for";
+                        // moves on to the next copy of the shard as if the request had never been hedged
+                        onShardFailure(shardIndex, shard, shard.currentNodeId(), shardIt, t);
+                    });
+                }
+            }
+        };
+        try {
+            executePhaseOnShard(shardIt, shard, listener);
+        } catch (final Exception e) {
+            fork(() -> listener.onFailure(e));
+        }
+    }
+
+    private void maybeHedge(final int shardIndex, final SearchShardIterator shardIt, final HedgedShard hedgedShard,
+                            final ShardSearchHedging hedging) {
+        final ShardRouting nextShard;
+        synchronized (hedgedShard) {
+            // only the first request of a shard is hedged, once it failed the next copies are tried in order
+            if (hedgedShard.done || hedgedShard.inFlight != 1 || hedging.tryStartHedge() == false) {
+                return;
+            }
+            nextShard = shardIt.nextOrNull();
+            if (nextShard == null) {
+                hedging.onHedgeDone(false);
+                return;
+            }
+            // the copy is accounted for as soon as it is taken from the iterator
+            hedgedShard.inFlight++;
+        }
+        logger.trace("{}: hedging request [{}] to [{}]", shardIt.shardId(), request, nextShard.shortSummary());
+        performHedgeableRequest(Thread.currentThread(), shardIndex, shardIt, nextShard, hedgedShard, hedging, true);
+    }
+
     private void onShardResult(FirstResult result, SearchShardIterator shardIt) {
+        onShardResult(result, shardIt, 1);
+    }
+
+    private void onShardResult(FirstResult result, SearchShardIterator shardIt, int attempts) {
         assert result.getShardIndex() != -1 : "shard index is not set";
         assert result.getSearchShardTarget() != null : "search shard target must not be null";
         onShardSuccess(result);
@@ -236,15 +357,19 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
         // cause the successor to read a wrong value from successfulOps if second phase is very fast ie. count etc.
         // increment all the "future" shards to update the total ops since we some may work and some may not...
         // and when that happens, we break on total ops, so we must maintain them
-        successfulShardExecution(shardIt);
+        successfulShardExecution(shardIt, attempts);
     }
 
     private void successfulShardExecution(SearchShardIterator shardsIt) {
+        successfulShardExecution(shardsIt, 1);
+    }
+
+    private void successfulShardExecution(SearchShardIterator shardsIt, int attempts) {
         final int remainingOpsOnIterator;
         if (shardsIt.skip()) {
             remainingOpsOnIterator = shardsIt.remaining();
         } else {
-            remainingOpsOnIterator = shardsIt.remaining() + 1;
+            remainingOpsOnIterator = shardsIt.remaining() + attempts;
         }
         final int xTotalOps = totalOps.addAndGet(remainingOpsOnIterator);
         if (xTotalOps == expectedTotalOps) {
@@ -282,6 +407,24 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
      */
     abstract void onShardSuccess(FirstResult result);
 
+    /**
+     * Returns the policy used to hedge the requests of this phase, or <code>null</code> if the requests of this phase must not be
+     * hedged, for instance because hedging is disabled. Hedged requests are duplicates of a slow shard request that are sent to
+     * another copy of the shard, the first response is used and the others are passed to
+     * {@link #onDiscardedShardResult(SearchPhaseResult)}.
+     */
+    @Nullable
+    ShardSearchHedging hedging() {
+        return null;
+    }
+
+    /**
+     * Executed for every successful shard level request whose result is not used because another request for the same shard answered
+     * first. Implementations should release the resources held by the result on the shard.
+     */
+    void onDiscardedShardResult(FirstResult result) {
+    }
+
     /**
      * Sends the request to the actual shard.
      * @param shardIt the shards iterator
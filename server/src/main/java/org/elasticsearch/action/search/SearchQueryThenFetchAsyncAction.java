@@ -23,7 +23,9 @@ import org.apache.logging.log4j.Logger;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.cluster.routing.GroupShardsIterator;
 import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.search.SearchPhaseResult;
+import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.internal.AliasFilter;
 import org.elasticsearch.transport.Transport;
 
@@ -34,17 +36,41 @@ import java.util.function.BiFunction;
 final class SearchQueryThenFetchAsyncAction extends AbstractSearchAsyncAction<SearchPhaseResult> {
 
     private final SearchPhaseController searchPhaseController;
+    private final ShardSearchHedging hedging;
 
     SearchQueryThenFetchAsyncAction(final Logger logger, final SearchTransportService searchTransportService,
             final BiFunction<String, String, Transport.Connection> nodeIdToConnection, final Map<String, AliasFilter> aliasFilter,
             final Map<String, Float> concreteIndexBoosts, final SearchPhaseController searchPhaseController, final Executor executor,
             final SearchRequest request, final ActionListener<SearchResponse> listener,
             final GroupShardsIterator<SearchShardIterator> shardsIts, final TransportSearchAction.SearchTimeProvider timeProvider,
-            long clusterStateVersion, SearchTask task, SearchResponse.Clusters clusters) {
+            long clusterStateVersion, SearchTask task, SearchResponse.Clusters clusters, @Nullable ShardSearchHedging hedging) {
         super("query", logger, searchTransportService, nodeIdToConnection, aliasFilter, concreteIndexBoosts, executor, request, listener,
             shardsIts, timeProvider, clusterStateVersion, task, searchPhaseController.newSearchPhaseResults(request, shardsIts.size()),
                 request.getMaxConcurrentShardRequests(), clusters);
         this.searchPhaseController = searchPhaseController;
+        this.hedging = hedging;
+    }
+
+    @Override
+    ShardSearchHedging hedging() {
+        // scrolls keep the contexts of all shards open so the result of a hedged request can't be discarded
+        if (hedging == null || hedging.isEnabled() == false || getRequest().scroll() != null) {
+            return null;
+        }
+        return hedging;
+    }
+
+    @Override
+    void onDiscardedShardResult(SearchPhaseResult result) {
+        if (result.queryResult() != null && result.queryResult().hasSearchContext()) {
+            final SearchShardTarget target = result.getSearchShardTarget();
+            try {
+                sendReleaseSearchContext(result.getRequestId(), getConnection(target.getClusterAlias(), target.getNodeId()),
+                    target.getOriginalIndices());
+            } catch (Exception e) {
+                getLogger().trace("failed to release context", e);
+            }
+        }
     }
 
     protected void executePhaseOnShard(final SearchShardIterator shardIt, final ShardRouting shard,
@@ -0,0 +1,214 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Decides when the query phase of a search should send a duplicate, or hedged, request to another copy of a shard. A shard request
+ * is hedged if it didn't answer within a percentile of the latencies of recent shard requests sent from this node. The number of
+ * hedged requests is bounded both by the number of hedged requests in flight and by a budget that grows with the number of shard
+ * requests, so that hedging only ever adds a configured fraction of extra load to the cluster.
+ */
+public final class ShardSearchHedging extends AbstractComponent {
+
+    public static final Setting<Boolean> HEDGING_ENABLED_SETTING =
+        Setting.boolSetting("search.hedging.enabled", false, Property.Dynamic, Property.NodeScope);
+    public static final Setting<Double> HEDGING_LATENCY_PERCENTILE_SETTING =
+        new Setting<>("search.hedging.latency_percentile", "95.0", s -> {
+            final double percentile = Double.parseDouble(s);
+            if (percentile < 50.0 || percentile > 100.0) {
+                throw new IllegalArgumentException("Failed to parse value [" + s + "] for setting [search.hedging.latency_percentile] "
+                    + "must be between 50.0 and 100.0");
+            }
+            return percentile;
+        }, Property.Dynamic, Property.NodeScope);
+    public static final Setting<TimeValue> HEDGING_MIN_DELAY_SETTING =
+        Setting.timeSetting("search.hedging.min_delay", TimeValue.timeValueMillis(10), TimeValue.timeValueMillis(1),
+            Property.Dynamic, Property.NodeScope);
+    public static final Setting<Double> HEDGING_MAX_EXTRA_LOAD_SETTING =
+        Setting.doubleSetting("search.hedging.max_extra_load", 0.05, 0.0, Property.Dynamic, Property.NodeScope);
+    public static final Setting<Integer> HEDGING_MAX_IN_FLIGHT_SETTING =
+        Setting.intSetting("search.hedging.max_in_flight", 64, 0, Property.Dynamic, Property.NodeScope);
+
+    // the number of recent shard latencies the percentile is computed from
+    static final int LATENCY_WINDOW = 1024;
+    // the percentile is recomputed every time this many new latencies have been recorded
+    static final int LATENCY_REFRESH_INTERVAL = 64;
+    // the budget is expressed in thousandths of a hedged request so it can be kept in an atomic long
+    private static final long BUDGET_UNIT = 1000;
+    // the budget can't grow beyond this many hedged requests so that a quiet period doesn't allow a burst of hedges
+    private static final long MAX_BUDGET = 100 * BUDGET_UNIT;
+
+    private final ThreadPool threadPool;
+    private final AtomicLongArray latencies = new AtomicLongArray(LATENCY_WINDOW);
+    private final AtomicLong recordedLatencies = new AtomicLong();
+    private final AtomicLong budget = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong hedged = new AtomicLong();
+    private final AtomicLong won = new AtomicLong();
+
+    private volatile boolean enabled;
+    private volatile double percentile;
+    private volatile long minDelayNanos;
+    private volatile long budgetPerRequest;
+    private volatile int maxInFlight;
+    private volatile long delayNanos = -1;
+
+    public ShardSearchHedging(Settings settings, ClusterSettings clusterSettings, ThreadPool threadPool) {
+        super(settings);
+        this.threadPool = threadPool;
+        this.enabled = HEDGING_ENABLED_SETTING.get(settings);
+        this.percentile = HEDGING_LATENCY_PERCENTILE_SETTING.get(settings);
+        this.minDelayNanos = HEDGING_MIN_DELAY_SETTING.get(settings).nanos();
+        setMaxExtraLoad(HEDGING_MAX_EXTRA_LOAD_SETTING.get(settings));
+        this.maxInFlight = HEDGING_MAX_IN_FLIGHT_SETTING.get(settings);
+        clusterSettings.addSettingsUpdateConsumer(HEDGING_ENABLED_SETTING, this::setEnabled);
+        clusterSettings.addSettingsUpdateConsumer(HEDGING_LATENCY_PERCENTILE_SETTING, this::setPercentile);
+        clusterSettings.addSettingsUpdateConsumer(HEDGING_MIN_DELAY_SETTING, minDelay -> this.minDelayNanos = minDelay.nanos());
+        clusterSettings.addSettingsUpdateConsumer(HEDGING_MAX_EXTRA_LOAD_SETTING, this::setMaxExtraLoad);
+        clusterSettings.addSettingsUpdateConsumer(HEDGING_MAX_IN_FLIGHT_SETTING, maxInFlight -> this.maxInFlight = maxInFlight);
+    }
+
+    private void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    private void setPercentile(double percentile) {
+        this.percentile = percentile;
+        refreshDelay();
+    }
+
+    private void setMaxExtraLoad(double maxExtraLoad) {
+        this.budgetPerRequest = (long) (maxExtraLoad * BUDGET_UNIT);
+    }
+
+    /**
+     * Returns whether shard requests may be hedged. Latencies are only recorded while hedging is enabled.
+     */
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns how long to wait for a shard request before hedging it, in nanoseconds, or <code>-1</code> if not enough latencies
+     * were recorded yet.
+     */
+    long getDelayNanos() {
+        return delayNanos;
+    }
+
+    /**
+     * Called for every shard request that may be hedged, increases the budget of hedged requests.
+     */
+    void onShardRequest() {
+        final long perRequest = budgetPerRequest;
+        if (perRequest > 0) {
+            budget.accumulateAndGet(perRequest, (current, delta) -> Math.min(MAX_BUDGET, current + delta));
+        }
+    }
+
+    /**
+     * Records the latency of a successful shard request.
+     */
+    void onShardResponse(long tookNanos) {
+        final long count = recordedLatencies.getAndIncrement();
+        latencies.set((int) (count % LATENCY_WINDOW), tookNanos);
+        if (count + 1 >= LATENCY_WINDOW / 4 && (count + 1) % LATENCY_REFRESH_INTERVAL == 0) {
+            refreshDelay();
+        }
+    }
+
+    private void refreshDelay() {
+        final int size = (int) Math.min(LATENCY_WINDOW, recordedLatencies.get());
+        if (size < LATENCY_WINDOW / 4) {
+            return;
+        }
+        final long[] sorted = new long[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = latencies.get(i);
+        }
+        Arrays.sort(sorted);
+        final int index = Math.min(size - 1, (int) Math.ceil(percentile / 100 * size) - 1);
+        delayNanos = Math.max(minDelayNanos, sorted[Math.max(0, index)]);
+    }
+
+    /**
+     * Tries to reserve a hedged request. Returns <code>true</code> if the request may be sent, in which case {@link #onHedgeDone(boolean)}
+     * must be called once it completed.
+     */
+    boolean tryStartHedge() {
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        final long remaining = budget.getAndUpdate(current -> current >= BUDGET_UNIT ? current - BUDGET_UNIT : current);
+        if (remaining < BUDGET_UNIT) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        hedged.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Called when a hedged request completed.
+     * @param hedgeWon whether the hedged request answered before the original request
+     */
+    void onHedgeDone(boolean hedgeWon) {
+        inFlight.decrementAndGet();
+        if (hedgeWon) {
+            won.incrementAndGet();
+        }
+    }
+
+    /**
+     * Runs the given command on the generic thread pool after the given delay, with the current thread context.
+     */
+    void schedule(long delayNanos, Runnable command) {
+        threadPool.schedule(TimeValue.timeValueNanos(delayNanos), ThreadPool.Names.GENERIC,
+            threadPool.getThreadContext().preserveContext(command));
+    }
+
+    /**
+     * Returns the number of hedged requests sent so far.
+     */
+    public long getHedgedRequests() {
+        return hedged.get();
+    }
+
+    /**
+     * Returns the number of hedged requests that answered before the request they duplicated.
+     */
+    public long getWonHedgedRequests() {
+        return won.get();
+    }
+}
@@ -28,12 +28,29 @@ import org.elasticsearch.cluster.block.ClusterBlockLevel;
 import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.index.query.MatchAllQueryBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.filter.Filter;
+import org.elasticsearch.search.aggregations.bucket.global.GlobalAggregationBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.internal.InternalSearchResponse;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
@@ -42,10 +59,19 @@ import java.util.function.LongSupplier;
 
 public class TransportMultiSearchAction extends HandledTransportAction<MultiSearchRequest, MultiSearchResponse> {
 
+    /**
+     * Whether search requests that only differ by their aggregations are combined into a single search request.
+     */
+    public static final Setting<Boolean> COMBINE_AGGREGATIONS_SETTING =
+        Setting.boolSetting("action.msearch.combine_aggregations", true, Property.Dynamic, Property.NodeScope);
+
+    private static final String COMBINED_AGGREGATION_PREFIX = "_msearch_";
+
     private final int availableProcessors;
     private final ClusterService clusterService;
     private final TransportAction<SearchRequest, SearchResponse> searchAction;
     private final LongSupplier relativeTimeProvider;
+    private volatile boolean combineAggregations;
 
     @Inject
     public TransportMultiSearchAction(Settings settings, ThreadPool threadPool, TransportService transportService,
@@ -56,6 +82,8 @@ public class TransportMultiSearchAction extends HandledTransportAction<MultiSear
         this.searchAction = searchAction;
         this.availableProcessors = EsExecutors.numberOfProcessors(settings);
         this.relativeTimeProvider = System::nanoTime;
+        this.combineAggregations = COMBINE_AGGREGATIONS_SETTING.get(settings);
+        clusterService.getClusterSettings().addSettingsUpdateConsumer(COMBINE_AGGREGATIONS_SETTING, this::setCombineAggregations);
     }
 
     TransportMultiSearchAction(ThreadPool threadPool, ActionFilters actionFilters, TransportService transportService,
@@ -66,6 +94,11 @@ public class TransportMultiSearchAction extends HandledTransportAction<MultiSear
         this.searchAction = searchAction;
         this.availableProcessors = availableProcessors;
         this.relativeTimeProvider = relativeTimeProvider;
+        this.combineAggregations = COMBINE_AGGREGATIONS_SETTING.get(Settings.EMPTY);
+    }
+
+    private void setCombineAggregations(boolean combineAggregations) {
+        this.combineAggregations = combineAggregations;
     }
 
     @Override
@@ -81,17 +114,40 @@ public class TransportMultiSearchAction extends HandledTransportAction<MultiSear
         }
 
         Queue<SearchRequestSlot> searchRequestSlots = new ConcurrentLinkedQueue<>();
-        for (int i = 0; i < request.requests().size(); i++) {
-            SearchRequest searchRequest = request.requests().get(i);
-            searchRequestSlots.add(new SearchRequestSlot(searchRequest, i));
+        if (combineAggregations) {
+            Map<SearchRequest, List<SearchRequestSlot>> combinableSlots = new LinkedHashMap<>();
+            for (int i = 0; i < request.requests().size(); i++) {
+                SearchRequest searchRequest = request.requests().get(i);
+                SearchRequest withoutAggregations = withoutAggregations(searchRequest);
+                if (withoutAggregations == null) {
+                    searchRequestSlots.add(new SearchRequestSlot(searchRequest, i));
+                } else {
+                    combinableSlots.computeIfAbsent(withoutAggregations, k -> new ArrayList<>())
+                        .add(new SearchRequestSlot(searchRequest, i));
+                }
+            }
+            for (Map.Entry<SearchRequest, List<SearchRequestSlot>> entry : combinableSlots.entrySet()) {
+                if (entry.getValue().size() == 1) {
+                    searchRequestSlots.add(entry.getValue().get(0));
+                } else {
+                    searchRequestSlots.add(new SearchRequestSlot(combine(entry.getKey(), entry.getValue()), entry.getValue(),
+                        maxConcurrentSearches));
+                }
+            }
+        } else {
+            for (int i = 0; i < request.requests().size(); i++) {
+                SearchRequest searchRequest = request.requests().get(i);
+                searchRequestSlots.add(new SearchRequestSlot(searchRequest, i));
+            }
         }
 
         int numRequests = request.requests().size();
         final AtomicArray<MultiSearchResponse.Item> responses = new AtomicArray<>(numRequests);
         final AtomicInteger responseCounter = new AtomicInteger(numRequests);
-        int numConcurrentSearches = Math.min(numRequests, maxConcurrentSearches);
+        int numConcurrentSearches = Math.min(searchRequestSlots.size(), maxConcurrentSearches);
+        final AtomicInteger runningSearches = new AtomicInteger(numConcurrentSearches);
         for (int i = 0; i < numConcurrentSearches; i++) {
-            executeSearch(searchRequestSlots, responses, responseCounter, listener, relativeStartTime);
+            executeSearch(searchRequestSlots, responses, responseCounter, runningSearches, listener, relativeStartTime);
         }
     }
 
@@ -108,6 +164,75 @@ public class TransportMultiSearchAction extends HandledTransportAction<MultiSear
         return Math.max(1, numDateNodes * defaultSearchThreadPoolSize);
     }
 
+    /**
+     * Returns a copy of the given request without its aggregations if it can be combined with other requests that only differ
+     * by their aggregations, or {@code null} otherwise. This is the case for requests that return nothing but aggregations, so
+     * that dashboards that send many of them over the same indices and query resolve the indices, check which shards can match
+     * and run the query only once. Requests with aggregations that must be top level aggregations are never combined as they
+     * cannot be wrapped in another aggregation.
+     */
+    static SearchRequest withoutAggregations(SearchRequest request) {
+        SearchSourceBuilder source = request.source();
+        if (source == null || source.size() != 0 || source.aggregations() == null || source.aggregations().count() == 0
+                || source.suggest() != null || source.profile() || request.scroll() != null) {
+            return null;
+        }
+        for (AggregationBuilder aggregation : source.aggregations().getAggregatorFactories()) {
+            if (aggregation instanceof CompositeAggregationBuilder || aggregation instanceof GlobalAggregationBuilder) {
+                return null;
+            }
+        }
+        return copy(request, source.copyWithNewAggregations(null));
+    }
+
+    /**
+     * Combines the given requests, which are equal to the given request once their aggregations are removed, into a single
+     * request. The aggregations of each request are wrapped in a {@code filter} aggregation that matches all documents, so
+     * that their names cannot clash and their results can be split again with {@link #splitCombinedResponse}.
+     */
+    static SearchRequest combine(SearchRequest withoutAggregations, List<SearchRequestSlot> slots) {
+        AggregatorFactories.Builder aggregations = new AggregatorFactories.Builder();
+        for (int i = 0; i < slots.size(); i++) {
+            aggregations.addAggregator(AggregationBuilders.filter(COMBINED_AGGREGATION_PREFIX + i, new MatchAllQueryBuilder())
+                .subAggregations(slots.get(i).request.source().aggregations()));
+        }
+        return copy(withoutAggregations, withoutAggregations.source().copyWithNewAggregations(aggregations));
+    }
+
+    /**
+     * Extracts the response of the request at the given position from the response of a request built with {@link #combine}.
+     */
+    static SearchResponse splitCombinedResponse(SearchResponse response, int index) {
+        InternalAggregations aggregations = null;
+        Aggregations combined = response.getAggregations();
+        if (combined != null) {
+            Filter filter = combined.get(COMBINED_AGGREGATION_PREFIX + index);
+            if (filter != null) {
+                aggregations = (InternalAggregations) filter.getAggregations();
+            }
+        }
+        InternalSearchResponse internalResponse = new InternalSearchResponse(response.getHits(), aggregations, null, null,
+            response.isTimedOut(), response.isTerminatedEarly(), response.getNumReducePhases());
+        return new SearchResponse(internalResponse, response.getScrollId(), response.getTotalShards(), response.getSuccessfulShards(),
+            response.getSkippedShards(), response.getTook().millis(), response.getShardFailures(), response.getClusters());
+    }
+
+    private static SearchRequest copy(SearchRequest request, SearchSourceBuilder source) {
+        SearchRequest copy = new SearchRequest(request.indices(), source);
+        copy.types(request.types());
+        copy.indicesOptions(request.indicesOptions());
+        copy.routing(request.routing());
+        copy.preference(request.preference());
+        copy.searchType(request.searchType());
+        copy.requestCache(request.requestCache());
+        copy.setBatchedReduceSize(request.getBatchedReduceSize());
+        if (request.isMaxConcurrentShardRequestsSet()) {
+            copy.setMaxConcurrentShardRequests(request.getMaxConcurrentShardRequests());
+        }
+        copy.setPreFilterShardSize(request.getPreFilterShardSize());
+        return copy;
+    }
+
     /**
      * Executes a single request from the queue of requests. When a request finishes, another request is taken from the queue. When a
      * request is executed, a permit is taken on the specified semaphore, and released as each request completes.
@@ -115,16 +240,20 @@ public class TransportMultiSearchAction extends HandledTransportAction<MultiSear
      * @param requests the queue of multi-search requests to execute
      * @param responses atomic array to hold the responses corresponding to each search request slot
      * @param responseCounter incremented on each response
+     * @param runningSearches the number of searches that take requests from the queue, at most the maximum number of concurrent
+     *                        searches
      * @param listener the listener attached to the multi-search request
      */
     void executeSearch(
             final Queue<SearchRequestSlot> requests,
             final AtomicArray<MultiSearchResponse.Item> responses,
             final AtomicInteger responseCounter,
+            final AtomicInteger runningSearches,
             final ActionListener<MultiSearchResponse> listener,
             final long relativeStartTime) {
         SearchRequestSlot request = requests.poll();
         if (request == null) {
+            runningSearches.decrementAndGet();
             /*
              * The number of times that we poll an item from the queue here is the minimum of the number of requests and the maximum number
              * of concurrent requests. At first glance, it appears that we should never poll from the queue and not obtain a request given
@@ -146,27 +275,69 @@ public class TransportMultiSearchAction extends HandledTransportAction<MultiSear
         searchAction.execute(request.request, new ActionListener<SearchResponse>() {
             @Override
             public void onResponse(final SearchResponse searchResponse) {
-                handleResponse(request.responseSlot, new MultiSearchResponse.Item(searchResponse, null));
+                if (request.combinedSlots == null) {
+                    responses.set(request.responseSlot, new MultiSearchResponse.Item(searchResponse, null));
+                    handleResponses(1);
+                } else if (searchResponse.getFailedShards() == 0) {
+                    for (int i = 0; i < request.combinedSlots.size(); i++) {
+                        responses.set(request.combinedSlots.get(i).responseSlot,
+                                new MultiSearchResponse.Item(splitCombinedResponse(searchResponse, i), null));
+                    }
+                    handleResponses(request.combinedSlots.size());
+                } else {
+                    retryCombinedSlots();
+                }
             }
 
             @Override
             public void onFailure(final Exception e) {
-                handleResponse(request.responseSlot, new MultiSearchResponse.Item(null, e));
+                if (request.combinedSlots == null) {
+                    responses.set(request.responseSlot, new MultiSearchResponse.Item(null, e));
+                    handleResponses(1);
+                } else {
+                    retryCombinedSlots();
+                }
+            }
+
+            /*
+             * A failure of a combined request may have been caused by the aggregations of only one of the requests that it combines,
+             * so we run them one by one instead in order not to fail the others. The combined request only took one of the concurrent
+             * searches, so we start more searches for the requests that it combines as long as the maximum number of concurrent
+             * searches is not reached, counting the searches that run the other requests.
+             */
+            private void retryCombinedSlots() {
+                requests.addAll(request.combinedSlots);
+                for (int i = 1; i < request.combinedSlots.size() && tryStartSearch(); i++) {
+                    threadPool.generic().execute(() ->
+                        executeSearch(requests, responses, responseCounter, runningSearches, listener, relativeStartTime));
+                }
+                handleResponses(0);
             }
 
-            private void handleResponse(final int responseSlot, final MultiSearchResponse.Item item) {
-                responses.set(responseSlot, item);
-                if (responseCounter.decrementAndGet() == 0) {
+            private boolean tryStartSearch() {
+                int current;
+                do {
+                    current = runningSearches.get();
+                    if (current >= request.maxConcurrentSearches) {
+                        return false;
+                    }
+                } while (runningSearches.compareAndSet(current, current + 1) == false);
+                return true;
+            }
+
+            private void handleResponses(final int numResponses) {
+                if (numResponses > 0 && responseCounter.addAndGet(-numResponses) == 0) {
                     assert requests.isEmpty();
+                    runningSearches.decrementAndGet();
                     finish();
                 } else {
                     if (thread == Thread.currentThread()) {
                         // we are on the same thread, we need to fork to another thread to avoid recursive stack overflow on a single thread
-                        threadPool.generic()
-                                .execute(() -> executeSearch(requests, responses, responseCounter, listener, relativeStartTime));
+                        threadPool.generic().execute(() ->
+                                executeSearch(requests, responses, responseCounter, runningSearches, listener, relativeStartTime));
                     } else {
                         // we are on a different thread (we went asynchronous), it's safe to recurse
-                        executeSearch(requests, responses, responseCounter, listener, relativeStartTime);
+                        executeSearch(requests, responses, responseCounter, runningSearches, listener, relativeStartTime);
                     }
                 }
             }
@@ -189,10 +360,23 @@ public class TransportMultiSearchAction extends HandledTransportAction<MultiSear
 
         final SearchRequest request;
         final int responseSlot;
+        // the slots of the requests that this request combines, if any
+        final List<SearchRequestSlot> combinedSlots;
+        // the maximum number of the combined requests that run concurrently if they need to be retried one by one
+        final int maxConcurrentSearches;
 
         SearchRequestSlot(SearchRequest request, int responseSlot) {
             this.request = request;
             this.responseSlot = responseSlot;
+            this.combinedSlots = null;
+            this.maxConcurrentSearches = 1;
+        }
+
+        SearchRequestSlot(SearchRequest request, List<SearchRequestSlot> combinedSlots, int maxConcurrentSearches) {
+            this.request = request;
+            this.responseSlot = -1;
+            this.combinedSlots = combinedSlots;
+            this.maxConcurrentSearches = maxConcurrentSearches;
         }
     }
 }
@@ -33,14 +33,17 @@ import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.routing.GroupShardsIterator;
 import org.elasticsearch.cluster.routing.ShardIterator;
+import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.query.Rewriteable;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.AdmissionController;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.internal.AliasFilter;
@@ -76,12 +79,15 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
     private final RemoteClusterService remoteClusterService;
     private final SearchPhaseController searchPhaseController;
     private final SearchService searchService;
+    private final ShardSearchHedging hedging;
+    private final AdmissionController admissionController;
 
     @Inject
     public TransportSearchAction(Settings settings, ThreadPool threadPool, TransportService transportService, SearchService searchService,
                                  SearchTransportService searchTransportService, SearchPhaseController searchPhaseController,
                                  ClusterService clusterService, ActionFilters actionFilters,
-                                 IndexNameExpressionResolver indexNameExpressionResolver) {
+                                 IndexNameExpressionResolver indexNameExpressionResolver, AdmissionController admissionController,
+                                 ShardSearchHedging hedging) {
         super(settings, SearchAction.NAME, threadPool, transportService, actionFilters, SearchRequest::new, indexNameExpressionResolver);
         this.searchPhaseController = searchPhaseController;
         this.searchTransportService = searchTransportService;
@@ -89,6 +95,8 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
         SearchTransportService.registerRequestHandler(transportService, searchService);
         this.clusterService = clusterService;
         this.searchService = searchService;
+        this.hedging = hedging;
+        this.admissionController = admissionController;
     }
 
     private Map<String, AliasFilter> buildPerIndexAliasFilter(SearchRequest request, ClusterState clusterState,
@@ -345,8 +353,49 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
                 * IndexMetaData.INDEX_NUMBER_OF_SHARDS_SETTING.getDefault(Settings.EMPTY)));
         }
         boolean preFilterSearchShards = shouldPreFilterSearchShards(searchRequest, shardIterators);
-        searchAsyncAction(task, searchRequest, shardIterators, timeProvider, connectionLookup, clusterState.version(),
-            Collections.unmodifiableMap(aliasFilter), concreteIndexBoosts, listener, preFilterSearchShards, clusters).start();
+        // reject the search before it fans out if this node is already coordinating too much work
+        final Releasable admission = admissionController.admitSearch(
+            AdmissionController.estimateSearchBytes(searchRequest, shardIterators.size()), shardRequestsPerNode(shardIterators),
+            nodeSearchCounts);
+        try {
+            searchAsyncAction(task, searchRequest, shardIterators, timeProvider, connectionLookup, clusterState.version(),
+                Collections.unmodifiableMap(aliasFilter), concreteIndexBoosts, releaseOnCompletion(listener, admission),
+                preFilterSearchShards, clusters).start();
+        } catch (RuntimeException e) {
+            admission.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Counts the shard requests that the search is going to send to each node, assuming that every shard is searched on
+     * the first copy of its iterator.
+     */
+    static Map<String, Integer> shardRequestsPerNode(GroupShardsIterator<SearchShardIterator> shardIterators) {
+        final Map<String, Integer> shardRequests = new HashMap<>();
+        for (SearchShardIterator shardIterator : shardIterators) {
+            final List<ShardRouting> shardRoutings = shardIterator.getShardRoutings();
+            if (shardRoutings.isEmpty() == false) {
+                shardRequests.merge(shardRoutings.get(0).currentNodeId(), 1, Integer::sum);
+            }
+        }
+        return shardRequests;
+    }
+
+    private static ActionListener<SearchResponse> releaseOnCompletion(ActionListener<SearchResponse> listener, Releasable releasable) {
+        return new ActionListener<SearchResponse>() {
+            @Override
+            public void onResponse(SearchResponse response) {
+                releasable.close();
+                listener.onResponse(response);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                releasable.close();
+                listener.onFailure(e);
+            }
+        };
     }
 
     private boolean shouldPreFilterSearchShards(SearchRequest searchRequest, GroupShardsIterator<SearchShardIterator> shardIterators) {
@@ -406,7 +455,7 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
                 case QUERY_THEN_FETCH:
                     searchAsyncAction = new SearchQueryThenFetchAsyncAction(logger, searchTransportService, connectionLookup,
                         aliasFilter, concreteIndexBoosts, searchPhaseController, executor, searchRequest, listener, shardIterators,
-                        timeProvider, clusterStateVersion, task, clusters);
+                        timeProvider, clusterStateVersion, task, clusters, hedging);
                     break;
                 default:
                     throw new IllegalStateException("Unknown search type: [" + searchRequest.searchType() + "]");
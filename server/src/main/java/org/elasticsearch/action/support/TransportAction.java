@@ -28,6 +28,7 @@ import org.elasticsearch.action.ActionResponse;
 import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.tasks.Task;
 import org.elasticsearch.tasks.TaskListener;
 import org.elasticsearch.tasks.TaskManager;
@@ -78,19 +79,21 @@ public abstract class TransportAction<Request extends ActionRequest, Response ex
         if (task == null) {
             execute(null, request, listener);
         } else {
-            execute(task, request, new ActionListener<Response>() {
-                @Override
-                public void onResponse(Response response) {
-                    taskManager.unregister(task);
-                    listener.onResponse(response);
-                }
-
-                @Override
-                public void onFailure(Exception e) {
-                    taskManager.unregister(task);
-                    listener.onFailure(e);
-                }
-            });
+            try (ThreadContext.StoredContext ignore = taskManager.trackResources(task)) {
+                execute(task, request, new ActionListener<Response>() {
+                    @Override
+                    public void onResponse(Response response) {
+                        taskManager.unregister(task);
+                        listener.onResponse(response);
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        taskManager.unregister(task);
+                        listener.onFailure(e);
+                    }
+                });
+            }
         }
         return task;
     }
@@ -101,23 +104,25 @@ public abstract class TransportAction<Request extends ActionRequest, Response ex
      */
     public final Task execute(Request request, TaskListener<Response> listener) {
         Task task = taskManager.register("transport", actionName, request);
-        execute(task, request, new ActionListener<Response>() {
-            @Override
-            public void onResponse(Response response) {
-                if (task != null) {
-                    taskManager.unregister(task);
+        try (ThreadContext.StoredContext ignore = taskManager.trackResources(task)) {
+            execute(task, request, new ActionListener<Response>() {
+                @Override
+                public void onResponse(Response response) {
+                    if (task != null) {
+                        taskManager.unregister(task);
+                    }
+                    listener.onResponse(task, response);
                 }
-                listener.onResponse(task, response);
-            }
 
-            @Override
-            public void onFailure(Exception e) {
-                if (task != null) {
-                    taskManager.unregister(task);
+                @Override
+                public void onFailure(Exception e) {
+                    if (task != null) {
+                        taskManager.unregister(task);
+                    }
+                    listener.onFailure(task, e);
                 }
-                listener.onFailure(task, e);
-            }
-        });
+            });
+        }
         return task;
     }
 
@@ -40,6 +40,7 @@ import org.elasticsearch.common.logging.LoggerMessageFormat;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportChannel;
 import org.elasticsearch.transport.TransportException;
@@ -65,15 +66,32 @@ public abstract class TransportSingleShardAction<Request extends SingleShardRequ
 
     protected final TransportService transportService;
 
+    // the statistics of the reads of this action, apart from searches and other reads
+    @Nullable
+    protected final ResponseCollectorService responseCollectorService;
+
     final String transportShardAction;
     final String executor;
 
     protected TransportSingleShardAction(Settings settings, String actionName, ThreadPool threadPool, ClusterService clusterService,
                                          TransportService transportService, ActionFilters actionFilters, IndexNameExpressionResolver indexNameExpressionResolver,
                                          Supplier<Request> request, String executor) {
+        this(settings, actionName, threadPool, clusterService, transportService, actionFilters, indexNameExpressionResolver, request,
+            executor, null);
+    }
+
+    /**
+     * Creates an action that records the response times of the shard copies it reads from in the
+     * {@link ResponseCollectorService#readCollector(String) read collector} of this action, so that
+     * {@link #shards(ClusterState, InternalRequest)} can rank them with adaptive replica selection.
+     */
+    protected TransportSingleShardAction(Settings settings, String actionName, ThreadPool threadPool, ClusterService clusterService,
+                                         TransportService transportService, ActionFilters actionFilters, IndexNameExpressionResolver indexNameExpressionResolver,
+                                         Supplier<Request> request, String executor, @Nullable ResponseCollectorService responseCollectorService) {
         super(settings, actionName, threadPool, actionFilters, indexNameExpressionResolver, transportService.getTaskManager());
         this.clusterService = clusterService;
         this.transportService = transportService;
+        this.responseCollectorService = responseCollectorService == null ? null : responseCollectorService.readCollector(actionName);
 
         this.transportShardAction = actionName + "[s]";
         this.executor = executor;
@@ -246,6 +264,11 @@ public abstract class TransportSingleShardAction<Request extends SingleShardRequ
                             node
                     );
                 }
+                final String nodeId = node.getId();
+                final long startNanos = System.nanoTime();
+                if (responseCollectorService != null) {
+                    responseCollectorService.onReadSent(nodeId);
+                }
                 transportService.sendRequest(node, transportShardAction, internalRequest.request(), new TransportResponseHandler<Response>() {
 
                     @Override
@@ -260,11 +283,18 @@ public abstract class TransportSingleShardAction<Request extends SingleShardRequ
 
                     @Override
                     public void handleResponse(final Response response) {
+                        if (responseCollectorService != null) {
+                            responseCollectorService.onReadCompleted(nodeId);
+                            responseCollectorService.addResponseTime(nodeId, System.nanoTime() - startNanos);
+                        }
                         listener.onResponse(response);
                     }
 
                     @Override
                     public void handleException(TransportException exp) {
+                        if (responseCollectorService != null) {
+                            responseCollectorService.onReadCompleted(nodeId);
+                        }
                         onFailure(shardRouting, exp);
                     }
                 });
@@ -36,6 +36,7 @@ import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.termvectors.TermVectorsService;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
 
@@ -48,9 +49,10 @@ public class TransportShardMultiTermsVectorAction extends TransportSingleShardAc
     @Inject
     public TransportShardMultiTermsVectorAction(Settings settings, ClusterService clusterService, TransportService transportService,
                                                 IndicesService indicesService, ThreadPool threadPool, ActionFilters actionFilters,
-                                                IndexNameExpressionResolver indexNameExpressionResolver) {
+                                                IndexNameExpressionResolver indexNameExpressionResolver,
+                                                ResponseCollectorService responseCollectorService) {
         super(settings, ACTION_NAME, threadPool, clusterService, transportService, actionFilters, indexNameExpressionResolver,
-                MultiTermVectorsShardRequest::new, ThreadPool.Names.GET);
+                MultiTermVectorsShardRequest::new, ThreadPool.Names.GET, responseCollectorService);
         this.indicesService = indicesService;
     }
 
@@ -72,7 +74,8 @@ public class TransportShardMultiTermsVectorAction extends TransportSingleShardAc
     @Override
     protected ShardIterator shards(ClusterState state, InternalRequest request) {
         return clusterService.operationRouting()
-                .getShards(state, request.concreteIndex(), request.request().shardId(), request.request().preference());
+                .getShards(state, request.concreteIndex(), request.request().shardId(), request.request().preference(),
+                        responseCollectorService);
     }
 
     @Override
@@ -35,6 +35,7 @@ import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.termvectors.TermVectorsService;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
 
@@ -50,9 +51,10 @@ public class TransportTermVectorsAction extends TransportSingleShardAction<TermV
     @Inject
     public TransportTermVectorsAction(Settings settings, ClusterService clusterService, TransportService transportService,
                                       IndicesService indicesService, ThreadPool threadPool, ActionFilters actionFilters,
-                                      IndexNameExpressionResolver indexNameExpressionResolver) {
+                                      IndexNameExpressionResolver indexNameExpressionResolver,
+                                      ResponseCollectorService responseCollectorService) {
         super(settings, TermVectorsAction.NAME, threadPool, clusterService, transportService, actionFilters, indexNameExpressionResolver,
-                TermVectorsRequest::new, ThreadPool.Names.GET);
+                TermVectorsRequest::new, ThreadPool.Names.GET, responseCollectorService);
         this.indicesService = indicesService;
 
     }
@@ -67,7 +69,7 @@ public class TransportTermVectorsAction extends TransportSingleShardAction<TermV
         }
 
         return clusterService.operationRouting().getShards(state, request.concreteIndex(), request.request().id(),
-                request.request().routing(), request.request().preference());
+                request.request().routing(), request.request().preference(), responseCollectorService);
     }
 
     @Override
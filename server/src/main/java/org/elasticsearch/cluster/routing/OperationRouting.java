@@ -38,6 +38,7 @@ import org.elasticsearch.node.ResponseCollectorService;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -74,12 +75,33 @@ public class OperationRouting extends AbstractComponent {
     }
 
     public ShardIterator getShards(ClusterState clusterState, String index, String id, @Nullable String routing, @Nullable String preference) {
-        return preferenceActiveShardIterator(shards(clusterState, index, id, routing), clusterState.nodes().getLocalNodeId(), clusterState.nodes(), preference, null, null);
+        return getShards(clusterState, index, id, routing, preference, null);
+    }
+
+    /**
+     * Returns the copies of the shard holding the given document. If a {@link ResponseCollectorService} is provided the copies are
+     * ranked with adaptive replica selection, based on the response times and the single shard reads it collected.
+     */
+    public ShardIterator getShards(ClusterState clusterState, String index, String id, @Nullable String routing,
+                                   @Nullable String preference, @Nullable ResponseCollectorService collectorService) {
+        return preferenceActiveShardIterator(shards(clusterState, index, id, routing), clusterState.nodes().getLocalNodeId(),
+            clusterState.nodes(), preference, collectorService, outgoingReads(collectorService));
     }
 
     public ShardIterator getShards(ClusterState clusterState, String index, int shardId, @Nullable String preference) {
+        return getShards(clusterState, index, shardId, preference, null);
+    }
+
+    public ShardIterator getShards(ClusterState clusterState, String index, int shardId, @Nullable String preference,
+                                   @Nullable ResponseCollectorService collectorService) {
         final IndexShardRoutingTable indexShard = clusterState.getRoutingTable().shardRoutingTable(index, shardId);
-        return preferenceActiveShardIterator(indexShard, clusterState.nodes().getLocalNodeId(), clusterState.nodes(), preference, null, null);
+        return preferenceActiveShardIterator(indexShard, clusterState.nodes().getLocalNodeId(), clusterState.nodes(), preference,
+            collectorService, outgoingReads(collectorService));
+    }
+
+    private static Map<String, Long> outgoingReads(@Nullable ResponseCollectorService collectorService) {
+        // ranking updates the counts of the selected nodes so we need a copy
+        return collectorService == null ? null : new HashMap<>(collectorService.getOutgoingReads());
     }
 
     public GroupShardsIterator<ShardIterator> searchShards(ClusterState clusterState,
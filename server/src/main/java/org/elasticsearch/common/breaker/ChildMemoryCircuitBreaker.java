@@ -108,6 +108,16 @@ public class ChildMemoryCircuitBreaker implements CircuitBreaker {
      */
     @Override
     public double addEstimateBytesAndMaybeBreak(long bytes, String label) throws CircuitBreakingException {
+        final double newUsed = reserve(bytes, label);
+        parent.onChildUsage(name, bytes);
+        return newUsed;
+    }
+
+    /**
+     * Adds the bytes to this breaker's counter, tripping the breaker if the limit of this breaker or the parent limit would
+     * be exceeded, without notifying the parent of the change.
+     */
+    protected double reserve(long bytes, String label) throws CircuitBreakingException {
         // short-circuit on no data allowed, immediately throwing an exception
         if (memoryBytesLimit == 0) {
             circuitBreak(label, bytes);
@@ -130,7 +140,7 @@ public class ChildMemoryCircuitBreaker implements CircuitBreaker {
             // If the parent breaker is tripped, this breaker has to be
             // adjusted back down because the allocation is "blocked" but the
             // breaker has already been incremented
-            this.addWithoutBreaking(-bytes);
+            this.adjustUsed(-bytes);
             throw e;
         }
         return newUsed;
@@ -187,6 +197,19 @@ public class ChildMemoryCircuitBreaker implements CircuitBreaker {
      */
     @Override
     public long addWithoutBreaking(long bytes) {
+        final long u = adjust(bytes);
+        parent.onChildUsage(name, bytes);
+        return u;
+    }
+
+    /**
+     * Adds the bytes to this breaker's counter without checking the limits or notifying the parent of the change.
+     */
+    protected long adjust(long bytes) {
+        return adjustUsed(bytes);
+    }
+
+    private long adjustUsed(long bytes) {
         long u = used.addAndGet(bytes);
         if (logger.isTraceEnabled()) {
             logger.trace("[{}] Adjusted breaker by [{}] bytes, now [{}]", this.name, bytes, u);
@@ -67,7 +67,9 @@ public interface CircuitBreaker {
         // A special parent-type for the hierarchy breaker service
         PARENT,
         // A breaker where every action is a noop, it never breaks
-        NOOP;
+        NOOP,
+        // A child MemoryCircuitBreaker that reserves bytes in per-thread chunks to avoid contention
+        STRIPED;
 
         public static Type parseValue(String value) {
             switch(value.toLowerCase(Locale.ROOT)) {
@@ -77,6 +79,8 @@ public interface CircuitBreaker {
                     return Type.PARENT;
                 case "memory":
                     return Type.MEMORY;
+                case "striped":
+                    return Type.STRIPED;
                 default:
                     throw new IllegalArgumentException("No CircuitBreaker with type: " + value);
             }
@@ -0,0 +1,177 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.breaker;
+
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.indices.breaker.BreakerSettings;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link ChildMemoryCircuitBreaker} for breakers that are hit very frequently by many threads, like the request breaker
+ * that is adjusted on every {@link org.elasticsearch.common.util.BigArrays} resize. Instead of updating the shared counter
+ * and checking the parent breaker on every call, bytes are reserved from the shared counter in chunks of
+ * {@link #CHUNK_SIZE} bytes. The unused part of a chunk is kept as credit in a stripe that is selected by the calling
+ * thread, and small additions and releases only update that stripe. Only when a stripe runs out of credit, or holds more
+ * than two chunks of released credit, is the shared counter updated and the limits are checked.
+ * <p>
+ * The shared counter includes the unused credit, so the breaker may trip when the bytes actually in use are up to
+ * {@link #getMaxSlack()} below the limit, which is at most two chunks per stripe. {@link #getUsed()} subtracts the
+ * credit and is exact when no other thread is adding to or releasing from the breaker concurrently.
+ */
+public class StripedMemoryCircuitBreaker extends ChildMemoryCircuitBreaker {
+
+    /**
+     * The number of bytes reserved from the shared counter when a stripe runs out of credit.
+     */
+    public static final long CHUNK_SIZE = 64 * 1024;
+
+    // credits are spread over cache lines so that threads updating neighbouring stripes don't contend on the same line
+    private static final int PADDING = 16;
+
+    private final AtomicLongArray credits;
+    private final int stripeMask;
+
+    /**
+     * Create a striped circuit breaker, see {@link ChildMemoryCircuitBreaker#ChildMemoryCircuitBreaker(BreakerSettings,
+     * ChildMemoryCircuitBreaker, Logger, HierarchyCircuitBreakerService, String)}. The credit of the old breaker is returned
+     * to the shared counter.
+     */
+    public StripedMemoryCircuitBreaker(BreakerSettings settings, ChildMemoryCircuitBreaker oldBreaker,
+                                       Logger logger, HierarchyCircuitBreakerService parent, String name) {
+        this(settings, oldBreaker, logger, parent, name, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    StripedMemoryCircuitBreaker(BreakerSettings settings, ChildMemoryCircuitBreaker oldBreaker,
+                                Logger logger, HierarchyCircuitBreakerService parent, String name, int minStripes) {
+        super(settings, oldBreaker, logger, parent, name);
+        final int stripes = Integer.highestOneBit(Math.max(1, minStripes - 1)) << 1;
+        this.credits = new AtomicLongArray(stripes * PADDING);
+        this.stripeMask = stripes - 1;
+        if (oldBreaker instanceof StripedMemoryCircuitBreaker) {
+            ((StripedMemoryCircuitBreaker) oldBreaker).returnCredits();
+        }
+    }
+
+    @Override
+    protected double reserve(long bytes, String label) throws CircuitBreakingException {
+        if (bytes < 0) {
+            return release(-bytes);
+        }
+        if (bytes >= CHUNK_SIZE || getLimit() == 0) {
+            return super.reserve(bytes, label);
+        }
+        if (takeCredit(stripe(), bytes)) {
+            return getReserved();
+        }
+        final long limit = getLimit();
+        if (limit > 0 && (getReserved() + CHUNK_SIZE) * getOverhead() > limit) {
+            // close to the limit, the unused credit of all stripes is returned so that only the bytes actually needed are checked
+            returnCredits();
+            return super.reserve(bytes, label);
+        }
+        final double reserved = super.reserve(CHUNK_SIZE, label);
+        release(CHUNK_SIZE - bytes);
+        return reserved;
+    }
+
+    @Override
+    protected long adjust(long bytes) {
+        if (bytes < 0) {
+            return release(-bytes);
+        }
+        if (bytes < CHUNK_SIZE && takeCredit(stripe(), bytes)) {
+            return getReserved();
+        }
+        return super.adjust(bytes);
+    }
+
+    /**
+     * @return the number of bytes in use, not counting the credit reserved by the stripes
+     */
+    @Override
+    public long getUsed() {
+        return getReserved() - getCredits();
+    }
+
+    /**
+     * @return the maximum number of bytes that can be reserved but unused at any time
+     */
+    public long getMaxSlack() {
+        return (stripeMask + 1) * 2 * CHUNK_SIZE;
+    }
+
+    /**
+     * @return the number of bytes reserved from the shared counter, including the credit of the stripes
+     */
+    long getReserved() {
+        return super.getUsed();
+    }
+
+    /**
+     * @return the credit currently held by all stripes
+     */
+    long getCredits() {
+        long total = 0;
+        for (int i = 0; i <= stripeMask; i++) {
+            total += credits.get(i * PADDING);
+        }
+        return total;
+    }
+
+    private long release(long bytes) {
+        final int index = stripe() * PADDING;
+        long credit = credits.addAndGet(index, bytes);
+        while (credit > 2 * CHUNK_SIZE) {
+            // keep a chunk for the next additions on this stripe and hand back the rest
+            if (credits.compareAndSet(index, credit, CHUNK_SIZE)) {
+                return super.adjust(CHUNK_SIZE - credit);
+            }
+            credit = credits.get(index);
+        }
+        return getReserved();
+    }
+
+    private boolean takeCredit(int stripe, long bytes) {
+        final int index = stripe * PADDING;
+        long credit;
+        do {
+            credit = credits.get(index);
+            if (credit < bytes) {
+                return false;
+            }
+        } while (credits.compareAndSet(index, credit, credit - bytes) == false);
+        return true;
+    }
+
+    private void returnCredits() {
+        for (int i = 0; i <= stripeMask; i++) {
+            final long credit = credits.getAndSet(i * PADDING, 0);
+            if (credit > 0) {
+                super.adjust(-credit);
+            }
+        }
+    }
+
+    private int stripe() {
+        return (int) Thread.currentThread().getId() & stripeMask;
+    }
+}
@@ -28,6 +28,9 @@ import org.joda.time.DateTimeZone;
 import org.joda.time.IllegalInstantException;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -51,6 +54,26 @@ public abstract class Rounding implements Streamable {
      */
     public abstract long nextRoundingValue(long value);
 
+    /**
+     * Returns a rounding that gives the same results as {@link #round(long)}, but that is faster for the values between
+     * {@code minUtcMillis} and {@code maxUtcMillis}, typically the values of a field on a shard. Values outside of this range
+     * are rounded with {@link #round(long)}.
+     */
+    public Prepared prepare(long minUtcMillis, long maxUtcMillis) {
+        return this::round;
+    }
+
+    /**
+     * A rounding prepared for a range of values by {@link #prepare(long, long)}.
+     */
+    @FunctionalInterface
+    public interface Prepared {
+        /**
+         * Rounds the given value.
+         */
+        long round(long utcMillis);
+    }
+
     @Override
     public abstract boolean equals(Object obj);
 
@@ -165,6 +188,34 @@ public abstract class Rounding implements Streamable {
             return rounded;
         }
 
+        @Override
+        public Prepared prepare(long minUtcMillis, long maxUtcMillis) {
+            if (minUtcMillis > maxUtcMillis) {
+                return this::round;
+            }
+            final long unitMillis;
+            switch (unit) {
+                case DAY_OF_MONTH:
+                    unitMillis = DAY_MILLIS;
+                    break;
+                case HOUR_OF_DAY:
+                    unitMillis = 60 * 60 * 1000L;
+                    break;
+                case MINUTES_OF_HOUR:
+                    unitMillis = 60 * 1000L;
+                    break;
+                case SECOND_OF_MINUTE:
+                    unitMillis = 1000L;
+                    break;
+                default:
+                    // weeks, months, quarters and years: there are few rounded values, look them up
+                    final Prepared lookup = RoundedValuesLookup.build(this, minUtcMillis, maxUtcMillis);
+                    return lookup == null ? this::round : lookup;
+            }
+            final Prepared arithmetic = FixedLengthRounding.build(this, timeZone, unitMillis, minUtcMillis, maxUtcMillis);
+            return arithmetic == null ? this::round : arithmetic;
+        }
+
         @Override
         public long nextRoundingValue(long utcMillis) {
             long floor = round(utcMillis);
@@ -305,6 +356,15 @@ public abstract class Rounding implements Streamable {
             return false;
         }
 
+        @Override
+        public Prepared prepare(long minUtcMillis, long maxUtcMillis) {
+            if (minUtcMillis > maxUtcMillis) {
+                return this::round;
+            }
+            final Prepared arithmetic = FixedLengthRounding.build(this, timeZone, interval, minUtcMillis, maxUtcMillis);
+            return arithmetic == null ? this::round : arithmetic;
+        }
+
         @Override
         public long nextRoundingValue(long time) {
             long timeLocal = time;
@@ -343,6 +403,160 @@ public abstract class Rounding implements Streamable {
         }
     }
 
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    /**
+     * Rounds values to a unit of fixed length in local time, that is days, hours, minutes, seconds and fixed intervals. The time
+     * zone transitions between the bounds are looked up once, so that within the range each value is rounded with the constant
+     * offset of the transition-free interval that contains it. Rounded values that would not fall in the same interval, where the
+     * time zone rules of the rounding apply, are delegated to the original rounding.
+     */
+    static final class FixedLengthRounding implements Prepared {
+
+        /** The maximum number of time zone transitions to look up, about two per year for zones with daylight saving time. */
+        static final int MAX_TRANSITIONS = 1024;
+
+        private final Rounding delegate;
+        private final long unitMillis;
+        private final long minUtcMillis;
+        private final long maxUtcMillis;
+        // the start of each transition-free interval and the offset that applies until the next one
+        private final long[] starts;
+        private final long[] offsets;
+
+        private FixedLengthRounding(Rounding delegate, long unitMillis, long minUtcMillis, long maxUtcMillis,
+                                    long[] starts, long[] offsets) {
+            this.delegate = delegate;
+            this.unitMillis = unitMillis;
+            this.minUtcMillis = minUtcMillis;
+            this.maxUtcMillis = maxUtcMillis;
+            this.starts = starts;
+            this.offsets = offsets;
+        }
+
+        /**
+         * Returns the prepared rounding or null if there are too many transitions between the bounds.
+         */
+        static FixedLengthRounding build(Rounding delegate, DateTimeZone timeZone, long unitMillis,
+                                         long minUtcMillis, long maxUtcMillis) {
+            final List<Long> starts = new ArrayList<>();
+            // previousTransition returns the millisecond before the last transition that is not after the given instant
+            final long previous = timeZone.previousTransition(minUtcMillis);
+            if (previous == minUtcMillis) {
+                starts.add(Long.MIN_VALUE);
+            } else if (timeZone.getOffset(previous + 1) == timeZone.getOffset(minUtcMillis)) {
+                starts.add(previous + 1);
+            } else {
+                return null;
+            }
+            long instant = minUtcMillis;
+            while (true) {
+                final long next = timeZone.nextTransition(instant);
+                if (next <= instant || next > maxUtcMillis) {
+                    break;
+                }
+                if (starts.size() > MAX_TRANSITIONS) {
+                    return null;
+                }
+                starts.add(next);
+                instant = next;
+            }
+            final long[] startsArray = new long[starts.size()];
+            final long[] offsetsArray = new long[starts.size()];
+            for (int i = 0; i < startsArray.length; i++) {
+                startsArray[i] = starts.get(i);
+                offsetsArray[i] = timeZone.getOffset(i == 0 ? minUtcMillis : startsArray[i]);
+            }
+            return new FixedLengthRounding(delegate, unitMillis, minUtcMillis, maxUtcMillis, startsArray, offsetsArray);
+        }
+
+        @Override
+        public long round(long utcMillis) {
+            if (utcMillis < minUtcMillis || utcMillis > maxUtcMillis) {
+                return delegate.round(utcMillis);
+            }
+            int index = 0;
+            if (starts.length > 1) {
+                index = Arrays.binarySearch(starts, utcMillis);
+                if (index < 0) {
+                    // the interval that starts before the value
+                    index = -2 - index;
+                }
+            }
+            final long offset = offsets[index];
+            final long rounded = Math.floorDiv(utcMillis + offset, unitMillis) * unitMillis - offset;
+            if (rounded > starts[index]) {
+                return rounded;
+            }
+            // the rounded value crosses or starts at a transition
+            return delegate.round(utcMillis);
+        }
+    }
+
+    /**
+     * Looks up the rounded value of each value in the sorted list of all rounded values between the bounds. Used for the units
+     * of variable length, where there are few rounded values.
+     */
+    static final class RoundedValuesLookup implements Prepared {
+
+        /** The maximum number of rounded values to precompute. */
+        static final int MAX_VALUES = 8192;
+
+        private final Rounding delegate;
+        private final long minUtcMillis;
+        private final long maxUtcMillis;
+        private final long[] values;
+
+        private RoundedValuesLookup(Rounding delegate, long minUtcMillis, long maxUtcMillis, long[] values) {
+            this.delegate = delegate;
+            this.minUtcMillis = minUtcMillis;
+            this.maxUtcMillis = maxUtcMillis;
+            this.values = values;
+        }
+
+        /**
+         * Returns the prepared rounding or null if there are too many rounded values between the bounds.
+         */
+        static RoundedValuesLookup build(Rounding delegate, long minUtcMillis, long maxUtcMillis) {
+            long[] values = new long[16];
+            int count = 0;
+            long rounded = delegate.round(minUtcMillis);
+            values[count++] = rounded;
+            while (rounded < maxUtcMillis) {
+                final long next = delegate.nextRoundingValue(rounded);
+                if (next <= rounded || delegate.round(next) != next) {
+                    // not a strictly increasing sequence of rounded values, keep using the original rounding
+                    return null;
+                }
+                if (next > maxUtcMillis) {
+                    break;
+                }
+                if (count == MAX_VALUES) {
+                    return null;
+                }
+                if (count == values.length) {
+                    values = Arrays.copyOf(values, Math.min(MAX_VALUES, count * 2));
+                }
+                values[count++] = next;
+                rounded = next;
+            }
+            return new RoundedValuesLookup(delegate, minUtcMillis, maxUtcMillis, Arrays.copyOf(values, count));
+        }
+
+        @Override
+        public long round(long utcMillis) {
+            if (utcMillis < minUtcMillis || utcMillis > maxUtcMillis) {
+                return delegate.round(utcMillis);
+            }
+            int index = Arrays.binarySearch(values, utcMillis);
+            if (index < 0) {
+                // the largest rounded value before the value
+                index = -2 - index;
+            }
+            return values[index];
+        }
+    }
+
     public static class Streams {
 
         public static void write(Rounding rounding, StreamOutput out) throws IOException {
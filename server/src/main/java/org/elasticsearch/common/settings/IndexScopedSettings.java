@@ -40,6 +40,8 @@ import org.elasticsearch.index.similarity.SimilarityService;
 import org.elasticsearch.index.store.FsDirectoryService;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.indices.IndicesRequestCache;
+import org.elasticsearch.search.aggregations.bucket.significant.BackgroundFrequencyCache;
+import org.elasticsearch.search.suggest.completion.CompletionSuggestionCache;
 
 import java.util.Arrays;
 import java.util.Collections;
@@ -120,6 +122,7 @@ public final class IndexScopedSettings extends AbstractScopedSettings {
         IndexSettings.MAX_ADJACENCY_MATRIX_FILTERS_SETTING,
         IndexSettings.MAX_ANALYZED_OFFSET_SETTING,
         IndexSettings.MAX_TERMS_COUNT_SETTING,
+        IndexSettings.TERMS_AGG_SPILL_THRESHOLD_SETTING,
         IndexSettings.INDEX_TRANSLOG_SYNC_INTERVAL_SETTING,
         IndexSettings.DEFAULT_FIELD_SETTING,
         IndexSettings.QUERY_STRING_LENIENT_SETTING,
@@ -148,6 +151,11 @@ public final class IndexScopedSettings extends AbstractScopedSettings {
         MapperService.INDEX_MAPPING_TOTAL_FIELDS_LIMIT_SETTING,
         MapperService.INDEX_MAPPING_DEPTH_LIMIT_SETTING,
         BitsetFilterCache.INDEX_LOAD_RANDOM_ACCESS_FILTERS_EAGERLY_SETTING,
+        BitsetFilterCache.INDEX_STORE_FIXED_BITSET_FILTERS_OFF_HEAP_SETTING,
+        CompletionSuggestionCache.INDEX_COMPLETION_RESULT_CACHE_SIZE_SETTING,
+        CompletionSuggestionCache.INDEX_COMPLETION_RESULT_CACHE_EXPIRE_SETTING,
+        BackgroundFrequencyCache.INDEX_SIGNIFICANT_TERMS_BACKGROUND_CACHE_SIZE_SETTING,
+        BackgroundFrequencyCache.INDEX_SIGNIFICANT_TERMS_BACKGROUND_CACHE_EXPIRE_SETTING,
         IndexModule.INDEX_STORE_TYPE_SETTING,
         IndexModule.INDEX_STORE_PRE_LOAD_SETTING,
         IndexModule.INDEX_QUERY_CACHE_ENABLED_SETTING,
@@ -28,8 +28,8 @@ import org.elasticsearch.common.lease.Releasables;
  *  Specialized hash table implementation similar to Lucene's BytesRefHash that maps
  *  BytesRef values to ids. Collisions are resolved with open addressing and linear
  *  probing, growth is smooth thanks to {@link BigArrays}, hashes are cached for faster
- *  re-hashing and capacity is always a multiple of 2 for faster identification of buckets.
- *  This class is not thread-safe.
+ *  re-hashing and probing, and capacity is always a multiple of 2 for faster identification
+ *  of buckets. This class is not thread-safe.
  */
 public final class BytesRefHash extends AbstractHash {
 
@@ -74,10 +74,11 @@ public final class BytesRefHash extends AbstractHash {
      * Get the id associated with <code>key</code>
      */
     public long find(BytesRef key, int code) {
-        final long slot = slot(rehash(code), mask);
+        final int hash = rehash(code);
+        final long slot = slot(hash, mask);
         for (long index = slot; ; index = nextSlot(index, mask)) {
             final long id = id(index);
-            if (id == -1L || key.bytesEquals(get(id, spare))) {
+            if (id == -1L || matches(key, hash, id)) {
                 return id;
             }
         }
@@ -99,12 +100,19 @@ public final class BytesRefHash extends AbstractHash {
                 append(id, key, code);
                 ++size;
                 return id;
-            } else if (key.bytesEquals(get(curId, spare))) {
+            } else if (matches(key, code, curId)) {
                 return -1 - curId;
             }
         }
     }
 
+    /**
+     * Compare the cached hash first so that colliding keys are only read back when their hashes are equal.
+     */
+    private boolean matches(BytesRef key, int code, long id) {
+        return hashes.get(id) == code && key.bytesEquals(get(id, spare));
+    }
+
     private void append(long id, BytesRef key, int code) {
         assert size == id;
         final long startOffset = startOffsets.get(size);
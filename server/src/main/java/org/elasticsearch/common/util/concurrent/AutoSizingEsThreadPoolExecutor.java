@@ -0,0 +1,198 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.util.concurrent;
+
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.logging.ESLoggerFactory;
+import org.elasticsearch.common.unit.TimeValue;
+
+import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+
+/**
+ * An extension to thread pool executor, which automatically adjusts the number of threads according to the measured
+ * service time of its tasks. Every frame of {@code tasksPerFrame} completed tasks the average number of busy threads
+ * is calculated with Little's Law, from the rate at which tasks complete and the time they spend executing. The pool
+ * grows by one thread if the busy threads are above {@link #TARGET_UTILIZATION} of the pool size and the CPU is not
+ * saturated, and shrinks by one thread if fewer threads would do.
+ */
+public final class AutoSizingEsThreadPoolExecutor extends EsThreadPoolExecutor {
+
+    /** The fraction of the threads that should be busy on average, leaving some headroom for bursts. */
+    static final double TARGET_UTILIZATION = 0.75;
+
+    private static final Logger logger = ESLoggerFactory.getLogger(AutoSizingEsThreadPoolExecutor.class);
+
+    /**
+     * The reason of the last change of the pool size.
+     */
+    public enum SizeAdjustment {
+        /** The pool size has not been changed yet. */
+        NONE,
+        /** The pool grew because its threads were busier than the target utilization. */
+        DEMAND,
+        /** The pool shrank because fewer threads could handle the load at the target utilization. */
+        IDLE;
+
+        @Override
+        public String toString() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final Function<Runnable, Runnable> runnableWrapper;
+    private final int tasksPerFrame;
+    private final int minSize;
+    private final int maxSize;
+    private final int maxCpuPercent;
+    private final IntSupplier cpuPercent;
+
+    private final AtomicLong totalExecutionNanos = new AtomicLong(0);
+    private final AtomicInteger taskCount = new AtomicInteger(0);
+
+    private long startNs;
+    private volatile SizeAdjustment lastAdjustment = SizeAdjustment.NONE;
+
+    AutoSizingEsThreadPoolExecutor(String name, int size, int minSize, int maxSize, BlockingQueue<Runnable> workQueue,
+                                   Function<Runnable, Runnable> runnableWrapper, int tasksPerFrame, int maxCpuPercent,
+                                   IntSupplier cpuPercent, ThreadFactory threadFactory, XRejectedExecutionHandler handler,
+                                   ThreadContext contextHolder) {
+        super(name, size, size, 0, TimeUnit.MILLISECONDS, workQueue, threadFactory, handler, contextHolder);
+        assert minSize <= size && size <= maxSize : "expected min [" + minSize + "] <= size [" + size + "] <= max [" + maxSize + "]";
+        this.runnableWrapper = runnableWrapper;
+        this.tasksPerFrame = tasksPerFrame;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.maxCpuPercent = maxCpuPercent;
+        this.cpuPercent = cpuPercent;
+        this.startNs = System.nanoTime();
+    }
+
+    @Override
+    protected void doExecute(final Runnable command) {
+        super.doExecute(this.runnableWrapper.apply(command));
+    }
+
+    /**
+     * Calculate the number of threads that keeps the pool at the target utilization, given how long the tasks of a frame
+     * were executing in total and how long the frame took. By Little's Law the average number of busy threads is the rate
+     * at which tasks complete multiplied by the time they execute, which is the total execution time divided by the frame
+     * time.
+     *
+     * @param totalExecutionNanos the sum of the execution times of the tasks of the frame
+     * @param frameNanos the time between the end of the previous frame and the end of this one
+     * @return the desired number of threads
+     */
+    static int calculateDesiredSize(final long totalExecutionNanos, final long frameNanos) {
+        assert frameNanos > 0 : "cannot calculate for an instantaneous frame, got: " + frameNanos;
+        final double busyThreads = (double) totalExecutionNanos / frameNanos;
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, (long) Math.ceil(busyThreads / TARGET_UTILIZATION)));
+    }
+
+    /**
+     * Returns the number of threads the pool is currently sized to.
+     */
+    public int getCurrentSize() {
+        return getCorePoolSize();
+    }
+
+    /**
+     * Returns the reason of the last change of the pool size.
+     */
+    public SizeAdjustment getLastAdjustment() {
+        return lastAdjustment;
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        super.afterExecute(r, t);
+        assert r instanceof TimedRunnable : "expected only TimedRunnables in queue";
+        final long taskExecutionNanos = ((TimedRunnable) r).getTotalExecutionNanos();
+        if (taskExecutionNanos < 0) {
+            // the task failed, its timing is unknown
+            return;
+        }
+        final long executionNanos = totalExecutionNanos.addAndGet(taskExecutionNanos);
+
+        if (taskCount.incrementAndGet() == this.tasksPerFrame) {
+            final long endTimeNs = System.nanoTime();
+            final long frameNanos = Math.max(1, endTimeNs - this.startNs);
+            // protected by the taskCount memory barrier, the same way as in QueueResizingEsThreadPoolExecutor
+            startNs = endTimeNs;
+            try {
+                adjustSize(calculateDesiredSize(executionNanos, frameNanos), frameNanos);
+            } finally {
+                final int tasks = taskCount.addAndGet(-this.tasksPerFrame);
+                assert tasks >= 0 : "tasks should never be negative, got: " + tasks;
+                if (tasks >= this.tasksPerFrame) {
+                    // too many tasks completed while adjusting, the count would never hit the frame size again
+                    logger.debug("[{}]: too many tasks completed while the pool size was adjusted, resetting measurements", getName());
+                    totalExecutionNanos.set(0);
+                    taskCount.set(0);
+                    startNs = System.nanoTime();
+                } else {
+                    totalExecutionNanos.addAndGet(-executionNanos);
+                }
+            }
+        }
+    }
+
+    private void adjustSize(final int desiredSize, final long frameNanos) {
+        final int oldSize = getCorePoolSize();
+        if (desiredSize > oldSize && oldSize < maxSize) {
+            final int cpu = cpuPercent.getAsInt();
+            if (cpu >= maxCpuPercent) {
+                logger.debug("[{}]: not growing past [{}] threads, desired [{}], cpu is at [{}%]", getName(), oldSize, desiredSize, cpu);
+                return;
+            }
+            // the maximum has to grow first as the core size must never exceed it
+            setMaximumPoolSize(oldSize + 1);
+            setCorePoolSize(oldSize + 1);
+            lastAdjustment = SizeAdjustment.DEMAND;
+        } else if (desiredSize < oldSize && oldSize > minSize) {
+            setCorePoolSize(oldSize - 1);
+            setMaximumPoolSize(oldSize - 1);
+            lastAdjustment = SizeAdjustment.IDLE;
+        } else {
+            return;
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("[{}]: there were [{}] tasks in [{}], desired size is [{}], adjusted size from [{}] to [{}] ({})",
+                getName(), tasksPerFrame, TimeValue.timeValueNanos(frameNanos), desiredSize, oldSize, getCorePoolSize(),
+                lastAdjustment);
+        }
+    }
+
+    @Override
+    protected void appendThreadPoolExecutorDetails(StringBuilder sb) {
+        sb.append("min size = ").append(minSize).append(", ");
+        sb.append("max size = ").append(maxSize).append(", ");
+        sb.append("frame size = ").append(tasksPerFrame).append(", ");
+        sb.append("max cpu percent = ").append(maxCpuPercent).append(", ");
+        sb.append("last adjustment = ").append(lastAdjustment).append(", ");
+    }
+
+}
@@ -36,6 +36,7 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
 import java.util.stream.Collectors;
 
 public class EsExecutors {
@@ -103,6 +104,30 @@ public class EsExecutors {
                 new EsAbortPolicy(), contextHolder);
     }
 
+    /**
+     * Return a new executor that will automatically adjust the number of threads based on the measured task service time.
+     *
+     * @param size initial number of threads
+     * @param queueCapacity the size of the backing queue, -1 for unbounded
+     * @param minSize minimum number of threads the pool can be shrunk to
+     * @param maxSize maximum number of threads the pool can be grown to
+     * @param frameSize number of tasks during which stats are collected before adjusting the number of threads
+     * @param maxCpuPercent the CPU usage at and above which the pool does not grow
+     * @param cpuPercent supplies the current CPU usage in percent, or -1 if it is not available
+     */
+    public static EsThreadPoolExecutor newAutoSizingFixed(String name, int size, int queueCapacity, int minSize, int maxSize,
+                                                          int frameSize, int maxCpuPercent, IntSupplier cpuPercent,
+                                                          ThreadFactory threadFactory, ThreadContext contextHolder) {
+        BlockingQueue<Runnable> queue;
+        if (queueCapacity < 0) {
+            queue = ConcurrentCollections.newBlockingQueue();
+        } else {
+            queue = new SizeBlockingQueue<>(ConcurrentCollections.<Runnable>newBlockingQueue(), queueCapacity);
+        }
+        return new AutoSizingEsThreadPoolExecutor(name, size, minSize, maxSize, queue, TimedRunnable::new, frameSize, maxCpuPercent,
+                cpuPercent, threadFactory, new EsAbortPolicy(), contextHolder);
+    }
+
     private static final ExecutorService DIRECT_EXECUTOR_SERVICE = new AbstractExecutorService() {
 
         @Override
@@ -199,6 +199,10 @@ public final class ThreadContext implements Closeable, Writeable {
      * Returns all of the request contexts headers
      */
     public Map<String, String> getHeaders() {
+        if (defaultHeader.isEmpty()) {
+            // request header maps are never modified once they are part of a context so they can be shared
+            return Collections.unmodifiableMap(threadLocal.get().requestHeaders);
+        }
         HashMap<String, String> map = new HashMap<>(defaultHeader);
         map.putAll(threadLocal.get().requestHeaders);
         return Collections.unmodifiableMap(map);
@@ -211,6 +215,9 @@ public final class ThreadContext implements Closeable, Writeable {
      */
     public Map<String, List<String>> getResponseHeaders() {
         Map<String, List<String>> responseHeaders = threadLocal.get().responseHeaders;
+        if (responseHeaders.isEmpty()) {
+            return Collections.emptyMap();
+        }
         HashMap<String, List<String>> map = new HashMap<>(responseHeaders.size());
 
         for (Map.Entry<String, List<String>> entry : responseHeaders.entrySet()) {
@@ -503,8 +510,11 @@ public final class ThreadContext implements Closeable, Writeable {
         public void set(ThreadContextStruct object) {
             try {
                 if (object == DEFAULT_CONTEXT) {
-                    super.set(null);
-                } else {
+                    object = null;
+                }
+                // CloseableThreadLocal#set allocates and takes a lock shared by all threads, so we skip it if the
+                // context doesn't change which is common when thread pool threads restore their (default) context
+                if (super.get() != object) {
                     super.set(object);
                 }
             } catch (NullPointerException ex) {
@@ -550,21 +560,27 @@ public final class ThreadContext implements Closeable, Writeable {
      */
     private class ContextPreservingRunnable implements Runnable {
         private final Runnable in;
-        private final ThreadContext.StoredContext ctx;
+        private final ThreadContextStruct ctx;
 
         private ContextPreservingRunnable(Runnable in) {
-            ctx = newStoredContext(false);
+            // contexts are immutable so holding on to the current one is enough to restore it later
+            ctx = threadLocal.get();
             this.in = in;
         }
 
         @Override
         public void run() {
             boolean whileRunning = false;
-            try (ThreadContext.StoredContext ignore = stashContext()){
-                ctx.restore();
-                whileRunning = true;
-                in.run();
-                whileRunning = false;
+            try {
+                final ThreadContextStruct threadsOriginalContext = threadLocal.get();
+                threadLocal.set(ctx);
+                try {
+                    whileRunning = true;
+                    in.run();
+                    whileRunning = false;
+                } finally {
+                    threadLocal.set(threadsOriginalContext);
+                }
             } catch (IllegalStateException ex) {
                 if (whileRunning || threadLocal.closed.get() == false) {
                     throw ex;
@@ -590,12 +606,12 @@ public final class ThreadContext implements Closeable, Writeable {
      */
     private class ContextPreservingAbstractRunnable extends AbstractRunnable {
         private final AbstractRunnable in;
-        private final ThreadContext.StoredContext creatorsContext;
+        private final ThreadContextStruct creatorsContext;
 
-        private ThreadContext.StoredContext threadsOriginalContext = null;
+        private ThreadContextStruct threadsOriginalContext = null;
 
         private ContextPreservingAbstractRunnable(AbstractRunnable in) {
-            creatorsContext = newStoredContext(false);
+            creatorsContext = threadLocal.get();
             this.in = in;
         }
 
@@ -610,7 +626,7 @@ public final class ThreadContext implements Closeable, Writeable {
                 in.onAfter();
             } finally {
                 if (threadsOriginalContext != null) {
-                    threadsOriginalContext.restore();
+                    threadLocal.set(threadsOriginalContext);
                 }
             }
         }
@@ -628,9 +644,9 @@ public final class ThreadContext implements Closeable, Writeable {
         @Override
         protected void doRun() throws Exception {
             boolean whileRunning = false;
-            threadsOriginalContext = stashContext();
+            threadsOriginalContext = threadLocal.get();
             try {
-                creatorsContext.restore();
+                threadLocal.set(creatorsContext);
                 whileRunning = true;
                 in.doRun();
                 whileRunning = false;
@@ -0,0 +1,173 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.util.concurrent;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An executor that runs its tasks on a delegate executor, but never on more than {@code maxConcurrency} of its threads at
+ * the same time. Tasks that cannot run yet wait in an unbounded queue without holding a thread, and are picked up by the
+ * next worker that finishes a task. This allows many concurrent blocking I/O operations, such as the file chunks written
+ * during peer recoveries, to share a large pool like {@code generic} without growing it to one thread per operation.
+ * <p>
+ * Each task runs with the thread context of the caller that submitted it.
+ */
+public final class ThrottledExecutor implements Executor {
+
+    private final Executor delegate;
+    private final int maxConcurrency;
+    private final ThreadContext threadContext;
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger running = new AtomicInteger();
+
+    public ThrottledExecutor(Executor delegate, int maxConcurrency, ThreadContext threadContext) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("max concurrency must be at least 1, got [" + maxConcurrency + "]");
+        }
+        this.delegate = delegate;
+        this.maxConcurrency = maxConcurrency;
+        this.threadContext = threadContext;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        final Runnable task = threadContext.preserveContext(command);
+        if (tryAcquire()) {
+            spawn(task);
+            return;
+        }
+        queue.add(task);
+        // all workers may have released their permits between the failed acquire and the enqueue
+        if (tryAcquire()) {
+            final Runnable next = queue.poll();
+            if (next == null) {
+                running.decrementAndGet();
+            } else {
+                spawn(next);
+            }
+        }
+    }
+
+    /**
+     * Returns the maximum number of tasks that run at the same time.
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Returns the number of tasks that are currently executing or about to be executed on the delegate.
+     */
+    public int getRunning() {
+        return running.get();
+    }
+
+    /**
+     * Returns the number of tasks that are waiting for one of the running tasks to complete.
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private boolean tryAcquire() {
+        int current;
+        do {
+            current = running.get();
+            if (current >= maxConcurrency) {
+                return false;
+            }
+        } while (running.compareAndSet(current, current + 1) == false);
+        return true;
+    }
+
+    /**
+     * Executes a worker starting with the given task on the delegate. The caller must hold a permit, which is released if
+     * the delegate rejects the worker.
+     */
+    private void spawn(Runnable task) {
+        try {
+            delegate.execute(new Worker(task));
+        } catch (RuntimeException e) {
+            running.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the next queued task, or releases the permit of the calling worker and returns {@code null} if there is none.
+     */
+    private Runnable pollOrRelease() {
+        while (true) {
+            final Runnable task = queue.poll();
+            if (task != null) {
+                return task;
+            }
+            running.decrementAndGet();
+            // a task may have been queued after the poll by a caller that did not find a free permit
+            if (queue.isEmpty() || tryAcquire() == false) {
+                return null;
+            }
+        }
+    }
+
+    private final class Worker implements Runnable {
+
+        private final Runnable first;
+
+        Worker(Runnable first) {
+            this.first = first;
+        }
+
+        @Override
+        public void run() {
+            boolean success = false;
+            try {
+                Runnable task = first;
+                while (task != null) {
+                    task.run();
+                    task = pollOrRelease();
+                }
+                success = true;
+            } finally {
+                if (success == false) {
+                    // the task failed and its exception goes to the delegate, continue with the queued tasks on a fresh worker
+                    final Runnable next = pollOrRelease();
+                    if (next != null) {
+                        spawn(next);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "throttled worker [" + first + "]";
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "throttled executor [max_concurrency=" + maxConcurrency + ", running=" + running.get() + ", queued=" + queue.size()
+            + "] on [" + delegate + "]";
+    }
+}
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.http;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
@@ -31,21 +32,40 @@ public class HttpStats implements Writeable, ToXContentFragment {
 
     private final long serverOpen;
     private final long totalOpen;
+    private final long pageCacheHits;
+    private final long pageCacheMisses;
 
     public HttpStats(long serverOpen, long totalOpen) {
+        this(serverOpen, totalOpen, 0, 0);
+    }
+
+    public HttpStats(long serverOpen, long totalOpen, long pageCacheHits, long pageCacheMisses) {
         this.serverOpen = serverOpen;
         this.totalOpen = totalOpen;
+        this.pageCacheHits = pageCacheHits;
+        this.pageCacheMisses = pageCacheMisses;
     }
 
     public HttpStats(StreamInput in) throws IOException {
         serverOpen = in.readVLong();
         totalOpen = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            pageCacheHits = in.readVLong();
+            pageCacheMisses = in.readVLong();
+        } else {
+            pageCacheHits = 0;
+            pageCacheMisses = 0;
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVLong(serverOpen);
         out.writeVLong(totalOpen);
+        if (out.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            out.writeVLong(pageCacheHits);
+            out.writeVLong(pageCacheMisses);
+        }
     }
 
     public long getServerOpen() {
@@ -56,10 +76,26 @@ public class HttpStats implements Writeable, ToXContentFragment {
         return this.totalOpen;
     }
 
+    /**
+     * Returns the number of network buffer pages that were reused from a page cache of the http transport.
+     */
+    public long getPageCacheHits() {
+        return this.pageCacheHits;
+    }
+
+    /**
+     * Returns the number of network buffer pages that the http transport had to allocate because its page cache was empty.
+     */
+    public long getPageCacheMisses() {
+        return this.pageCacheMisses;
+    }
+
     static final class Fields {
         static final String HTTP = "http";
         static final String CURRENT_OPEN = "current_open";
         static final String TOTAL_OPENED = "total_opened";
+        static final String PAGE_CACHE_HITS = "page_cache_hits";
+        static final String PAGE_CACHE_MISSES = "page_cache_misses";
     }
 
     @Override
@@ -67,6 +103,8 @@ public class HttpStats implements Writeable, ToXContentFragment {
         builder.startObject(Fields.HTTP);
         builder.field(Fields.CURRENT_OPEN, serverOpen);
         builder.field(Fields.TOTAL_OPENED, totalOpen);
+        builder.field(Fields.PAGE_CACHE_HITS, pageCacheHits);
+        builder.field(Fields.PAGE_CACHE_MISSES, pageCacheMisses);
         builder.endObject();
         return builder;
     }
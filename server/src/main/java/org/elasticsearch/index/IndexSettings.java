@@ -138,6 +138,14 @@ public final class IndexSettings {
     public static final Setting<Integer> MAX_TERMS_COUNT_SETTING =
         Setting.intSetting("index.max_terms_count", 65536, 1, Property.Dynamic, Property.IndexScope);
 
+    /**
+     * Index setting describing how much memory the terms aggregation may use per shard to hold the distinct terms it has seen
+     * before it spills their counts to disk. Spilling only applies to terms aggregations without sub-aggregations that are not
+     * executed with global ordinals. Defaults to -1, which disables spilling.
+     */
+    public static final Setting<ByteSizeValue> TERMS_AGG_SPILL_THRESHOLD_SETTING =
+        Setting.byteSizeSetting("index.aggs.terms.spill_threshold", new ByteSizeValue(-1), Property.Dynamic, Property.IndexScope);
+
     /**
      * Index setting describing for NGramTokenizer and NGramTokenFilter
      * the maximum difference between
@@ -297,6 +305,7 @@ public final class IndexSettings {
     private volatile TimeValue searchIdleAfter;
     private volatile int maxAnalyzedOffset;
     private volatile int maxTermsCount;
+    private volatile ByteSizeValue termsAggSpillThreshold;
 
     /**
      * The maximum number of refresh listeners allows on this shard.
@@ -408,6 +417,7 @@ public final class IndexSettings {
         maxSlicesPerScroll = scopedSettings.get(MAX_SLICES_PER_SCROLL);
         maxAnalyzedOffset = scopedSettings.get(MAX_ANALYZED_OFFSET_SETTING);
         maxTermsCount = scopedSettings.get(MAX_TERMS_COUNT_SETTING);
+        termsAggSpillThreshold = scopedSettings.get(TERMS_AGG_SPILL_THRESHOLD_SETTING);
         this.mergePolicyConfig = new MergePolicyConfig(logger, this);
         this.indexSortConfig = new IndexSortConfig(this);
         searchIdleAfter = scopedSettings.get(INDEX_SEARCH_IDLE_AFTER);
@@ -452,6 +462,7 @@ public final class IndexSettings {
         scopedSettings.addSettingsUpdateConsumer(MAX_REFRESH_LISTENERS_PER_SHARD, this::setMaxRefreshListeners);
         scopedSettings.addSettingsUpdateConsumer(MAX_ANALYZED_OFFSET_SETTING, this::setHighlightMaxAnalyzedOffset);
         scopedSettings.addSettingsUpdateConsumer(MAX_TERMS_COUNT_SETTING, this::setMaxTermsCount);
+        scopedSettings.addSettingsUpdateConsumer(TERMS_AGG_SPILL_THRESHOLD_SETTING, this::setTermsAggSpillThreshold);
         scopedSettings.addSettingsUpdateConsumer(MAX_SLICES_PER_SCROLL, this::setMaxSlicesPerScroll);
         scopedSettings.addSettingsUpdateConsumer(DEFAULT_FIELD_SETTING, this::setDefaultFields);
         scopedSettings.addSettingsUpdateConsumer(INDEX_SEARCH_IDLE_AFTER, this::setSearchIdleAfter);
@@ -753,6 +764,13 @@ public final class IndexSettings {
 
     private void setMaxTermsCount (int maxTermsCount) { this.maxTermsCount = maxTermsCount; }
 
+    /**
+     *  Returns the memory a terms aggregation may use for its distinct terms before it spills them to disk, -1 if it never spills
+     */
+    public ByteSizeValue getTermsAggSpillThreshold() { return this.termsAggSpillThreshold; }
+
+    private void setTermsAggSpillThreshold(ByteSizeValue termsAggSpillThreshold) { this.termsAggSpillThreshold = termsAggSpillThreshold; }
+
     /**
      * Returns the maximum number of allowed script_fields to retrieve in a search request
      */
@@ -24,10 +24,12 @@ import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.logging.ServerLoggers;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.index.shard.SearchOperationListener;
 import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.tasks.TaskResourceStats;
 
 import java.util.Collections;
 import java.util.concurrent.TimeUnit;
@@ -140,10 +142,13 @@ public final class SearchSlowLog implements SearchOperationListener {
     static final class SlowLogSearchContextPrinter {
         private final SearchContext context;
         private final long tookInNanos;
+        private final TaskResourceStats resourceStats;
 
         SlowLogSearchContextPrinter(SearchContext context, long tookInNanos) {
             this.context = context;
             this.tookInNanos = tookInNanos;
+            // captured here as the CPU time of the current phase is measured on the thread that executes it
+            this.resourceStats = context.getTaskResourceStats();
         }
 
         @Override
@@ -166,6 +171,11 @@ public final class SearchSlowLog implements SearchOperationListener {
                 sb.append("], ");
             }
             sb.append("search_type[").append(context.searchType()).append("], total_shards[").append(context.numberOfShards()).append("], ");
+            if (resourceStats != null) {
+                sb.append("task_memory[").append(new ByteSizeValue(resourceStats.getMemoryInBytes())).append("], ");
+                sb.append("task_peak_memory[").append(new ByteSizeValue(resourceStats.getPeakMemoryInBytes())).append("], ");
+                sb.append("task_cpu_time[").append(TimeValue.timeValueNanos(resourceStats.getCpuTimeInNanos())).append("], ");
+            }
             if (context.request().source() != null) {
                 sb.append("source[").append(context.request().source().toString(FORMAT_PARAMS)).append("], ");
             } else {
@@ -33,7 +33,11 @@ import org.apache.lucene.search.join.BitSetProducer;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.BitDocIdSet;
 import org.apache.lucene.util.BitSet;
+import org.apache.lucene.util.FixedBitSet;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.cache.Cache;
 import org.elasticsearch.common.cache.CacheBuilder;
 import org.elasticsearch.common.cache.RemovalListener;
@@ -75,17 +79,32 @@ public final class BitsetFilterCache extends AbstractIndexComponent implements I
 
     public static final Setting<Boolean> INDEX_LOAD_RANDOM_ACCESS_FILTERS_EAGERLY_SETTING =
         Setting.boolSetting("index.load_fixed_bitset_filters_eagerly", true, Property.IndexScope);
+    public static final Setting<Boolean> INDEX_STORE_FIXED_BITSET_FILTERS_OFF_HEAP_SETTING =
+        Setting.boolSetting("index.store_fixed_bitset_filters_off_heap", false, Property.IndexScope);
 
     private final boolean loadRandomAccessFiltersEagerly;
+    private final boolean storeFixedBitSetsOffHeap;
+    // accounts for the direct memory of the bitsets that are stored off heap
+    private final CircuitBreaker offHeapBreaker;
     private final Cache<IndexReader.CacheKey, Cache<Query, Value>> loadedFilters;
     private final Listener listener;
 
     public BitsetFilterCache(IndexSettings indexSettings, Listener listener) {
+        this(indexSettings, listener, new NoopCircuitBreaker(CircuitBreaker.ACCOUNTING));
+    }
+
+    /**
+     * @param offHeapBreaker the breaker that the memory of the bitsets stored off heap is accounted against, a bitset that
+     *                       would trip it stays on heap
+     */
+    public BitsetFilterCache(IndexSettings indexSettings, Listener listener, CircuitBreaker offHeapBreaker) {
         super(indexSettings);
         if (listener == null) {
             throw new IllegalArgumentException("listener must not be null");
         }
         this.loadRandomAccessFiltersEagerly = this.indexSettings.getValue(INDEX_LOAD_RANDOM_ACCESS_FILTERS_EAGERLY_SETTING);
+        this.storeFixedBitSetsOffHeap = this.indexSettings.getValue(INDEX_STORE_FIXED_BITSET_FILTERS_OFF_HEAP_SETTING);
+        this.offHeapBreaker = offHeapBreaker;
         this.loadedFilters = CacheBuilder.<IndexReader.CacheKey, Cache<Query, Value>>builder().removalListener(this).build();
         this.listener = listener;
     }
@@ -141,7 +160,7 @@ public final class BitsetFilterCache extends AbstractIndexComponent implements I
             if (s == null) {
                 bitSet = null;
             } else {
-                bitSet = BitSet.of(s.iterator(), context.reader().maxDoc());
+                bitSet = toCachedBitSet(BitSet.of(s.iterator(), context.reader().maxDoc()));
             }
 
             Value value = new Value(bitSet, shardId);
@@ -150,6 +169,21 @@ public final class BitsetFilterCache extends AbstractIndexComponent implements I
         }).bitset;
     }
 
+    private BitSet toCachedBitSet(BitSet bitSet) {
+        // sparse bitsets are already compact, only dense ones are worth moving out of the heap
+        if (storeFixedBitSetsOffHeap && bitSet instanceof FixedBitSet) {
+            final FixedBitSet fixedBitSet = (FixedBitSet) bitSet;
+            try {
+                offHeapBreaker.addEstimateBytesAndMaybeBreak(OffHeapBitSet.offHeapBytes(fixedBitSet), "<off_heap_bitset>");
+            } catch (CircuitBreakingException e) {
+                logger.debug("keeping bitset on heap", e);
+                return bitSet;
+            }
+            return OffHeapBitSet.copyOf(fixedBitSet);
+        }
+        return bitSet;
+    }
+
     @Override
     public void onRemoval(RemovalNotification<IndexReader.CacheKey, Cache<Query, Value>> notification) {
         if (notification.getKey() == null) {
@@ -164,6 +198,10 @@ public final class BitsetFilterCache extends AbstractIndexComponent implements I
         for (Value value : valueCache.values()) {
             listener.onRemoval(value.shardId, value.bitset);
             // if null then this means the shard has already been removed and the stats are 0 anyway for the shard this key belongs to
+            if (value.bitset instanceof OffHeapBitSet) {
+                // the direct buffer is freed once it is garbage collected, there is no public API to free it right away
+                offHeapBreaker.addWithoutBreaking(-((OffHeapBitSet) value.bitset).offHeapBytes());
+            }
         }
     }
 
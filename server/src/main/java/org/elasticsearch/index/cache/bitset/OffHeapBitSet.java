@@ -0,0 +1,157 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.bitset;
+
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.BitSet;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * A read-only {@link BitSet} that stores its words in a direct {@link ByteBuffer} instead of on the java heap. The
+ * {@link BitsetFilterCache} uses it for dense bitsets, like the parent filters of nested documents, that can use a
+ * lot of heap on large segments. Random access is as cheap as with a {@link FixedBitSet}.
+ */
+public final class OffHeapBitSet extends BitSet {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(OffHeapBitSet.class);
+
+    private final LongBuffer words;
+    private final int numBits;
+    private final int numWords;
+    private final int cardinality;
+
+    private OffHeapBitSet(LongBuffer words, int numBits, int numWords, int cardinality) {
+        this.words = words;
+        this.numBits = numBits;
+        this.numWords = numWords;
+        this.cardinality = cardinality;
+    }
+
+    /**
+     * The direct memory that a copy of the given {@link FixedBitSet} uses.
+     */
+    public static long offHeapBytes(FixedBitSet bitSet) {
+        return (long) FixedBitSet.bits2words(bitSet.length()) * Long.BYTES;
+    }
+
+    /**
+     * Copy the given {@link FixedBitSet} into direct memory.
+     */
+    public static OffHeapBitSet copyOf(FixedBitSet bitSet) {
+        final int numWords = FixedBitSet.bits2words(bitSet.length());
+        final LongBuffer words = ByteBuffer.allocateDirect(numWords * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+        words.put(bitSet.getBits(), 0, numWords);
+        return new OffHeapBitSet(words, bitSet.length(), numWords, bitSet.cardinality());
+    }
+
+    @Override
+    public boolean get(int index) {
+        assert index >= 0 && index < numBits : "index=" + index + ", numBits=" + numBits;
+        final long bitmask = 1L << index;
+        return (words.get(index >> 6) & bitmask) != 0;
+    }
+
+    @Override
+    public void set(int index) {
+        throw new UnsupportedOperationException("off-heap bitsets are read-only");
+    }
+
+    @Override
+    public void clear(int index) {
+        throw new UnsupportedOperationException("off-heap bitsets are read-only");
+    }
+
+    @Override
+    public void clear(int startIndex, int endIndex) {
+        throw new UnsupportedOperationException("off-heap bitsets are read-only");
+    }
+
+    @Override
+    public int cardinality() {
+        return cardinality;
+    }
+
+    @Override
+    public int length() {
+        return numBits;
+    }
+
+    @Override
+    public int prevSetBit(int index) {
+        assert index >= 0 && index < numBits : "index=" + index + ", numBits=" + numBits;
+        int i = index >> 6;
+        final int subIndex = index & 0x3f;
+        long word = words.get(i) << (63 - subIndex);
+        if (word != 0) {
+            return (i << 6) + subIndex - Long.numberOfLeadingZeros(word);
+        }
+        while (--i >= 0) {
+            word = words.get(i);
+            if (word != 0) {
+                return (i << 6) + 63 - Long.numberOfLeadingZeros(word);
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int nextSetBit(int index) {
+        assert index >= 0 && index < numBits : "index=" + index + ", numBits=" + numBits;
+        int i = index >> 6;
+        // shifting by index only considers its lowest 6 bits
+        long word = words.get(i) >> index;
+        if (word != 0) {
+            return index + Long.numberOfTrailingZeros(word);
+        }
+        while (++i < numWords) {
+            word = words.get(i);
+            if (word != 0) {
+                return (i << 6) + Long.numberOfTrailingZeros(word);
+            }
+        }
+        return DocIdSetIterator.NO_MORE_DOCS;
+    }
+
+    /**
+     * The direct memory used by the words of this bitset.
+     */
+    public long offHeapBytes() {
+        return (long) numWords * Long.BYTES;
+    }
+
+    /**
+     * The memory used by this bitset, including the off-heap words so that it keeps being
+     * accounted for in the stats of the {@link BitsetFilterCache}.
+     */
+    @Override
+    public long ramBytesUsed() {
+        return BASE_RAM_BYTES_USED + offHeapBytes();
+    }
+
+    @Override
+    public String toString() {
+        return "OffHeapBitSet(numBits=" + numBits + ", cardinality=" + cardinality + ")";
+    }
+}
@@ -20,10 +20,12 @@
 package org.elasticsearch.index.cache.query;
 
 import org.apache.lucene.search.DocIdSet;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.ToXContentFragment;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -37,16 +39,25 @@ public class QueryCacheStats implements Streamable, ToXContentFragment {
     long missCount;
     long cacheCount;
     long cacheSize;
+    long buildTimeInNanos;
+    long rejectedCount;
 
     public QueryCacheStats() {
     }
 
     public QueryCacheStats(long ramBytesUsed, long hitCount, long missCount, long cacheCount, long cacheSize) {
+        this(ramBytesUsed, hitCount, missCount, cacheCount, cacheSize, 0, 0);
+    }
+
+    public QueryCacheStats(long ramBytesUsed, long hitCount, long missCount, long cacheCount, long cacheSize,
+                           long buildTimeInNanos, long rejectedCount) {
         this.ramBytesUsed = ramBytesUsed;
         this.hitCount = hitCount;
         this.missCount = missCount;
         this.cacheCount = cacheCount;
         this.cacheSize = cacheSize;
+        this.buildTimeInNanos = buildTimeInNanos;
+        this.rejectedCount = rejectedCount;
     }
 
     public void add(QueryCacheStats stats) {
@@ -55,6 +66,8 @@ public class QueryCacheStats implements Streamable, ToXContentFragment {
         missCount += stats.missCount;
         cacheCount += stats.cacheCount;
         cacheSize += stats.cacheSize;
+        buildTimeInNanos += stats.buildTimeInNanos;
+        rejectedCount += stats.rejectedCount;
     }
 
     public long getMemorySizeInBytes() {
@@ -107,6 +120,22 @@ public class QueryCacheStats implements Streamable, ToXContentFragment {
         return cacheCount - cacheSize;
     }
 
+    /**
+     * The total time spent building the {@link DocIdSet}s that have been cached.
+     */
+    public TimeValue getBuildTime() {
+        return TimeValue.timeValueNanos(buildTimeInNanos);
+    }
+
+    /**
+     * The number of {@link DocIdSet}s that the caching policy wanted to cache but
+     * that were not admitted because their index was over its share of the cache
+     * and they were cheaper to rebuild than the average cached entry.
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         ramBytesUsed = in.readLong();
@@ -114,6 +143,10 @@ public class QueryCacheStats implements Streamable, ToXContentFragment {
         missCount = in.readLong();
         cacheCount = in.readLong();
         cacheSize = in.readLong();
+        if (in.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            buildTimeInNanos = in.readVLong();
+            rejectedCount = in.readVLong();
+        }
     }
 
     @Override
@@ -123,6 +156,10 @@ public class QueryCacheStats implements Streamable, ToXContentFragment {
         out.writeLong(missCount);
         out.writeLong(cacheCount);
         out.writeLong(cacheSize);
+        if (out.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            out.writeVLong(buildTimeInNanos);
+            out.writeVLong(rejectedCount);
+        }
     }
 
     @Override
@@ -135,6 +172,8 @@ public class QueryCacheStats implements Streamable, ToXContentFragment {
         builder.field(Fields.CACHE_SIZE, getCacheSize());
         builder.field(Fields.CACHE_COUNT, getCacheCount());
         builder.field(Fields.EVICTIONS, getEvictions());
+        builder.timeValueField(Fields.BUILD_TIME_IN_MILLIS, Fields.BUILD_TIME, getBuildTime());
+        builder.field(Fields.REJECTED_COUNT, getRejectedCount());
         builder.endObject();
         return builder;
     }
@@ -149,6 +188,9 @@ public class QueryCacheStats implements Streamable, ToXContentFragment {
         static final String CACHE_SIZE = "cache_size";
         static final String CACHE_COUNT = "cache_count";
         static final String EVICTIONS = "evictions";
+        static final String BUILD_TIME = "build_time";
+        static final String BUILD_TIME_IN_MILLIS = "build_time_in_millis";
+        static final String REJECTED_COUNT = "rejected_count";
     }
 
 }
@@ -248,6 +248,11 @@ public class DateFieldMapper extends FieldMapper {
             return dateTimeFormatter().parser().parseMillis(value);
         }
 
+        /** Decode the value of a point of this field */
+        public long parsePoint(byte[] value) {
+            return LongPoint.decodeDimension(value, 0);
+        }
+
         @Override
         public Query existsQuery(QueryShardContext context) {
             if (hasDocValues()) {
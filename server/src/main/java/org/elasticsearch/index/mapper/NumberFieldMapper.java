@@ -192,6 +192,11 @@ public class NumberFieldMapper extends FieldMapper {
                 return parsed;
             }
 
+            @Override
+            public Number parsePoint(byte[] value) {
+                return HalfFloatPoint.decodeDimension(value, 0);
+            }
+
             @Override
             public Query termQuery(String field, Object value) {
                 float v = parse(value, false);
@@ -284,6 +289,11 @@ public class NumberFieldMapper extends FieldMapper {
                 return parsed;
             }
 
+            @Override
+            public Number parsePoint(byte[] value) {
+                return FloatPoint.decodeDimension(value, 0);
+            }
+
             @Override
             public Query termQuery(String field, Object value) {
                 float v = parse(value, false);
@@ -365,6 +375,11 @@ public class NumberFieldMapper extends FieldMapper {
                 return parsed;
             }
 
+            @Override
+            public Number parsePoint(byte[] value) {
+                return DoublePoint.decodeDimension(value, 0);
+            }
+
             @Override
             public Query termQuery(String field, Object value) {
                 double v = parse(value, false);
@@ -459,6 +474,11 @@ public class NumberFieldMapper extends FieldMapper {
                 return (short) value;
             }
 
+            @Override
+            public Number parsePoint(byte[] value) {
+                return IntPoint.decodeDimension(value, 0);
+            }
+
             @Override
             public Query termQuery(String field, Object value) {
                 return INTEGER.termQuery(field, value);
@@ -511,6 +531,11 @@ public class NumberFieldMapper extends FieldMapper {
                 return parser.shortValue(coerce);
             }
 
+            @Override
+            public Number parsePoint(byte[] value) {
+                return IntPoint.decodeDimension(value, 0);
+            }
+
             @Override
             public Query termQuery(String field, Object value) {
                 return INTEGER.termQuery(field, value);
@@ -563,6 +588,11 @@ public class NumberFieldMapper extends FieldMapper {
                 return parser.intValue(coerce);
             }
 
+            @Override
+            public Number parsePoint(byte[] value) {
+                return IntPoint.decodeDimension(value, 0);
+            }
+
             @Override
             public Query termQuery(String field, Object value) {
                 if (hasDecimalPart(value)) {
@@ -677,6 +707,11 @@ public class NumberFieldMapper extends FieldMapper {
                 return parser.longValue(coerce);
             }
 
+            @Override
+            public Number parsePoint(byte[] value) {
+                return LongPoint.decodeDimension(value, 0);
+            }
+
             @Override
             public Query termQuery(String field, Object value) {
                 if (hasDecimalPart(value)) {
@@ -788,6 +823,8 @@ public class NumberFieldMapper extends FieldMapper {
                                   boolean hasDocValues);
         public abstract Number parse(XContentParser parser, boolean coerce) throws IOException;
         public abstract Number parse(Object value, boolean coerce);
+        /** Decode the value of a point of the given type */
+        public abstract Number parsePoint(byte[] value);
         public abstract List<Field> createFields(String name, Number value, boolean indexed,
                                                  boolean docValued, boolean stored);
         Number valueForSearch(Number value) {
@@ -870,6 +907,11 @@ public class NumberFieldMapper extends FieldMapper {
             return type.name;
         }
 
+        /** Decode the value of a point of this field */
+        public Number parsePoint(byte[] value) {
+            return type.parsePoint(value);
+        }
+
         @Override
         public Query existsQuery(QueryShardContext context) {
             if (hasDocValues()) {
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.search.stats;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -240,6 +241,12 @@ public class SearchStats implements Streamable, ToXContentFragment {
 
     Stats totalStats;
     long openContexts;
+    // the shard requests of searches coordinated by the node that were hedged, and those whose hedged request answered first
+    long hedgedRequests;
+    long wonHedgedRequests;
+    // the lookups of significant terms background frequencies that were served from or missed the per-segment cache
+    long backgroundFrequencyCacheHitCount;
+    long backgroundFrequencyCacheMissCount;
 
     @Nullable
     Map<String, Stats> groupStats;
@@ -264,6 +271,10 @@ public class SearchStats implements Streamable, ToXContentFragment {
         }
         addTotals(searchStats);
         openContexts += searchStats.openContexts;
+        hedgedRequests += searchStats.hedgedRequests;
+        wonHedgedRequests += searchStats.wonHedgedRequests;
+        backgroundFrequencyCacheHitCount += searchStats.backgroundFrequencyCacheHitCount;
+        backgroundFrequencyCacheMissCount += searchStats.backgroundFrequencyCacheMissCount;
         if (includeTypes && searchStats.groupStats != null && !searchStats.groupStats.isEmpty()) {
             if (groupStats == null) {
                 groupStats = new HashMap<>(searchStats.groupStats.size());
@@ -294,6 +305,51 @@ public class SearchStats implements Streamable, ToXContentFragment {
         return this.openContexts;
     }
 
+    /**
+     * Adds the hedged shard requests of the searches coordinated by a node.
+     */
+    public void addHedgedRequests(long hedgedRequests, long wonHedgedRequests) {
+        this.hedgedRequests += hedgedRequests;
+        this.wonHedgedRequests += wonHedgedRequests;
+    }
+
+    /**
+     * Returns the number of shard requests that were hedged by sending a duplicate request to another copy of the shard.
+     */
+    public long getHedgedRequests() {
+        return this.hedgedRequests;
+    }
+
+    /**
+     * Returns the number of hedged requests that answered before the request they duplicated.
+     */
+    public long getWonHedgedRequests() {
+        return this.wonHedgedRequests;
+    }
+
+    /**
+     * Adds the hits and misses of the significant terms background frequency cache of a shard.
+     */
+    public void addBackgroundFrequencyCacheStats(long hitCount, long missCount) {
+        this.backgroundFrequencyCacheHitCount += hitCount;
+        this.backgroundFrequencyCacheMissCount += missCount;
+    }
+
+    /**
+     * The number of segment-level background frequency lookups that were served from the background frequency cache.
+     */
+    public long getBackgroundFrequencyCacheHitCount() {
+        return this.backgroundFrequencyCacheHitCount;
+    }
+
+    /**
+     * The number of segment-level background frequency lookups that had to be computed because they were not in the
+     * background frequency cache.
+     */
+    public long getBackgroundFrequencyCacheMissCount() {
+        return this.backgroundFrequencyCacheMissCount;
+    }
+
     @Nullable
     public Map<String, Stats> getGroupStats() {
         return this.groupStats;
@@ -303,6 +359,12 @@ public class SearchStats implements Streamable, ToXContentFragment {
     public XContentBuilder toXContent(XContentBuilder builder, ToXContent.Params params) throws IOException {
         builder.startObject(Fields.SEARCH);
         builder.field(Fields.OPEN_CONTEXTS, openContexts);
+        builder.field(Fields.HEDGED_REQUESTS, hedgedRequests);
+        builder.field(Fields.WON_HEDGED_REQUESTS, wonHedgedRequests);
+        builder.startObject(Fields.BACKGROUND_FREQUENCY_CACHE);
+        builder.field(Fields.HIT_COUNT, backgroundFrequencyCacheHitCount);
+        builder.field(Fields.MISS_COUNT, backgroundFrequencyCacheMissCount);
+        builder.endObject();
         totalStats.toXContent(builder, params);
         if (groupStats != null && !groupStats.isEmpty()) {
             builder.startObject(Fields.GROUPS);
@@ -325,6 +387,11 @@ public class SearchStats implements Streamable, ToXContentFragment {
     static final class Fields {
         static final String SEARCH = "search";
         static final String OPEN_CONTEXTS = "open_contexts";
+        static final String HEDGED_REQUESTS = "hedged_requests";
+        static final String WON_HEDGED_REQUESTS = "won_hedged_requests";
+        static final String BACKGROUND_FREQUENCY_CACHE = "background_frequency_cache";
+        static final String HIT_COUNT = "hit_count";
+        static final String MISS_COUNT = "miss_count";
         static final String GROUPS = "groups";
         static final String QUERY_TOTAL = "query_total";
         static final String QUERY_TIME = "query_time";
@@ -351,6 +418,12 @@ public class SearchStats implements Streamable, ToXContentFragment {
         if (in.readBoolean()) {
             groupStats = in.readMap(StreamInput::readString, Stats::readStats);
         }
+        if (in.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            hedgedRequests = in.readVLong();
+            wonHedgedRequests = in.readVLong();
+            backgroundFrequencyCacheHitCount = in.readVLong();
+            backgroundFrequencyCacheMissCount = in.readVLong();
+        }
     }
 
     @Override
@@ -363,5 +436,11 @@ public class SearchStats implements Streamable, ToXContentFragment {
             out.writeBoolean(true);
             out.writeMap(groupStats, StreamOutput::writeString, (stream, stats) -> stats.writeTo(stream));
         }
+        if (out.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            out.writeVLong(hedgedRequests);
+            out.writeVLong(wonHedgedRequests);
+            out.writeVLong(backgroundFrequencyCacheHitCount);
+            out.writeVLong(backgroundFrequencyCacheMissCount);
+        }
     }
 }
@@ -60,6 +60,7 @@ import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
@@ -131,8 +132,10 @@ import org.elasticsearch.indices.recovery.RecoveryState;
 import org.elasticsearch.repositories.RepositoriesService;
 import org.elasticsearch.repositories.Repository;
 import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.search.aggregations.bucket.significant.BackgroundFrequencyCache;
 import org.elasticsearch.search.suggest.completion.CompletionFieldStats;
 import org.elasticsearch.search.suggest.completion.CompletionStats;
+import org.elasticsearch.search.suggest.completion.CompletionSuggestionCache;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.Closeable;
@@ -170,12 +173,16 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
     private final IndexCache indexCache;
     private final Store store;
     private final InternalIndexingStats internalIndexingStats;
+    private final CounterMetric indexBufferThrottleCount = new CounterMetric();
+    private volatile long indexBufferAllocation;
     private final ShardSearchStats searchStats = new ShardSearchStats();
     private final ShardGetService getService;
     private final ShardIndexWarmerService shardWarmerService;
     private final ShardRequestCache requestCacheStats;
     private final ShardFieldData shardFieldData;
     private final ShardBitsetFilterCache shardBitsetFilterCache;
+    private final CompletionSuggestionCache completionSuggestionCache;
+    private final BackgroundFrequencyCache backgroundFrequencyCache;
     private final Object mutex = new Object();
     private final String checkIndexOnStartup;
     private final CodecService codecService;
@@ -290,6 +297,8 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         this.requestCacheStats = new ShardRequestCache();
         this.shardFieldData = new ShardFieldData();
         this.shardBitsetFilterCache = new ShardBitsetFilterCache(shardId, indexSettings);
+        this.completionSuggestionCache = new CompletionSuggestionCache(indexSettings);
+        this.backgroundFrequencyCache = new BackgroundFrequencyCache(indexSettings);
         state = IndexShardState.CREATED;
         this.path = path;
         this.circuitBreakerService = circuitBreakerService;
@@ -338,6 +347,14 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         return shardBitsetFilterCache;
     }
 
+    public CompletionSuggestionCache completionSuggestionCache() {
+        return completionSuggestionCache;
+    }
+
+    public BackgroundFrequencyCache backgroundFrequencyCache() {
+        return backgroundFrequencyCache;
+    }
+
     public MapperService mapperService() {
         return mapperService;
     }
@@ -924,11 +941,14 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
             throttled = engine.isThrottled();
             throttleTimeInMillis = engine.getIndexThrottleTimeInMillis();
         }
-        return internalIndexingStats.stats(throttled, throttleTimeInMillis, types);
+        return internalIndexingStats.stats(throttled, throttleTimeInMillis, indexBufferAllocation, indexBufferThrottleCount.count(),
+            types);
     }
 
     public SearchStats searchStats(String... groups) {
-        return searchStats.stats(groups);
+        final SearchStats stats = searchStats.stats(groups);
+        stats.addBackgroundFrequencyCacheStats(backgroundFrequencyCache.getHitCount(), backgroundFrequencyCache.getMissCount());
+        return stats;
     }
 
     public GetStats getStats() {
@@ -979,6 +999,8 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
             markSearcherAccessed();
             completionStats.add(CompletionFieldStats.completionStats(currentSearcher.reader(), fields));
         }
+        completionStats.add(new CompletionStats(0, null,
+            completionSuggestionCache.getHitCount(), completionSuggestionCache.getMissCount()));
         return completionStats;
     }
 
@@ -1530,6 +1552,21 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         }
     }
 
+    /**
+     * Returns the share of the node's indexing buffer the {@link org.elasticsearch.indices.IndexingMemoryController} last
+     * allocated to this shard
+     */
+    public long getIndexBufferAllocation() {
+        return indexBufferAllocation;
+    }
+
+    /**
+     * Sets the share of the node's indexing buffer allocated to this shard based on its recent write rate
+     */
+    public void setIndexBufferAllocation(long bytes) {
+        this.indexBufferAllocation = bytes;
+    }
+
     public void addShardFailureCallback(Consumer<ShardFailure> onShardFailure) {
         this.shardEventListener.delegates.add(onShardFailure);
     }
@@ -1667,6 +1704,7 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
     }
 
     public void activateThrottling() {
+        indexBufferThrottleCount.inc();
         try {
             getEngine().activateThrottling();
         } catch (AlreadyClosedException ex) {
@@ -19,10 +19,12 @@
 
 package org.elasticsearch.index.shard;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.ToXContentFragment;
@@ -46,10 +48,19 @@ public class IndexingStats implements Streamable, ToXContentFragment {
         private long noopUpdateCount;
         private long throttleTimeInMillis;
         private boolean isThrottled;
+        private long indexBufferAllocationInBytes;
+        private long indexBufferThrottleCount;
 
         Stats() {}
 
         public Stats(long indexCount, long indexTimeInMillis, long indexCurrent, long indexFailedCount, long deleteCount, long deleteTimeInMillis, long deleteCurrent, long noopUpdateCount, boolean isThrottled, long throttleTimeInMillis) {
+            this(indexCount, indexTimeInMillis, indexCurrent, indexFailedCount, deleteCount, deleteTimeInMillis, deleteCurrent,
+                noopUpdateCount, isThrottled, throttleTimeInMillis, 0, 0);
+        }
+
+        public Stats(long indexCount, long indexTimeInMillis, long indexCurrent, long indexFailedCount, long deleteCount,
+                     long deleteTimeInMillis, long deleteCurrent, long noopUpdateCount, boolean isThrottled, long throttleTimeInMillis,
+                     long indexBufferAllocationInBytes, long indexBufferThrottleCount) {
             this.indexCount = indexCount;
             this.indexTimeInMillis = indexTimeInMillis;
             this.indexCurrent = indexCurrent;
@@ -60,6 +71,8 @@ public class IndexingStats implements Streamable, ToXContentFragment {
             this.noopUpdateCount = noopUpdateCount;
             this.isThrottled = isThrottled;
             this.throttleTimeInMillis = throttleTimeInMillis;
+            this.indexBufferAllocationInBytes = indexBufferAllocationInBytes;
+            this.indexBufferThrottleCount = indexBufferThrottleCount;
         }
 
         public void add(Stats stats) {
@@ -74,6 +87,8 @@ public class IndexingStats implements Streamable, ToXContentFragment {
 
             noopUpdateCount += stats.noopUpdateCount;
             throttleTimeInMillis += stats.throttleTimeInMillis;
+            indexBufferAllocationInBytes += stats.indexBufferAllocationInBytes;
+            indexBufferThrottleCount += stats.indexBufferThrottleCount;
             if (isThrottled != stats.isThrottled) {
                 isThrottled = true; //When combining if one is throttled set result to throttled.
             }
@@ -132,6 +147,21 @@ public class IndexingStats implements Streamable, ToXContentFragment {
             return noopUpdateCount;
         }
 
+        /**
+         * Returns the share of the node's indexing buffer that the indexing memory controller allocated
+         * based on the recent write rate
+         */
+        public ByteSizeValue getIndexBufferAllocation() {
+            return new ByteSizeValue(indexBufferAllocationInBytes);
+        }
+
+        /**
+         * Returns the number of times indexing was throttled because writing indexing buffers to disk couldn't keep up
+         */
+        public long getIndexBufferThrottleCount() {
+            return indexBufferThrottleCount;
+        }
+
         public static Stats readStats(StreamInput in) throws IOException {
             Stats stats = new Stats();
             stats.readFrom(in);
@@ -150,6 +180,10 @@ public class IndexingStats implements Streamable, ToXContentFragment {
             noopUpdateCount = in.readVLong();
             isThrottled = in.readBoolean();
             throttleTimeInMillis = in.readLong();
+            if (in.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+                indexBufferAllocationInBytes = in.readVLong();
+                indexBufferThrottleCount = in.readVLong();
+            }
         }
 
         @Override
@@ -164,7 +198,10 @@ public class IndexingStats implements Streamable, ToXContentFragment {
             out.writeVLong(noopUpdateCount);
             out.writeBoolean(isThrottled);
             out.writeLong(throttleTimeInMillis);
-
+            if (out.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+                out.writeVLong(indexBufferAllocationInBytes);
+                out.writeVLong(indexBufferThrottleCount);
+            }
         }
 
         @Override
@@ -182,6 +219,8 @@ public class IndexingStats implements Streamable, ToXContentFragment {
 
             builder.field(Fields.IS_THROTTLED, isThrottled);
             builder.timeValueField(Fields.THROTTLED_TIME_IN_MILLIS, Fields.THROTTLED_TIME, throttleTimeInMillis);
+            builder.byteSizeField(Fields.INDEX_BUFFER_ALLOCATION_IN_BYTES, Fields.INDEX_BUFFER_ALLOCATION, indexBufferAllocationInBytes);
+            builder.field(Fields.INDEX_BUFFER_THROTTLE_TOTAL, indexBufferThrottleCount);
             return builder;
         }
     }
@@ -273,6 +312,9 @@ public class IndexingStats implements Streamable, ToXContentFragment {
         static final String IS_THROTTLED = "is_throttled";
         static final String THROTTLED_TIME_IN_MILLIS = "throttle_time_in_millis";
         static final String THROTTLED_TIME = "throttle_time";
+        static final String INDEX_BUFFER_ALLOCATION = "index_buffer_allocation";
+        static final String INDEX_BUFFER_ALLOCATION_IN_BYTES = "index_buffer_allocation_in_bytes";
+        static final String INDEX_BUFFER_THROTTLE_TOTAL = "index_buffer_throttle_total";
     }
 
     @Override
@@ -22,6 +22,7 @@ package org.elasticsearch.indices;
 import org.apache.logging.log4j.message.ParameterizedMessage;
 import org.apache.logging.log4j.util.Supplier;
 import org.apache.lucene.store.AlreadyClosedException;
+import org.elasticsearch.common.ExponentiallyWeightedMovingAverage;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
@@ -30,6 +31,7 @@ import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.IndexShardState;
@@ -42,11 +44,14 @@ import org.elasticsearch.threadpool.ThreadPool.Names;
 import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class IndexingMemoryController extends AbstractComponent implements IndexingOperationListener, Closeable {
@@ -75,6 +80,13 @@ public class IndexingMemoryController extends AbstractComponent implements Index
     /** How frequently we check indexing memory usage (default: 5 seconds). */
     public static final Setting<TimeValue> SHARD_MEMORY_INTERVAL_TIME_SETTING = Setting.positiveTimeSetting("indices.memory.interval", TimeValue.timeValueSeconds(5), Property.NodeScope);
 
+    /**
+     * Smoothing factor of the per-shard write rate: higher values react faster to changes in indexing throughput, lower values
+     * smooth out short bursts (default: 0.3).
+     */
+    public static final Setting<Double> SHARD_WRITE_RATE_ALPHA_SETTING =
+        Setting.doubleSetting("indices.memory.write_rate_alpha", 0.3, 0.0, Property.NodeScope);
+
     private final ThreadPool threadPool;
 
     private final Iterable<IndexShard> indexShards;
@@ -83,6 +95,10 @@ public class IndexingMemoryController extends AbstractComponent implements Index
 
     private final TimeValue inactiveTime;
     private final TimeValue interval;
+    private final double writeRateAlpha;
+
+    /** Bytes per second each shard is indexing, smoothed across checks */
+    private final Map<ShardId, ShardWriteRate> writeRates = ConcurrentCollections.newConcurrentMap();
 
     /** Contains shards currently being throttled because we can't write segments quickly enough */
     private final Set<IndexShard> throttled = new HashSet<>();
@@ -118,6 +134,11 @@ public class IndexingMemoryController extends AbstractComponent implements Index
         this.inactiveTime = SHARD_INACTIVE_TIME_SETTING.get(this.settings);
         // we need to have this relatively small to free up heap quickly enough
         this.interval = SHARD_MEMORY_INTERVAL_TIME_SETTING.get(this.settings);
+        this.writeRateAlpha = SHARD_WRITE_RATE_ALPHA_SETTING.get(this.settings);
+        if (writeRateAlpha > 1.0) {
+            throw new IllegalArgumentException("[" + SHARD_WRITE_RATE_ALPHA_SETTING.getKey() + "] must be <= 1.0 but was ["
+                + writeRateAlpha + "]");
+        }
 
         this.statusChecker = new ShardsIndicesStatusChecker();
 
@@ -189,6 +210,11 @@ public class IndexingMemoryController extends AbstractComponent implements Index
         statusChecker.run();
     }
 
+    /** Records the share of the indexing buffer this shard is allowed to use before it is asked to write to disk */
+    protected void setIndexBufferAllocation(IndexShard shard, long bytes) {
+        shard.setIndexBufferAllocation(bytes);
+    }
+
     /** Asks this shard to throttle indexing to one thread */
     protected void activateThrottling(IndexShard shard) {
         shard.activateThrottling();
@@ -201,34 +227,63 @@ public class IndexingMemoryController extends AbstractComponent implements Index
 
     @Override
     public void postIndex(ShardId shardId, Engine.Index index, Engine.IndexResult result) {
-        recordOperationBytes(index, result);
+        recordOperationBytes(shardId, index, result);
     }
 
     @Override
     public void postDelete(ShardId shardId, Engine.Delete delete, Engine.DeleteResult result) {
-        recordOperationBytes(delete, result);
+        recordOperationBytes(shardId, delete, result);
     }
 
     /** called by IndexShard to record estimated bytes written to translog for the operation */
-    private void recordOperationBytes(Engine.Operation operation, Engine.Result result) {
+    private void recordOperationBytes(ShardId shardId, Engine.Operation operation, Engine.Result result) {
         if (result.hasFailure() == false) {
-            statusChecker.bytesWritten(operation.estimatedSizeInBytes());
+            int bytes = operation.estimatedSizeInBytes();
+            recordShardBytes(shardId, bytes);
+            statusChecker.bytesWritten(bytes);
+        }
+    }
+
+    /** adds to the bytes this shard indexed since the last check, which feed its write rate */
+    void recordShardBytes(ShardId shardId, long bytes) {
+        ShardWriteRate writeRate = writeRates.get(shardId);
+        if (writeRate == null) {
+            writeRate = writeRates.computeIfAbsent(shardId, id -> new ShardWriteRate(writeRateAlpha));
+        }
+        writeRate.bytesSinceCheck.add(bytes);
+    }
+
+    /** returns the smoothed rate, in bytes per second, this shard has been indexing at */
+    double getShardWriteRate(ShardId shardId) {
+        ShardWriteRate writeRate = writeRates.get(shardId);
+        return writeRate == null ? 0 : writeRate.bytesPerSecond.getAverage();
+    }
+
+    private static final class ShardWriteRate {
+        final LongAdder bytesSinceCheck = new LongAdder();
+        final ExponentiallyWeightedMovingAverage bytesPerSecond;
+
+        ShardWriteRate(double alpha) {
+            this.bytesPerSecond = new ExponentiallyWeightedMovingAverage(alpha, 0);
         }
     }
 
     private static final class ShardAndBytesUsed implements Comparable<ShardAndBytesUsed> {
         final long bytesUsed;
+        final long allocation;
         final IndexShard shard;
 
-        ShardAndBytesUsed(long bytesUsed, IndexShard shard) {
+        ShardAndBytesUsed(long bytesUsed, long allocation, IndexShard shard) {
             this.bytesUsed = bytesUsed;
+            this.allocation = allocation;
             this.shard = shard;
         }
 
         @Override
         public int compareTo(ShardAndBytesUsed other) {
-            // Sort larger shards first:
-            return Long.compare(other.bytesUsed, bytesUsed);
+            // Sort shards that exceed their allocation the most first; when all shards index at the same rate this is the same as
+            // sorting larger shards first:
+            return Long.compare(other.bytesUsed - other.allocation, bytesUsed - allocation);
         }
     }
 
@@ -237,6 +292,7 @@ public class IndexingMemoryController extends AbstractComponent implements Index
 
         final AtomicLong bytesWrittenSinceCheck = new AtomicLong();
         final ReentrantLock runLock = new ReentrantLock();
+        long lastCheckNanos = System.nanoTime();
 
         /** Shard calls this on each indexing/delete op */
         public void bytesWritten(int bytes) {
@@ -279,10 +335,51 @@ public class IndexingMemoryController extends AbstractComponent implements Index
             }
         }
 
+        /**
+         * Folds the bytes each shard indexed since the last check into its write rate and splits the indexing buffer across shards
+         * in proportion to those rates, or evenly if none of them indexed anything yet.
+         */
+        private Map<IndexShard, Long> allocateIndexingBuffer(List<IndexShard> shards) {
+            final long now = System.nanoTime();
+            final double elapsedSeconds = (now - lastCheckNanos) / 1_000_000_000d;
+            lastCheckNanos = now;
+
+            Set<ShardId> shardIds = new HashSet<>();
+            double totalRate = 0;
+            for (IndexShard shard : shards) {
+                shardIds.add(shard.shardId());
+                ShardWriteRate writeRate = writeRates.get(shard.shardId());
+                if (writeRate == null) {
+                    continue;
+                }
+                if (elapsedSeconds > 0) {
+                    writeRate.bytesPerSecond.addValue(writeRate.bytesSinceCheck.sumThenReset() / elapsedSeconds);
+                }
+                totalRate += writeRate.bytesPerSecond.getAverage();
+            }
+            // Forget about shards that were closed or relocated away:
+            writeRates.keySet().retainAll(shardIds);
+
+            Map<IndexShard, Long> allocations = new HashMap<>(shards.size());
+            for (IndexShard shard : shards) {
+                final long allocation;
+                if (totalRate > 0) {
+                    allocation = (long) (indexingBuffer.getBytes() * (getShardWriteRate(shard.shardId()) / totalRate));
+                } else {
+                    allocation = indexingBuffer.getBytes() / shards.size();
+                }
+                allocations.put(shard, allocation);
+                setIndexBufferAllocation(shard, allocation);
+            }
+            return allocations;
+        }
+
         private void runUnlocked() {
             // NOTE: even if we hit an errant exc here, our ThreadPool.scheduledWithFixedDelay will log the exception and re-invoke us
             // again, on schedule
 
+            final Map<IndexShard, Long> allocations = allocateIndexingBuffer(availableShards());
+
             // First pass to sum up how much heap all shards' indexing buffers are using now, and how many bytes they are currently moving
             // to disk:
             long totalBytesUsed = 0;
@@ -347,7 +444,7 @@ public class IndexingMemoryController extends AbstractComponent implements Index
                                 logger.trace("shard [{}] is using [{}] heap, not writing any bytes", shard.shardId(), shardBytesUsed);
                             }
                         }
-                        queue.add(new ShardAndBytesUsed(shardBytesUsed, shard));
+                        queue.add(new ShardAndBytesUsed(shardBytesUsed, allocations.getOrDefault(shard, 0L), shard));
                     }
                 }
 
@@ -356,7 +453,8 @@ public class IndexingMemoryController extends AbstractComponent implements Index
 
                 while (totalBytesUsed > indexingBuffer.getBytes() && queue.isEmpty() == false) {
                     ShardAndBytesUsed largest = queue.poll();
-                    logger.debug("write indexing buffer to disk for shard [{}] to free up its [{}] indexing buffer", largest.shard.shardId(), new ByteSizeValue(largest.bytesUsed));
+                    logger.debug("write indexing buffer to disk for shard [{}] to free up its [{}] indexing buffer, allocated [{}]",
+                        largest.shard.shardId(), new ByteSizeValue(largest.bytesUsed), new ByteSizeValue(largest.allocation));
                     writeIndexingBufferAsync(largest.shard);
                     totalBytesUsed -= largest.bytesUsed;
                     if (doThrottle && throttled.contains(largest.shard) == false) {
@@ -22,6 +22,7 @@ package org.elasticsearch.indices;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BulkScorer;
+import org.apache.lucene.search.DocIdSet;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.LRUQueryCache;
 import org.apache.lucene.search.Query;
@@ -36,8 +37,10 @@ import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.index.Index;
 import org.elasticsearch.index.cache.query.QueryCacheStats;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.shard.ShardUtils;
 
 import java.io.Closeable;
 import java.io.IOException;
@@ -46,6 +49,8 @@ import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Predicate;
 
 public class IndicesQueryCache extends AbstractComponent implements QueryCache, Closeable {
@@ -57,10 +62,27 @@ public class IndicesQueryCache extends AbstractComponent implements QueryCache,
     // enables caching on all segments instead of only the larger ones, for testing only
     public static final Setting<Boolean> INDICES_QUERIES_CACHE_ALL_SEGMENTS_SETTING = 
             Setting.boolSetting("indices.queries.cache.all_segments", false, Property.NodeScope);
+    // the fraction of the cache size that a single index may fill before its new entries have to compete on build cost
+    public static final Setting<Double> INDICES_QUERIES_CACHE_INDEX_QUOTA_SETTING =
+            Setting.doubleSetting("indices.queries.cache.index_quota", 1.0d, 0.0d, Property.NodeScope);
+
+    // an index over its quota still gets one in that many of its rejected entries admitted, so that its build cost keeps
+    // being measured
+    private static final int ADMISSION_SAMPLE_INTERVAL = 16;
 
     private final LRUQueryCache cache;
     private final ShardCoreKeyMap shardKeyMap = new ShardCoreKeyMap();
     private final Map<ShardId, Stats> shardStats = new ConcurrentHashMap<>();
+    // the sums of the stats of the shards of each index and of all shards, kept up to date
+    // so that admission decisions don't need to iterate over all shards
+    private final Map<Index, IndexStats> indexStats = new ConcurrentHashMap<>();
+    private final LongAdder totalBuildTimeNanos = new LongAdder();
+    private final LongAdder totalBuiltBytes = new LongAdder();
+    private final long indexQuotaBytes;
+    // the shard of the segment that is currently being searched by this thread, so
+    // that the caching policy and the cache implementation can attribute decisions
+    // and build costs to a shard
+    private final ThreadLocal<ShardId> currentShard = new ThreadLocal<>();
     private volatile long sharedRamBytesUsed;
 
     // This is a hack for the fact that the close listener for the
@@ -72,8 +94,10 @@ public class IndicesQueryCache extends AbstractComponent implements QueryCache,
         super(settings);
         final ByteSizeValue size = INDICES_CACHE_QUERY_SIZE_SETTING.get(settings);
         final int count = INDICES_CACHE_QUERY_COUNT_SETTING.get(settings);
-        logger.debug("using [node] query cache with size [{}] max filter count [{}]",
-                size, count);
+        final double indexQuota = INDICES_QUERIES_CACHE_INDEX_QUOTA_SETTING.get(settings);
+        logger.debug("using [node] query cache with size [{}] max filter count [{}] index quota [{}]",
+                size, count, indexQuota);
+        indexQuotaBytes = indexQuota >= 1d ? Long.MAX_VALUE : (long) (indexQuota * size.getBytes());
         if (INDICES_QUERIES_CACHE_ALL_SEGMENTS_SETTING.get(settings)) {
             cache = new ElasticsearchLRUQueryCache(count, size.getBytes(), context -> true);
         } else {
@@ -114,6 +138,9 @@ public class IndicesQueryCache extends AbstractComponent implements QueryCache,
         while (weight instanceof CachingWeightWrapper) {
             weight = ((CachingWeightWrapper) weight).in;
         }
+        if (indexQuotaBytes != Long.MAX_VALUE) {
+            policy = new IndexQuotaCachingPolicy(policy);
+        }
         final Weight in = cache.doCache(weight, policy);
         // We wrap the weight to track the readers it sees and map them with
         // the shards they belong to
@@ -142,26 +169,98 @@ public class IndicesQueryCache extends AbstractComponent implements QueryCache,
 
         @Override
         public Scorer scorer(LeafReaderContext context) throws IOException {
-            shardKeyMap.add(context.reader());
-            return in.scorer(context);
+            final ShardId previous = enterLeaf(context);
+            try {
+                return in.scorer(context);
+            } finally {
+                currentShard.set(previous);
+            }
         }
 
         @Override
         public ScorerSupplier scorerSupplier(LeafReaderContext context) throws IOException {
-            shardKeyMap.add(context.reader());
-            return in.scorerSupplier(context);
+            final ShardId previous = enterLeaf(context);
+            try {
+                return in.scorerSupplier(context);
+            } finally {
+                currentShard.set(previous);
+            }
         }
 
         @Override
         public BulkScorer bulkScorer(LeafReaderContext context) throws IOException {
-            shardKeyMap.add(context.reader());
-            return in.bulkScorer(context);
+            final ShardId previous = enterLeaf(context);
+            try {
+                return in.bulkScorer(context);
+            } finally {
+                currentShard.set(previous);
+            }
         }
 
         @Override
         public boolean isCacheable(LeafReaderContext ctx) {
             return in.isCacheable(ctx);
         }
+
+        private ShardId enterLeaf(LeafReaderContext context) {
+            shardKeyMap.add(context.reader());
+            final ShardId previous = currentShard.get();
+            currentShard.set(ShardUtils.extractShardId(context.reader()));
+            return previous;
+        }
+    }
+
+    /**
+     * Wraps the caching policy of a searcher in order to enforce the per-index
+     * soft quota. An index that uses more than its share of the cache only gets
+     * new entries admitted if its filters are, on average, more expensive to
+     * build per cached byte than the filters of the whole node. This prevents an
+     * index with many distinct cheap filters from evicting the hot filters of
+     * all other indices, while still allowing it to use more than its share
+     * for filters that are costly to rebuild.
+     */
+    private class IndexQuotaCachingPolicy implements QueryCachingPolicy {
+
+        private final QueryCachingPolicy in;
+
+        IndexQuotaCachingPolicy(QueryCachingPolicy in) {
+            this.in = in;
+        }
+
+        @Override
+        public void onUse(Query query) {
+            in.onUse(query);
+        }
+
+        @Override
+        public boolean shouldCache(Query query) throws IOException {
+            if (in.shouldCache(query) == false) {
+                return false;
+            }
+            final ShardId shardId = currentShard.get();
+            final Stats stats = shardId == null ? null : shardStats.get(shardId);
+            if (stats == null || admit(stats.indexStats)) {
+                return true;
+            }
+            stats.rejectedCount.increment();
+            return false;
+        }
+    }
+
+    private boolean admit(IndexStats index) {
+        if (index.ramBytesUsed < indexQuotaBytes) {
+            return true;
+        }
+        final long indexBuiltBytes = index.builtBytes.sum();
+        final long totalBuiltBytes = this.totalBuiltBytes.sum();
+        if (indexBuiltBytes == 0 || totalBuiltBytes == 0) {
+            // nothing is known yet about the cost of the filters of this index
+            return true;
+        }
+        if ((double) index.buildTimeNanos.sum() / indexBuiltBytes >= (double) totalBuildTimeNanos.sum() / totalBuiltBytes) {
+            return true;
+        }
+        return index.rejections.incrementAndGet() % ADMISSION_SAMPLE_INTERVAL == 0;
     }
 
     /** Clear all entries that belong to the given index. */
@@ -185,22 +284,49 @@ public class IndicesQueryCache extends AbstractComponent implements QueryCache,
         assert shardKeyMap.size() == 0 : shardKeyMap.size();
         assert shardStats.isEmpty() : shardStats.keySet();
         assert stats2.isEmpty() : stats2;
+        assert indexStats.isEmpty() : indexStats.keySet();
         cache.clear();
     }
 
     private static class Stats implements Cloneable {
 
+        final IndexStats indexStats;
         volatile long ramBytesUsed;
         volatile long hitCount;
         volatile long missCount;
         volatile long cacheCount;
         volatile long cacheSize;
+        // these are updated outside of the lock of the cache
+        final LongAdder buildTimeNanos = new LongAdder();
+        final LongAdder builtBytes = new LongAdder();
+        final LongAdder rejectedCount = new LongAdder();
+
+        Stats(IndexStats indexStats) {
+            this.indexStats = indexStats;
+        }
+
+        // called under the lock of the cache
+        void addRamBytesUsed(long bytes) {
+            ramBytesUsed += bytes;
+            indexStats.ramBytesUsed += bytes;
+        }
 
         QueryCacheStats toQueryCacheStats() {
-            return new QueryCacheStats(ramBytesUsed, hitCount, missCount, cacheCount, cacheSize);
+            return new QueryCacheStats(ramBytesUsed, hitCount, missCount, cacheCount, cacheSize,
+                    buildTimeNanos.sum(), rejectedCount.sum());
         }
     }
 
+    private static class IndexStats {
+
+        // the number of shards of the index that have stats, guarded by the map of index stats
+        int numShards;
+        volatile long ramBytesUsed;
+        final LongAdder buildTimeNanos = new LongAdder();
+        final LongAdder builtBytes = new LongAdder();
+        final AtomicLong rejections = new AtomicLong();
+    }
+
     private static class StatsAndCount {
         int count;
         final Stats stats;
@@ -220,7 +346,21 @@ public class IndicesQueryCache extends AbstractComponent implements QueryCache,
 
     public void onClose(ShardId shardId) {
         assert empty(shardStats.get(shardId));
-        shardStats.remove(shardId);
+        final Stats stats = shardStats.remove(shardId);
+        if (stats != null) {
+            final long buildTimeNanos = stats.buildTimeNanos.sum();
+            final long builtBytes = stats.builtBytes.sum();
+            totalBuildTimeNanos.add(-buildTimeNanos);
+            totalBuiltBytes.add(-builtBytes);
+            indexStats.computeIfPresent(shardId.getIndex(), (index, s) -> {
+                if (--s.numShards == 0) {
+                    return null;
+                }
+                s.buildTimeNanos.add(-buildTimeNanos);
+                s.builtBytes.add(-builtBytes);
+                return s;
+            });
+        }
     }
 
     private class ElasticsearchLRUQueryCache extends LRUQueryCache {
@@ -243,12 +383,32 @@ public class IndicesQueryCache extends AbstractComponent implements QueryCache,
 
         private Stats getOrCreateStats(Object coreKey) {
             final ShardId shardId = shardKeyMap.getShardId(coreKey);
-            Stats stats = shardStats.get(shardId);
-            if (stats == null) {
-                stats = new Stats();
-                shardStats.put(shardId, stats);
+            return shardStats.computeIfAbsent(shardId, k -> new Stats(indexStats.compute(k.getIndex(), (index, s) -> {
+                if (s == null) {
+                    s = new IndexStats();
+                }
+                s.numShards++;
+                return s;
+            })));
+        }
+
+        @Override
+        protected DocIdSet cacheImpl(BulkScorer scorer, int maxDoc) throws IOException {
+            final long startTime = System.nanoTime();
+            final DocIdSet docIdSet = super.cacheImpl(scorer, maxDoc);
+            final long buildTime = System.nanoTime() - startTime;
+            final ShardId shardId = currentShard.get();
+            final Stats stats = shardId == null ? null : shardStats.get(shardId);
+            if (stats != null) {
+                final long builtBytes = docIdSet.ramBytesUsed();
+                stats.buildTimeNanos.add(buildTime);
+                stats.builtBytes.add(builtBytes);
+                stats.indexStats.buildTimeNanos.add(buildTime);
+                stats.indexStats.builtBytes.add(builtBytes);
+                totalBuildTimeNanos.add(buildTime);
+                totalBuiltBytes.add(builtBytes);
             }
-            return stats;
+            return docIdSet;
         }
 
         // It's ok to not protect these callbacks by a lock since it is
@@ -261,6 +421,9 @@ public class IndicesQueryCache extends AbstractComponent implements QueryCache,
                 stats.cacheSize = 0;
                 stats.ramBytesUsed = 0;
             }
+            for (IndexStats stats : indexStats.values()) {
+                stats.ramBytesUsed = 0;
+            }
             sharedRamBytesUsed = 0;
         }
 
@@ -282,7 +445,7 @@ public class IndicesQueryCache extends AbstractComponent implements QueryCache,
             final Stats shardStats = getOrCreateStats(readerCoreKey);
             shardStats.cacheSize += 1;
             shardStats.cacheCount += 1;
-            shardStats.ramBytesUsed += ramBytesUsed;
+            shardStats.addRamBytesUsed(ramBytesUsed);
 
             StatsAndCount statsAndCount = stats2.get(readerCoreKey);
             if (statsAndCount == null) {
@@ -307,7 +470,7 @@ public class IndicesQueryCache extends AbstractComponent implements QueryCache,
                 final StatsAndCount statsAndCount = stats2.get(readerCoreKey);
                 final Stats shardStats = statsAndCount.stats;
                 shardStats.cacheSize -= numEntries;
-                shardStats.ramBytesUsed -= sumRamBytesUsed;
+                shardStats.addRamBytesUsed(-sumRamBytesUsed);
                 statsAndCount.count -= numEntries;
                 if (statsAndCount.count == 0) {
                     stats2.remove(readerCoreKey);
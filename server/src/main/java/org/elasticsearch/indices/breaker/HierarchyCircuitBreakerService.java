@@ -19,10 +19,12 @@
 
 package org.elasticsearch.indices.breaker;
 
+import org.apache.logging.log4j.Logger;
 import org.elasticsearch.common.breaker.ChildMemoryCircuitBreaker;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.breaker.StripedMemoryCircuitBreaker;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Setting;
@@ -34,7 +36,9 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ObjLongConsumer;
 
 /**
  * CircuitBreakerService that attempts to redistribute space between breakers
@@ -48,6 +52,8 @@ public class HierarchyCircuitBreakerService extends CircuitBreakerService {
 
     public static final Setting<ByteSizeValue> TOTAL_CIRCUIT_BREAKER_LIMIT_SETTING =
         Setting.memorySizeSetting("indices.breaker.total.limit", "70%", Property.Dynamic, Property.NodeScope);
+    public static final Setting<Double> TOTAL_CIRCUIT_BREAKER_TASK_CANCELLATION_RATIO_SETTING =
+        Setting.doubleSetting("indices.breaker.total.task_cancellation_ratio", 0.0d, 0.0d, Property.Dynamic, Property.NodeScope);
 
     public static final Setting<ByteSizeValue> FIELDDATA_CIRCUIT_BREAKER_LIMIT_SETTING =
         Setting.memorySizeSetting("indices.breaker.fielddata.limit", "60%", Property.Dynamic, Property.NodeScope);
@@ -86,6 +92,13 @@ public class HierarchyCircuitBreakerService extends CircuitBreakerService {
     // Tripped count for when redistribution was attempted but wasn't successful
     private final AtomicLong parentTripCount = new AtomicLong(0);
 
+    private static final long MEMORY_PRESSURE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private volatile double taskCancellationRatio;
+    private volatile ObjLongConsumer<String> usageListener;
+    private volatile Runnable memoryPressureListener = () -> {};
+    private final AtomicLong lastMemoryPressureNanos = new AtomicLong(System.nanoTime() - MEMORY_PRESSURE_INTERVAL_NANOS);
+
     public HierarchyCircuitBreakerService(Settings settings, ClusterSettings clusterSettings) {
         super(settings);
         this.fielddataSettings = new BreakerSettings(CircuitBreaker.FIELDDATA,
@@ -115,6 +128,7 @@ public class HierarchyCircuitBreakerService extends CircuitBreakerService {
         this.parentSettings = new BreakerSettings(CircuitBreaker.PARENT,
                 TOTAL_CIRCUIT_BREAKER_LIMIT_SETTING.get(settings).getBytes(), 1.0,
                 CircuitBreaker.Type.PARENT);
+        this.taskCancellationRatio = TOTAL_CIRCUIT_BREAKER_TASK_CANCELLATION_RATIO_SETTING.get(settings);
 
         if (logger.isTraceEnabled()) {
             logger.trace("parent circuit breaker with settings {}", this.parentSettings);
@@ -126,6 +140,7 @@ public class HierarchyCircuitBreakerService extends CircuitBreakerService {
         registerBreaker(this.accountingSettings);
 
         clusterSettings.addSettingsUpdateConsumer(TOTAL_CIRCUIT_BREAKER_LIMIT_SETTING, this::setTotalCircuitBreakerLimit, this::validateTotalCircuitBreakerLimit);
+        clusterSettings.addSettingsUpdateConsumer(TOTAL_CIRCUIT_BREAKER_TASK_CANCELLATION_RATIO_SETTING, ratio -> this.taskCancellationRatio = ratio);
         clusterSettings.addSettingsUpdateConsumer(FIELDDATA_CIRCUIT_BREAKER_LIMIT_SETTING, FIELDDATA_CIRCUIT_BREAKER_OVERHEAD_SETTING, this::setFieldDataBreakerLimit);
         clusterSettings.addSettingsUpdateConsumer(IN_FLIGHT_REQUESTS_CIRCUIT_BREAKER_LIMIT_SETTING, IN_FLIGHT_REQUESTS_CIRCUIT_BREAKER_OVERHEAD_SETTING, this::setInFlightRequestsBreakerLimit);
         clusterSettings.addSettingsUpdateConsumer(REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING, REQUEST_CIRCUIT_BREAKER_OVERHEAD_SETTING, this::setRequestBreakerLimit);
@@ -211,6 +226,32 @@ public class HierarchyCircuitBreakerService extends CircuitBreakerService {
         return new CircuitBreakerStats(breaker.getName(), breaker.getLimit(), breaker.getUsed(), breaker.getOverhead(), breaker.getTrippedCount());
     }
 
+    /**
+     * Sets the listener that is notified with the name of the breaker and the number of bytes whenever bytes are added to or
+     * released from a child breaker.
+     */
+    public void setUsageListener(ObjLongConsumer<String> usageListener) {
+        this.usageListener = usageListener;
+    }
+
+    /**
+     * Sets the listener that is called, at most once per second, while the memory used by all breakers is above
+     * {@code indices.breaker.total.task_cancellation_ratio} of the parent limit.
+     */
+    public void setMemoryPressureListener(Runnable memoryPressureListener) {
+        this.memoryPressureListener = memoryPressureListener;
+    }
+
+    /**
+     * Called by the child breakers whenever bytes are added to or released from them
+     */
+    public void onChildUsage(String name, long bytes) {
+        final ObjLongConsumer<String> listener = usageListener;
+        if (listener != null) {
+            listener.accept(name, bytes);
+        }
+    }
+
     /**
      * Checks whether the parent breaker has been tripped
      */
@@ -221,6 +262,10 @@ public class HierarchyCircuitBreakerService extends CircuitBreakerService {
         }
 
         long parentLimit = this.parentSettings.getLimit();
+        final double cancellationRatio = this.taskCancellationRatio;
+        if (cancellationRatio > 0 && totalUsed > parentLimit * cancellationRatio) {
+            onMemoryPressure();
+        }
         if (totalUsed > parentLimit) {
             this.parentTripCount.incrementAndGet();
             final String message = "[parent] Data too large, data for [" + label + "]" +
@@ -231,6 +276,18 @@ public class HierarchyCircuitBreakerService extends CircuitBreakerService {
         }
     }
 
+    private void onMemoryPressure() {
+        final long now = System.nanoTime();
+        final long last = lastMemoryPressureNanos.get();
+        if (now - last >= MEMORY_PRESSURE_INTERVAL_NANOS && lastMemoryPressureNanos.compareAndSet(last, now)) {
+            try {
+                memoryPressureListener.run();
+            } catch (Exception e) {
+                logger.warn("failed to relieve memory pressure", e);
+            }
+        }
+    }
+
     /**
      * Allows to register a custom circuit breaker.
      * Warning: Will overwrite any existing custom breaker with the same name.
@@ -245,19 +302,14 @@ public class HierarchyCircuitBreakerService extends CircuitBreakerService {
             breakers.put(breakerSettings.getName(), breaker);
         } else {
             CircuitBreaker oldBreaker;
-            CircuitBreaker breaker = new ChildMemoryCircuitBreaker(breakerSettings,
-                    Loggers.getLogger(CHILD_LOGGER_PREFIX + breakerSettings.getName()),
-                    this, breakerSettings.getName());
+            CircuitBreaker breaker = newChildBreaker(breakerSettings, null);
 
             for (;;) {
                 oldBreaker = breakers.putIfAbsent(breakerSettings.getName(), breaker);
                 if (oldBreaker == null) {
                     return;
                 }
-                breaker = new ChildMemoryCircuitBreaker(breakerSettings,
-                        (ChildMemoryCircuitBreaker)oldBreaker,
-                        Loggers.getLogger(CHILD_LOGGER_PREFIX + breakerSettings.getName()),
-                        this, breakerSettings.getName());
+                breaker = newChildBreaker(breakerSettings, (ChildMemoryCircuitBreaker) oldBreaker);
 
                 if (breakers.replace(breakerSettings.getName(), oldBreaker, breaker)) {
                     return;
@@ -266,4 +318,12 @@ public class HierarchyCircuitBreakerService extends CircuitBreakerService {
         }
 
     }
+
+    private ChildMemoryCircuitBreaker newChildBreaker(BreakerSettings breakerSettings, ChildMemoryCircuitBreaker oldBreaker) {
+        Logger breakerLogger = Loggers.getLogger(CHILD_LOGGER_PREFIX + breakerSettings.getName());
+        if (breakerSettings.getType() == CircuitBreaker.Type.STRIPED) {
+            return new StripedMemoryCircuitBreaker(breakerSettings, oldBreaker, breakerLogger, this, breakerSettings.getName());
+        }
+        return new ChildMemoryCircuitBreaker(breakerSettings, oldBreaker, breakerLogger, this, breakerSettings.getName());
+    }
 }
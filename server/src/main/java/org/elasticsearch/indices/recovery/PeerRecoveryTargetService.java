@@ -108,7 +108,8 @@ public class PeerRecoveryTargetService extends AbstractComponent implements Inde
 
         transportService.registerRequestHandler(Actions.FILES_INFO, RecoveryFilesInfoRequest::new, ThreadPool.Names.GENERIC, new
                 FilesInfoRequestHandler());
-        transportService.registerRequestHandler(Actions.FILE_CHUNK, RecoveryFileChunkRequest::new, ThreadPool.Names.GENERIC, new
+        // file chunks are written on the throttled blocking I/O executor, see FileChunkTransportRequestHandler
+        transportService.registerRequestHandler(Actions.FILE_CHUNK, RecoveryFileChunkRequest::new, ThreadPool.Names.SAME, new
                 FileChunkTransportRequestHandler());
         transportService.registerRequestHandler(Actions.CLEAN_FILES, RecoveryCleanFilesRequest::new, ThreadPool.Names.GENERIC, new
                 CleanFilesRequestHandler());
@@ -562,6 +563,26 @@ public class PeerRecoveryTargetService extends AbstractComponent implements Inde
 
         @Override
         public void messageReceived(final RecoveryFileChunkRequest request, TransportChannel channel) throws Exception {
+            // many recoveries can write chunks concurrently, bound the number of generic threads that block on the disk
+            threadPool.blockingIoExecutor().execute(new AbstractRunnable() {
+                @Override
+                public void onFailure(Exception e) {
+                    try {
+                        channel.sendResponse(e);
+                    } catch (IOException e1) {
+                        logger.warn("failed to send error back to recovery source", e1);
+                    }
+                }
+
+                @Override
+                protected void doRun() throws Exception {
+                    writeFileChunk(request);
+                    channel.sendResponse(TransportResponse.Empty.INSTANCE);
+                }
+            });
+        }
+
+        private void writeFileChunk(final RecoveryFileChunkRequest request) throws IOException {
             try (RecoveryRef recoveryRef = onGoingRecoveries.getRecoverySafe(request.recoveryId(), request.shardId()
             )) {
                 final RecoveryTarget recoveryTarget = recoveryRef.target();
@@ -586,7 +607,6 @@ public class PeerRecoveryTargetService extends AbstractComponent implements Inde
                         request.lastChunk(), request.totalTranslogOps()
                 );
             }
-            channel.sendResponse(TransportResponse.Empty.INSTANCE);
         }
     }
 
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.node;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
@@ -28,6 +29,7 @@ import org.elasticsearch.common.xcontent.ToXContentFragment;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
@@ -38,40 +40,58 @@ import java.util.stream.Collectors;
 /**
  * Class representing statistics about adaptive replica selection. This includes
  * EWMA of queue size, service time, and response time, as well as outgoing
- * searches to each node and the "rank" based on the ARS formula.
+ * searches and single shard reads to each node and the "rank" based on the ARS formula.
  */
 public class AdaptiveSelectionStats implements Writeable, ToXContentFragment {
 
     private final Map<String, Long> clientOutgoingConnections;
+    private final Map<String, Long> clientOutgoingReads;
     private final Map<String, ResponseCollectorService.ComputedNodeStats> nodeComputedStats;
 
     public AdaptiveSelectionStats(Map<String, Long> clientConnections,
                                   Map<String, ResponseCollectorService.ComputedNodeStats> nodeComputedStats) {
+        this(clientConnections, Collections.emptyMap(), nodeComputedStats);
+    }
+
+    public AdaptiveSelectionStats(Map<String, Long> clientConnections,
+                                  Map<String, Long> clientOutgoingReads,
+                                  Map<String, ResponseCollectorService.ComputedNodeStats> nodeComputedStats) {
         this.clientOutgoingConnections = clientConnections;
+        this.clientOutgoingReads = clientOutgoingReads;
         this.nodeComputedStats = nodeComputedStats;
     }
 
     public AdaptiveSelectionStats(StreamInput in) throws IOException {
         this.clientOutgoingConnections = in.readMap(StreamInput::readString, StreamInput::readLong);
+        if (in.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            this.clientOutgoingReads = in.readMap(StreamInput::readString, StreamInput::readLong);
+        } else {
+            this.clientOutgoingReads = Collections.emptyMap();
+        }
         this.nodeComputedStats = in.readMap(StreamInput::readString, ResponseCollectorService.ComputedNodeStats::new);
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeMap(this.clientOutgoingConnections, StreamOutput::writeString, StreamOutput::writeLong);
+        if (out.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            out.writeMap(this.clientOutgoingReads, StreamOutput::writeString, StreamOutput::writeLong);
+        }
         out.writeMap(this.nodeComputedStats, StreamOutput::writeString, (stream, stats) -> stats.writeTo(stream));
     }
 
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject("adaptive_selection");
-        Set<String> allNodeIds = Sets.union(clientOutgoingConnections.keySet(), nodeComputedStats.keySet());
+        Set<String> allNodeIds = Sets.union(Sets.union(clientOutgoingConnections.keySet(), clientOutgoingReads.keySet()),
+            nodeComputedStats.keySet());
         for (String nodeId : allNodeIds) {
             builder.startObject(nodeId);
             ResponseCollectorService.ComputedNodeStats stats = nodeComputedStats.get(nodeId);
             if (stats != null) {
                 long outgoingSearches = clientOutgoingConnections.getOrDefault(nodeId, 0L);
                 builder.field("outgoing_searches", outgoingSearches);
+                builder.field("outgoing_reads", clientOutgoingReads.getOrDefault(nodeId, 0L));
                 builder.field("avg_queue_size", stats.queueSize);
                 builder.timeValueField("avg_service_time_ns", "avg_service_time", (long) stats.serviceTime, TimeUnit.NANOSECONDS);
                 builder.timeValueField("avg_response_time_ns", "avg_response_time", (long) stats.responseTime, TimeUnit.NANOSECONDS);
@@ -90,6 +110,13 @@ public class AdaptiveSelectionStats implements Writeable, ToXContentFragment {
         return clientOutgoingConnections;
     }
 
+    /**
+     * Returns a map of node id to the outgoing single shard reads, like gets, to that node
+     */
+    public Map<String, Long> getOutgoingReads() {
+        return clientOutgoingReads;
+    }
+
     /**
      * Returns a map of node id to the computed stats
      */
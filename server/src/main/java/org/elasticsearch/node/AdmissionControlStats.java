@@ -0,0 +1,129 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.node;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.xcontent.ToXContentFragment;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+
+/**
+ * Statistics about the requests admitted and rejected by the {@link AdmissionController} of a coordinating node.
+ */
+public class AdmissionControlStats implements Writeable, ToXContentFragment {
+
+    private final long inFlightBytes;
+    private final long searchInFlight;
+    private final long searchInFlightShardRequests;
+    private final long searchRejected;
+    private final long bulkInFlight;
+    private final long bulkRejected;
+
+    public AdmissionControlStats(long inFlightBytes, long searchInFlight, long searchInFlightShardRequests, long searchRejected,
+                                 long bulkInFlight, long bulkRejected) {
+        this.inFlightBytes = inFlightBytes;
+        this.searchInFlight = searchInFlight;
+        this.searchInFlightShardRequests = searchInFlightShardRequests;
+        this.searchRejected = searchRejected;
+        this.bulkInFlight = bulkInFlight;
+        this.bulkRejected = bulkRejected;
+    }
+
+    public AdmissionControlStats(StreamInput in) throws IOException {
+        inFlightBytes = in.readVLong();
+        searchInFlight = in.readVLong();
+        searchInFlightShardRequests = in.readVLong();
+        searchRejected = in.readVLong();
+        bulkInFlight = in.readVLong();
+        bulkRejected = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(inFlightBytes);
+        out.writeVLong(searchInFlight);
+        out.writeVLong(searchInFlightShardRequests);
+        out.writeVLong(searchRejected);
+        out.writeVLong(bulkInFlight);
+        out.writeVLong(bulkRejected);
+    }
+
+    /**
+     * The estimated bytes of all admitted search and bulk requests that have not completed yet.
+     */
+    public long getInFlightBytes() {
+        return inFlightBytes;
+    }
+
+    public long getSearchInFlight() {
+        return searchInFlight;
+    }
+
+    /**
+     * The number of shard requests of the admitted searches that have not completed yet.
+     */
+    public long getSearchInFlightShardRequests() {
+        return searchInFlightShardRequests;
+    }
+
+    public long getSearchRejected() {
+        return searchRejected;
+    }
+
+    public long getBulkInFlight() {
+        return bulkInFlight;
+    }
+
+    public long getBulkRejected() {
+        return bulkRejected;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.ADMISSION_CONTROL);
+        builder.byteSizeField(Fields.IN_FLIGHT_IN_BYTES, Fields.IN_FLIGHT, new ByteSizeValue(inFlightBytes));
+        builder.startObject(Fields.SEARCH);
+        builder.field(Fields.IN_FLIGHT_REQUESTS, searchInFlight);
+        builder.field(Fields.IN_FLIGHT_SHARD_REQUESTS, searchInFlightShardRequests);
+        builder.field(Fields.REJECTED, searchRejected);
+        builder.endObject();
+        builder.startObject(Fields.BULK);
+        builder.field(Fields.IN_FLIGHT_REQUESTS, bulkInFlight);
+        builder.field(Fields.REJECTED, bulkRejected);
+        builder.endObject();
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final String ADMISSION_CONTROL = "admission_control";
+        static final String IN_FLIGHT = "in_flight";
+        static final String IN_FLIGHT_IN_BYTES = "in_flight_in_bytes";
+        static final String SEARCH = "search";
+        static final String BULK = "bulk";
+        static final String IN_FLIGHT_REQUESTS = "in_flight_requests";
+        static final String IN_FLIGHT_SHARD_REQUESTS = "in_flight_shard_requests";
+        static final String REJECTED = "rejected";
+    }
+}
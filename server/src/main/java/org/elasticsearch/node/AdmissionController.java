@@ -0,0 +1,231 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.node;
+
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.indices.breaker.AllCircuitBreakerStats;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.breaker.CircuitBreakerStats;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admits or rejects search and bulk requests on the coordinating node before they fan out to the shards. Each request
+ * is given an estimated cost in bytes, and searches additionally count the shard requests they are going to send to
+ * each node. A request is rejected with an {@link EsRejectedExecutionException} if the bytes of all admitted requests
+ * that are still in flight would exceed {@code admission_control.max_in_flight_bytes}, if any of the target nodes
+ * already has {@code admission_control.search.max_shard_requests_per_node} shard requests pending from this node, or
+ * if the memory tracked by the parent circuit breaker is above {@code admission_control.heap_pressure_ratio} of its
+ * limit. The counters are always maintained, rejections only happen once {@code admission_control.enabled} is set.
+ */
+public final class AdmissionController extends AbstractComponent {
+
+    public static final Setting<Boolean> ADMISSION_CONTROL_ENABLED_SETTING =
+        Setting.boolSetting("admission_control.enabled", false, Property.Dynamic, Property.NodeScope);
+    public static final Setting<ByteSizeValue> MAX_IN_FLIGHT_BYTES_SETTING =
+        Setting.memorySizeSetting("admission_control.max_in_flight_bytes", "10%", Property.Dynamic, Property.NodeScope);
+    public static final Setting<Integer> MAX_SHARD_REQUESTS_PER_NODE_SETTING =
+        Setting.intSetting("admission_control.search.max_shard_requests_per_node", 1000, 1, Property.Dynamic, Property.NodeScope);
+    public static final Setting<Double> HEAP_PRESSURE_RATIO_SETTING =
+        Setting.doubleSetting("admission_control.heap_pressure_ratio", 0.95d, 0.0d, Property.Dynamic, Property.NodeScope);
+
+    /** The number of hits returned by a search that doesn't set a size. */
+    private static final int DEFAULT_SIZE = 10;
+
+    /** Estimated size of the per-shard envelope of a query result (shard target, stats, flags). */
+    static final long SHARD_RESULT_BYTES = 1024;
+    /** Estimated size of a single top document that a shard sends back for the reduce phase. */
+    static final long SCORE_DOC_BYTES = 32;
+    /** Estimated size of a fetched hit. */
+    static final long HIT_BYTES = 1024;
+    /** Estimated size of the shard level result of a single aggregation. */
+    static final long AGGREGATION_BYTES = 16 * 1024;
+
+    private final CircuitBreakerService circuitBreakerService;
+
+    private final AtomicLong inFlightBytes = new AtomicLong();
+    private final AtomicLong inFlightShardRequests = new AtomicLong();
+    private final AtomicLong searchInFlight = new AtomicLong();
+    private final AtomicLong bulkInFlight = new AtomicLong();
+    private final CounterMetric searchRejected = new CounterMetric();
+    private final CounterMetric bulkRejected = new CounterMetric();
+
+    private volatile boolean enabled;
+    private volatile long maxInFlightBytes;
+    private volatile int maxShardRequestsPerNode;
+    private volatile double heapPressureRatio;
+
+    public AdmissionController(Settings settings, ClusterSettings clusterSettings, CircuitBreakerService circuitBreakerService) {
+        super(settings);
+        this.circuitBreakerService = circuitBreakerService;
+        this.enabled = ADMISSION_CONTROL_ENABLED_SETTING.get(settings);
+        this.maxInFlightBytes = MAX_IN_FLIGHT_BYTES_SETTING.get(settings).getBytes();
+        this.maxShardRequestsPerNode = MAX_SHARD_REQUESTS_PER_NODE_SETTING.get(settings);
+        this.heapPressureRatio = HEAP_PRESSURE_RATIO_SETTING.get(settings);
+        clusterSettings.addSettingsUpdateConsumer(ADMISSION_CONTROL_ENABLED_SETTING, value -> this.enabled = value);
+        clusterSettings.addSettingsUpdateConsumer(MAX_IN_FLIGHT_BYTES_SETTING, value -> this.maxInFlightBytes = value.getBytes());
+        clusterSettings.addSettingsUpdateConsumer(MAX_SHARD_REQUESTS_PER_NODE_SETTING, value -> this.maxShardRequestsPerNode = value);
+        clusterSettings.addSettingsUpdateConsumer(HEAP_PRESSURE_RATIO_SETTING, value -> this.heapPressureRatio = value);
+    }
+
+    /**
+     * Admits a search request that is about to send {@code shardRequestsPerNode} shard requests.
+     *
+     * @param estimatedBytes       the memory the coordinating node is expected to need for the request, see
+     *                             {@link #estimateSearchBytes(SearchRequest, int)}
+     * @param shardRequestsPerNode the number of shard requests the search sends to each node, keyed by node id
+     * @param pendingShardRequests the number of shard requests this node is still waiting for, keyed by node id
+     * @return a releasable that must be closed once the search completed
+     * @throws EsRejectedExecutionException if the search is rejected
+     */
+    public Releasable admitSearch(long estimatedBytes, Map<String, Integer> shardRequestsPerNode,
+                                  Map<String, Long> pendingShardRequests) {
+        if (enabled) {
+            final int limit = maxShardRequestsPerNode;
+            for (Map.Entry<String, Integer> entry : shardRequestsPerNode.entrySet()) {
+                final long pending = pendingShardRequests.getOrDefault(entry.getKey(), 0L);
+                // a single search is always allowed to reach an idle node, even if it targets more shards than the limit
+                if (pending > 0 && pending + entry.getValue() > limit) {
+                    searchRejected.inc();
+                    throw new EsRejectedExecutionException("rejecting search request, node [" + entry.getKey() + "] already has ["
+                        + pending + "] pending shard requests and the search would add [" + entry.getValue()
+                        + "], which is more than the limit of [" + limit + "]");
+                }
+            }
+        }
+        final int shardRequests = shardRequestsPerNode.values().stream().mapToInt(Integer::intValue).sum();
+        final Releasable bytes = reserve(estimatedBytes, "search", searchRejected);
+        searchInFlight.incrementAndGet();
+        inFlightShardRequests.addAndGet(shardRequests);
+        return releaseOnce(() -> {
+            inFlightShardRequests.addAndGet(-shardRequests);
+            searchInFlight.decrementAndGet();
+            bytes.close();
+        });
+    }
+
+    /**
+     * Admits a bulk request of the given size in bytes.
+     *
+     * @return a releasable that must be closed once the bulk request completed
+     * @throws EsRejectedExecutionException if the bulk request is rejected
+     */
+    public Releasable admitBulk(long estimatedBytes) {
+        final Releasable bytes = reserve(estimatedBytes, "bulk", bulkRejected);
+        bulkInFlight.incrementAndGet();
+        return releaseOnce(() -> {
+            bulkInFlight.decrementAndGet();
+            bytes.close();
+        });
+    }
+
+    private Releasable reserve(long bytes, String type, CounterMetric rejected) {
+        final long inFlight = inFlightBytes.addAndGet(bytes);
+        if (enabled) {
+            final long limit = maxInFlightBytes;
+            // a request that is larger than the limit on its own must still be able to run when nothing else is in flight
+            if (inFlight > limit && inFlight != bytes) {
+                inFlightBytes.addAndGet(-bytes);
+                rejected.inc();
+                throw new EsRejectedExecutionException("rejecting " + type + " request of [" + new ByteSizeValue(bytes)
+                    + "], in flight requests would use [" + new ByteSizeValue(inFlight) + "], which is more than the limit of ["
+                    + new ByteSizeValue(limit) + "]");
+            }
+            if (isUnderHeapPressure()) {
+                inFlightBytes.addAndGet(-bytes);
+                rejected.inc();
+                throw new EsRejectedExecutionException("rejecting " + type + " request, the memory tracked by the circuit breakers"
+                    + " is above [" + heapPressureRatio + "] of the parent limit");
+            }
+        }
+        return () -> inFlightBytes.addAndGet(-bytes);
+    }
+
+    private boolean isUnderHeapPressure() {
+        final AllCircuitBreakerStats stats = circuitBreakerService.stats();
+        final CircuitBreakerStats parent = stats.getStats(CircuitBreaker.PARENT);
+        return parent != null && parent.getLimit() > 0 && parent.getEstimated() > parent.getLimit() * heapPressureRatio;
+    }
+
+    private static Releasable releaseOnce(Releasable releasable) {
+        final AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                releasable.close();
+            }
+        };
+    }
+
+    /**
+     * Estimates the memory the coordinating node needs to reduce the shard results of the given search. At most
+     * {@link SearchRequest#getBatchedReduceSize()} shard results are buffered at a time, each of them holding the top
+     * documents and one result per aggregation, and the fetched hits are held until the response is sent.
+     */
+    public static long estimateSearchBytes(SearchRequest request, int shardCount) {
+        final SearchSourceBuilder source = request.source();
+        int from = 0;
+        int size = DEFAULT_SIZE;
+        int aggregations = 0;
+        if (source != null) {
+            from = Math.max(0, source.from());
+            size = source.size() < 0 ? size : source.size();
+            aggregations = countAggregations(source.aggregations());
+        }
+        final long perShard = SHARD_RESULT_BYTES + (from + size) * SCORE_DOC_BYTES + aggregations * AGGREGATION_BYTES;
+        final int buffered = Math.min(shardCount, Math.max(2, request.getBatchedReduceSize()));
+        return buffered * perShard + size * HIT_BYTES;
+    }
+
+    private static int countAggregations(AggregatorFactories.Builder aggregations) {
+        if (aggregations == null) {
+            return 0;
+        }
+        return aggregations.getPipelineAggregatorFactories().size() + countAggregations(aggregations.getAggregatorFactories());
+    }
+
+    private static int countAggregations(Collection<AggregationBuilder> aggregations) {
+        int count = 0;
+        for (AggregationBuilder aggregation : aggregations) {
+            count += 1 + countAggregations(aggregation.getSubAggregations());
+        }
+        return count;
+    }
+
+    public AdmissionControlStats stats() {
+        return new AdmissionControlStats(inFlightBytes.get(), searchInFlight.get(), inFlightShardRequests.get(), searchRejected.count(),
+            bulkInFlight.get(), bulkRejected.count());
+    }
+}
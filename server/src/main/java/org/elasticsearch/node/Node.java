@@ -32,6 +32,7 @@ import org.elasticsearch.action.GenericAction;
 import org.elasticsearch.action.search.SearchExecutionStatsCollector;
 import org.elasticsearch.action.search.SearchPhaseController;
 import org.elasticsearch.action.search.SearchTransportService;
+import org.elasticsearch.action.search.ShardSearchHedging;
 import org.elasticsearch.action.support.TransportAction;
 import org.elasticsearch.action.update.UpdateHelper;
 import org.elasticsearch.bootstrap.BootstrapCheck;
@@ -131,6 +132,7 @@ import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.fetch.FetchPhase;
 import org.elasticsearch.snapshots.SnapshotShardsService;
 import org.elasticsearch.snapshots.SnapshotsService;
+import org.elasticsearch.tasks.TaskManager;
 import org.elasticsearch.tasks.TaskResultsService;
 import org.elasticsearch.threadpool.ExecutorBuilder;
 import org.elasticsearch.threadpool.ThreadPool;
@@ -431,9 +433,21 @@ public class Node implements Closeable {
             ).collect(Collectors.toSet());
             final TransportService transportService = newTransportService(settings, transport, threadPool,
                 networkModule.getTransportInterceptor(), localNodeFactory, settingsModule.getClusterSettings(), taskHeaders);
+            if (circuitBreakerService instanceof HierarchyCircuitBreakerService) {
+                final TaskManager taskManager = transportService.getTaskManager();
+                final HierarchyCircuitBreakerService hierarchyBreakerService = (HierarchyCircuitBreakerService) circuitBreakerService;
+                if (taskManager.isResourceTrackingEnabled()) {
+                    hierarchyBreakerService.setUsageListener(taskManager::onCircuitBreakerUsage);
+                }
+                hierarchyBreakerService.setMemoryPressureListener(taskManager::cancelTopMemoryConsumer);
+            }
             final ResponseCollectorService responseCollectorService = new ResponseCollectorService(this.settings, clusterService);
             final SearchTransportService searchTransportService =  new SearchTransportService(settings, transportService,
                 SearchExecutionStatsCollector.makeWrapper(responseCollectorService));
+            final AdmissionController admissionController = new AdmissionController(settings, settingsModule.getClusterSettings(),
+                circuitBreakerService);
+            final ShardSearchHedging shardSearchHedging = new ShardSearchHedging(settings, settingsModule.getClusterSettings(),
+                threadPool);
             final Consumer<Binder> httpBind;
             final HttpServerTransport httpServerTransport;
             if (networkModule.isHttpEnabled()) {
@@ -455,7 +469,7 @@ public class Node implements Closeable {
             this.nodeService = new NodeService(settings, threadPool, monitorService, discoveryModule.getDiscovery(),
                 transportService, indicesService, pluginsService, circuitBreakerService, scriptModule.getScriptService(),
                 httpServerTransport, ingestService, clusterService, settingsModule.getSettingsFilter(), responseCollectorService,
-                searchTransportService);
+                searchTransportService, admissionController, shardSearchHedging);
 
             final SearchService searchService = newSearchService(clusterService, indicesService,
                 threadPool, scriptModule.getScriptService(), bigArrays, searchModule.getFetchPhase(),
@@ -484,6 +498,9 @@ public class Node implements Closeable {
                     b.bind(IndicesService.class).toInstance(indicesService);
                     b.bind(SearchService.class).toInstance(searchService);
                     b.bind(SearchTransportService.class).toInstance(searchTransportService);
+                    b.bind(ResponseCollectorService.class).toInstance(responseCollectorService);
+                    b.bind(AdmissionController.class).toInstance(admissionController);
+                    b.bind(ShardSearchHedging.class).toInstance(shardSearchHedging);
                     b.bind(SearchPhaseController.class).toInstance(new SearchPhaseController(settings,
                         searchService::createReduceContext));
                     b.bind(Transport.class).toInstance(transport);
@@ -26,6 +26,7 @@ import org.elasticsearch.action.admin.cluster.node.info.NodeInfo;
 import org.elasticsearch.action.admin.cluster.node.stats.NodeStats;
 import org.elasticsearch.action.admin.indices.stats.CommonStatsFlags;
 import org.elasticsearch.action.search.SearchTransportService;
+import org.elasticsearch.action.search.ShardSearchHedging;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.AbstractComponent;
@@ -34,6 +35,7 @@ import org.elasticsearch.common.settings.SettingsFilter;
 import org.elasticsearch.discovery.Discovery;
 import org.elasticsearch.http.HttpServerTransport;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.indices.NodeIndicesStats;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.ingest.IngestService;
 import org.elasticsearch.monitor.MonitorService;
@@ -60,6 +62,8 @@ public class NodeService extends AbstractComponent implements Closeable {
     private final HttpServerTransport httpServerTransport;
     private final ResponseCollectorService responseCollectorService;
     private final SearchTransportService searchTransportService;
+    private final AdmissionController admissionController;
+    private final ShardSearchHedging shardSearchHedging;
 
     private final Discovery discovery;
 
@@ -68,7 +72,8 @@ public class NodeService extends AbstractComponent implements Closeable {
                 CircuitBreakerService circuitBreakerService, ScriptService scriptService,
                 @Nullable HttpServerTransport httpServerTransport, IngestService ingestService, ClusterService clusterService,
                 SettingsFilter settingsFilter, ResponseCollectorService responseCollectorService,
-                SearchTransportService searchTransportService) {
+                SearchTransportService searchTransportService, AdmissionController admissionController,
+                ShardSearchHedging shardSearchHedging) {
         super(settings);
         this.threadPool = threadPool;
         this.monitorService = monitorService;
@@ -83,6 +88,8 @@ public class NodeService extends AbstractComponent implements Closeable {
         this.scriptService = scriptService;
         this.responseCollectorService = responseCollectorService;
         this.searchTransportService = searchTransportService;
+        this.admissionController = admissionController;
+        this.shardSearchHedging = shardSearchHedging;
         clusterService.addStateApplier(ingestService.getPipelineStore());
         clusterService.addStateApplier(ingestService.getPipelineExecutionService());
     }
@@ -105,11 +112,12 @@ public class NodeService extends AbstractComponent implements Closeable {
 
     public NodeStats stats(CommonStatsFlags indices, boolean os, boolean process, boolean jvm, boolean threadPool,
                            boolean fs, boolean transport, boolean http, boolean circuitBreaker,
-                           boolean script, boolean discoveryStats, boolean ingest, boolean adaptiveSelection) {
+                           boolean script, boolean discoveryStats, boolean ingest, boolean adaptiveSelection,
+                           boolean admissionControl) {
         // for indices stats we want to include previous allocated shards stats as well (it will
         // only be applied to the sensible ones to use, like refresh/merge/flush/indexing stats)
         return new NodeStats(transportService.getLocalNode(), System.currentTimeMillis(),
-                indices.anySet() ? indicesService.stats(true, indices) : null,
+                indices.anySet() ? indicesStats(indices) : null,
                 os ? monitorService.osService().stats() : null,
                 process ? monitorService.processService().stats() : null,
                 jvm ? monitorService.jvmService().stats() : null,
@@ -121,10 +129,20 @@ public class NodeService extends AbstractComponent implements Closeable {
                 script ? scriptService.stats() : null,
                 discoveryStats ? discovery.stats() : null,
                 ingest ? ingestService.getPipelineExecutionService().stats() : null,
-                adaptiveSelection ? responseCollectorService.getAdaptiveStats(searchTransportService.getClientConnections()) : null
+                adaptiveSelection ? responseCollectorService.getAdaptiveStats(searchTransportService.getClientConnections()) : null,
+                admissionControl ? admissionController.stats() : null
         );
     }
 
+    private NodeIndicesStats indicesStats(CommonStatsFlags flags) {
+        final NodeIndicesStats stats = indicesService.stats(true, flags);
+        if (flags.isSet(CommonStatsFlags.Flag.Search)) {
+            // hedged requests are sent by this node as a coordinating node, they don't belong to any shard
+            stats.getSearch().addHedgedRequests(shardSearchHedging.getHedgedRequests(), shardSearchHedging.getWonHedgedRequests());
+        }
+        return stats;
+    }
+
     public IngestService getIngestService() {
         return ingestService;
     }
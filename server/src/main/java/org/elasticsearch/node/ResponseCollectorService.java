@@ -51,12 +51,30 @@ public final class ResponseCollectorService extends AbstractComponent implements
     private static final double ALPHA = 0.3;
 
     private final ConcurrentMap<String, NodeStatistics> nodeIdToStats = ConcurrentCollections.newConcurrentMap();
+    private final ConcurrentMap<String, Long> outgoingReads = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
+    private final ConcurrentMap<String, ResponseCollectorService> readCollectors = ConcurrentCollections.newConcurrentMap();
+    // whether this collects the statistics of a type of single shard reads rather than of searches
+    private final boolean reads;
 
     public ResponseCollectorService(Settings settings, ClusterService clusterService) {
         super(settings);
+        this.reads = false;
         clusterService.addListener(this);
     }
 
+    private ResponseCollectorService(Settings settings) {
+        super(settings);
+        this.reads = true;
+    }
+
+    /**
+     * Returns the collector of the statistics of the given type of single shard reads, like gets. They are kept apart from the
+     * statistics of searches and of the other types of reads as their response times aren't comparable.
+     */
+    public ResponseCollectorService readCollector(String readType) {
+        return readCollectors.computeIfAbsent(readType, type -> new ResponseCollectorService(settings));
+    }
+
     @Override
     public void clusterChanged(ClusterChangedEvent event) {
         if (event.nodesRemoved()) {
@@ -68,6 +86,10 @@ public final class ResponseCollectorService extends AbstractComponent implements
 
     void removeNode(String nodeId) {
         nodeIdToStats.remove(nodeId);
+        outgoingReads.remove(nodeId);
+        for (ResponseCollectorService readCollector : readCollectors.values()) {
+            readCollector.removeNode(nodeId);
+        }
     }
 
     public void addNodeStatistics(String nodeId, int queueSize, long responseTimeNanos, long avgServiceTimeNanos) {
@@ -85,18 +107,65 @@ public final class ResponseCollectorService extends AbstractComponent implements
         });
     }
 
+    /**
+     * Records the response time of a single shard read, like a get, to the given node on a collector returned by
+     * {@link #readCollector(String)}. Unlike searches these reads don't report the queue size and service time of
+     * the node: the service time of every node is the mean of the response times of all nodes, so that the copies
+     * are ranked by their own response time and by the number of reads in flight to them.
+     */
+    public void addResponseTime(String nodeId, long responseTimeNanos) {
+        assert reads : "response times are only recorded for single shard reads";
+        nodeIdToStats.compute(nodeId, (id, ns) -> {
+            if (ns == null) {
+                ExponentiallyWeightedMovingAverage queueEWMA = new ExponentiallyWeightedMovingAverage(ALPHA, 0);
+                ExponentiallyWeightedMovingAverage responseEWMA = new ExponentiallyWeightedMovingAverage(ALPHA, responseTimeNanos);
+                return new NodeStatistics(nodeId, queueEWMA, responseEWMA, responseTimeNanos);
+            } else {
+                ns.responseTime.addValue((double) responseTimeNanos);
+                return ns;
+            }
+        });
+    }
+
+    /**
+     * Called before a single shard read is sent to the given node. Every call must be followed by a call to
+     * {@link #onReadCompleted(String)} once the read completed or failed.
+     */
+    public void onReadSent(String nodeId) {
+        outgoingReads.compute(nodeId, (id, reads) -> reads == null ? 1 : reads + 1);
+    }
+
+    /**
+     * Called when a single shard read sent to the given node completed or failed.
+     */
+    public void onReadCompleted(String nodeId) {
+        outgoingReads.computeIfPresent(nodeId, (id, reads) -> reads <= 1 ? null : reads - 1);
+    }
+
+    /**
+     * Returns a map of node id to the number of single shard reads that are currently sent to that node
+     */
+    public Map<String, Long> getOutgoingReads() {
+        return Collections.unmodifiableMap(outgoingReads);
+    }
+
     public Map<String, ComputedNodeStats> getAllNodeStatistics() {
         final int clientNum = nodeIdToStats.size();
+        final double readServiceTime = readServiceTime();
         // Transform the mutable object internally used for accounting into the computed version
         Map<String, ComputedNodeStats> nodeStats = new HashMap<>(nodeIdToStats.size());
         nodeIdToStats.forEach((k, v) -> {
-            nodeStats.put(k, new ComputedNodeStats(clientNum, v));
+            nodeStats.put(k, new ComputedNodeStats(clientNum, v, readServiceTime));
         });
         return nodeStats;
     }
 
     public AdaptiveSelectionStats getAdaptiveStats(Map<String, Long> clientSearchConnections) {
-        return new AdaptiveSelectionStats(clientSearchConnections, getAllNodeStatistics());
+        final Map<String, Long> allOutgoingReads = new HashMap<>(outgoingReads);
+        for (ResponseCollectorService readCollector : readCollectors.values()) {
+            readCollector.outgoingReads.forEach((nodeId, reads) -> allOutgoingReads.merge(nodeId, reads, Long::sum));
+        }
+        return new AdaptiveSelectionStats(clientSearchConnections, allOutgoingReads, getAllNodeStatistics());
     }
 
     /**
@@ -106,7 +175,24 @@ public final class ResponseCollectorService extends AbstractComponent implements
      */
     public Optional<ComputedNodeStats> getNodeStatistics(final String nodeId) {
         final int clientNum = nodeIdToStats.size();
-        return Optional.ofNullable(nodeIdToStats.get(nodeId)).map(ns -> new ComputedNodeStats(clientNum, ns));
+        return Optional.ofNullable(nodeIdToStats.get(nodeId)).map(ns -> new ComputedNodeStats(clientNum, ns, readServiceTime()));
+    }
+
+    /**
+     * The service time of all nodes if this collects the statistics of single shard reads, see {@link #addResponseTime}, or
+     * {@code -1} if the service times reported by searches are used.
+     */
+    private double readServiceTime() {
+        if (reads == false) {
+            return -1;
+        }
+        double sum = 0;
+        int count = 0;
+        for (NodeStatistics ns : nodeIdToStats.values()) {
+            sum += ns.responseTime.getAverage();
+            count++;
+        }
+        return count == 0 ? -1 : sum / count;
     }
 
     /**
@@ -136,9 +222,9 @@ public final class ResponseCollectorService extends AbstractComponent implements
             this.serviceTime = serviceTime;
         }
 
-        ComputedNodeStats(int clientNum, NodeStatistics nodeStats) {
-            this(nodeStats.nodeId, clientNum,
-                    (int) nodeStats.queueSize.getAverage(), nodeStats.responseTime.getAverage(), nodeStats.serviceTime);
+        ComputedNodeStats(int clientNum, NodeStatistics nodeStats, double readServiceTime) {
+            this(nodeStats.nodeId, clientNum, (int) nodeStats.queueSize.getAverage(), nodeStats.responseTime.getAverage(),
+                    readServiceTime >= 0 ? readServiceTime : nodeStats.serviceTime);
         }
 
         ComputedNodeStats(StreamInput in) throws IOException {
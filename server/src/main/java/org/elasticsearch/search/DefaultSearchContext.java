@@ -71,6 +71,8 @@ import org.elasticsearch.search.rescore.RescoreContext;
 import org.elasticsearch.search.slice.SliceBuilder;
 import org.elasticsearch.search.sort.SortAndFormats;
 import org.elasticsearch.search.suggest.SuggestionSearchContext;
+import org.elasticsearch.tasks.TaskManager;
+import org.elasticsearch.tasks.TaskResourceStats;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
@@ -120,6 +122,7 @@ final class DefaultSearchContext extends SearchContext {
     // filter for sliced scroll
     private SliceBuilder sliceBuilder;
     private SearchTask task;
+    private long phaseStartCpuTimeNanos;
 
 
     /**
@@ -812,7 +815,10 @@ final class DefaultSearchContext extends SearchContext {
 
     @Override
     public void setTask(SearchTask task) {
+        // the CPU time of a phase is accounted to the task by the transport handler that executes it, this only remembers
+        // where the phase started so that the current phase can be included in getTaskResourceStats
         this.task = task;
+        this.phaseStartCpuTimeNanos = task == null ? 0 : TaskManager.currentThreadCpuTimeNanos();
     }
 
     @Override
@@ -820,6 +826,18 @@ final class DefaultSearchContext extends SearchContext {
         return task;
     }
 
+    @Override
+    public TaskResourceStats getTaskResourceStats() {
+        if (task == null) {
+            return null;
+        }
+        // include the current phase, which is only accounted to the task once its transport handler returns
+        final TaskResourceStats stats = task.getResourceStats();
+        final long phaseCpuTimeNanos = Math.max(0, TaskManager.currentThreadCpuTimeNanos() - phaseStartCpuTimeNanos);
+        return new TaskResourceStats(stats.getMemoryInBytes(), stats.getPeakMemoryInBytes(),
+            stats.getCpuTimeInNanos() + phaseCpuTimeNanos);
+    }
+
     @Override
     public boolean isCancelled() {
         return task.isCancelled();
@@ -30,6 +30,7 @@ import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
 import org.elasticsearch.search.internal.SearchContext;
 
 import java.io.IOException;
+import java.util.function.BiConsumer;
 
 /**
  * An Aggregator.
@@ -95,11 +96,31 @@ public abstract class Aggregator extends BucketCollector implements Releasable {
      */
     public abstract InternalAggregation buildAggregation(long bucket) throws IOException;
 
+    /**
+     * Build the aggregations for data that has been collected into each of the given {@code buckets}, in the same order.
+     * Aggregators that can share work between buckets, like loading documents, should override this method, the default
+     * implementation builds one bucket at a time.
+     */
+    public InternalAggregation[] buildAggregations(long[] buckets) throws IOException {
+        final InternalAggregation[] aggregations = new InternalAggregation[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            aggregations[i] = buildAggregation(buckets[i]);
+        }
+        return aggregations;
+    }
+
     /**
      * Build an empty aggregation.
      */
     public abstract InternalAggregation buildEmptyAggregation();
 
+    /**
+     * Adds counters that describe how this aggregator collected its documents to the profile results.
+     * Only called when the search is profiled, after the collection.
+     */
+    public void collectDebugInfo(BiConsumer<String, Long> add) {
+    }
+
     /** Aggregation mode for sub aggregations. */
     public enum SubAggCollectionMode implements Writeable {
 
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.search.aggregations;
 
+import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.search.LeafCollector;
 import org.apache.lucene.search.Scorer;
 
@@ -53,18 +54,33 @@ public abstract class LeafBucketCollector implements LeafCollector {
             return colls[0];
         default:
             return new LeafBucketCollector() {
+                private int numTerminated = 0;
 
                 @Override
                 public void setScorer(Scorer s) throws IOException {
                     for (LeafBucketCollector c : colls) {
-                        c.setScorer(s);
+                        if (c != null) {
+                            c.setScorer(s);
+                        }
                     }
                 }
 
                 @Override
                 public void collect(int doc, long bucket) throws IOException {
-                    for (LeafBucketCollector c : colls) {
-                        c.collect(doc, bucket);
+                    for (int i = 0; i < colls.length; i++) {
+                        final LeafBucketCollector c = colls[i];
+                        if (c == null) {
+                            continue;
+                        }
+                        try {
+                            c.collect(doc, bucket);
+                        } catch (CollectionTerminatedException e) {
+                            // this collector is done with the segment, keep collecting the others
+                            colls[i] = null;
+                            if (++numTerminated == colls.length) {
+                                throw e;
+                            }
+                        }
                     }
                 }
 
@@ -202,6 +202,19 @@ public class BestBucketsDeferringCollector extends DeferringBucketCollector {
 
             @Override
             public InternalAggregation buildAggregation(long bucket) throws IOException {
+                return in.buildAggregation(rebase(bucket));
+            }
+
+            @Override
+            public InternalAggregation[] buildAggregations(long[] buckets) throws IOException {
+                final long[] rebasedBuckets = new long[buckets.length];
+                for (int i = 0; i < buckets.length; i++) {
+                    rebasedBuckets[i] = rebase(buckets[i]);
+                }
+                return in.buildAggregations(rebasedBuckets);
+            }
+
+            private long rebase(long bucket) {
                 if (selectedBuckets == null) {
                     throw new IllegalStateException("Collection has not been replayed yet.");
                 }
@@ -209,7 +222,7 @@ public class BestBucketsDeferringCollector extends DeferringBucketCollector {
                 if (rebasedBucket == -1) {
                     throw new IllegalStateException("Cannot build for a bucket which has not been collected");
                 }
-                return in.buildAggregation(rebasedBucket);
+                return rebasedBucket;
             }
 
         };
@@ -130,6 +130,25 @@ public abstract class BucketsAggregator extends AggregatorBase {
         return new InternalAggregations(Arrays.asList(aggregations));
     }
 
+    /**
+     * Builds the child aggregations of all the given buckets at once, so that sub aggregators can share work between buckets.
+     */
+    protected final InternalAggregations[] bucketAggregations(long[] buckets) throws IOException {
+        final InternalAggregation[][] aggregations = new InternalAggregation[subAggregators.length][];
+        for (int i = 0; i < subAggregators.length; i++) {
+            aggregations[i] = subAggregators[i].buildAggregations(buckets);
+        }
+        final InternalAggregations[] result = new InternalAggregations[buckets.length];
+        for (int b = 0; b < buckets.length; b++) {
+            final InternalAggregation[] bucketAggregations = new InternalAggregation[subAggregators.length];
+            for (int i = 0; i < subAggregators.length; i++) {
+                bucketAggregations[i] = aggregations[i][b];
+            }
+            result[b] = new InternalAggregations(Arrays.asList(bucketAggregations));
+        }
+        return result;
+    }
+
     /**
      * Utility method to build empty aggregations of the sub aggregators.
      */
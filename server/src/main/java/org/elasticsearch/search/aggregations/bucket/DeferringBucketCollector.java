@@ -96,6 +96,11 @@ public abstract class DeferringBucketCollector extends BucketCollector {
             return in.buildAggregation(bucket);
         }
 
+        @Override
+        public InternalAggregation[] buildAggregations(long[] buckets) throws IOException {
+            return in.buildAggregations(buckets);
+        }
+
         @Override
         public InternalAggregation buildEmptyAggregation() {
             return in.buildEmptyAggregation();
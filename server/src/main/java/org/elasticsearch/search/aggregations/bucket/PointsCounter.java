@@ -0,0 +1,255 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.PointRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.StringHelper;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.index.mapper.DateFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.function.LongPredicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Counts the documents of the buckets of an aggregation from the points of its field rather than collecting them one by one
+ * from doc values. This is only possible for top level aggregations without sub-aggregations, when the query matches all
+ * documents or is a range on the same field, and only on segments without deleted documents where each document has at most
+ * one value.
+ */
+public final class PointsCounter {
+
+    /**
+     * Receives the number of documents counted for a bucket key, a key can be counted several times per segment.
+     */
+    @FunctionalInterface
+    public interface CountConsumer {
+        void accept(long key, int count);
+    }
+
+    private final MappedFieldType fieldType;
+    // the inclusive bounds of the range query or null if the query matches all documents
+    private final byte[] lowerPoint;
+    private final byte[] upperPoint;
+
+    private PointsCounter(MappedFieldType fieldType, byte[] lowerPoint, byte[] upperPoint) {
+        this.fieldType = fieldType;
+        this.lowerPoint = lowerPoint;
+        this.upperPoint = upperPoint;
+    }
+
+    /**
+     * Returns a counter for the field of the given aggregation or null if its buckets need to be collected document by document.
+     */
+    @Nullable
+    public static PointsCounter build(SearchContext context, ValuesSourceConfig<?> config, @Nullable Aggregator parent,
+                                      AggregatorFactories subAggregations) {
+        if (parent != null
+                || subAggregations.countAggregators() > 0
+                || config.fieldContext() == null
+                || config.script() != null
+                || config.missing() != null
+                || context.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER
+                || context.minimumScore() != null) {
+            return null;
+        }
+        final MappedFieldType fieldType = config.fieldContext().fieldType();
+        if (fieldType instanceof DateFieldMapper.DateFieldType == false && fieldType instanceof NumberFieldMapper.NumberFieldType == false) {
+            return null;
+        }
+        final Query query = unwrap(context.query());
+        if (query instanceof MatchAllDocsQuery) {
+            return new PointsCounter(fieldType, null, null);
+        }
+        if (query instanceof PointRangeQuery) {
+            final PointRangeQuery rangeQuery = (PointRangeQuery) query;
+            if (rangeQuery.getField().equals(fieldType.name()) && rangeQuery.getNumDims() == 1) {
+                return new PointsCounter(fieldType, rangeQuery.getLowerPoint(), rangeQuery.getUpperPoint());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Strips the wrappers that do not change the documents that a query matches.
+     */
+    private static Query unwrap(Query query) {
+        while (true) {
+            if (query instanceof ConstantScoreQuery) {
+                query = ((ConstantScoreQuery) query).getQuery();
+            } else if (query instanceof BoostQuery) {
+                query = ((BoostQuery) query).getQuery();
+            } else if (query instanceof IndexOrDocValuesQuery) {
+                query = ((IndexOrDocValuesQuery) query).getIndexQuery();
+            } else if (query instanceof BooleanQuery && ((BooleanQuery) query).clauses().size() == 1
+                    && ((BooleanQuery) query).getMinimumNumberShouldMatch() == 0) {
+                final BooleanClause clause = ((BooleanQuery) query).clauses().get(0);
+                if (clause.isProhibited()) {
+                    return query;
+                }
+                query = clause.getQuery();
+            } else {
+                return query;
+            }
+        }
+    }
+
+    /**
+     * Returns a function that decodes the points of the field as longs, or null if they do not hold longs.
+     */
+    @Nullable
+    public ToLongFunction<byte[]> longDecoder() {
+        if (fieldType instanceof DateFieldMapper.DateFieldType) {
+            return ((DateFieldMapper.DateFieldType) fieldType)::parsePoint;
+        }
+        return null;
+    }
+
+    /**
+     * Returns a function that decodes the points of the field as doubles, like the double doc values of the field.
+     */
+    public ToDoubleFunction<byte[]> doubleDecoder() {
+        if (fieldType instanceof DateFieldMapper.DateFieldType) {
+            final DateFieldMapper.DateFieldType dateFieldType = (DateFieldMapper.DateFieldType) fieldType;
+            return value -> dateFieldType.parsePoint(value);
+        }
+        final NumberFieldMapper.NumberFieldType numberFieldType = (NumberFieldMapper.NumberFieldType) fieldType;
+        return value -> numberFieldType.parsePoint(value).doubleValue();
+    }
+
+    /**
+     * Returns true if the documents of the segment can be counted from the points of the field.
+     */
+    public boolean canCount(LeafReader reader) throws IOException {
+        if (reader.hasDeletions()) {
+            // points of deleted documents are still in the tree
+            return false;
+        }
+        final PointValues values = reader.getPointValues(fieldType.name());
+        return values != null
+            && values.getNumDimensions() == 1
+            && (lowerPoint == null || values.getBytesPerDimension() == lowerPoint.length)
+            // a document is counted once per point
+            && values.size() == values.getDocCount();
+    }
+
+    /**
+     * Counts the documents of the segment that match the query per bucket key. Every value that maps to a key for which
+     * <code>counted</code> is true is counted, keys must be monotonic in the values so that the cells of the tree whose
+     * minimum and maximum values map to the same key are counted without decoding their points.
+     */
+    public void count(LeafReader reader, ToLongFunction<byte[]> keyFunction, LongPredicate counted,
+                      CountConsumer consumer) throws IOException {
+        assert canCount(reader);
+        final PointValues values = reader.getPointValues(fieldType.name());
+        final CountingVisitor visitor = new CountingVisitor(values.getBytesPerDimension(), keyFunction, counted, consumer);
+        values.intersect(visitor);
+        visitor.flush();
+    }
+
+    private class CountingVisitor implements PointValues.IntersectVisitor {
+        private final int bytesPerDim;
+        private final ToLongFunction<byte[]> keyFunction;
+        private final LongPredicate counted;
+        private final CountConsumer consumer;
+        // the key of the last cell that is entirely inside the query
+        private long cellKey;
+        // consecutive values mostly map to the same key, count them before reporting them
+        private long pendingKey;
+        private int pendingCount = 0;
+
+        CountingVisitor(int bytesPerDim, ToLongFunction<byte[]> keyFunction, LongPredicate counted, CountConsumer consumer) {
+            this.bytesPerDim = bytesPerDim;
+            this.keyFunction = keyFunction;
+            this.counted = counted;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void visit(int docID) {
+            increment(cellKey);
+        }
+
+        @Override
+        public void visit(int docID, byte[] packedValue) {
+            if (lowerPoint != null && (StringHelper.compare(bytesPerDim, packedValue, 0, lowerPoint, 0) < 0
+                    || StringHelper.compare(bytesPerDim, packedValue, 0, upperPoint, 0) > 0)) {
+                return;
+            }
+            final long key = keyFunction.applyAsLong(packedValue);
+            if (counted.test(key)) {
+                increment(key);
+            }
+        }
+
+        @Override
+        public PointValues.Relation compare(byte[] minPackedValue, byte[] maxPackedValue) {
+            if (lowerPoint != null) {
+                if (StringHelper.compare(bytesPerDim, maxPackedValue, 0, lowerPoint, 0) < 0
+                        || StringHelper.compare(bytesPerDim, minPackedValue, 0, upperPoint, 0) > 0) {
+                    return PointValues.Relation.CELL_OUTSIDE_QUERY;
+                }
+                if (StringHelper.compare(bytesPerDim, minPackedValue, 0, lowerPoint, 0) < 0
+                        || StringHelper.compare(bytesPerDim, maxPackedValue, 0, upperPoint, 0) > 0) {
+                    return PointValues.Relation.CELL_CROSSES_QUERY;
+                }
+            }
+            final long minKey = keyFunction.applyAsLong(minPackedValue);
+            if (minKey != keyFunction.applyAsLong(maxPackedValue)) {
+                return PointValues.Relation.CELL_CROSSES_QUERY;
+            }
+            if (counted.test(minKey) == false) {
+                return PointValues.Relation.CELL_OUTSIDE_QUERY;
+            }
+            cellKey = minKey;
+            return PointValues.Relation.CELL_INSIDE_QUERY;
+        }
+
+        private void increment(long key) {
+            if (pendingCount > 0 && key != pendingKey) {
+                flush();
+            }
+            pendingKey = key;
+            pendingCount++;
+        }
+
+        void flush() {
+            if (pendingCount > 0) {
+                consumer.accept(pendingKey, pendingCount);
+                pendingCount = 0;
+            }
+        }
+    }
+}
@@ -19,14 +19,27 @@
 
 package org.elasticsearch.search.aggregations.bucket.composite;
 
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.search.DocIdSet;
 import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.DocIdSetBuilder;
 import org.apache.lucene.util.RoaringDocIdSet;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.InternalAggregation;
@@ -43,12 +56,18 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.IntConsumer;
 
 final class CompositeAggregator extends BucketsAggregator {
     private final int size;
     private final CompositeValuesSourceConfig[] sources;
     private final List<String> sourceNames;
     private final boolean canEarlyTerminate;
+    private final boolean canEarlyTerminateLeading;
+    // the field of the leading source if segments can be visited in the order of its terms, null otherwise
+    private final String sortedTermsField;
+    private final BytesRef afterTerm;
 
     private final TreeMap<Integer, Integer> keys;
     private final CompositeValuesComparator array;
@@ -56,6 +75,8 @@ final class CompositeAggregator extends BucketsAggregator {
     private final List<LeafContext> contexts = new ArrayList<>();
     private LeafContext leaf;
     private RoaringDocIdSet.Builder builder;
+    // the number of documents of the early terminated segments that were not visited
+    private long skippedDocs;
 
     CompositeAggregator(String name, AggregatorFactories factories, SearchContext context, Aggregator parent,
                             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData,
@@ -73,12 +94,46 @@ final class CompositeAggregator extends BucketsAggregator {
         this.keys = new TreeMap<>(array::compare);
         this.canEarlyTerminate = Arrays.stream(sources)
             .allMatch(CompositeValuesSourceConfig::canEarlyTerminate);
+        this.canEarlyTerminateLeading = sources[0].canEarlyTerminate();
+        this.sortedTermsField = getSortedTermsField(context, sources[0]);
+        if (sortedTermsField != null && rawAfterKey != null) {
+            Comparable<?> value = rawAfterKey.get(0);
+            afterTerm = value instanceof BytesRef ? (BytesRef) value : new BytesRef(value.toString());
+        } else {
+            afterTerm = null;
+        }
+    }
+
+    /**
+     * Returns the field of the leading source if the documents can be visited in the order of the terms of this field, that is
+     * if all documents match, the leading source is sorted in ascending order and its values are the terms of a keyword field.
+     */
+    private static String getSortedTermsField(SearchContext context, CompositeValuesSourceConfig leading) {
+        if (context.query() instanceof MatchAllDocsQuery
+                && leading.reverseMul() == 1
+                && leading.fieldType() instanceof KeywordFieldMapper.KeywordFieldType) {
+            return leading.fieldType().name();
+        }
+        return null;
     }
 
     boolean canEarlyTerminate() {
         return canEarlyTerminate;
     }
 
+    boolean canVisitInTermsOrder() {
+        return sortedTermsField != null;
+    }
+
+    long getSkippedDocs() {
+        return skippedDocs;
+    }
+
+    @Override
+    public void collectDebugInfo(BiConsumer<String, Long> add) {
+        add.accept("skipped_docs", skippedDocs);
+    }
+
     private int[] getReverseMuls() {
         return Arrays.stream(sources).mapToInt(CompositeValuesSourceConfig::reverseMul).toArray();
     }
@@ -126,12 +181,13 @@ final class CompositeAggregator extends BucketsAggregator {
         int num = Math.min(size, keys.size());
         final InternalComposite.InternalBucket[] buckets = new InternalComposite.InternalBucket[num];
         final int[] reverseMuls = getReverseMuls();
-        int pos = 0;
-        for (int slot : keys.keySet()) {
+        final long[] slots = keys.keySet().stream().mapToLong(Integer::longValue).toArray();
+        final InternalAggregations[] aggregations = bucketAggregations(slots);
+        for (int pos = 0; pos < slots.length; pos++) {
+            int slot = (int) slots[pos];
             CompositeKey key = array.toCompositeKey(slot);
-            InternalAggregations aggs = bucketAggregations(slot);
             int docCount = bucketDocCount(slot);
-            buckets[pos++] = new InternalComposite.InternalBucket(sourceNames, key, reverseMuls, docCount, aggs);
+            buckets[pos] = new InternalComposite.InternalBucket(sourceNames, key, reverseMuls, docCount, aggregations[pos]);
         }
         return new InternalComposite(name, size, sourceNames, Arrays.asList(buckets), reverseMuls, pipelineAggregators(), metaData());
     }
@@ -149,13 +205,30 @@ final class CompositeAggregator extends BucketsAggregator {
             contexts.add(leaf);
         }
         leaf = new LeafContext(ctx, sub);
+        if (sortedTermsField != null && isSingleValuedAndIndexed(ctx.reader(), sortedTermsField)) {
+            // visit the documents of the segment in the order of the leading terms and stop as soon as the top buckets are known
+            final DocIdSetBuilder docIdSetBuilder = new DocIdSetBuilder(ctx.reader().maxDoc());
+            final int visited = collectInTermsOrder(ctx, docIdSetBuilder);
+            skippedDocs += ctx.reader().numDocs() - visited;
+            leaf.docIdSet = docIdSetBuilder.build();
+            contexts.add(leaf);
+            leaf = null;
+            throw new CollectionTerminatedException();
+        }
         builder = new RoaringDocIdSet.Builder(ctx.reader().maxDoc());
-        final CompositeValuesSource.Collector inner = array.getLeafCollector(ctx, getFirstPassCollector());
+        final RoaringDocIdSet.Builder leafBuilder = builder;
+        final CompositeValuesSource.Collector inner = array.getLeafCollector(ctx, getFirstPassCollector(leafBuilder::add));
+        final int maxDoc = ctx.reader().maxDoc();
         return new LeafBucketCollector() {
             @Override
             public void collect(int doc, long zeroBucket) throws IOException {
                 assert zeroBucket == 0L;
-                inner.collect(doc);
+                try {
+                    inner.collect(doc);
+                } catch (CollectionTerminatedException e) {
+                    skippedDocs += maxDoc - doc - 1;
+                    throw e;
+                }
             }
         };
     }
@@ -168,12 +241,76 @@ final class CompositeAggregator extends BucketsAggregator {
         }
     }
 
+    /**
+     * Returns true if every document of the segment has at most one value for the field and the values are indexed.
+     */
+    private static boolean isSingleValuedAndIndexed(LeafReader reader, String field) throws IOException {
+        final FieldInfo fieldInfo = reader.getFieldInfos().fieldInfo(field);
+        if (fieldInfo == null) {
+            // no document of the segment has a value
+            return true;
+        }
+        if (fieldInfo.getIndexOptions() == IndexOptions.NONE || fieldInfo.getDocValuesType() != DocValuesType.SORTED_SET) {
+            return false;
+        }
+        return DocValues.unwrapSingleton(reader.getSortedSetDocValues(field)) != null;
+    }
+
+    /**
+     * Visits the live documents of the segment term by term, starting from the leading value of the <code>after</code> key,
+     * until the top buckets contain the current term. The buckets of the remaining terms compare greater and cannot be
+     * competitive since every document has a single leading term.
+     *
+     * @return the number of documents that were visited
+     */
+    private int collectInTermsOrder(LeafReaderContext ctx, DocIdSetBuilder docIdSetBuilder) throws IOException {
+        final Terms terms = ctx.reader().terms(sortedTermsField);
+        if (terms == null) {
+            return 0;
+        }
+        final TermsEnum termsEnum = terms.iterator();
+        if (afterTerm != null) {
+            if (termsEnum.seekCeil(afterTerm) == TermsEnum.SeekStatus.END) {
+                return 0;
+            }
+        } else if (termsEnum.next() == null) {
+            return 0;
+        }
+        final Bits liveDocs = ctx.reader().getLiveDocs();
+        final CompositeValuesSource.Collector firstPass =
+            getFirstPassCollector(doc -> docIdSetBuilder.grow(1).add(doc));
+        PostingsEnum postings = null;
+        int visited = 0;
+        try {
+            do {
+                // the doc values are consumed in the order of the doc ids, which restarts with every term
+                final CompositeValuesSource.Collector collector = array.getLeafCollector(ctx, firstPass);
+                postings = termsEnum.postings(postings, PostingsEnum.NONE);
+                boolean collected = false;
+                for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc()) {
+                    if (liveDocs == null || liveDocs.get(doc)) {
+                        collector.collect(doc);
+                        collected = true;
+                        visited++;
+                    }
+                }
+                // slot 0 holds the current term if a document was collected
+                if (collected && keys.size() >= size && array.compareLeading(keys.lastKey(), 0) <= 0) {
+                    break;
+                }
+            } while (termsEnum.next() != null);
+        } catch (CollectionTerminatedException e) {
+            // the remaining documents of the segment are not competitive
+        }
+        return visited;
+    }
+
     /**
      * The first pass selects the top N composite buckets from all matching documents.
      * It also records all doc ids that contain a top N composite bucket in a {@link RoaringDocIdSet} in order to be
      * able to replay the collection filtered on the best buckets only.
      */
-    private CompositeValuesSource.Collector getFirstPassCollector() {
+    private CompositeValuesSource.Collector getFirstPassCollector(IntConsumer docIdSetBuilder) {
         return new CompositeValuesSource.Collector() {
             int lastDoc = -1;
 
@@ -184,26 +321,24 @@ final class CompositeAggregator extends BucketsAggregator {
                 if (keys.containsKey(0)) {
                     // This key is already in the top N, skip it for now.
                     if (doc != lastDoc) {
-                        builder.add(doc);
+                        docIdSetBuilder.accept(doc);
                         lastDoc = doc;
                     }
                     return;
                 }
                 if (array.hasTop() && array.compareTop(0) <= 0) {
-                    // This key is greater than the top value collected in the previous round.
-                    if (canEarlyTerminate) {
-                        // The index sort matches the composite sort, we can early terminate this segment.
-                        throw new CollectionTerminatedException();
-                    }
-                    // just skip this key for now
+                    // This key was returned in a previous round, when the index sort matches the composite sort the
+                    // next keys of the segment compare greater so we cannot early terminate here.
                     return;
                 }
                 if (keys.size() >= size) {
                     // The tree map is full, check if the candidate key should be kept.
                     if (array.compare(0, keys.lastKey()) > 0) {
                         // The candidate key is not competitive
-                        if (canEarlyTerminate) {
-                            // The index sort matches the composite sort, we can early terminate this segment.
+                        if (canEarlyTerminate
+                                || (canEarlyTerminateLeading && array.compareLeading(0, keys.lastKey()) > 0)) {
+                            // The index sort matches the composite sort, or its leading source and the candidate has a
+                            // greater leading value than all the top keys, we can early terminate this segment.
                             throw new CollectionTerminatedException();
                         }
                         // just skip this key
@@ -225,7 +360,7 @@ final class CompositeAggregator extends BucketsAggregator {
                 array.move(0, newSlot);
                 keys.put(newSlot, newSlot);
                 if (doc != lastDoc) {
-                    builder.add(doc);
+                    docIdSetBuilder.accept(doc);
                     lastDoc = doc;
                 }
             }
@@ -86,6 +86,14 @@ final class CompositeValuesComparator {
         return 0;
     }
 
+    /**
+     * Compares the values of the leading source in <code>slot1</code> with <code>slot2</code>.
+     */
+    int compareLeading(int slot1, int slot2) {
+        assert slot1 < size && slot2 < size;
+        return arrays[0].compare(slot1, slot2);
+    }
+
     /**
      * Returns true if a top value has been set for this comparator.
      */
@@ -19,17 +19,31 @@
 
 package org.elasticsearch.search.aggregations.bucket.composite;
 
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
 import org.elasticsearch.search.sort.SortOrder;
 
 class CompositeValuesSourceConfig {
     private final String name;
+    @Nullable
+    private final MappedFieldType fieldType;
     private final ValuesSource vs;
     private final int reverseMul;
     private final boolean canEarlyTerminate;
 
-    CompositeValuesSourceConfig(String name, ValuesSource vs, SortOrder order, boolean canEarlyTerminate) {
+    /**
+     * @param name              The name of the source.
+     * @param fieldType         The type of the field if the source returns its values unmodified, or null if the values are
+     *                          transformed, come from a script or replace a missing value.
+     * @param vs                The values source.
+     * @param order             The sort order of the values.
+     * @param canEarlyTerminate Whether the index sort matches the sort of this source.
+     */
+    CompositeValuesSourceConfig(String name, @Nullable MappedFieldType fieldType, ValuesSource vs, SortOrder order,
+                                boolean canEarlyTerminate) {
         this.name = name;
+        this.fieldType = fieldType;
         this.vs = vs;
         this.canEarlyTerminate = canEarlyTerminate;
         this.reverseMul = order == SortOrder.ASC ? 1 : -1;
@@ -39,6 +53,14 @@ class CompositeValuesSourceConfig {
         return name;
     }
 
+    /**
+     * The field type of the source if its values are the unmodified values of the field, null otherwise.
+     */
+    @Nullable
+    MappedFieldType fieldType() {
+        return fieldType;
+    }
+
     ValuesSource valuesSource() {
         return vs;
     }
@@ -30,6 +30,7 @@ import org.elasticsearch.common.xcontent.ObjectParser;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.script.Script;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramAggregationBuilder;
 import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
 import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
 import org.elasticsearch.search.aggregations.support.FieldContext;
@@ -226,7 +227,8 @@ public class DateHistogramValuesSourceBuilder extends CompositeValuesSourceBuild
         }
         if (orig instanceof ValuesSource.Numeric) {
             ValuesSource.Numeric numeric = (ValuesSource.Numeric) orig;
-            RoundingValuesSource vs = new RoundingValuesSource(numeric, rounding);
+            RoundingValuesSource vs = new RoundingValuesSource(numeric,
+                DateHistogramAggregationBuilder.prepareRounding(rounding, 0, config, context));
             boolean canEarlyTerminate = false;
             final FieldContext fieldContext = config.fieldContext();
             if (sortField != null &&
@@ -235,7 +237,7 @@ public class DateHistogramValuesSourceBuilder extends CompositeValuesSourceBuild
                 canEarlyTerminate = checkCanEarlyTerminate(context.searcher().getIndexReader(),
                     fieldContext.field(), order() == SortOrder.ASC ? false : true, sortField);
             }
-            return new CompositeValuesSourceConfig(name, vs, order(), canEarlyTerminate);
+            return new CompositeValuesSourceConfig(name, null, vs, order(), canEarlyTerminate);
         } else {
             throw new IllegalArgumentException("invalid source, expected numeric, got " + orig.getClass().getSimpleName());
         }
@@ -19,6 +19,9 @@
 
 package org.elasticsearch.search.aggregations.bucket.histogram;
 
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.PointValues;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.rounding.DateTimeUnit;
@@ -27,12 +30,14 @@ import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ObjectParser;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.index.mapper.DateFieldMapper;
 import org.elasticsearch.search.aggregations.AggregatorFactories.Builder;
 import org.elasticsearch.search.aggregations.AggregatorFactory;
 import org.elasticsearch.search.aggregations.BucketOrder;
 import org.elasticsearch.search.aggregations.InternalOrder;
 import org.elasticsearch.search.aggregations.InternalOrder.CompoundOrder;
 import org.elasticsearch.search.aggregations.bucket.MultiBucketAggregationBuilder;
+import org.elasticsearch.search.aggregations.support.FieldContext;
 import org.elasticsearch.search.aggregations.support.ValueType;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
 import org.elasticsearch.search.aggregations.support.ValuesSource.Numeric;
@@ -345,6 +350,27 @@ public class DateHistogramAggregationBuilder extends ValuesSourceAggregationBuil
                 rounding, roundedBounds, context, parent, subFactoriesBuilder, metaData);
     }
 
+    /**
+     * Prepares the rounding for the range of the values of the date field on this shard, read from the points of the field.
+     * Values outside of this range, for instance from a script or a missing value, are rounded with the original rounding.
+     *
+     * @param offset the offset that is subtracted from the values before they are rounded
+     */
+    public static Rounding.Prepared prepareRounding(Rounding rounding, long offset, ValuesSourceConfig<?> config,
+                                                    SearchContext context) throws IOException {
+        final FieldContext fieldContext = config.fieldContext();
+        if (fieldContext == null || fieldContext.fieldType() instanceof DateFieldMapper.DateFieldType == false) {
+            return rounding::round;
+        }
+        final IndexReader reader = context.searcher().getIndexReader();
+        final byte[] min = PointValues.getMinPackedValue(reader, fieldContext.field());
+        final byte[] max = PointValues.getMaxPackedValue(reader, fieldContext.field());
+        if (min == null || max == null) {
+            return rounding::round;
+        }
+        return rounding.prepare(LongPoint.decodeDimension(min, 0) - offset, LongPoint.decodeDimension(max, 0) - offset);
+    }
+
     private Rounding createRounding() {
         Rounding.Builder tzRoundingBuilder;
         if (dateHistogramInterval != null) {
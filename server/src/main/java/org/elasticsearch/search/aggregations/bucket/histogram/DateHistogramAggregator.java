@@ -20,6 +20,7 @@ package org.elasticsearch.search.aggregations.bucket.histogram;
 
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.util.CollectionUtil;
 import org.elasticsearch.common.inject.internal.Nullable;
 import org.elasticsearch.common.lease.Releasables;
@@ -29,9 +30,11 @@ import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.bucket.PointsCounter;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.BucketOrder;
 import org.elasticsearch.search.aggregations.InternalOrder;
@@ -43,6 +46,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.ToLongFunction;
+import java.util.stream.LongStream;
 
 /**
  * An aggregator for date values. Every date is rounded down using a configured
@@ -55,6 +61,7 @@ class DateHistogramAggregator extends BucketsAggregator {
     private final ValuesSource.Numeric valuesSource;
     private final DocValueFormat formatter;
     private final Rounding rounding;
+    private final Rounding.Prepared preparedRounding;
     private final BucketOrder order;
     private final boolean keyed;
 
@@ -64,20 +71,27 @@ class DateHistogramAggregator extends BucketsAggregator {
     private final LongHash bucketOrds;
     private long offset;
 
-    DateHistogramAggregator(String name, AggregatorFactories factories, Rounding rounding, long offset, BucketOrder order,
-            boolean keyed,
+    // counts the buckets from the points of the field when possible, null otherwise
+    private final PointsCounter pointsCounter;
+    private long segmentsCountedFromPoints;
+    private long segmentsCollected;
+
+    DateHistogramAggregator(String name, AggregatorFactories factories, Rounding rounding, Rounding.Prepared preparedRounding,
+            long offset, BucketOrder order, boolean keyed,
             long minDocCount, @Nullable ExtendedBounds extendedBounds, @Nullable ValuesSource.Numeric valuesSource,
-            DocValueFormat formatter, SearchContext aggregationContext,
+            @Nullable PointsCounter pointsCounter, DocValueFormat formatter, SearchContext aggregationContext,
             Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
 
         super(name, factories, aggregationContext, parent, pipelineAggregators, metaData);
         this.rounding = rounding;
+        this.preparedRounding = preparedRounding;
         this.offset = offset;
         this.order = InternalOrder.validate(order, this);;
         this.keyed = keyed;
         this.minDocCount = minDocCount;
         this.extendedBounds = extendedBounds;
         this.valuesSource = valuesSource;
+        this.pointsCounter = pointsCounter == null || pointsCounter.longDecoder() == null ? null : pointsCounter;
         this.formatter = formatter;
 
         bucketOrds = new LongHash(1, aggregationContext.bigArrays());
@@ -94,6 +108,13 @@ class DateHistogramAggregator extends BucketsAggregator {
         if (valuesSource == null) {
             return LeafBucketCollector.NO_OP_COLLECTOR;
         }
+        if (pointsCounter != null && pointsCounter.canCount(ctx.reader())) {
+            // all the documents of the segment are counted, there is nothing left to collect
+            countFromPoints(ctx);
+            segmentsCountedFromPoints++;
+            throw new CollectionTerminatedException();
+        }
+        segmentsCollected++;
         final SortedNumericDocValues values = valuesSource.longValues(ctx);
         return new LeafBucketCollectorBase(sub, values) {
             @Override
@@ -105,7 +126,7 @@ class DateHistogramAggregator extends BucketsAggregator {
                     long previousRounded = Long.MIN_VALUE;
                     for (int i = 0; i < valuesCount; ++i) {
                         long value = values.nextValue();
-                        long rounded = rounding.round(value - offset) + offset;
+                        long rounded = preparedRounding.round(value - offset) + offset;
                         assert rounded >= previousRounded;
                         if (rounded == previousRounded) {
                             continue;
@@ -124,14 +145,35 @@ class DateHistogramAggregator extends BucketsAggregator {
         };
     }
 
+    private void countFromPoints(LeafReaderContext ctx) throws IOException {
+        final ToLongFunction<byte[]> decoder = pointsCounter.longDecoder();
+        pointsCounter.count(ctx.reader(),
+            value -> preparedRounding.round(decoder.applyAsLong(value) - offset) + offset,
+            key -> true,
+            (key, count) -> {
+                long bucketOrd = bucketOrds.add(key);
+                if (bucketOrd < 0) { // already seen
+                    bucketOrd = -1 - bucketOrd;
+                }
+                incrementBucketDocCount(bucketOrd, count);
+            });
+    }
+
+    @Override
+    public void collectDebugInfo(BiConsumer<String, Long> add) {
+        add.accept("segments_counted_from_points", segmentsCountedFromPoints);
+        add.accept("segments_collected", segmentsCollected);
+    }
+
     @Override
     public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
         assert owningBucketOrdinal == 0;
         consumeBucketsAndMaybeBreak((int) bucketOrds.size());
 
         List<InternalDateHistogram.Bucket> buckets = new ArrayList<>((int) bucketOrds.size());
-        for (long i = 0; i < bucketOrds.size(); i++) {
-            buckets.add(new InternalDateHistogram.Bucket(bucketOrds.get(i), bucketDocCount(i), keyed, formatter, bucketAggregations(i)));
+        InternalAggregations[] aggregations = bucketAggregations(LongStream.range(0, bucketOrds.size()).toArray());
+        for (int i = 0; i < aggregations.length; i++) {
+            buckets.add(new InternalDateHistogram.Bucket(bucketOrds.get(i), bucketDocCount(i), keyed, formatter, aggregations[i]));
         }
 
         // the contract of the histogram aggregation is that shards must return buckets ordered by key in ascending order
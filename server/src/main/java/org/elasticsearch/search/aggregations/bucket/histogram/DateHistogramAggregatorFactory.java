@@ -25,6 +25,7 @@ import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.AggregatorFactory;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.BucketOrder;
+import org.elasticsearch.search.aggregations.bucket.PointsCounter;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
 import org.elasticsearch.search.aggregations.support.ValuesSource.Numeric;
 import org.elasticsearch.search.aggregations.support.ValuesSourceAggregatorFactory;
@@ -77,8 +78,11 @@ public final class DateHistogramAggregatorFactory
 
     private Aggregator createAggregator(ValuesSource.Numeric valuesSource, Aggregator parent, List<PipelineAggregator> pipelineAggregators,
             Map<String, Object> metaData) throws IOException {
-        return new DateHistogramAggregator(name, factories, rounding, offset, order, keyed, minDocCount, extendedBounds, valuesSource,
-                config.format(), context, parent, pipelineAggregators, metaData);
+        final Rounding.Prepared preparedRounding = valuesSource == null ? rounding::round :
+            DateHistogramAggregationBuilder.prepareRounding(rounding, offset, config, context);
+        final PointsCounter pointsCounter = valuesSource == null ? null : PointsCounter.build(context, config, parent, factories);
+        return new DateHistogramAggregator(name, factories, rounding, preparedRounding, offset, order, keyed, minDocCount, extendedBounds,
+                valuesSource, pointsCounter, config.format(), context, parent, pipelineAggregators, metaData);
     }
 
     @Override
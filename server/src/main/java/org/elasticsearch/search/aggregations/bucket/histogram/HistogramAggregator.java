@@ -29,6 +29,7 @@ import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
@@ -44,6 +45,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.LongStream;
 
 /**
  * An aggregator for numeric values. For a given {@code interval},
@@ -133,10 +135,11 @@ class HistogramAggregator extends BucketsAggregator {
         assert bucket == 0;
         consumeBucketsAndMaybeBreak((int) bucketOrds.size());
         List<InternalHistogram.Bucket> buckets = new ArrayList<>((int) bucketOrds.size());
-        for (long i = 0; i < bucketOrds.size(); i++) {
+        InternalAggregations[] aggregations = bucketAggregations(LongStream.range(0, bucketOrds.size()).toArray());
+        for (int i = 0; i < aggregations.length; i++) {
             double roundKey = Double.longBitsToDouble(bucketOrds.get(i));
             double key = roundKey * interval + offset;
-            buckets.add(new InternalHistogram.Bucket(key, bucketDocCount(i), keyed, formatter, bucketAggregations(i)));
+            buckets.add(new InternalHistogram.Bucket(key, bucketDocCount(i), keyed, formatter, aggregations[i]));
         }
 
         // the contract of the histogram aggregation is that shards must return buckets ordered by key in ascending order
@@ -19,6 +19,8 @@
 package org.elasticsearch.search.aggregations.bucket.range;
 
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -38,6 +40,7 @@ import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.NonCollectingAggregator;
 import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.bucket.PointsCounter;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
 import org.elasticsearch.search.internal.SearchContext;
@@ -47,6 +50,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.ToDoubleFunction;
 
 public class RangeAggregator extends BucketsAggregator {
 
@@ -224,13 +229,20 @@ public class RangeAggregator extends BucketsAggregator {
 
     final double[] maxTo;
 
-    public RangeAggregator(String name, AggregatorFactories factories, ValuesSource.Numeric valuesSource, DocValueFormat format,
-            InternalRange.Factory rangeFactory, Range[] ranges, boolean keyed, SearchContext context,
-            Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+    // counts the ranges from the points of the field when possible, null otherwise
+    private final PointsCounter pointsCounter;
+    private long segmentsCountedFromPoints;
+    private long segmentsCollected;
+
+    public RangeAggregator(String name, AggregatorFactories factories, ValuesSource.Numeric valuesSource,
+            @Nullable PointsCounter pointsCounter, DocValueFormat format, InternalRange.Factory rangeFactory, Range[] ranges,
+            boolean keyed, SearchContext context, Aggregator parent, List<PipelineAggregator> pipelineAggregators,
+            Map<String, Object> metaData) throws IOException {
 
         super(name, factories, context, parent, pipelineAggregators, metaData);
         assert valuesSource != null;
         this.valuesSource = valuesSource;
+        this.pointsCounter = pointsCounter;
         this.format = format;
         this.keyed = keyed;
         this.rangeFactory = rangeFactory;
@@ -253,6 +265,13 @@ public class RangeAggregator extends BucketsAggregator {
     @Override
     public LeafBucketCollector getLeafCollector(LeafReaderContext ctx,
             final LeafBucketCollector sub) throws IOException {
+        if (pointsCounter != null && pointsCounter.canCount(ctx.reader())) {
+            // all the documents of the segment are counted, there is nothing left to collect
+            countFromPoints(ctx);
+            segmentsCountedFromPoints++;
+            throw new CollectionTerminatedException();
+        }
+        segmentsCollected++;
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
         return new LeafBucketCollectorBase(sub, values) {
             @Override
@@ -317,6 +336,28 @@ public class RangeAggregator extends BucketsAggregator {
         };
     }
 
+    private void countFromPoints(LeafReaderContext ctx) throws IOException {
+        final ToDoubleFunction<byte[]> decoder = pointsCounter.doubleDecoder();
+        for (int i = 0; i < ranges.length; i++) {
+            final Range range = ranges[i];
+            final long bucketOrd = subBucketOrdinal(0, i);
+            // ranges may overlap, count each of them on its own: -1 below the range, 0 inside and 1 above
+            pointsCounter.count(ctx.reader(),
+                value -> {
+                    final double v = decoder.applyAsDouble(value);
+                    return v < range.from ? -1 : range.matches(v) ? 0 : 1;
+                },
+                key -> key == 0,
+                (key, count) -> incrementBucketDocCount(bucketOrd, count));
+        }
+    }
+
+    @Override
+    public void collectDebugInfo(BiConsumer<String, Long> add) {
+        add.accept("segments_counted_from_points", segmentsCountedFromPoints);
+        add.accept("segments_collected", segmentsCollected);
+    }
+
     private long subBucketOrdinal(long owningBucketOrdinal, int rangeOrd) {
         return owningBucketOrdinal * ranges.length + rangeOrd;
     }
@@ -0,0 +1,341 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.significant;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.FilteredDocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.BitSet;
+import org.apache.lucene.util.Bits;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.cache.CacheLoader;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.IndexSettings;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A per-shard cache of the background frequencies that the {@code significant_terms} and {@code significant_text}
+ * aggregations look up for their candidate terms. Frequencies are cached per segment and keyed on the segment core,
+ * its number of deleted documents, the background filter and the term query, so they stay valid across refreshes
+ * for segments that did not change. The entries of a segment are removed when the segment is closed.
+ */
+public final class BackgroundFrequencyCache {
+
+    /**
+     * The maximum number of per-segment frequencies to cache per shard, {@code 0} disables the cache.
+     */
+    public static final Setting<Integer> INDEX_SIGNIFICANT_TERMS_BACKGROUND_CACHE_SIZE_SETTING =
+        Setting.intSetting("index.aggs.significant_terms.background_cache.size", 0, 0, Property.IndexScope);
+    public static final Setting<TimeValue> INDEX_SIGNIFICANT_TERMS_BACKGROUND_CACHE_EXPIRE_SETTING =
+        Setting.positiveTimeSetting("index.aggs.significant_terms.background_cache.expire", TimeValue.timeValueMinutes(10),
+            Property.IndexScope);
+
+    private static final Query SUPERSET = new MatchAllDocsQuery();
+
+    private final Cache<Key, Long> cache;
+    // the segment cores that a closed listener was registered on
+    private final Set<IndexReader.CacheKey> cores = ConcurrentCollections.newConcurrentSet();
+    private final CounterMetric hitCount = new CounterMetric();
+    private final CounterMetric missCount = new CounterMetric();
+
+    public BackgroundFrequencyCache(IndexSettings indexSettings) {
+        final int size = indexSettings.getValue(INDEX_SIGNIFICANT_TERMS_BACKGROUND_CACHE_SIZE_SETTING);
+        if (size == 0) {
+            cache = null;
+        } else {
+            cache = CacheBuilder.<Key, Long>builder()
+                .setMaximumWeight(size)
+                .setExpireAfterAccess(indexSettings.getValue(INDEX_SIGNIFICANT_TERMS_BACKGROUND_CACHE_EXPIRE_SETTING))
+                .build();
+        }
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Returns a view of this cache to look up background frequencies in the given searcher, optionally restricted to
+     * the documents that match the given background filter.
+     */
+    Lookup lookup(IndexSearcher searcher, @Nullable Query filter) throws IOException {
+        assert isEnabled();
+        return new Lookup(searcher, filter);
+    }
+
+    private long getOrCompute(LeafReaderContext context, @Nullable Query filter, Query query, CacheLoader<Key, Long> loader) {
+        final IndexReader.CacheHelper cacheHelper = context.reader().getCoreCacheHelper();
+        if (cacheHelper == null) {
+            // the segment can't be identified across searches, so the frequency is computed without the cache
+            try {
+                return loader.load(null);
+            } catch (Exception e) {
+                throw ExceptionsHelper.convertToElastic(e);
+            }
+        }
+        final IndexReader.CacheKey coreKey = cacheHelper.getKey();
+        if (cores.add(coreKey)) {
+            cacheHelper.addClosedListener(this::onCoreClosed);
+        }
+        final Key key = new Key(coreKey, context.reader().numDeletedDocs(), filter, query);
+        final boolean[] loaded = new boolean[1];
+        final Long frequency;
+        try {
+            frequency = cache.computeIfAbsent(key, k -> {
+                loaded[0] = true;
+                return loader.load(k);
+            });
+        } catch (ExecutionException e) {
+            throw ExceptionsHelper.convertToElastic(e);
+        }
+        if (loaded[0]) {
+            missCount.inc();
+        } else {
+            hitCount.inc();
+        }
+        return frequency;
+    }
+
+    private void onCoreClosed(IndexReader.CacheKey coreKey) {
+        cores.remove(coreKey);
+        for (Iterator<Key> iterator = cache.keys().iterator(); iterator.hasNext(); ) {
+            if (iterator.next().coreKey == coreKey) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * The number of cached per-segment frequencies.
+     */
+    int count() {
+        return cache.count();
+    }
+
+    public long getHitCount() {
+        return hitCount.count();
+    }
+
+    public long getMissCount() {
+        return missCount.count();
+    }
+
+    /**
+     * Looks up background frequencies for a single request. The background filter is only evaluated on the
+     * segments that have a cache miss, and at most once per segment.
+     */
+    final class Lookup {
+
+        private final IndexSearcher searcher;
+        private final List<LeafReaderContext> leaves;
+        private final Query filter;
+        private final Weight filterWeight;
+        private final BitSet[] filterBits;
+        private final boolean[] filterBitsLoaded;
+        private final TermsEnum[] termsEnums;
+        private String termsField;
+        private PostingsEnum postings;
+
+        private Lookup(IndexSearcher searcher, @Nullable Query filter) throws IOException {
+            this.searcher = searcher;
+            this.leaves = searcher.getIndexReader().leaves();
+            this.filter = filter;
+            this.filterWeight = filter == null ? null : searcher.createNormalizedWeight(filter, false);
+            this.filterBits = new BitSet[leaves.size()];
+            this.filterBitsLoaded = new boolean[leaves.size()];
+            this.termsEnums = new TermsEnum[leaves.size()];
+        }
+
+        /**
+         * The number of live documents that match the background filter.
+         */
+        long supersetSize() throws IOException {
+            assert filter != null;
+            long size = 0;
+            for (LeafReaderContext leaf : leaves) {
+                size += getOrCompute(leaf, filter, SUPERSET, key -> {
+                    BitSet bits = filterBits(leaf);
+                    return bits == null ? 0L : bits.cardinality();
+                });
+            }
+            return size;
+        }
+
+        /**
+         * The background frequency of the term that the given query matches. Term queries are resolved with the
+         * terms dictionary, other queries are counted.
+         */
+        long frequency(Query query) throws IOException {
+            Weight weight = null;
+            long frequency = 0;
+            for (LeafReaderContext leaf : leaves) {
+                if (query instanceof TermQuery) {
+                    frequency += getOrCompute(leaf, filter, query, key -> termFrequency(leaf, ((TermQuery) query).getTerm()));
+                } else {
+                    if (weight == null) {
+                        weight = searcher.createNormalizedWeight(query, false);
+                    }
+                    final Weight queryWeight = weight;
+                    frequency += getOrCompute(leaf, filter, query, key -> count(leaf, queryWeight));
+                }
+            }
+            return frequency;
+        }
+
+        private long termFrequency(LeafReaderContext leaf, Term term) throws IOException {
+            if (term.field().equals(termsField) == false) {
+                termsField = term.field();
+                Arrays.fill(termsEnums, null);
+            }
+            TermsEnum termsEnum = termsEnums[leaf.ord];
+            if (termsEnum == null) {
+                Terms terms = leaf.reader().terms(term.field());
+                if (terms == null) {
+                    return 0L;
+                }
+                termsEnum = termsEnums[leaf.ord] = terms.iterator();
+            }
+            if (termsEnum.seekExact(term.bytes()) == false) {
+                return 0L;
+            }
+            if (filterWeight == null) {
+                // same as FilterableTermsEnum, the doc freq includes deleted docs when there is no filter
+                return termsEnum.docFreq();
+            }
+            BitSet bits = filterBits(leaf);
+            if (bits == null) {
+                return 0L;
+            }
+            postings = termsEnum.postings(postings, PostingsEnum.NONE);
+            long frequency = 0;
+            for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc()) {
+                if (bits.get(doc)) {
+                    frequency++;
+                }
+            }
+            return frequency;
+        }
+
+        private long count(LeafReaderContext leaf, Weight weight) throws IOException {
+            Scorer scorer = weight.scorer(leaf);
+            if (scorer == null) {
+                return 0L;
+            }
+            final Bits bits;
+            if (filterWeight == null) {
+                bits = leaf.reader().getLiveDocs();
+            } else {
+                bits = filterBits(leaf);
+                if (bits == null) {
+                    return 0L;
+                }
+            }
+            DocIdSetIterator iterator = scorer.iterator();
+            long count = 0;
+            for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+                if (bits == null || bits.get(doc)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * The live documents of the given segment that match the background filter, or {@code null} if there are none.
+         */
+        private BitSet filterBits(LeafReaderContext leaf) throws IOException {
+            if (filterBitsLoaded[leaf.ord] == false) {
+                filterBitsLoaded[leaf.ord] = true;
+                Scorer scorer = filterWeight.scorer(leaf);
+                if (scorer != null) {
+                    DocIdSetIterator docs = scorer.iterator();
+                    final Bits liveDocs = leaf.reader().getLiveDocs();
+                    if (liveDocs != null) {
+                        docs = new FilteredDocIdSetIterator(docs) {
+                            @Override
+                            protected boolean match(int doc) {
+                                return liveDocs.get(doc);
+                            }
+                        };
+                    }
+                    filterBits[leaf.ord] = BitSet.of(docs, leaf.reader().maxDoc());
+                }
+            }
+            return filterBits[leaf.ord];
+        }
+    }
+
+    static final class Key {
+
+        // deletes only ever increase on a given segment core so this identifies the live docs
+        private final IndexReader.CacheKey coreKey;
+        private final int numDeletedDocs;
+        private final Query filter;
+        private final Query query;
+
+        Key(IndexReader.CacheKey coreKey, int numDeletedDocs, @Nullable Query filter, Query query) {
+            this.coreKey = coreKey;
+            this.numDeletedDocs = numDeletedDocs;
+            this.filter = filter;
+            this.query = query;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return coreKey == key.coreKey &&
+                numDeletedDocs == key.numDeletedDocs &&
+                Objects.equals(filter, key.filter) &&
+                Objects.equals(query, key.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(coreKey, numDeletedDocs, filter, query);
+        }
+    }
+}
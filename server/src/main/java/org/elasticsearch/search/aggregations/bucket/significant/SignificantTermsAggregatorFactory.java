@@ -36,6 +36,7 @@ import org.elasticsearch.common.lucene.index.FilterableTermsEnum;
 import org.elasticsearch.common.lucene.index.FreqTermsEnum;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.AggregationExecutionException;
 import org.elasticsearch.search.aggregations.Aggregator;
@@ -69,6 +70,7 @@ public class SignificantTermsAggregatorFactory extends ValuesSourceAggregatorFac
     private FilterableTermsEnum termsEnum;
     private int numberOfAggregatorsCreated;
     final Query filter;
+    private final BackgroundFrequencyCache.Lookup backgroundFrequencies;
     private final int supersetNumDocs;
     private final TermsAggregator.BucketCountThresholds bucketCountThresholds;
     private final SignificanceHeuristic significanceHeuristic;
@@ -91,10 +93,16 @@ public class SignificantTermsAggregatorFactory extends ValuesSourceAggregatorFac
                 ? null
                 : filterBuilder.toFilter(context.getQueryShardContext());
         IndexSearcher searcher = context.searcher();
+        final IndexShard indexShard = context.indexShard();
+        this.backgroundFrequencies = indexShard != null && indexShard.backgroundFrequencyCache().isEnabled()
+                ? indexShard.backgroundFrequencyCache().lookup(searcher, filter)
+                : null;
         this.supersetNumDocs = filter == null
                 // Important - need to use the doc count that includes deleted docs
                 // or we have this issue: https://github.com/elastic/elasticsearch/issues/7951
                 ? searcher.getIndexReader().maxDoc()
+                : backgroundFrequencies != null
+                ? (int) backgroundFrequencies.supersetSize()
                 : searcher.count(filter);
         this.bucketCountThresholds = bucketCountThresholds;
         this.significanceHeuristic = significanceHeuristic;
@@ -131,6 +139,9 @@ public class SignificantTermsAggregatorFactory extends ValuesSourceAggregatorFac
 
     private long getBackgroundFrequency(String value) throws IOException {
         Query query = fieldType.termQuery(value, context.getQueryShardContext());
+        if (backgroundFrequencies != null) {
+            return backgroundFrequencies.frequency(query);
+        }
         if (query instanceof TermQuery) {
             // for types that use the inverted index, we prefer using a caching terms
             // enum that will do a better job at reusing index inputs
@@ -33,6 +33,7 @@ import org.elasticsearch.common.lucene.index.FilterableTermsEnum;
 import org.elasticsearch.common.lucene.index.FreqTermsEnum;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
@@ -59,6 +60,7 @@ public class SignificantTextAggregatorFactory extends AggregatorFactory<Signific
     private FilterableTermsEnum termsEnum;
     private int numberOfAggregatorsCreated;
     private final Query filter;
+    private final BackgroundFrequencyCache.Lookup backgroundFrequencies;
     private final int supersetNumDocs;
     private final TermsAggregator.BucketCountThresholds bucketCountThresholds;
     private final SignificanceHeuristic significanceHeuristic;
@@ -79,10 +81,16 @@ public class SignificantTextAggregatorFactory extends AggregatorFactory<Signific
         this.sourceFieldNames = sourceFieldNames;
         this.filterDuplicateText = filterDuplicateText;
         IndexSearcher searcher = context.searcher();
+        final IndexShard indexShard = context.indexShard();
+        this.backgroundFrequencies = indexShard != null && indexShard.backgroundFrequencyCache().isEnabled()
+                ? indexShard.backgroundFrequencyCache().lookup(searcher, filter)
+                : null;
         // Important - need to use the doc count that includes deleted docs
         // or we have this issue: https://github.com/elastic/elasticsearch/issues/7951
         this.supersetNumDocs = filter == null
                 ? searcher.getIndexReader().maxDoc()
+                : backgroundFrequencies != null
+                ? (int) backgroundFrequencies.supersetSize()
                 : searcher.count(filter);
         this.bucketCountThresholds = bucketCountThresholds;
         this.significanceHeuristic = significanceHeuristic;
@@ -113,6 +121,9 @@ public class SignificantTextAggregatorFactory extends AggregatorFactory<Signific
 
     private long getBackgroundFrequency(String value) throws IOException {
         Query query = fieldType.termQuery(value, context.getQueryShardContext());
+        if (backgroundFrequencies != null) {
+            return backgroundFrequencies.frequency(query);
+        }
         if (query instanceof TermQuery) {
             // for types that use the inverted index, we prefer using a caching terms
             // enum that will do a better job at reusing index inputs
@@ -21,12 +21,18 @@ package org.elasticsearch.search.aggregations.bucket.terms;
 
 import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.LongBitSet;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.IntArray;
@@ -49,6 +55,7 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 import java.util.function.LongUnaryOperator;
 
 import static org.apache.lucene.index.SortedSetDocValues.NO_MORE_ORDS;
@@ -73,6 +80,11 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
 
     private final LongHash bucketOrds;
 
+    // the field whose postings hold the counts of the terms when all documents match, null otherwise
+    private final String postingsField;
+    private long segmentsCountedFromPostings;
+    private long segmentsCollected;
+
     public interface GlobalOrdLookupFunction {
         BytesRef apply(long ord) throws IOException;
     }
@@ -88,11 +100,13 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
                                                boolean remapGlobalOrds,
                                                SubAggCollectionMode collectionMode,
                                                boolean showTermDocCountError,
+                                               @Nullable String postingsField,
                                                List<PipelineAggregator> pipelineAggregators,
                                                Map<String, Object> metaData) throws IOException {
         super(name, factories, context, parent, order, format, bucketCountThresholds, collectionMode, showTermDocCountError,
             pipelineAggregators, metaData);
         this.valuesSource = valuesSource;
+        this.postingsField = postingsField;
         this.includeExclude = includeExclude;
         final IndexReader reader = context.searcher().getIndexReader();
         final SortedSetDocValues values = reader.leaves().size() > 0 ?
@@ -125,6 +139,84 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
         }
     }
 
+    private void incrementGlobalOrd(long globalOrd, int inc) {
+        if (bucketOrds == null) {
+            incrementBucketDocCount(globalOrd, inc);
+        } else {
+            long bucketOrd = bucketOrds.add(globalOrd);
+            if (bucketOrd < 0) {
+                bucketOrd = -1 - bucketOrd;
+            }
+            incrementBucketDocCount(bucketOrd, inc);
+        }
+    }
+
+    /**
+     * Counts the terms of the segment from their document frequencies, this is only called when all documents match. Returns
+     * false if the documents of the segment need to be collected instead.
+     */
+    protected final boolean countFromPostings(LeafReaderContext ctx) throws IOException {
+        if (postingsField == null) {
+            return false;
+        }
+        if (doCountFromPostings(ctx)) {
+            segmentsCountedFromPostings++;
+            return true;
+        }
+        segmentsCollected++;
+        return false;
+    }
+
+    private boolean doCountFromPostings(LeafReaderContext ctx) throws IOException {
+        final LeafReader reader = ctx.reader();
+        final Terms terms = reader.terms(postingsField);
+        if (terms == null || reader.numDeletedDocs() > reader.numDocs()) {
+            // more deleted documents to correct the counts with than live documents to collect
+            return false;
+        }
+        final SortedSetDocValues segmentOrds = valuesSource.ordinalsValues(ctx);
+        if (terms.size() != segmentOrds.getValueCount()) {
+            // the indexed terms are the values of the doc values, the n-th term must have the n-th ordinal
+            return false;
+        }
+        final LongUnaryOperator mapping = valuesSource.globalOrdinalsMapping(ctx);
+        if (bucketOrds == null) {
+            grow(valueCount);
+        }
+        final TermsEnum termsEnum = terms.iterator();
+        long segmentOrd = 0;
+        for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next(), segmentOrd++) {
+            assert term.equals(segmentOrds.lookupOrd(segmentOrd));
+            final long globalOrd = mapping.applyAsLong(segmentOrd);
+            if (acceptedGlobalOrdinals == null || acceptedGlobalOrdinals.get(globalOrd)) {
+                incrementGlobalOrd(globalOrd, termsEnum.docFreq());
+            }
+        }
+        if (reader.hasDeletions()) {
+            // document frequencies include deleted documents
+            final Bits liveDocs = reader.getLiveDocs();
+            for (int doc = 0; doc < reader.maxDoc(); doc++) {
+                if (liveDocs.get(doc) == false && segmentOrds.advanceExact(doc)) {
+                    for (long ord = segmentOrds.nextOrd(); ord != NO_MORE_ORDS; ord = segmentOrds.nextOrd()) {
+                        final long globalOrd = mapping.applyAsLong(ord);
+                        if (acceptedGlobalOrdinals == null || acceptedGlobalOrdinals.get(globalOrd)) {
+                            incrementGlobalOrd(globalOrd, -1);
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void collectDebugInfo(BiConsumer<String, Long> add) {
+        if (postingsField != null) {
+            add.accept("segments_counted_from_postings", segmentsCountedFromPostings);
+            add.accept("segments_collected", segmentsCollected);
+        }
+    }
+
     private SortedSetDocValues getGlobalOrds(LeafReaderContext ctx) throws IOException {
         return acceptedGlobalOrdinals == null ?
             valuesSource.globalOrdinalsValues(ctx) : new FilteredOrdinals(valuesSource.globalOrdinalsValues(ctx), acceptedGlobalOrdinals);
@@ -132,6 +224,10 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
 
     @Override
     public LeafBucketCollector getLeafCollector(LeafReaderContext ctx, final LeafBucketCollector sub) throws IOException {
+        if (countFromPostings(ctx)) {
+            // all the documents of the segment are counted, there is nothing left to collect
+            throw new CollectionTerminatedException();
+        }
         final SortedSetDocValues globalOrds = getGlobalOrds(ctx);
         if (bucketOrds == null) {
             grow(globalOrds.getValueCount());
@@ -226,9 +322,11 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
         runDeferredCollections(survivingBucketOrds);
 
         //Now build the aggs
-        for (int i = 0; i < list.length; i++) {
+        final long[] collectedBucketOrds = Arrays.stream(list).filter(b -> b.docCount > 0).mapToLong(b -> b.bucketOrd).toArray();
+        final InternalAggregations[] aggregations = bucketAggregations(collectedBucketOrds);
+        for (int i = 0, j = 0; i < list.length; i++) {
             StringTerms.Bucket bucket = list[i];
-            bucket.aggregations = bucket.docCount == 0 ? bucketEmptyAggregations() : bucketAggregations(bucket.bucketOrd);
+            bucket.aggregations = bucket.docCount == 0 ? bucketEmptyAggregations() : aggregations[j++];
             bucket.docCountError = 0;
         }
 
@@ -310,10 +408,11 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
                        boolean forceDenseMode,
                        SubAggCollectionMode collectionMode,
                        boolean showTermDocCountError,
+                       @Nullable String postingsField,
                        List<PipelineAggregator> pipelineAggregators,
                        Map<String, Object> metaData) throws IOException {
             super(name, factories, valuesSource, order, format, bucketCountThresholds, null,
-                context, parent, forceDenseMode, collectionMode, showTermDocCountError, pipelineAggregators, metaData);
+                context, parent, forceDenseMode, collectionMode, showTermDocCountError, postingsField, pipelineAggregators, metaData);
             assert factories == null || factories.countAggregators() == 0;
             this.segmentDocCounts = context.bigArrays().newIntArray(1, true);
         }
@@ -323,6 +422,10 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
                                                     final LeafBucketCollector sub) throws IOException {
             if (mapping != null) {
                 mapSegmentCountsToGlobalCounts(mapping);
+                mapping = null;
+            }
+            if (countFromPostings(ctx)) {
+                throw new CollectionTerminatedException();
             }
             final SortedSetDocValues segmentOrds = valuesSource.ordinalsValues(ctx);
             segmentDocCounts = context.bigArrays().grow(segmentDocCounts, 1 + segmentOrds.getValueCount());
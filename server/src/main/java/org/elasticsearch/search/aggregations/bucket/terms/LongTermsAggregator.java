@@ -20,12 +20,15 @@ package org.elasticsearch.search.aggregations.bucket.terms;
 
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.NumericUtils;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.LongHash;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.bucket.terms.IncludeExclude.LongFilter;
@@ -39,24 +42,46 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 import static java.util.Collections.emptyList;
 
 public class LongTermsAggregator extends TermsAggregator {
 
+    /**
+     * Estimate of the memory used per distinct term: its value, id and doc count.
+     */
+    private static final long BYTES_PER_TERM = 24;
+
     protected final ValuesSource.Numeric valuesSource;
-    protected final LongHash bucketOrds;
+    protected LongHash bucketOrds;
     private boolean showTermDocCountError;
     private LongFilter longFilter;
+    private final long spillThreshold;
+    private TermCountsSpill spill;
 
     public LongTermsAggregator(String name, AggregatorFactories factories, ValuesSource.Numeric valuesSource, DocValueFormat format,
             BucketOrder order, BucketCountThresholds bucketCountThresholds, SearchContext aggregationContext, Aggregator parent,
             SubAggCollectionMode subAggCollectMode, boolean showTermDocCountError, IncludeExclude.LongFilter longFilter,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+        this(name, factories, valuesSource, format, order, bucketCountThresholds, aggregationContext, parent, subAggCollectMode,
+                showTermDocCountError, longFilter, -1, pipelineAggregators, metaData);
+    }
+
+    /**
+     * @param spillThreshold the number of bytes the distinct terms may use before their counts are spilled to disk, or -1 to
+     *                       never spill. Spilling requires that there are no sub-aggregations and that min_doc_count is not 0.
+     */
+    public LongTermsAggregator(String name, AggregatorFactories factories, ValuesSource.Numeric valuesSource, DocValueFormat format,
+            BucketOrder order, BucketCountThresholds bucketCountThresholds, SearchContext aggregationContext, Aggregator parent,
+            SubAggCollectionMode subAggCollectMode, boolean showTermDocCountError, IncludeExclude.LongFilter longFilter,
+            long spillThreshold, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
         super(name, factories, aggregationContext, parent, bucketCountThresholds, order, format, subAggCollectMode, pipelineAggregators, metaData);
+        assert spillThreshold < 0 || (subAggregators.length == 0 && bucketCountThresholds.getMinDocCount() > 0);
         this.valuesSource = valuesSource;
         this.showTermDocCountError = showTermDocCountError;
         this.longFilter = longFilter;
+        this.spillThreshold = spillThreshold;
         bucketOrds = new LongHash(1, aggregationContext.bigArrays());
     }
 
@@ -91,6 +116,9 @@ public class LongTermsAggregator extends TermsAggregator {
                                     collectExistingBucket(sub, doc, bucketOrdinal);
                                 } else {
                                     collectBucket(sub, doc, bucketOrdinal);
+                                    if (spillThreshold >= 0 && bucketOrds.size() * BYTES_PER_TERM > spillThreshold) {
+                                        spill();
+                                    }
                                 }
                             }
 
@@ -102,10 +130,32 @@ public class LongTermsAggregator extends TermsAggregator {
         };
     }
 
+    /**
+     * Writes the counts of the terms in memory to disk and starts over with empty buckets.
+     */
+    private void spill() throws IOException {
+        if (spill == null) {
+            spill = new TermCountsSpill(context.bigArrays(), spillThreshold);
+        }
+        final BytesRef scratch = new BytesRef(new byte[Long.BYTES]);
+        for (long i = 0; i < bucketOrds.size(); i++) {
+            NumericUtils.longToSortableBytes(bucketOrds.get(i), scratch.bytes, 0);
+            spill.add(scratch, bucketDocCount(i));
+        }
+        spill.endRun();
+        getDocCounts().fill(0, bucketOrds.size(), 0);
+        bucketOrds.close();
+        bucketOrds = new LongHash(1, context.bigArrays());
+    }
+
     @Override
     public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
         assert owningBucketOrdinal == 0;
 
+        if (spill != null) {
+            return buildSpilledAggregation();
+        }
+
         if (bucketCountThresholds.getMinDocCount() == 0 && (InternalOrder.isCountDesc(order) == false || bucketOrds.size() < bucketCountThresholds.getRequiredSize())) {
             // we need to fill-in the blanks
             for (LeafReaderContext ctx : context.searcher().getTopReaderContext().leaves()) {
@@ -157,8 +207,9 @@ public class LongTermsAggregator extends TermsAggregator {
         runDeferredCollections(survivingBucketOrds);
 
         // Now build the aggs
+        final InternalAggregations[] aggregations = bucketAggregations(survivingBucketOrds);
         for (int i = 0; i < list.length; i++) {
-            list[i].aggregations = bucketAggregations(list[i].bucketOrd);
+            list[i].aggregations = aggregations[i];
             list[i].docCountError = 0;
         }
 
@@ -167,6 +218,57 @@ public class LongTermsAggregator extends TermsAggregator {
                 Arrays.asList(list), 0);
     }
 
+    /**
+     * Builds the aggregation from the counts that have been spilled to disk, merging the runs one partition at a time.
+     */
+    private InternalAggregation buildSpilledAggregation() throws IOException {
+        if (bucketOrds.size() > 0) {
+            spill();
+        }
+        final int size = (int) Math.min(spill.size(), bucketCountThresholds.getShardSize());
+
+        long otherDocCount = 0;
+        BucketPriorityQueue<LongTerms.Bucket> ordered = new BucketPriorityQueue<>(size, order.comparator(this));
+        LongTerms.Bucket spare = null;
+        try (TermCountsSpill.Cursor cursor = spill.merge()) {
+            while (cursor.next()) {
+                if (spare == null) {
+                    spare = new LongTerms.Bucket(0, 0, null, showTermDocCountError, 0, format);
+                }
+                final BytesRef term = cursor.term();
+                spare.term = NumericUtils.sortableBytesToLong(term.bytes, term.offset);
+                spare.docCount = cursor.docCount();
+                otherDocCount += spare.docCount;
+                if (bucketCountThresholds.getShardMinDocCount() <= spare.docCount) {
+                    spare = ordered.insertWithOverflow(spare);
+                    if (spare == null) {
+                        consumeBucketsAndMaybeBreak(1);
+                    }
+                }
+            }
+        }
+
+        final LongTerms.Bucket[] list = new LongTerms.Bucket[ordered.size()];
+        for (int i = ordered.size() - 1; i >= 0; --i) {
+            final LongTerms.Bucket bucket = ordered.pop();
+            bucket.aggregations = bucketEmptyAggregations();
+            bucket.docCountError = 0;
+            list[i] = bucket;
+            otherDocCount -= bucket.docCount;
+        }
+
+        return new LongTerms(name, order, bucketCountThresholds.getRequiredSize(), bucketCountThresholds.getMinDocCount(),
+                pipelineAggregators(), metaData(), format, bucketCountThresholds.getShardSize(), showTermDocCountError, otherDocCount,
+                Arrays.asList(list), 0);
+    }
+
+    @Override
+    public void collectDebugInfo(BiConsumer<String, Long> add) {
+        if (spillThreshold >= 0) {
+            add.accept("spilled_runs", spill == null ? 0L : spill.runs());
+        }
+    }
+
     @Override
     public InternalAggregation buildEmptyAggregation() {
         return new LongTerms(name, order, bucketCountThresholds.getRequiredSize(), bucketCountThresholds.getMinDocCount(),
@@ -175,7 +277,7 @@ public class LongTermsAggregator extends TermsAggregator {
 
     @Override
     public void doClose() {
-        Releasables.close(bucketOrds);
+        Releasables.close(bucketOrds, spill);
     }
 
 }
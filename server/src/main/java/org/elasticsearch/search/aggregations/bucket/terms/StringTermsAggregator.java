@@ -19,6 +19,7 @@
 package org.elasticsearch.search.aggregations.bucket.terms;
 
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
 import org.elasticsearch.common.lease.Releasables;
@@ -29,6 +30,7 @@ import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.BucketOrder;
 import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.aggregations.InternalOrder;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
@@ -40,26 +42,50 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
  * An aggregator of string values.
  */
 public class StringTermsAggregator extends AbstractStringTermsAggregator {
 
+    /**
+     * Estimate of the memory used per distinct term on top of its bytes: its id, hash, start offset and doc count.
+     */
+    private static final long BYTES_PER_TERM = 24;
+
     private final ValuesSource valuesSource;
-    protected final BytesRefHash bucketOrds;
+    protected BytesRefHash bucketOrds;
     private final IncludeExclude.StringFilter includeExclude;
+    private final long spillThreshold;
+    private long termBytes;
+    private TermCountsSpill spill;
 
     public StringTermsAggregator(String name, AggregatorFactories factories, ValuesSource valuesSource,
             BucketOrder order, DocValueFormat format, BucketCountThresholds bucketCountThresholds,
             IncludeExclude.StringFilter includeExclude, SearchContext context,
             Aggregator parent, SubAggCollectionMode collectionMode, boolean showTermDocCountError,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+        this(name, factories, valuesSource, order, format, bucketCountThresholds, includeExclude, context, parent, collectionMode,
+                showTermDocCountError, -1, pipelineAggregators, metaData);
+    }
+
+    /**
+     * @param spillThreshold the number of bytes the distinct terms may use before their counts are spilled to disk, or -1 to
+     *                       never spill. Spilling requires that there are no sub-aggregations and that min_doc_count is not 0.
+     */
+    public StringTermsAggregator(String name, AggregatorFactories factories, ValuesSource valuesSource,
+            BucketOrder order, DocValueFormat format, BucketCountThresholds bucketCountThresholds,
+            IncludeExclude.StringFilter includeExclude, SearchContext context,
+            Aggregator parent, SubAggCollectionMode collectionMode, boolean showTermDocCountError, long spillThreshold,
+            List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
 
         super(name, factories, context, parent, order, format, bucketCountThresholds, collectionMode, showTermDocCountError,
                 pipelineAggregators, metaData);
+        assert spillThreshold < 0 || (subAggregators.length == 0 && bucketCountThresholds.getMinDocCount() > 0);
         this.valuesSource = valuesSource;
         this.includeExclude = includeExclude;
+        this.spillThreshold = spillThreshold;
         bucketOrds = new BytesRefHash(1, context.bigArrays());
     }
 
@@ -98,6 +124,12 @@ public class StringTermsAggregator extends AbstractStringTermsAggregator {
                             collectExistingBucket(sub, doc, bucketOrdinal);
                         } else {
                             collectBucket(sub, doc, bucketOrdinal);
+                            if (spillThreshold >= 0) {
+                                termBytes += bytes.length + BYTES_PER_TERM;
+                                if (termBytes > spillThreshold) {
+                                    spill();
+                                }
+                            }
                         }
                         previous.copyBytes(bytes);
                     }
@@ -106,10 +138,32 @@ public class StringTermsAggregator extends AbstractStringTermsAggregator {
         };
     }
 
+    /**
+     * Writes the counts of the terms in memory to disk and starts over with empty buckets.
+     */
+    private void spill() throws IOException {
+        if (spill == null) {
+            spill = new TermCountsSpill(context.bigArrays(), spillThreshold);
+        }
+        final BytesRef scratch = new BytesRef();
+        for (long i = 0; i < bucketOrds.size(); i++) {
+            spill.add(bucketOrds.get(i, scratch), bucketDocCount(i));
+        }
+        spill.endRun();
+        getDocCounts().fill(0, bucketOrds.size(), 0);
+        bucketOrds.close();
+        bucketOrds = new BytesRefHash(1, context.bigArrays());
+        termBytes = 0;
+    }
+
     @Override
     public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
         assert owningBucketOrdinal == 0;
 
+        if (spill != null) {
+            return buildSpilledAggregation();
+        }
+
         if (bucketCountThresholds.getMinDocCount() == 0 && (InternalOrder.isCountDesc(order) == false || bucketOrds.size() < bucketCountThresholds.getRequiredSize())) {
             // we need to fill-in the blanks
             for (LeafReaderContext ctx : context.searcher().getTopReaderContext().leaves()) {
@@ -163,10 +217,11 @@ public class StringTermsAggregator extends AbstractStringTermsAggregator {
         runDeferredCollections(survivingBucketOrds);
 
         // Now build the aggs
+        final InternalAggregations[] aggregations = bucketAggregations(survivingBucketOrds);
         for (int i = 0; i < list.length; i++) {
           final StringTerms.Bucket bucket = list[i];
           bucket.termBytes = BytesRef.deepCopyOf(bucket.termBytes);
-          bucket.aggregations = bucketAggregations(bucket.bucketOrd);
+          bucket.aggregations = aggregations[i];
           bucket.docCountError = 0;
         }
 
@@ -175,9 +230,64 @@ public class StringTermsAggregator extends AbstractStringTermsAggregator {
                 Arrays.asList(list), 0);
     }
 
+    /**
+     * Builds the aggregation from the counts that have been spilled to disk, merging the runs one partition at a time.
+     */
+    private InternalAggregation buildSpilledAggregation() throws IOException {
+        if (bucketOrds.size() > 0) {
+            spill();
+        }
+        final int size = (int) Math.min(spill.size(), bucketCountThresholds.getShardSize());
+
+        long otherDocCount = 0;
+        BucketPriorityQueue<StringTerms.Bucket> ordered = new BucketPriorityQueue<>(size, order.comparator(this));
+        StringTerms.Bucket spare = null;
+        try (TermCountsSpill.Cursor cursor = spill.merge()) {
+            while (cursor.next()) {
+                if (spare == null) {
+                    spare = new StringTerms.Bucket(new BytesRef(), 0, null, showTermDocCountError, 0, format);
+                }
+                spare.docCount = cursor.docCount();
+                otherDocCount += spare.docCount;
+                if (bucketCountThresholds.getShardMinDocCount() <= spare.docCount) {
+                    // the bytes of the term are only valid until the cursor moves to the next partition
+                    final BytesRef term = cursor.term();
+                    spare.termBytes.bytes = ArrayUtil.grow(spare.termBytes.bytes, term.length);
+                    System.arraycopy(term.bytes, term.offset, spare.termBytes.bytes, 0, term.length);
+                    spare.termBytes.offset = 0;
+                    spare.termBytes.length = term.length;
+                    spare = ordered.insertWithOverflow(spare);
+                    if (spare == null) {
+                        consumeBucketsAndMaybeBreak(1);
+                    }
+                }
+            }
+        }
+
+        final StringTerms.Bucket[] list = new StringTerms.Bucket[ordered.size()];
+        for (int i = ordered.size() - 1; i >= 0; --i) {
+            final StringTerms.Bucket bucket = ordered.pop();
+            bucket.aggregations = bucketEmptyAggregations();
+            bucket.docCountError = 0;
+            list[i] = bucket;
+            otherDocCount -= bucket.docCount;
+        }
+
+        return new StringTerms(name, order, bucketCountThresholds.getRequiredSize(), bucketCountThresholds.getMinDocCount(),
+                pipelineAggregators(), metaData(), format, bucketCountThresholds.getShardSize(), showTermDocCountError, otherDocCount,
+                Arrays.asList(list), 0);
+    }
+
+    @Override
+    public void collectDebugInfo(BiConsumer<String, Long> add) {
+        if (spillThreshold >= 0) {
+            add.accept("spilled_runs", spill == null ? 0L : spill.runs());
+        }
+    }
+
     @Override
     public void doClose() {
-        Releasables.close(bucketOrds);
+        Releasables.close(bucketOrds, spill);
     }
 
 }
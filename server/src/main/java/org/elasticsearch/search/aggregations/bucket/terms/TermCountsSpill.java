@@ -0,0 +1,318 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.StringHelper;
+import org.elasticsearch.common.io.PathUtils;
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.io.stream.OutputStreamStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.LongArray;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Doc counts of terms that a terms aggregation spilled to disk because it saw more distinct terms than its memory budget allows.
+ * Terms are partitioned by hash into temporary files under the node's temporary directory: every spill appends a run of
+ * (term, doc count) pairs to these files and {@link #merge()} then sums up the counts of one partition at a time, so that only
+ * the distinct terms of a single partition need to be held in memory. A partition whose distinct terms don't fit in the memory
+ * budget is split again, with another hash, rather than loaded whole.
+ */
+final class TermCountsSpill implements Releasable {
+
+    /**
+     * The number of partitions the terms are split into, by each spill and by each split of a partition that is too large.
+     */
+    static final int NUM_PARTITIONS = 32;
+
+    /**
+     * The number of times a partition may be split again before it is loaded whatever the memory its distinct terms use.
+     */
+    static final int MAX_SPLITS = 3;
+
+    /**
+     * Estimate of the memory used per distinct term of a loaded partition on top of its bytes: its id, hash, start offset and
+     * doc count.
+     */
+    private static final long BYTES_PER_TERM = 24;
+
+    private final BigArrays bigArrays;
+    private final long maxBytes;
+    private final List<Partitions> allPartitions = new ArrayList<>();
+    private final Partitions partitions;
+    private long runs;
+    private long size;
+    private long splits;
+
+    /**
+     * @param maxBytes the memory the distinct terms of a partition may use when it is merged
+     */
+    TermCountsSpill(BigArrays bigArrays, long maxBytes) {
+        this.bigArrays = bigArrays;
+        this.maxBytes = maxBytes;
+        this.partitions = newPartitions(0);
+    }
+
+    /**
+     * Appends the doc count of a term to the current run.
+     */
+    void add(BytesRef term, long docCount) throws IOException {
+        partitions.add(term, docCount);
+        size++;
+    }
+
+    /**
+     * Marks the end of a run, which is the content of the memory of the aggregation at the time it spilled.
+     */
+    void endRun() {
+        runs++;
+    }
+
+    /**
+     * The number of runs that have been spilled.
+     */
+    long runs() {
+        return runs;
+    }
+
+    /**
+     * The number of (term, doc count) pairs that have been spilled, an upper bound of the number of distinct terms.
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * The number of partitions that have been split again while merging because their distinct terms didn't fit in memory.
+     */
+    long splits() {
+        return splits;
+    }
+
+    /**
+     * Returns a cursor over the distinct terms that have been spilled together with the sum of their doc counts. No terms may be
+     * added anymore once this method has been called.
+     */
+    Cursor merge() throws IOException {
+        partitions.finish();
+        return new Cursor();
+    }
+
+    @Override
+    public void close() {
+        for (Partitions p : allPartitions) {
+            p.close();
+        }
+    }
+
+    private Partitions newPartitions(int level) {
+        final Partitions p = new Partitions(level);
+        allPartitions.add(p);
+        return p;
+    }
+
+    /**
+     * The node's temporary directory, see {@link org.elasticsearch.env.Environment#tmpFile()}.
+     */
+    private static Path tempDir() {
+        return PathUtils.get(System.getProperty("java.io.tmpdir"));
+    }
+
+    /**
+     * A set of files that (term, doc count) pairs are written to according to the hash of the term. Each level of splitting uses
+     * a different hash so that the terms of a partition are spread over the partitions of the next level.
+     */
+    private static final class Partitions implements Releasable {
+
+        private final int level;
+        private final Path[] files = new Path[NUM_PARTITIONS];
+        private final StreamOutput[] outputs = new StreamOutput[NUM_PARTITIONS];
+        private final long[] counts = new long[NUM_PARTITIONS];
+
+        Partitions(int level) {
+            this.level = level;
+        }
+
+        void add(BytesRef term, long docCount) throws IOException {
+            final int partition = Math.floorMod(StringHelper.murmurhash3_x86_32(term, level), NUM_PARTITIONS);
+            StreamOutput output = outputs[partition];
+            if (output == null) {
+                files[partition] = Files.createTempFile(tempDir(), "terms-agg-", ".spill");
+                output = outputs[partition] =
+                    new OutputStreamStreamOutput(new BufferedOutputStream(Files.newOutputStream(files[partition])));
+            }
+            output.writeBytesRef(term);
+            output.writeVLong(docCount);
+            counts[partition]++;
+        }
+
+        /**
+         * Flushes the partitions, no pairs may be added anymore.
+         */
+        void finish() throws IOException {
+            IOUtils.close(outputs);
+        }
+
+        /**
+         * Deletes the file of the given partition once it has been read.
+         */
+        void delete(int partition) {
+            IOUtils.deleteFilesIgnoringExceptions(files[partition]);
+            files[partition] = null;
+        }
+
+        @Override
+        public void close() {
+            IOUtils.closeWhileHandlingException(outputs);
+            IOUtils.deleteFilesIgnoringExceptions(files);
+        }
+    }
+
+    /**
+     * Iterates over the distinct spilled terms, one partition at a time.
+     */
+    final class Cursor implements Releasable {
+
+        private final BytesRef term = new BytesRef();
+        // pairs of the partitions and the index of the partition that still have to be visited
+        private final Deque<Partitions> pendingPartitions = new ArrayDeque<>();
+        private final Deque<Integer> pendingIndices = new ArrayDeque<>();
+        private BytesRefHash terms;
+        private LongArray docCounts;
+        private long index;
+        private long partitionSize;
+
+        Cursor() {
+            push(partitions);
+        }
+
+        /**
+         * Moves to the next term, returns false if all terms have been visited.
+         */
+        boolean next() throws IOException {
+            while (++index >= partitionSize) {
+                releasePartition();
+                if (pendingPartitions.isEmpty()) {
+                    return false;
+                }
+                loadPartition(pendingPartitions.pop(), pendingIndices.pop());
+                index = -1;
+            }
+            terms.get(index, term);
+            return true;
+        }
+
+        /**
+         * The current term, only valid until the next call to {@link #next()}.
+         */
+        BytesRef term() {
+            return term;
+        }
+
+        /**
+         * The sum of the doc counts of the current term.
+         */
+        long docCount() {
+            return docCounts.get(index);
+        }
+
+        private void push(Partitions p) {
+            for (int i = NUM_PARTITIONS - 1; i >= 0; i--) {
+                if (p.files[i] != null) {
+                    pendingPartitions.push(p);
+                    pendingIndices.push(i);
+                }
+            }
+        }
+
+        private void loadPartition(Partitions p, int partition) throws IOException {
+            terms = new BytesRefHash(1, bigArrays);
+            docCounts = bigArrays.newLongArray(1, true);
+            long bytes = 0;
+            try (StreamInput input = openPartition(p, partition)) {
+                for (long i = 0; i < p.counts[partition]; i++) {
+                    final BytesRef spilledTerm = input.readBytesRef();
+                    final long docCount = input.readVLong();
+                    long ord = terms.add(spilledTerm);
+                    if (ord < 0) {
+                        ord = -1 - ord;
+                    } else {
+                        docCounts = bigArrays.grow(docCounts, ord + 1);
+                        bytes += spilledTerm.length + BYTES_PER_TERM;
+                        if (bytes > maxBytes && p.level < MAX_SPLITS) {
+                            releasePartition();
+                            split(p, partition);
+                            return;
+                        }
+                    }
+                    docCounts.increment(ord, docCount);
+                }
+            }
+            p.delete(partition);
+            partitionSize = terms.size();
+        }
+
+        /**
+         * Splits a partition whose distinct terms don't fit in memory into the partitions of the next level.
+         */
+        private void split(Partitions p, int partition) throws IOException {
+            final Partitions next = newPartitions(p.level + 1);
+            try (StreamInput input = openPartition(p, partition)) {
+                for (long i = 0; i < p.counts[partition]; i++) {
+                    next.add(input.readBytesRef(), input.readVLong());
+                }
+            }
+            next.finish();
+            p.delete(partition);
+            splits++;
+            push(next);
+        }
+
+        private StreamInput openPartition(Partitions p, int partition) throws IOException {
+            return new InputStreamStreamInput(new BufferedInputStream(Files.newInputStream(p.files[partition])));
+        }
+
+        private void releasePartition() {
+            Releasables.close(terms, docCounts);
+            terms = null;
+            docCounts = null;
+            partitionSize = 0;
+        }
+
+        @Override
+        public void close() {
+            releasePartition();
+        }
+    }
+}
@@ -19,10 +19,15 @@
 
 package org.elasticsearch.search.aggregations.bucket.terms;
 
+import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.logging.DeprecationLogger;
 import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.AggregationExecutionException;
 import org.elasticsearch.search.aggregations.Aggregator;
@@ -35,6 +40,7 @@ import org.elasticsearch.search.aggregations.InternalOrder;
 import org.elasticsearch.search.aggregations.InternalOrder.CompoundOrder;
 import org.elasticsearch.search.aggregations.NonCollectingAggregator;
 import org.elasticsearch.search.aggregations.bucket.BucketUtils;
+import org.elasticsearch.search.aggregations.bucket.SingleBucketAggregator;
 import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregator.BucketCountThresholds;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
@@ -153,7 +159,7 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
             }
 
             return execution.create(name, factories, valuesSource, order, format, bucketCountThresholds, includeExclude, context, parent,
-                    cm, showTermDocCountError, pipelineAggregators, metaData);
+                    cm, showTermDocCountError, getPostingsField(parent), pipelineAggregators, metaData);
         }
 
         if ((includeExclude != null) && (includeExclude.isRegexBased())) {
@@ -177,20 +183,61 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
                 }
                 return new DoubleTermsAggregator(name, factories, (ValuesSource.Numeric) valuesSource, config.format(), order,
                         bucketCountThresholds, context, parent, cm, showTermDocCountError, longFilter,
-                        pipelineAggregators, metaData);
+                        getSpillThreshold(factories, bucketCountThresholds, context, parent), pipelineAggregators, metaData);
             }
             if (includeExclude != null) {
                 longFilter = includeExclude.convertToLongFilter(config.format());
             }
             return new LongTermsAggregator(name, factories, (ValuesSource.Numeric) valuesSource, config.format(), order,
-                    bucketCountThresholds, context, parent, cm, showTermDocCountError, longFilter, pipelineAggregators,
-                    metaData);
+                    bucketCountThresholds, context, parent, cm, showTermDocCountError, longFilter,
+                    getSpillThreshold(factories, bucketCountThresholds, context, parent), pipelineAggregators, metaData);
         }
 
         throw new AggregationExecutionException("terms aggregation cannot be applied to field [" + config.fieldContext().field()
                 + "]. It can only be applied to numeric or string fields.");
     }
 
+    /**
+     * Returns the field whose document frequencies are the counts of the terms, that is if this aggregation is a top level
+     * aggregation without sub-aggregations on the values of an indexed keyword field and all documents match, or null.
+     */
+    private String getPostingsField(Aggregator parent) {
+        if (parent != null
+                || factories.countAggregators() > 0
+                || config.fieldContext() == null
+                || config.script() != null
+                || config.missing() != null
+                || context.query() instanceof MatchAllDocsQuery == false
+                || context.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER
+                || context.minimumScore() != null) {
+            return null;
+        }
+        final MappedFieldType fieldType = config.fieldContext().fieldType();
+        if (fieldType instanceof KeywordFieldMapper.KeywordFieldType && fieldType.indexOptions() != IndexOptions.NONE) {
+            return fieldType.name();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of bytes the distinct terms of a map based terms aggregation may use before it spills their counts to
+     * disk, or -1 if the aggregation must keep all of them in memory because it has sub-aggregations or needs to return empty
+     * buckets. Only aggregations that are created once per shard may spill, otherwise the budget would apply to each bucket of
+     * their parent.
+     */
+    static long getSpillThreshold(AggregatorFactories factories, BucketCountThresholds bucketCountThresholds, SearchContext context,
+                                  Aggregator parent) {
+        if (factories.countAggregators() > 0 || bucketCountThresholds.getMinDocCount() == 0) {
+            return -1;
+        }
+        for (Aggregator p = parent; p != null; p = p.parent()) {
+            if (p instanceof SingleBucketAggregator == false) {
+                return -1;
+            }
+        }
+        return context.mapperService().getIndexSettings().getTermsAggSpillThreshold().getBytes();
+    }
+
     // return the SubAggCollectionMode that this aggregation should use based on the expected size
     // and the cardinality of the field
     static SubAggCollectionMode subAggCollectionMode(int expectedSize, long maxOrd) {
@@ -234,11 +281,13 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
                               Aggregator parent,
                               SubAggCollectionMode subAggCollectMode,
                               boolean showTermDocCountError,
+                              String postingsField,
                               List<PipelineAggregator> pipelineAggregators,
                               Map<String, Object> metaData) throws IOException {
                 final IncludeExclude.StringFilter filter = includeExclude == null ? null : includeExclude.convertToStringFilter(format);
                 return new StringTermsAggregator(name, factories, valuesSource, order, format, bucketCountThresholds, filter,
-                        context, parent, subAggCollectMode, showTermDocCountError, pipelineAggregators, metaData);
+                        context, parent, subAggCollectMode, showTermDocCountError,
+                        getSpillThreshold(factories, bucketCountThresholds, context, parent), pipelineAggregators, metaData);
             }
         },
         GLOBAL_ORDINALS(new ParseField("global_ordinals")) {
@@ -254,6 +303,7 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
                               SearchContext context, Aggregator parent,
                               SubAggCollectionMode subAggCollectMode,
                               boolean showTermDocCountError,
+                              String postingsField,
                               List<PipelineAggregator> pipelineAggregators,
                               Map<String, Object> metaData) throws IOException {
 
@@ -276,7 +326,7 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
                      */
                     return new GlobalOrdinalsStringTermsAggregator.LowCardinality(name, factories, (ValuesSource.Bytes.WithOrdinals) valuesSource, order,
                         format, bucketCountThresholds, context, parent, false, subAggCollectMode, showTermDocCountError,
-                        pipelineAggregators, metaData);
+                        postingsField, pipelineAggregators, metaData);
 
                 }
                 final IncludeExclude.OrdinalsFilter filter = includeExclude == null ? null : includeExclude.convertToOrdinalsFilter(format);
@@ -301,7 +351,7 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
                 }
                 return new GlobalOrdinalsStringTermsAggregator(name, factories, (ValuesSource.Bytes.WithOrdinals) valuesSource, order,
                         format, bucketCountThresholds, filter, context, parent, remapGlobalOrds, subAggCollectMode, showTermDocCountError,
-                        pipelineAggregators, metaData);
+                        postingsField, pipelineAggregators, metaData);
             }
         };
 
@@ -333,6 +383,7 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
                                    Aggregator parent,
                                    SubAggCollectionMode subAggCollectMode,
                                    boolean showTermDocCountError,
+                                   @Nullable String postingsField,
                                    List<PipelineAggregator> pipelineAggregators,
                                    Map<String, Object> metaData) throws IOException;
 
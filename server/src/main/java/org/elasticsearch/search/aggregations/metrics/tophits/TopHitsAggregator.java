@@ -45,13 +45,13 @@ import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.metrics.MetricsAggregator;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.fetch.FetchPhase;
-import org.elasticsearch.search.fetch.FetchSearchResult;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.internal.SubSearchContext;
 import org.elasticsearch.search.rescore.RescoreContext;
 import org.elasticsearch.search.sort.SortAndFormats;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -142,48 +142,93 @@ public class TopHitsAggregator extends MetricsAggregator {
     }
 
     @Override
-    public InternalAggregation buildAggregation(long owningBucketOrdinal) {
-        TopDocsCollector<?> topDocsCollector = topDocsCollectors.get(owningBucketOrdinal);
-        final InternalTopHits topHits;
-        if (topDocsCollector == null) {
-            topHits = buildEmptyAggregation();
-        } else {
-            TopDocs topDocs = topDocsCollector.topDocs();
-            if (subSearchContext.sort() == null) {
-                for (RescoreContext ctx : context().rescore()) {
-                    try {
-                        topDocs = ctx.rescorer().rescore(topDocs, context.searcher(), ctx);
-                    } catch (IOException e) {
-                        throw new ElasticsearchException("Rescore TopHits Failed", e);
-                    }
+    public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
+        return buildAggregations(new long[] { owningBucketOrdinal })[0];
+    }
+
+    /**
+     * Builds the top hits of all the given buckets with a single fetch phase. The hits of all buckets are loaded in doc id order,
+     * so that each segment is visited once and its stored fields are read sequentially, and are then split back per bucket.
+     */
+    @Override
+    public InternalAggregation[] buildAggregations(long[] owningBucketOrdinals) throws IOException {
+        final InternalAggregation[] topHits = new InternalAggregation[owningBucketOrdinals.length];
+        final TopDocs[] topDocs = new TopDocs[owningBucketOrdinals.length];
+        int numHits = 0;
+        for (int i = 0; i < owningBucketOrdinals.length; i++) {
+            TopDocsCollector<?> topDocsCollector = topDocsCollectors.get(owningBucketOrdinals[i]);
+            if (topDocsCollector == null) {
+                topHits[i] = buildEmptyAggregation();
+            } else {
+                topDocs[i] = topDocs(topDocsCollector);
+                numHits += topDocs[i].scoreDocs.length;
+            }
+        }
+
+        // the doc id in the upper and the position of the hit among the hits of all buckets in the lower 32 bits
+        final long[] hitsToLoad = new long[numHits];
+        int position = 0;
+        for (TopDocs bucketTopDocs : topDocs) {
+            if (bucketTopDocs != null) {
+                for (ScoreDoc scoreDoc : bucketTopDocs.scoreDocs) {
+                    hitsToLoad[position] = ((long) scoreDoc.doc << 32) | position;
+                    position++;
                 }
             }
-            subSearchContext.queryResult().topDocs(topDocs,
-                subSearchContext.sort() == null ? null : subSearchContext.sort().formats);
-            int[] docIdsToLoad = new int[topDocs.scoreDocs.length];
-            for (int i = 0; i < topDocs.scoreDocs.length; i++) {
-                docIdsToLoad[i] = topDocs.scoreDocs[i].doc;
+        }
+        Arrays.sort(hitsToLoad);
+        final SearchHit[] hits = new SearchHit[numHits];
+        if (numHits > 0) {
+            final int[] docIdsToLoad = new int[numHits];
+            for (int i = 0; i < numHits; i++) {
+                docIdsToLoad[i] = (int) (hitsToLoad[i] >>> 32);
             }
             subSearchContext.docIdsToLoad(docIdsToLoad, 0, docIdsToLoad.length);
             fetchPhase.execute(subSearchContext);
-            FetchSearchResult fetchResult = subSearchContext.fetchResult();
-            SearchHit[] internalHits = fetchResult.fetchResult().hits().getHits();
-            for (int i = 0; i < internalHits.length; i++) {
-                ScoreDoc scoreDoc = topDocs.scoreDocs[i];
-                SearchHit searchHitFields = internalHits[i];
+            final SearchHit[] fetchedHits = subSearchContext.fetchResult().fetchResult().hits().getHits();
+            for (int i = 0; i < numHits; i++) {
+                hits[(int) hitsToLoad[i]] = fetchedHits[i];
+            }
+        }
+
+        position = 0;
+        for (int i = 0; i < owningBucketOrdinals.length; i++) {
+            if (topDocs[i] == null) {
+                continue;
+            }
+            final ScoreDoc[] scoreDocs = topDocs[i].scoreDocs;
+            final SearchHit[] bucketHits = new SearchHit[scoreDocs.length];
+            for (int j = 0; j < scoreDocs.length; j++) {
+                ScoreDoc scoreDoc = scoreDocs[j];
+                SearchHit searchHitFields = hits[position++];
                 searchHitFields.shard(subSearchContext.shardTarget());
                 searchHitFields.score(scoreDoc.score);
                 if (scoreDoc instanceof FieldDoc) {
                     FieldDoc fieldDoc = (FieldDoc) scoreDoc;
                     searchHitFields.sortValues(fieldDoc.fields, subSearchContext.sort().formats);
                 }
+                bucketHits[j] = searchHitFields;
             }
-            topHits = new InternalTopHits(name, subSearchContext.from(), subSearchContext.size(), topDocs, fetchResult.hits(),
-                    pipelineAggregators(), metaData());
+            topHits[i] = new InternalTopHits(name, subSearchContext.from(), subSearchContext.size(), topDocs[i],
+                    new SearchHits(bucketHits, topDocs[i].totalHits, topDocs[i].getMaxScore()), pipelineAggregators(), metaData());
         }
         return topHits;
     }
 
+    private TopDocs topDocs(TopDocsCollector<?> topDocsCollector) {
+        TopDocs topDocs = topDocsCollector.topDocs();
+        if (subSearchContext.sort() == null) {
+            for (RescoreContext ctx : context().rescore()) {
+                try {
+                    topDocs = ctx.rescorer().rescore(topDocs, context.searcher(), ctx);
+                } catch (IOException e) {
+                    throw new ElasticsearchException("Rescore TopHits Failed", e);
+                }
+            }
+        }
+        return topDocs;
+    }
+
     @Override
     public InternalTopHits buildEmptyAggregation() {
         TopDocs topDocs;
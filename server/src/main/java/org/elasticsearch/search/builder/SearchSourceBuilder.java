@@ -913,9 +913,17 @@ public final class SearchSourceBuilder implements Writeable, ToXContentObject, R
         return shallowCopy(queryBuilder, postQueryBuilder, aggregations, slice, sorts, rescoreBuilders, highlightBuilder);
     }
 
+    /**
+     * Create a shallow copy of this builder with new aggregations.
+     */
+    public SearchSourceBuilder copyWithNewAggregations(AggregatorFactories.Builder aggregations) {
+        return shallowCopy(queryBuilder, postQueryBuilder, aggregations, sliceBuilder, sorts, rescoreBuilders, highlightBuilder);
+    }
+
     /**
      * Create a shallow copy of this source replaced {@link #queryBuilder}, {@link #postQueryBuilder}, and {@link #sliceBuilder}. Used by
-     * {@link #rewrite(QueryRewriteContext)} and {@link #copyWithNewSlice(SliceBuilder)}.
+     * {@link #rewrite(QueryRewriteContext)}, {@link #copyWithNewSlice(SliceBuilder)} and
+     * {@link #copyWithNewAggregations(AggregatorFactories.Builder)}.
      */
     private SearchSourceBuilder shallowCopy(QueryBuilder queryBuilder, QueryBuilder postQueryBuilder,
                                             AggregatorFactories.Builder aggregations, SliceBuilder slice, List<SortBuilder<?>> sorts,
@@ -54,6 +54,7 @@ import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.search.rescore.RescoreContext;
 import org.elasticsearch.search.sort.SortAndFormats;
 import org.elasticsearch.search.suggest.SuggestionSearchContext;
+import org.elasticsearch.tasks.TaskResourceStats;
 
 import java.util.List;
 import java.util.Map;
@@ -535,6 +536,11 @@ public abstract class FilteredSearchContext extends SearchContext {
         return in.getTask();
     }
 
+    @Override
+    public TaskResourceStats getTaskResourceStats() {
+        return in.getTaskResourceStats();
+    }
+
     @Override
     public boolean isCancelled() {
         return in.isCancelled();
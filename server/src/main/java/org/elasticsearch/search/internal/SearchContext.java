@@ -61,6 +61,7 @@ import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.search.rescore.RescoreContext;
 import org.elasticsearch.search.sort.SortAndFormats;
 import org.elasticsearch.search.suggest.SuggestionSearchContext;
+import org.elasticsearch.tasks.TaskResourceStats;
 
 import java.util.ArrayList;
 import java.util.EnumMap;
@@ -94,6 +95,14 @@ public abstract class SearchContext extends AbstractRefCounted implements Releas
 
     public abstract SearchTask getTask();
 
+    /**
+     * Returns the resources used so far by the task this context works on, or null if it doesn't work on a task.
+     */
+    public TaskResourceStats getTaskResourceStats() {
+        final SearchTask task = getTask();
+        return task == null ? null : task.getResourceStats();
+    }
+
     public abstract boolean isCancelled();
 
     @Override
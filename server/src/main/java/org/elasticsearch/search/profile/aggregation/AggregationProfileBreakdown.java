@@ -21,10 +21,32 @@ package org.elasticsearch.search.profile.aggregation;
 
 import org.elasticsearch.search.profile.AbstractProfileBreakdown;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 public class AggregationProfileBreakdown extends AbstractProfileBreakdown<AggregationTimingType> {
 
+    private final Map<String, Long> debugInfo = new HashMap<>();
+
     public AggregationProfileBreakdown() {
         super(AggregationTimingType.class);
     }
 
+    /**
+     * Adds a counter reported by the aggregator next to the timings of this breakdown.
+     */
+    public void addDebugInfo(String key, long value) {
+        debugInfo.merge(key, value, Long::sum);
+    }
+
+    @Override
+    public Map<String, Long> toTimingMap() {
+        if (debugInfo.isEmpty()) {
+            return super.toTimingMap();
+        }
+        Map<String, Long> map = new HashMap<>(super.toTimingMap());
+        map.putAll(debugInfo);
+        return Collections.unmodifiableMap(map);
+    }
 }
@@ -82,6 +82,19 @@ public class ProfilingAggregator extends Aggregator {
         return result;
     }
 
+    @Override
+    public InternalAggregation[] buildAggregations(long[] buckets) throws IOException {
+        Timer timer = profileBreakdown.getTimer(AggregationTimingType.BUILD_AGGREGATION);
+        timer.start();
+        InternalAggregation[] result;
+        try {
+            result = delegate.buildAggregations(buckets);
+        } finally {
+            timer.stop();
+        }
+        return result;
+    }
+
     @Override
     public InternalAggregation buildEmptyAggregation() {
         return delegate.buildEmptyAggregation();
@@ -108,6 +121,7 @@ public class ProfilingAggregator extends Aggregator {
     @Override
     public void postCollection() throws IOException {
         delegate.postCollection();
+        delegate.collectDebugInfo(profileBreakdown::addDebugInfo);
     }
 
     @Override
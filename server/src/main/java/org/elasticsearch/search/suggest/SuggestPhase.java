@@ -28,6 +28,7 @@ import org.elasticsearch.search.suggest.Suggest.Suggestion;
 import org.elasticsearch.search.suggest.Suggest.Suggestion.Entry;
 import org.elasticsearch.search.suggest.Suggest.Suggestion.Entry.Option;
 import org.elasticsearch.search.suggest.SuggestionSearchContext.SuggestionContext;
+import org.elasticsearch.search.suggest.completion.CompletionSuggestionContext;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -59,6 +60,9 @@ public class SuggestPhase extends AbstractComponent implements SearchPhase {
 
             for (Map.Entry<String, SuggestionSearchContext.SuggestionContext> entry : suggest.suggestions().entrySet()) {
                 SuggestionSearchContext.SuggestionContext suggestion = entry.getValue();
+                if (suggestion instanceof CompletionSuggestionContext && context.indexShard() != null) {
+                    ((CompletionSuggestionContext) suggestion).setResultCache(context.indexShard().completionSuggestionCache());
+                }
                 Suggester<SuggestionContext> suggester = suggestion.getSuggester();
                 Suggestion<? extends Entry<? extends Option>> result =
                     suggester.execute(entry.getKey(), suggestion, context.searcher(), spare);
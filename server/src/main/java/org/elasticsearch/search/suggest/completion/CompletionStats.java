@@ -18,6 +18,7 @@
  */
 package org.elasticsearch.search.suggest.completion;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.FieldMemoryStats;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -35,17 +36,28 @@ public class CompletionStats implements Streamable, ToXContentFragment {
     private static final String SIZE_IN_BYTES = "size_in_bytes";
     private static final String SIZE = "size";
     private static final String FIELDS = "fields";
+    private static final String RESULT_CACHE = "result_cache";
+    private static final String HIT_COUNT = "hit_count";
+    private static final String MISS_COUNT = "miss_count";
 
     private long sizeInBytes;
     @Nullable
     private FieldMemoryStats fields;
+    private long cacheHitCount;
+    private long cacheMissCount;
 
     public CompletionStats() {
     }
 
     public CompletionStats(long size, @Nullable FieldMemoryStats fields) {
+        this(size, fields, 0, 0);
+    }
+
+    public CompletionStats(long size, @Nullable FieldMemoryStats fields, long cacheHitCount, long cacheMissCount) {
         this.sizeInBytes = size;
         this.fields = fields;
+        this.cacheHitCount = cacheHitCount;
+        this.cacheMissCount = cacheMissCount;
     }
 
     public long getSizeInBytes() {
@@ -60,16 +72,38 @@ public class CompletionStats implements Streamable, ToXContentFragment {
         return fields;
     }
 
+    /**
+     * The number of segment-level lookups that were served from the completion result cache.
+     */
+    public long getCacheHitCount() {
+        return cacheHitCount;
+    }
+
+    /**
+     * The number of segment-level lookups that had to walk the FST because they were not in the completion result cache.
+     */
+    public long getCacheMissCount() {
+        return cacheMissCount;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         sizeInBytes = in.readVLong();
         fields = in.readOptionalWriteable(FieldMemoryStats::new);
+        if (in.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            cacheHitCount = in.readVLong();
+            cacheMissCount = in.readVLong();
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVLong(sizeInBytes);
         out.writeOptionalWriteable(fields);
+        if (out.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            out.writeVLong(cacheHitCount);
+            out.writeVLong(cacheMissCount);
+        }
     }
 
     @Override
@@ -79,6 +113,10 @@ public class CompletionStats implements Streamable, ToXContentFragment {
         if (fields != null) {
             fields.toXContent(builder, FIELDS, SIZE_IN_BYTES, SIZE);
         }
+        builder.startObject(RESULT_CACHE);
+        builder.field(HIT_COUNT, cacheHitCount);
+        builder.field(MISS_COUNT, cacheMissCount);
+        builder.endObject();
         builder.endObject();
         return builder;
     }
@@ -88,6 +126,8 @@ public class CompletionStats implements Streamable, ToXContentFragment {
             return;
         }
         sizeInBytes += completion.getSizeInBytes();
+        cacheHitCount += completion.cacheHitCount;
+        cacheMissCount += completion.cacheMissCount;
         if (completion.fields != null) {
             if (fields == null) {
                 fields = completion.fields.copy();
@@ -28,6 +28,7 @@ import org.apache.lucene.search.suggest.document.CompletionQuery;
 import org.apache.lucene.search.suggest.document.TopSuggestDocs;
 import org.apache.lucene.search.suggest.document.TopSuggestDocsCollector;
 import org.apache.lucene.util.CharsRefBuilder;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.common.text.Text;
 import org.elasticsearch.index.mapper.CompletionFieldMapper;
 import org.elasticsearch.search.suggest.Suggest;
@@ -40,6 +41,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 
 public class CompletionSuggester extends Suggester<CompletionSuggestionContext> {
 
@@ -60,7 +62,13 @@ public class CompletionSuggester extends Suggester<CompletionSuggestionContext>
             completionSuggestion.addTerm(completionSuggestEntry);
             int shardSize = suggestionContext.getShardSize() != null ? suggestionContext.getShardSize() : suggestionContext.getSize();
             TopSuggestDocsCollector collector = new TopDocumentsCollector(shardSize, suggestionContext.isSkipDuplicates());
-            suggest(searcher, suggestionContext.toQuery(), collector);
+            final CompletionSuggestionCache resultCache = suggestionContext.getResultCache();
+            if (resultCache != null && resultCache.isEnabled()) {
+                suggest(searcher, suggestionContext.toQuery(), collector, resultCache, suggestionContext.resultCacheKey(shardSize),
+                    shardSize, suggestionContext.isSkipDuplicates());
+            } else {
+                suggest(searcher, suggestionContext.toQuery(), collector);
+            }
             int numResult = 0;
             for (TopSuggestDocs.SuggestScoreDoc suggestScoreDoc : collector.get().scoreLookupDocs()) {
                 TopDocumentsCollector.SuggestDoc suggestDoc = (TopDocumentsCollector.SuggestDoc) suggestScoreDoc;
@@ -98,6 +106,51 @@ public class CompletionSuggester extends Suggester<CompletionSuggestionContext>
         }
     }
 
+    /**
+     * Same as {@link #suggest(IndexSearcher, CompletionQuery, TopSuggestDocsCollector)} but takes the suggestions of each segment
+     * from the given cache, and only walks the FST of the segments that are not cached yet.
+     */
+    private static void suggest(IndexSearcher searcher, CompletionQuery query, TopSuggestDocsCollector collector,
+                                CompletionSuggestionCache resultCache, Object resultCacheKey,
+                                int num, boolean skipDuplicates) throws IOException {
+        Weight weight = null;
+        for (LeafReaderContext context : searcher.getIndexReader().leaves()) {
+            final List<CompletionSuggestionCache.Hit> hits;
+            try {
+                if (weight == null) {
+                    query = (CompletionQuery) query.rewrite(searcher.getIndexReader());
+                    weight = query.createWeight(searcher, collector.needsScores(), 1f);
+                }
+                final Weight leafWeight = weight;
+                hits = resultCache.getOrCompute(context, resultCacheKey, key -> {
+                    // the top suggestions of a segment on its own are a superset of what this segment
+                    // contributes to the top suggestions of the whole shard
+                    TopDocumentsCollector leafCollector = new TopDocumentsCollector(num, skipDuplicates, true);
+                    BulkScorer scorer = leafWeight.bulkScorer(context);
+                    if (scorer != null) {
+                        try {
+                            scorer.score(leafCollector.getLeafCollector(context), context.reader().getLiveDocs());
+                        } catch (CollectionTerminatedException e) {
+                            // collection was terminated prematurely
+                        }
+                    }
+                    return leafCollector.getHits();
+                });
+            } catch (ExecutionException e) {
+                throw ExceptionsHelper.convertToElastic(e);
+            }
+            collector.getLeafCollector(context);
+            try {
+                for (CompletionSuggestionCache.Hit hit : hits) {
+                    collector.collect(hit.doc, hit.key, hit.context, hit.score);
+                }
+            } catch (CollectionTerminatedException e) {
+                // collection was terminated prematurely
+                // continue with the following leaf
+            }
+        }
+    }
+
     /**
      * TODO: this should be refactored and moved to lucene see https://issues.apache.org/jira/browse/LUCENE-6880
      *
@@ -165,14 +218,31 @@ public class CompletionSuggester extends Suggester<CompletionSuggestionContext>
         }
 
         private final Map<Integer, SuggestDoc> docsMap;
+        private final List<CompletionSuggestionCache.Hit> hits;
 
         TopDocumentsCollector(int num, boolean skipDuplicates) {
+            this(num, skipDuplicates, false);
+        }
+
+        /**
+         * @param recordHits whether to record the suggestions of a single segment in order to cache them
+         */
+        TopDocumentsCollector(int num, boolean skipDuplicates, boolean recordHits) {
             super(Math.max(1, num), skipDuplicates);
             this.docsMap = new LinkedHashMap<>(num);
+            this.hits = recordHits ? new ArrayList<>() : null;
+        }
+
+        List<CompletionSuggestionCache.Hit> getHits() {
+            assert hits != null;
+            return Collections.unmodifiableList(hits);
         }
 
         @Override
         public void collect(int docID, CharSequence key, CharSequence context, float score) throws IOException {
+            if (hits != null) {
+                hits.add(new CompletionSuggestionCache.Hit(docID, key, context, score));
+            }
             int globalDoc = docID + docBase;
             if (docsMap.containsKey(globalDoc)) {
                 docsMap.get(globalDoc).add(key, context, score);
@@ -0,0 +1,152 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.suggest.completion;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.cache.CacheLoader;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.IndexSettings;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A short-lived, per-shard cache of the top suggestions that each segment returns for a completion suggestion.
+ * Entries are keyed on the segment core and its number of deleted documents, so they stay valid across refreshes
+ * for segments that did not change and only new segments need to walk their FST again. This makes repeated
+ * search-as-you-type requests mostly cache hits.
+ */
+public final class CompletionSuggestionCache {
+
+    /**
+     * The maximum number of per-segment results to cache per shard, {@code 0} disables the cache.
+     */
+    public static final Setting<Integer> INDEX_COMPLETION_RESULT_CACHE_SIZE_SETTING =
+        Setting.intSetting("index.completion.result_cache.size", 0, 0, Property.IndexScope);
+    public static final Setting<TimeValue> INDEX_COMPLETION_RESULT_CACHE_EXPIRE_SETTING =
+        Setting.positiveTimeSetting("index.completion.result_cache.expire", TimeValue.timeValueMinutes(1), Property.IndexScope);
+
+    private final Cache<Key, List<Hit>> cache;
+    private final CounterMetric hitCount = new CounterMetric();
+    private final CounterMetric missCount = new CounterMetric();
+
+    public CompletionSuggestionCache(IndexSettings indexSettings) {
+        final int size = indexSettings.getValue(INDEX_COMPLETION_RESULT_CACHE_SIZE_SETTING);
+        if (size == 0) {
+            cache = null;
+        } else {
+            cache = CacheBuilder.<Key, List<Hit>>builder()
+                .setMaximumWeight(size)
+                .setExpireAfterAccess(indexSettings.getValue(INDEX_COMPLETION_RESULT_CACHE_EXPIRE_SETTING))
+                .build();
+        }
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Returns the cached suggestions of the given segment for the given suggestion key, or computes them
+     * with the provided loader.
+     */
+    List<Hit> getOrCompute(LeafReaderContext context, Object suggestionKey, CacheLoader<Key, List<Hit>> loader)
+            throws ExecutionException {
+        assert isEnabled();
+        final IndexReader.CacheHelper cacheHelper = context.reader().getCoreCacheHelper();
+        if (cacheHelper == null) {
+            throw new IllegalArgumentException("Reader " + context.reader() + " does not support caching");
+        }
+        final Key key = new Key(cacheHelper.getKey(), context.reader().numDeletedDocs(), suggestionKey);
+        final boolean[] loaded = new boolean[1];
+        final List<Hit> hits = cache.computeIfAbsent(key, k -> {
+            loaded[0] = true;
+            return loader.load(k);
+        });
+        if (loaded[0]) {
+            missCount.inc();
+        } else {
+            hitCount.inc();
+        }
+        return hits;
+    }
+
+    public long getHitCount() {
+        return hitCount.count();
+    }
+
+    public long getMissCount() {
+        return missCount.count();
+    }
+
+    /**
+     * A suggestion returned by a segment, with a segment-relative doc id.
+     */
+    static final class Hit {
+
+        final int doc;
+        final CharSequence key;
+        final CharSequence context;
+        final float score;
+
+        Hit(int doc, CharSequence key, CharSequence context, float score) {
+            this.doc = doc;
+            this.key = key;
+            this.context = context;
+            this.score = score;
+        }
+    }
+
+    static final class Key {
+
+        // deletes only ever increase on a given segment core so this identifies the live docs
+        private final IndexReader.CacheKey coreKey;
+        private final int numDeletedDocs;
+        private final Object suggestionKey;
+
+        Key(IndexReader.CacheKey coreKey, int numDeletedDocs, Object suggestionKey) {
+            this.coreKey = coreKey;
+            this.numDeletedDocs = numDeletedDocs;
+            this.suggestionKey = suggestionKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return coreKey == key.coreKey &&
+                numDeletedDocs == key.numDeletedDocs &&
+                Objects.equals(suggestionKey, key.suggestionKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(coreKey, numDeletedDocs, suggestionKey);
+        }
+    }
+}
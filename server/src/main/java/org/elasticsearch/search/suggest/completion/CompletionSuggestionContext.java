@@ -27,6 +27,7 @@ import org.elasticsearch.search.suggest.SuggestionSearchContext;
 import org.elasticsearch.search.suggest.completion.context.ContextMapping;
 import org.elasticsearch.search.suggest.completion.context.ContextMappings;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -42,6 +43,7 @@ public class CompletionSuggestionContext extends SuggestionSearchContext.Suggest
     private RegexOptions regexOptions;
     private boolean skipDuplicates;
     private Map<String, List<ContextMapping.InternalQueryContext>> queryContexts = Collections.emptyMap();
+    private CompletionSuggestionCache resultCache;
 
     CompletionFieldMapper.CompletionFieldType getFieldType() {
         return this.fieldType;
@@ -83,6 +85,25 @@ public class CompletionSuggestionContext extends SuggestionSearchContext.Suggest
         return skipDuplicates;
     }
 
+    public void setResultCache(CompletionSuggestionCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * The per-shard cache of the suggestions of each segment, or {@code null} if results should not be cached.
+     */
+    CompletionSuggestionCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * A key that identifies the suggestions that {@link #toQuery()} returns when collecting the top {@code num} documents.
+     */
+    Object resultCacheKey(int num) {
+        return Arrays.asList(getField(), getText(), getPrefix(), getRegex(), fuzzyOptions, regexOptions, queryContexts,
+            num, skipDuplicates);
+    }
+
     CompletionQuery toQuery() {
         CompletionFieldMapper.CompletionFieldType fieldType = getFieldType();
         final CompletionQuery query;
@@ -67,6 +67,7 @@ public final class DirectCandidateGenerator extends CandidateGenerator {
     private final CharsRefBuilder spare = new CharsRefBuilder();
     private final BytesRefBuilder byteSpare = new BytesRefBuilder();
     private final int numCandidates;
+    private final TermFrequencyCache frequencyCache;
 
     public DirectCandidateGenerator(DirectSpellChecker spellchecker, String field, SuggestMode suggestMode, IndexReader reader,
             double nonErrorLikelihood, int numCandidates) throws IOException {
@@ -75,6 +76,16 @@ public final class DirectCandidateGenerator extends CandidateGenerator {
 
     public DirectCandidateGenerator(DirectSpellChecker spellchecker, String field, SuggestMode suggestMode, IndexReader reader,
             double nonErrorLikelihood, int numCandidates, Analyzer preFilter, Analyzer postFilter, Terms terms) throws IOException {
+        this(spellchecker, field, suggestMode, reader, nonErrorLikelihood, numCandidates, preFilter, postFilter, terms, null);
+    }
+
+    /**
+     * @param frequencyCache a cache of term frequencies that may be shared with other generators and the
+     *                       {@link WordScorer} of the same request, or {@code null}
+     */
+    public DirectCandidateGenerator(DirectSpellChecker spellchecker, String field, SuggestMode suggestMode, IndexReader reader,
+            double nonErrorLikelihood, int numCandidates, Analyzer preFilter, Analyzer postFilter, Terms terms,
+            TermFrequencyCache frequencyCache) throws IOException {
         if (terms == null) {
             throw new IllegalArgumentException("generator field [" + field + "] doesn't exist");
         }
@@ -89,6 +100,7 @@ public final class DirectCandidateGenerator extends CandidateGenerator {
         this.preFilter = preFilter;
         this.postFilter = postFilter;
         this.nonErrorLikelihood = nonErrorLikelihood;
+        this.frequencyCache = frequencyCache;
         float thresholdFrequency = spellchecker.getThresholdFrequency();
         this.frequencyPlateau = thresholdFrequency >= 1.0f ? (int) thresholdFrequency: (int)(dictSize * thresholdFrequency);
         termsEnum = terms.iterator();
@@ -113,6 +125,13 @@ public final class DirectCandidateGenerator extends CandidateGenerator {
 
 
     public long internalFrequency(BytesRef term) throws IOException {
+        if (frequencyCache != null) {
+            return frequencyCache.frequency(field, useTotalTermFrequency, term, this::seekFrequency);
+        }
+        return seekFrequency(term);
+    }
+
+    private long seekFrequency(BytesRef term) throws IOException {
         if (termsEnum.seekExact(term)) {
             return useTotalTermFrequency ? termsEnum.totalTermFreq() : termsEnum.docFreq();
         }
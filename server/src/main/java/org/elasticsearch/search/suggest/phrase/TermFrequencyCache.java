@@ -0,0 +1,61 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.suggest.phrase;
+
+import com.carrotsearch.hppc.ObjectLongHashMap;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Caches term frequencies for the duration of a single phrase suggestion. The candidate generators and the
+ * {@link WordScorer} look up the frequencies of the same candidates for every correction and every n-gram they
+ * are part of, which on long inputs with several misspellings means thousands of seeks in the terms dictionary.
+ * This class is not thread-safe.
+ */
+public final class TermFrequencyCache {
+
+    private final Map<String, ObjectLongHashMap<BytesRef>> totalTermFreqs = new HashMap<>();
+    private final Map<String, ObjectLongHashMap<BytesRef>> docFreqs = new HashMap<>();
+
+    /**
+     * Returns the frequency of the given term in the given field, and only calls the loader if it is not cached yet.
+     * @param totalTermFreq whether the frequency is the total term frequency or the document frequency of the term
+     */
+    public long frequency(String field, boolean totalTermFreq, BytesRef term, FrequencyLoader loader) throws IOException {
+        final Map<String, ObjectLongHashMap<BytesRef>> frequencies = totalTermFreq ? totalTermFreqs : docFreqs;
+        final ObjectLongHashMap<BytesRef> fieldFrequencies = frequencies.computeIfAbsent(field, f -> new ObjectLongHashMap<>());
+        final int slot = fieldFrequencies.indexOf(term);
+        if (fieldFrequencies.indexExists(slot)) {
+            return fieldFrequencies.indexGet(slot);
+        }
+        final long frequency = loader.frequency(term);
+        // callers usually pass a reused spare
+        fieldFrequencies.indexInsert(slot, BytesRef.deepCopyOf(term), frequency);
+        return frequency;
+    }
+
+    @FunctionalInterface
+    public interface FrequencyLoader {
+        long frequency(BytesRef term) throws IOException;
+    }
+}
@@ -43,6 +43,7 @@ public abstract class WordScorer {
     protected final long numTerms;
     private final TermsEnum termsEnum;
     private final boolean useTotalTermFreq;
+    private TermFrequencyCache frequencyCache;
 
     public WordScorer(IndexReader reader, String field, double realWordLikelyHood, BytesRef separator) throws IOException {
         this(reader, MultiFields.getTerms(reader, field), field, realWordLikelyHood, separator);
@@ -68,7 +69,21 @@ public abstract class WordScorer {
         this.separator = separator;
     }
 
+    /**
+     * Sets a cache of term frequencies that is shared with the candidate generators of the same request.
+     */
+    public void setFrequencyCache(TermFrequencyCache frequencyCache) {
+        this.frequencyCache = frequencyCache;
+    }
+
     public long frequency(BytesRef term) throws IOException {
+        if (frequencyCache != null) {
+            return frequencyCache.frequency(field, useTotalTermFreq, term, this::seekFrequency);
+        }
+        return seekFrequency(term);
+    }
+
+    private long seekFrequency(BytesRef term) throws IOException {
         if (termsEnum.seekExact(term)) {
             return useTotalTermFreq ? termsEnum.totalTermFreq() : termsEnum.docFreq();
         }
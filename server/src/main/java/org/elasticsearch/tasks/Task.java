@@ -28,6 +28,7 @@ import org.elasticsearch.common.xcontent.ToXContentObject;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Current task information
@@ -56,6 +57,17 @@ public class Task {
      */
     private final long startTimeNanos;
 
+    /**
+     * The bytes currently held by the task on the request circuit breaker, see {@link TaskManager#onCircuitBreakerUsage}.
+     */
+    private final AtomicLong memoryBytes = new AtomicLong();
+
+    private final AtomicLong peakMemoryBytes = new AtomicLong();
+
+    private final AtomicLong cpuTimeNanos = new AtomicLong();
+
+    private volatile boolean registered = true;
+
     public Task(long id, String type, String action, String description, TaskId parentTask, Map<String, String> headers) {
         this(id, type, action, description, parentTask, System.currentTimeMillis(), System.nanoTime(), headers);
     }
@@ -97,7 +109,55 @@ public class Task {
      */
     protected final TaskInfo taskInfo(String localNodeId, String description, Status status) {
         return new TaskInfo(new TaskId(localNodeId, getId()), getType(), getAction(), description, status, startTime,
-                System.nanoTime() - startTimeNanos, this instanceof CancellableTask, parentTask, headers);
+                System.nanoTime() - startTimeNanos, this instanceof CancellableTask, parentTask, headers, getResourceStats());
+    }
+
+    /**
+     * Accounts bytes that were added to (or released from, if negative) the request circuit breaker on behalf of this task.
+     */
+    public void addMemoryBytes(long bytes) {
+        final long current = memoryBytes.addAndGet(bytes);
+        if (bytes > 0 && current > peakMemoryBytes.get()) {
+            peakMemoryBytes.accumulateAndGet(current, Math::max);
+        }
+    }
+
+    /**
+     * Returns the bytes currently held by this task on the request circuit breaker.
+     */
+    public long getMemoryBytes() {
+        // bytes may be released by a different task than the one that reserved them, e.g. when a shared structure is freed
+        return Math.max(0, memoryBytes.get());
+    }
+
+    /**
+     * Marks this task as unregistered from the {@link TaskManager}, after which no memory is accounted to it anymore.
+     */
+    void markUnregistered() {
+        registered = false;
+    }
+
+    /**
+     * Returns whether this task is still registered with the {@link TaskManager}.
+     */
+    boolean isRegistered() {
+        return registered;
+    }
+
+    /**
+     * Accounts CPU time that a thread spent on this task.
+     */
+    public void addCpuTimeNanos(long nanos) {
+        if (nanos > 0) {
+            cpuTimeNanos.addAndGet(nanos);
+        }
+    }
+
+    /**
+     * Returns the resources used by this task so far.
+     */
+    public TaskResourceStats getResourceStats() {
+        return new TaskResourceStats(getMemoryBytes(), peakMemoryBytes.get(), cpuTimeNanos.get());
     }
 
     /**
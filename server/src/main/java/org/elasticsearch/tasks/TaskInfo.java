@@ -70,8 +70,16 @@ public final class TaskInfo implements Writeable, ToXContentFragment {
 
     private final Map<String, String> headers;
 
+    private final TaskResourceStats resourceStats;
+
     public TaskInfo(TaskId taskId, String type, String action, String description, Task.Status status, long startTime,
                     long runningTimeNanos, boolean cancellable, TaskId parentTaskId, Map<String, String> headers) {
+        this(taskId, type, action, description, status, startTime, runningTimeNanos, cancellable, parentTaskId, headers, null);
+    }
+
+    public TaskInfo(TaskId taskId, String type, String action, String description, Task.Status status, long startTime,
+                    long runningTimeNanos, boolean cancellable, TaskId parentTaskId, Map<String, String> headers,
+                    TaskResourceStats resourceStats) {
         this.taskId = taskId;
         this.type = type;
         this.action = action;
@@ -82,6 +90,7 @@ public final class TaskInfo implements Writeable, ToXContentFragment {
         this.cancellable = cancellable;
         this.parentTaskId = parentTaskId;
         this.headers = headers;
+        this.resourceStats = resourceStats;
     }
 
     /**
@@ -102,6 +111,11 @@ public final class TaskInfo implements Writeable, ToXContentFragment {
         } else {
             headers = Collections.emptyMap();
         }
+        if (in.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            resourceStats = in.readOptionalWriteable(TaskResourceStats::new);
+        } else {
+            resourceStats = null;
+        }
     }
 
     @Override
@@ -118,6 +132,9 @@ public final class TaskInfo implements Writeable, ToXContentFragment {
         if (out.getVersion().onOrAfter(Version.V_6_2_0)) {
             out.writeMap(headers, StreamOutput::writeString, StreamOutput::writeString);
         }
+        if (out.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            out.writeOptionalWriteable(resourceStats);
+        }
     }
 
     public TaskId getTaskId() {
@@ -183,6 +200,13 @@ public final class TaskInfo implements Writeable, ToXContentFragment {
         return headers;
     }
 
+    /**
+     * Returns the resources used by the task or null if they are unknown, for instance because the task ran on an older node
+     */
+    public TaskResourceStats getResourceStats() {
+        return resourceStats;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.field("node", taskId.getNodeId());
@@ -206,6 +230,9 @@ public final class TaskInfo implements Writeable, ToXContentFragment {
             builder.field(attribute.getKey(), attribute.getValue());
         }
         builder.endObject();
+        if (resourceStats != null) {
+            builder.field("resource_stats", resourceStats, params);
+        }
         return builder;
     }
 
@@ -226,10 +253,11 @@ public final class TaskInfo implements Writeable, ToXContentFragment {
                     // This might happen if we are reading an old version of task info
                     headers = Collections.emptyMap();
                 }
+                TaskResourceStats resourceStats = (TaskResourceStats) a[i++];
                 RawTaskStatus status = statusBytes == null ? null : new RawTaskStatus(statusBytes);
                 TaskId parentTaskId = parentTaskIdString == null ? TaskId.EMPTY_TASK_ID : new TaskId(parentTaskIdString);
                 return new TaskInfo(id, type, action, description, status, startTime, runningTimeNanos, cancellable, parentTaskId,
-                    headers);
+                    headers, resourceStats);
             });
     static {
         // Note for the future: this has to be backwards and forwards compatible with all changes to the task storage format
@@ -244,6 +272,7 @@ public final class TaskInfo implements Writeable, ToXContentFragment {
         PARSER.declareBoolean(constructorArg(), new ParseField("cancellable"));
         PARSER.declareString(optionalConstructorArg(), new ParseField("parent_task_id"));
         PARSER.declareObject(optionalConstructorArg(), (p, c) -> p.mapStrings(), new ParseField("headers"));
+        PARSER.declareObject(optionalConstructorArg(), TaskResourceStats.PARSER, new ParseField("resource_stats"));
     }
 
     @Override
@@ -267,11 +296,13 @@ public final class TaskInfo implements Writeable, ToXContentFragment {
                 && Objects.equals(parentTaskId, other.parentTaskId)
                 && Objects.equals(cancellable, other.cancellable)
                 && Objects.equals(status, other.status)
-                && Objects.equals(headers, other.headers);
+                && Objects.equals(headers, other.headers)
+                && Objects.equals(resourceStats, other.resourceStats);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(taskId, type, action, description, startTime, runningTimeNanos, parentTaskId, cancellable, status, headers);
+        return Objects.hash(taskId, type, action, description, startTime, runningTimeNanos, parentTaskId, cancellable, status, headers,
+            resourceStats);
     }
 }
@@ -30,7 +30,10 @@ import org.elasticsearch.cluster.ClusterChangedEvent;
 import org.elasticsearch.cluster.ClusterStateApplier;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
@@ -40,6 +43,8 @@ import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -59,6 +64,21 @@ import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_MAX_HEAD
 public class TaskManager extends AbstractComponent implements ClusterStateApplier {
     private static final TimeValue WAIT_FOR_COMPLETION_POLL = timeValueMillis(100);
 
+    /**
+     * Whether the bytes added to the request circuit breaker are attributed to the task that the current thread works on.
+     * Disabled by default as it adds work to every change of the request breaker.
+     */
+    public static final Setting<Boolean> TASK_RESOURCE_TRACKING_SETTING =
+        Setting.boolSetting("task.resource_tracking.enabled", false, Property.NodeScope);
+
+    /**
+     * The name of the transient thread context header that holds the task the current thread works on.
+     */
+    public static final String TASK_TRANSIENT_NAME = "task";
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+    private static final boolean THREAD_CPU_TIME_SUPPORTED = THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported();
+
     /** Rest headers that are copied to the task */
     private final List<String> taskHeaders;
     private final ThreadPool threadPool;
@@ -78,11 +98,21 @@ public class TaskManager extends AbstractComponent implements ClusterStateApplie
 
     private final ByteSizeValue maxHeaderSize;
 
+    private final boolean resourceTrackingEnabled;
+
     public TaskManager(Settings settings, ThreadPool threadPool, Set<String> taskHeaders) {
         super(settings);
         this.threadPool = threadPool;
         this.taskHeaders = new ArrayList<>(taskHeaders);
         this.maxHeaderSize = SETTING_HTTP_MAX_HEADER_SIZE.get(settings);
+        this.resourceTrackingEnabled = TASK_RESOURCE_TRACKING_SETTING.get(settings);
+    }
+
+    /**
+     * Returns true if the memory used on the request circuit breaker and the CPU time of transport handlers are attributed to tasks
+     */
+    public boolean isResourceTrackingEnabled() {
+        return resourceTrackingEnabled;
     }
 
     public void setTaskResultsService(TaskResultsService taskResultsService) {
@@ -128,6 +158,82 @@ public class TaskManager extends AbstractComponent implements ClusterStateApplie
         return task;
     }
 
+    /**
+     * Makes the given task the task that the current thread works on, so that the resources used by this thread and by the
+     * threads that work is forked to from its thread context are accounted to the task. The returned context must be restored
+     * once the current thread is done with the task. If the thread already works on a task, the resources keep being accounted
+     * to that outer task.
+     */
+    public ThreadContext.StoredContext trackResources(Task task) {
+        final ThreadContext threadContext = threadPool.getThreadContext();
+        if (resourceTrackingEnabled == false || task == null || threadContext.getTransient(TASK_TRANSIENT_NAME) != null) {
+            return () -> {};
+        }
+        final ThreadContext.StoredContext storedContext = threadContext.newStoredContext(true);
+        threadContext.putTransient(TASK_TRANSIENT_NAME, task);
+        return storedContext;
+    }
+
+    /**
+     * Returns the task that the current thread works on, or null if it isn't known or has completed already.
+     */
+    public Task getCurrentTask() {
+        if (resourceTrackingEnabled == false) {
+            return null;
+        }
+        final Task task = threadPool.getThreadContext().getTransient(TASK_TRANSIENT_NAME);
+        // work forked from the task may still run, or its listener be called, after the task was unregistered
+        return task == null || task.isRegistered() == false ? null : task;
+    }
+
+    /**
+     * Attributes bytes added to (or released from) a circuit breaker by the current thread to the task it works on.
+     * Only the request breaker is tracked as the memory accounted on the other breakers isn't tied to requests.
+     */
+    public void onCircuitBreakerUsage(String breaker, long bytes) {
+        if (CircuitBreaker.REQUEST.equals(breaker)) {
+            Task task = getCurrentTask();
+            if (task != null) {
+                task.addMemoryBytes(bytes);
+            }
+        }
+    }
+
+    /**
+     * Cancels the cancellable task that currently holds the most bytes on the request circuit breaker.
+     *
+     * @return the cancelled task or null if no running cancellable task holds any bytes
+     */
+    public CancellableTask cancelTopMemoryConsumer() {
+        CancellableTask topTask = null;
+        for (CancellableTaskHolder holder : cancellableTasks.values()) {
+            CancellableTask task = holder.getTask();
+            if (task.isCancelled() == false && task.getMemoryBytes() > 0
+                    && (topTask == null || task.getMemoryBytes() > topTask.getMemoryBytes())) {
+                topTask = task;
+            }
+        }
+        if (topTask != null) {
+            final long memoryBytes = topTask.getMemoryBytes();
+            logger.warn("cancelling task [{}] [{}] holding [{}] on the request circuit breaker to relieve memory pressure",
+                topTask.getId(), topTask.getAction(), new ByteSizeValue(memoryBytes));
+            cancel(topTask, "memory pressure, the task used [" + new ByteSizeValue(memoryBytes) + "]", () -> {});
+        }
+        return topTask;
+    }
+
+    /**
+     * Returns the CPU time of the current thread in nanoseconds, or 0 if the JVM can't measure it. Only the difference between
+     * two calls on the same thread is meaningful.
+     */
+    public static long currentThreadCpuTimeNanos() {
+        if (THREAD_CPU_TIME_SUPPORTED) {
+            final long cpuTime = THREAD_MX_BEAN.getCurrentThreadCpuTime();
+            return cpuTime == -1 ? 0 : cpuTime;
+        }
+        return 0;
+    }
+
     private void registerCancellableTask(Task task) {
         CancellableTask cancellableTask = (CancellableTask) task;
         CancellableTaskHolder holder = new CancellableTaskHolder(cancellableTask);
@@ -170,6 +276,7 @@ public class TaskManager extends AbstractComponent implements ClusterStateApplie
      */
     public Task unregister(Task task) {
         logger.trace("unregister task for id: {}", task.getId());
+        task.markUnregistered();
         if (task instanceof CancellableTask) {
             CancellableTaskHolder holder = cancellableTasks.remove(task.getId());
             if (holder != null) {
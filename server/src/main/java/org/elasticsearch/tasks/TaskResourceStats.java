@@ -0,0 +1,127 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.tasks;
+
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.xcontent.ConstructingObjectParser;
+import org.elasticsearch.common.xcontent.ToXContentObject;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import static org.elasticsearch.common.xcontent.ConstructingObjectParser.constructorArg;
+
+/**
+ * The resources used by a task on the node it is running on: the bytes it currently holds on the request circuit breaker,
+ * the most bytes it held at any time and the CPU time its threads spent on it.
+ */
+public final class TaskResourceStats implements Writeable, ToXContentObject {
+
+    private final long memoryInBytes;
+    private final long peakMemoryInBytes;
+    private final long cpuTimeInNanos;
+
+    public TaskResourceStats(long memoryInBytes, long peakMemoryInBytes, long cpuTimeInNanos) {
+        this.memoryInBytes = memoryInBytes;
+        this.peakMemoryInBytes = peakMemoryInBytes;
+        this.cpuTimeInNanos = cpuTimeInNanos;
+    }
+
+    /**
+     * Read from a stream.
+     */
+    public TaskResourceStats(StreamInput in) throws IOException {
+        memoryInBytes = in.readVLong();
+        peakMemoryInBytes = in.readVLong();
+        cpuTimeInNanos = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(memoryInBytes);
+        out.writeVLong(peakMemoryInBytes);
+        out.writeVLong(cpuTimeInNanos);
+    }
+
+    /**
+     * Returns the bytes the task currently holds on the request circuit breaker
+     */
+    public long getMemoryInBytes() {
+        return memoryInBytes;
+    }
+
+    /**
+     * Returns the most bytes the task held on the request circuit breaker at any time
+     */
+    public long getPeakMemoryInBytes() {
+        return peakMemoryInBytes;
+    }
+
+    /**
+     * Returns the CPU time spent on the task, or 0 if the JVM doesn't support measuring the CPU time of threads
+     */
+    public long getCpuTimeInNanos() {
+        return cpuTimeInNanos;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject();
+        builder.byteSizeField("memory_in_bytes", "memory", memoryInBytes);
+        builder.byteSizeField("peak_memory_in_bytes", "peak_memory", peakMemoryInBytes);
+        builder.timeValueField("cpu_time_in_nanos", "cpu_time", cpuTimeInNanos, TimeUnit.NANOSECONDS);
+        return builder.endObject();
+    }
+
+    public static final ConstructingObjectParser<TaskResourceStats, Void> PARSER = new ConstructingObjectParser<>(
+            "task_resource_stats", true, a -> new TaskResourceStats((Long) a[0], (Long) a[1], (Long) a[2]));
+    static {
+        PARSER.declareLong(constructorArg(), new ParseField("memory_in_bytes"));
+        PARSER.declareLong(constructorArg(), new ParseField("peak_memory_in_bytes"));
+        PARSER.declareLong(constructorArg(), new ParseField("cpu_time_in_nanos"));
+    }
+
+    @Override
+    public String toString() {
+        return Strings.toString(this);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null || obj.getClass() != TaskResourceStats.class) {
+            return false;
+        }
+        TaskResourceStats other = (TaskResourceStats) obj;
+        return memoryInBytes == other.memoryInBytes
+                && peakMemoryInBytes == other.peakMemoryInBytes
+                && cpuTimeInNanos == other.cpuTimeInNanos;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(memoryInBytes, peakMemoryInBytes, cpuTimeInNanos);
+    }
+}
@@ -64,7 +64,7 @@ public class TaskResultsService extends AbstractComponent {
 
     public static final String TASK_RESULT_MAPPING_VERSION_META_FIELD = "version";
 
-    public static final int TASK_RESULT_MAPPING_VERSION = 2;
+    public static final int TASK_RESULT_MAPPING_VERSION = 3;
 
     private final Client client;
 
@@ -24,6 +24,7 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.SizeValue;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.monitor.os.OsProbe;
 import org.elasticsearch.node.Node;
 
 import java.util.Arrays;
@@ -33,12 +34,19 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadFactory;
 
 /**
- * A builder for fixed executors.
+ * A builder for fixed executors. If {@code auto_size} is set the number of threads is adjusted between {@code min_size}
+ * and {@code max_size} according to the measured service time of the tasks, see
+ * {@link org.elasticsearch.common.util.concurrent.AutoSizingEsThreadPoolExecutor}.
  */
 public final class FixedExecutorBuilder extends ExecutorBuilder<FixedExecutorBuilder.FixedExecutorSettings> {
 
     private final Setting<Integer> sizeSetting;
     private final Setting<Integer> queueSizeSetting;
+    private final Setting<Boolean> autoSizeSetting;
+    private final Setting<Integer> minSizeSetting;
+    private final Setting<Integer> maxSizeSetting;
+    private final Setting<Integer> frameSizeSetting;
+    private final Setting<Integer> maxCpuPercentSetting;
 
     /**
      * Construct a fixed executor builder; the settings will have the
@@ -74,11 +82,37 @@ public final class FixedExecutorBuilder extends ExecutorBuilder<FixedExecutorBui
         final String queueSizeKey = settingsKey(prefix, "queue_size");
         this.queueSizeSetting =
             Setting.intSetting(queueSizeKey, queueSize, Setting.Property.NodeScope);
+        this.autoSizeSetting = Setting.boolSetting(settingsKey(prefix, "auto_size"), false, Setting.Property.NodeScope);
+        final int hardSizeLimit = applyHardSizeLimit(settings, name);
+        final String minSizeKey = settingsKey(prefix, "min_size");
+        this.minSizeSetting =
+            new Setting<>(
+                minSizeKey,
+                s -> "1",
+                s -> Setting.parseInt(s, 1, hardSizeLimit, minSizeKey),
+                Setting.Property.NodeScope);
+        final String maxSizeKey = settingsKey(prefix, "max_size");
+        this.maxSizeSetting =
+            new Setting<>(
+                maxSizeKey,
+                s -> Integer.toString((int) Math.min(2L * sizeSetting.get(s), hardSizeLimit)),
+                s -> Setting.parseInt(s, 1, hardSizeLimit, maxSizeKey),
+                Setting.Property.NodeScope);
+        this.frameSizeSetting =
+            Setting.intSetting(settingsKey(prefix, "auto_size_frame_size"), 1000, 100, Setting.Property.NodeScope);
+        final String maxCpuPercentKey = settingsKey(prefix, "auto_size_max_cpu_percent");
+        this.maxCpuPercentSetting =
+            new Setting<>(
+                maxCpuPercentKey,
+                s -> "90",
+                s -> Setting.parseInt(s, 1, 100, maxCpuPercentKey),
+                Setting.Property.NodeScope);
     }
 
     @Override
     public List<Setting<?>> getRegisteredSettings() {
-        return Arrays.asList(sizeSetting, queueSizeSetting);
+        return Arrays.asList(sizeSetting, queueSizeSetting, autoSizeSetting, minSizeSetting, maxSizeSetting, frameSizeSetting,
+            maxCpuPercentSetting);
     }
 
     @Override
@@ -86,7 +120,15 @@ public final class FixedExecutorBuilder extends ExecutorBuilder<FixedExecutorBui
         final String nodeName = Node.NODE_NAME_SETTING.get(settings);
         final int size = sizeSetting.get(settings);
         final int queueSize = queueSizeSetting.get(settings);
-        return new FixedExecutorSettings(nodeName, size, queueSize);
+        final boolean autoSize = autoSizeSetting.get(settings);
+        final int minSize = minSizeSetting.get(settings);
+        final int maxSize = maxSizeSetting.get(settings);
+        if (autoSize && (minSize > size || size > maxSize)) {
+            throw new IllegalArgumentException("[" + sizeSetting.getKey() + "] must be between [" + minSizeSetting.getKey() + "] and ["
+                + maxSizeSetting.getKey() + "], got [" + size + "] with bounds [" + minSize + "] and [" + maxSize + "]");
+        }
+        return new FixedExecutorSettings(nodeName, size, queueSize, autoSize, minSize, maxSize, frameSizeSetting.get(settings),
+            maxCpuPercentSetting.get(settings));
     }
 
     @Override
@@ -94,15 +136,34 @@ public final class FixedExecutorBuilder extends ExecutorBuilder<FixedExecutorBui
         int size = settings.size;
         int queueSize = settings.queueSize;
         final ThreadFactory threadFactory = EsExecutors.daemonThreadFactory(EsExecutors.threadName(settings.nodeName, name()));
+        final SizeValue queue = queueSize < 0 ? null : new SizeValue(queueSize);
+        if (settings.autoSize) {
+            final OsProbe osProbe = OsProbe.getInstance();
+            final ExecutorService executor =
+                    EsExecutors.newAutoSizingFixed(settings.nodeName + "/" + name(), size, queueSize, settings.minSize, settings.maxSize,
+                        settings.frameSize, settings.maxCpuPercent, osProbe::getSystemCpuPercent, threadFactory, threadContext);
+            final ThreadPool.Info info =
+                new ThreadPool.Info(name(), ThreadPool.ThreadPoolType.FIXED, settings.minSize, settings.maxSize, null, queue);
+            return new ThreadPool.ExecutorHolder(executor, info);
+        }
         final ExecutorService executor =
                 EsExecutors.newFixed(settings.nodeName + "/" + name(), size, queueSize, threadFactory, threadContext);
         final ThreadPool.Info info =
-            new ThreadPool.Info(name(), ThreadPool.ThreadPoolType.FIXED, size, size, null, queueSize < 0 ? null : new SizeValue(queueSize));
+            new ThreadPool.Info(name(), ThreadPool.ThreadPoolType.FIXED, size, size, null, queue);
         return new ThreadPool.ExecutorHolder(executor, info);
     }
 
     @Override
     String formatInfo(ThreadPool.Info info) {
+        if (info.getMin() != info.getMax()) {
+            return String.format(
+                Locale.ROOT,
+                "name [%s], min size [%d], max size [%d], queue size [%s]",
+                info.getName(),
+                info.getMin(),
+                info.getMax(),
+                info.getQueueSize() == null ? "unbounded" : info.getQueueSize());
+        }
         return String.format(
             Locale.ROOT,
             "name [%s], size [%d], queue size [%s]",
@@ -115,11 +176,22 @@ public final class FixedExecutorBuilder extends ExecutorBuilder<FixedExecutorBui
 
         private final int size;
         private final int queueSize;
-
-        FixedExecutorSettings(final String nodeName, final int size, final int queueSize) {
+        private final boolean autoSize;
+        private final int minSize;
+        private final int maxSize;
+        private final int frameSize;
+        private final int maxCpuPercent;
+
+        FixedExecutorSettings(final String nodeName, final int size, final int queueSize, final boolean autoSize, final int minSize,
+                              final int maxSize, final int frameSize, final int maxCpuPercent) {
             super(nodeName);
             this.size = size;
             this.queueSize = queueSize;
+            this.autoSize = autoSize;
+            this.minSize = minSize;
+            this.maxSize = maxSize;
+            this.frameSize = frameSize;
+            this.maxCpuPercent = maxCpuPercent;
         }
 
     }
@@ -33,9 +33,11 @@ import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.SizeValue;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.AutoSizingEsThreadPoolExecutor;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.common.util.concurrent.EsThreadPoolExecutor;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.common.util.concurrent.ThrottledExecutor;
 import org.elasticsearch.common.util.concurrent.XRejectedExecutionHandler;
 import org.elasticsearch.common.xcontent.ToXContentFragment;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -157,6 +159,13 @@ public class ThreadPool extends AbstractComponent implements Scheduler, Closeabl
     public static Setting<TimeValue> ESTIMATED_TIME_INTERVAL_SETTING =
         Setting.timeSetting("thread_pool.estimated_time_interval", TimeValue.timeValueMillis(200), Setting.Property.NodeScope);
 
+    public static final Setting<Integer> BLOCKING_IO_MAX_CONCURRENCY_SETTING =
+        new Setting<>("thread_pool.blocking_io.max_concurrency",
+            s -> Integer.toString(boundedBy(2 * EsExecutors.numberOfProcessors(s), 4, 32)),
+            s -> Setting.parseInt(s, 1, "thread_pool.blocking_io.max_concurrency"), Setting.Property.NodeScope);
+
+    private final ThrottledExecutor blockingIoExecutor;
+
     public ThreadPool(final Settings settings, final ExecutorBuilder<?>... customBuilders) {
         super(settings);
 
@@ -207,6 +216,8 @@ public class ThreadPool extends AbstractComponent implements Scheduler, Closeabl
 
         executors.put(Names.SAME, new ExecutorHolder(DIRECT_EXECUTOR, new Info(Names.SAME, ThreadPoolType.DIRECT)));
         this.executors = unmodifiableMap(executors);
+        this.blockingIoExecutor = new ThrottledExecutor(executor(Names.GENERIC), BLOCKING_IO_MAX_CONCURRENCY_SETTING.get(settings),
+            threadContext);
         this.scheduler = Scheduler.initScheduler(settings);
         TimeValue estimatedTimeInterval = ESTIMATED_TIME_INTERVAL_SETTING.get(settings);
         this.cachedTimeThread = new CachedTimeThread(EsExecutors.threadName(settings, "[timer]"), estimatedTimeInterval.millis());
@@ -273,6 +284,8 @@ public class ThreadPool extends AbstractComponent implements Scheduler, Closeabl
             long rejected = -1;
             int largest = -1;
             long completed = -1;
+            int size = -1;
+            String lastSizeAdjustment = null;
             if (holder.executor() instanceof ThreadPoolExecutor) {
                 ThreadPoolExecutor threadPoolExecutor = (ThreadPoolExecutor) holder.executor();
                 threads = threadPoolExecutor.getPoolSize();
@@ -285,7 +298,12 @@ public class ThreadPool extends AbstractComponent implements Scheduler, Closeabl
                     rejected = ((XRejectedExecutionHandler) rejectedExecutionHandler).rejected();
                 }
             }
-            stats.add(new ThreadPoolStats.Stats(name, threads, queue, active, rejected, largest, completed));
+            if (holder.executor() instanceof AutoSizingEsThreadPoolExecutor) {
+                AutoSizingEsThreadPoolExecutor autoSizingExecutor = (AutoSizingEsThreadPoolExecutor) holder.executor();
+                size = autoSizingExecutor.getCurrentSize();
+                lastSizeAdjustment = autoSizingExecutor.getLastAdjustment().toString();
+            }
+            stats.add(new ThreadPoolStats.Stats(name, threads, queue, active, rejected, largest, completed, size, lastSizeAdjustment));
         }
         return new ThreadPoolStats(stats);
     }
@@ -302,6 +320,14 @@ public class ThreadPool extends AbstractComponent implements Scheduler, Closeabl
         return executor(Names.GENERIC);
     }
 
+    /**
+     * Returns the executor for blocking file and blob store I/O. Its tasks run on the generic thread pool, but no more than
+     * {@code thread_pool.blocking_io.max_concurrency} of them at the same time, the others wait in a queue without holding a thread.
+     */
+    public ThrottledExecutor blockingIoExecutor() {
+        return blockingIoExecutor;
+    }
+
     /**
      * Get the {@link ExecutorService} with the given name. This executor service's
      * {@link Executor#execute(Runnable)} method will run the {@link Runnable} it is given in the
@@ -19,6 +19,8 @@
 
 package org.elasticsearch.threadpool;
 
+import org.elasticsearch.Version;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
@@ -42,8 +44,16 @@ public class ThreadPoolStats implements Writeable, ToXContentFragment, Iterable<
         private final long rejected;
         private final int largest;
         private final long completed;
+        private final int size;
+        @Nullable
+        private final String lastSizeAdjustment;
 
         public Stats(String name, int threads, int queue, int active, long rejected, int largest, long completed) {
+            this(name, threads, queue, active, rejected, largest, completed, -1, null);
+        }
+
+        public Stats(String name, int threads, int queue, int active, long rejected, int largest, long completed, int size,
+                     @Nullable String lastSizeAdjustment) {
             this.name = name;
             this.threads = threads;
             this.queue = queue;
@@ -51,6 +61,8 @@ public class ThreadPoolStats implements Writeable, ToXContentFragment, Iterable<
             this.rejected = rejected;
             this.largest = largest;
             this.completed = completed;
+            this.size = size;
+            this.lastSizeAdjustment = lastSizeAdjustment;
         }
 
         public Stats(StreamInput in) throws IOException {
@@ -61,6 +73,13 @@ public class ThreadPoolStats implements Writeable, ToXContentFragment, Iterable<
             rejected = in.readLong();
             largest = in.readInt();
             completed = in.readLong();
+            if (in.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+                size = in.readInt();
+                lastSizeAdjustment = in.readOptionalString();
+            } else {
+                size = -1;
+                lastSizeAdjustment = null;
+            }
         }
 
         @Override
@@ -72,6 +91,10 @@ public class ThreadPoolStats implements Writeable, ToXContentFragment, Iterable<
             out.writeLong(rejected);
             out.writeInt(largest);
             out.writeLong(completed);
+            if (out.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+                out.writeInt(size);
+                out.writeOptionalString(lastSizeAdjustment);
+            }
         }
 
         public String getName() {
@@ -102,6 +125,21 @@ public class ThreadPoolStats implements Writeable, ToXContentFragment, Iterable<
             return this.completed;
         }
 
+        /**
+         * The number of threads an automatically sized pool is currently sized to, or -1 if the pool is not sized automatically.
+         */
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * The reason of the last change of the size of an automatically sized pool.
+         */
+        @Nullable
+        public String getLastSizeAdjustment() {
+            return lastSizeAdjustment;
+        }
+
         @Override
         public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
             builder.startObject(name);
@@ -123,6 +161,10 @@ public class ThreadPoolStats implements Writeable, ToXContentFragment, Iterable<
             if (completed != -1) {
                 builder.field(Fields.COMPLETED, completed);
             }
+            if (size != -1) {
+                builder.field(Fields.SIZE, size);
+                builder.field(Fields.LAST_SIZE_ADJUSTMENT, lastSizeAdjustment);
+            }
             builder.endObject();
             return builder;
         }
@@ -174,6 +216,8 @@ public class ThreadPoolStats implements Writeable, ToXContentFragment, Iterable<
         static final String REJECTED = "rejected";
         static final String LARGEST = "largest";
         static final String COMPLETED = "completed";
+        static final String SIZE = "size";
+        static final String LAST_SIZE_ADJUSTMENT = "last_size_adjustment";
     }
 
     @Override
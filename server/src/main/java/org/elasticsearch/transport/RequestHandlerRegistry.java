@@ -21,6 +21,7 @@ package org.elasticsearch.transport;
 
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.tasks.Task;
 import org.elasticsearch.tasks.TaskManager;
 
@@ -62,10 +63,16 @@ public class RequestHandlerRegistry<Request extends TransportRequest> {
             handler.messageReceived(request, channel);
         } else {
             boolean success = false;
-            try {
+            // reading the CPU time of the thread isn't free, so it is only done when the resources of tasks are tracked
+            final boolean trackCpuTime = taskManager.isResourceTrackingEnabled();
+            final long startCpuTimeNanos = trackCpuTime ? TaskManager.currentThreadCpuTimeNanos() : 0;
+            try (ThreadContext.StoredContext ignore = taskManager.trackResources(task)) {
                 handler.messageReceived(request, new TaskTransportChannel(taskManager, task, channel), task);
                 success = true;
             } finally {
+                if (trackCpuTime) {
+                    task.addCpuTimeNanos(TaskManager.currentThreadCpuTimeNanos() - startCpuTimeNanos);
+                }
                 if (success == false) {
                     taskManager.unregister(task);
                 }
@@ -31,6 +31,8 @@ public enum Transports {
 
     public static final String NIO_TRANSPORT_WORKER_THREAD_NAME_PREFIX = "es_nio_transport_worker";
     public static final String NIO_TRANSPORT_ACCEPTOR_THREAD_NAME_PREFIX = "es_nio_transport_acceptor";
+    public static final String NIO_HTTP_WORKER_THREAD_NAME_PREFIX = "es_nio_http_worker";
+    public static final String NIO_HTTP_ACCEPTOR_THREAD_NAME_PREFIX = "es_nio_http_acceptor";
 
     /**
      * Utility method to detect whether a thread is a network thread. Typically
@@ -45,7 +47,9 @@ public enum Transports {
                 TcpTransport.TRANSPORT_CLIENT_BOSS_THREAD_NAME_PREFIX,
                 TEST_MOCK_TRANSPORT_THREAD_PREFIX,
                 NIO_TRANSPORT_WORKER_THREAD_NAME_PREFIX,
-                NIO_TRANSPORT_ACCEPTOR_THREAD_NAME_PREFIX)) {
+                NIO_TRANSPORT_ACCEPTOR_THREAD_NAME_PREFIX,
+                NIO_HTTP_WORKER_THREAD_NAME_PREFIX,
+                NIO_HTTP_ACCEPTOR_THREAD_NAME_PREFIX)) {
             if (threadName.contains(s)) {
                 return true;
             }
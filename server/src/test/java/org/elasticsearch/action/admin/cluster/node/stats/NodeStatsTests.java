@@ -34,6 +34,7 @@ import org.elasticsearch.monitor.jvm.JvmStats;
 import org.elasticsearch.monitor.os.OsStats;
 import org.elasticsearch.monitor.process.ProcessStats;
 import org.elasticsearch.node.AdaptiveSelectionStats;
+import org.elasticsearch.node.AdmissionControlStats;
 import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.script.ScriptStats;
 import org.elasticsearch.test.ESTestCase;
@@ -178,6 +179,8 @@ public class NodeStatsTests extends ESTestCase {
                         assertEquals(stats.getActive(), deserializedStats.getActive());
                         assertEquals(stats.getLargest(), deserializedStats.getLargest());
                         assertEquals(stats.getCompleted(), deserializedStats.getCompleted());
+                        assertEquals(stats.getSize(), deserializedStats.getSize());
+                        assertEquals(stats.getLastSizeAdjustment(), deserializedStats.getLastSizeAdjustment());
                         assertEquals(stats.getQueue(), deserializedStats.getQueue());
                         assertEquals(stats.getRejected(), deserializedStats.getRejected());
                     }
@@ -226,6 +229,8 @@ public class NodeStatsTests extends ESTestCase {
                 } else {
                     assertEquals(nodeStats.getHttp().getServerOpen(), deserializedNodeStats.getHttp().getServerOpen());
                     assertEquals(nodeStats.getHttp().getTotalOpen(), deserializedNodeStats.getHttp().getTotalOpen());
+                    assertEquals(nodeStats.getHttp().getPageCacheHits(), deserializedNodeStats.getHttp().getPageCacheHits());
+                    assertEquals(nodeStats.getHttp().getPageCacheMisses(), deserializedNodeStats.getHttp().getPageCacheMisses());
                 }
                 if (nodeStats.getBreaker() == null) {
                     assertNull(deserializedNodeStats.getBreaker());
@@ -288,6 +293,7 @@ public class NodeStatsTests extends ESTestCase {
                     assertNull(deserializedAdaptiveStats);
                 } else {
                     assertEquals(adaptiveStats.getOutgoingConnections(), deserializedAdaptiveStats.getOutgoingConnections());
+                    assertEquals(adaptiveStats.getOutgoingReads(), deserializedAdaptiveStats.getOutgoingReads());
                     assertEquals(adaptiveStats.getRanks(), deserializedAdaptiveStats.getRanks());
                     adaptiveStats.getComputedStats().forEach((k, v) -> {
                         ResponseCollectorService.ComputedNodeStats aStats = adaptiveStats.getComputedStats().get(k);
@@ -298,6 +304,19 @@ public class NodeStatsTests extends ESTestCase {
                         assertEquals(aStats.responseTime, bStats.responseTime, 0.01);
                     });
                 }
+                AdmissionControlStats admissionStats = nodeStats.getAdmissionControlStats();
+                AdmissionControlStats deserializedAdmissionStats = deserializedNodeStats.getAdmissionControlStats();
+                if (admissionStats == null) {
+                    assertNull(deserializedAdmissionStats);
+                } else {
+                    assertEquals(admissionStats.getInFlightBytes(), deserializedAdmissionStats.getInFlightBytes());
+                    assertEquals(admissionStats.getSearchInFlight(), deserializedAdmissionStats.getSearchInFlight());
+                    assertEquals(admissionStats.getSearchInFlightShardRequests(),
+                        deserializedAdmissionStats.getSearchInFlightShardRequests());
+                    assertEquals(admissionStats.getSearchRejected(), deserializedAdmissionStats.getSearchRejected());
+                    assertEquals(admissionStats.getBulkInFlight(), deserializedAdmissionStats.getBulkInFlight());
+                    assertEquals(admissionStats.getBulkRejected(), deserializedAdmissionStats.getBulkRejected());
+                }
             }
         }
     }
@@ -374,7 +393,8 @@ public class NodeStatsTests extends ESTestCase {
             for (int i = 0; i < numThreadPoolStats; i++) {
                 threadPoolStatsList.add(new ThreadPoolStats.Stats(randomAlphaOfLengthBetween(3, 10), randomIntBetween(1, 1000),
                         randomIntBetween(1, 1000), randomIntBetween(1, 1000), randomNonNegativeLong(),
-                        randomIntBetween(1, 1000), randomIntBetween(1, 1000)));
+                        randomIntBetween(1, 1000), randomIntBetween(1, 1000), randomBoolean() ? -1 : randomIntBetween(1, 1000),
+                        randomBoolean() ? null : randomFrom("none", "demand", "idle")));
             }
             threadPoolStats = new ThreadPoolStats(threadPoolStatsList);
         }
@@ -401,7 +421,8 @@ public class NodeStatsTests extends ESTestCase {
         }
         TransportStats transportStats = frequently() ? new TransportStats(randomNonNegativeLong(), randomNonNegativeLong(),
                 randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong()) : null;
-        HttpStats httpStats = frequently() ? new HttpStats(randomNonNegativeLong(), randomNonNegativeLong()) : null;
+        HttpStats httpStats = frequently() ? new HttpStats(randomNonNegativeLong(), randomNonNegativeLong(),
+                randomNonNegativeLong(), randomNonNegativeLong()) : null;
         AllCircuitBreakerStats allCircuitBreakerStats = null;
         if (frequently()) {
             int numCircuitBreakerStats = randomIntBetween(0, 10);
@@ -443,6 +464,7 @@ public class NodeStatsTests extends ESTestCase {
         if (frequently()) {
             int numNodes = randomIntBetween(0,10);
             Map<String, Long> nodeConnections = new HashMap<>();
+            Map<String, Long> nodeReads = new HashMap<>();
             Map<String, ResponseCollectorService.ComputedNodeStats> nodeStats = new HashMap<>();
             for (int i = 0; i < numNodes; i++) {
                 String nodeId = randomAlphaOfLengthBetween(3, 10);
@@ -450,6 +472,9 @@ public class NodeStatsTests extends ESTestCase {
                 if (frequently()) {
                     nodeConnections.put(nodeId, randomLongBetween(0, 100));
                 }
+                if (randomBoolean()) {
+                    nodeReads.put(nodeId, randomLongBetween(0, 100));
+                }
                 // add node calculations
                 if (frequently()) {
                     ResponseCollectorService.ComputedNodeStats stats = new ResponseCollectorService.ComputedNodeStats(nodeId,
@@ -459,11 +484,14 @@ public class NodeStatsTests extends ESTestCase {
                     nodeStats.put(nodeId, stats);
                 }
             }
-            adaptiveSelectionStats = new AdaptiveSelectionStats(nodeConnections, nodeStats);
+            adaptiveSelectionStats = new AdaptiveSelectionStats(nodeConnections, nodeReads, nodeStats);
         }
+        AdmissionControlStats admissionControlStats = frequently() ? new AdmissionControlStats(randomNonNegativeLong(),
+            randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(),
+            randomNonNegativeLong()) : null;
         //TODO NodeIndicesStats are not tested here, way too complicated to create, also they need to be migrated to Writeable yet
         return new NodeStats(node, randomNonNegativeLong(), null, osStats, processStats, jvmStats, threadPoolStats,
                 fsInfo, transportStats, httpStats, allCircuitBreakerStats, scriptStats, discoveryStats,
-                ingestStats, adaptiveSelectionStats);
+                ingestStats, adaptiveSelectionStats, admissionControlStats);
     }
 }
@@ -166,9 +166,10 @@ public class MultiSearchActionTookTests extends ESTestCase {
                     availableProcessors, expected::get) {
                 @Override
                 void executeSearch(final Queue<SearchRequestSlot> requests, final AtomicArray<MultiSearchResponse.Item> responses,
-                        final AtomicInteger responseCounter, final ActionListener<MultiSearchResponse> listener, long startTimeInNanos) {
+                        final AtomicInteger responseCounter, final AtomicInteger runningSearches,
+                        final ActionListener<MultiSearchResponse> listener, long startTimeInNanos) {
                     expected.set(1000000);
-                    super.executeSearch(requests, responses, responseCounter, listener, startTimeInNanos);
+                    super.executeSearch(requests, responses, responseCounter, runningSearches, listener, startTimeInNanos);
                 }
             };
         } else {
@@ -177,10 +178,11 @@ public class MultiSearchActionTookTests extends ESTestCase {
 
                 @Override
                 void executeSearch(final Queue<SearchRequestSlot> requests, final AtomicArray<MultiSearchResponse.Item> responses,
-                        final AtomicInteger responseCounter, final ActionListener<MultiSearchResponse> listener, long startTimeInNanos) {
+                        final AtomicInteger responseCounter, final AtomicInteger runningSearches,
+                        final ActionListener<MultiSearchResponse> listener, long startTimeInNanos) {
                     long elapsed = spinForAtLeastNMilliseconds(randomIntBetween(0, 10));
                     expected.set(elapsed);
-                    super.executeSearch(requests, responses, responseCounter, listener, startTimeInNanos);
+                    super.executeSearch(requests, responses, responseCounter, runningSearches, listener, startTimeInNanos);
                 }
             };
         }
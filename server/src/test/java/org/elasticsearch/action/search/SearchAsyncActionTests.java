@@ -30,12 +30,17 @@ import org.elasticsearch.cluster.routing.UnassignedInfo;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.internal.AliasFilter;
+import org.elasticsearch.search.internal.InternalSearchResponse;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.Transport;
 import org.elasticsearch.transport.TransportException;
 import org.elasticsearch.transport.TransportRequest;
@@ -46,12 +51,15 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -358,6 +366,373 @@ public class SearchAsyncActionTests extends ESTestCase {
         executor.shutdown();
     }
 
+    public void testHedgeSlowShardRequests() throws Exception {
+        SearchRequest request = new SearchRequest();
+        request.setMaxConcurrentShardRequests(randomIntBetween(1, 10));
+        CountDownLatch latch = new CountDownLatch(1);
+        ActionListener<SearchResponse> responseListener = new ActionListener<SearchResponse>() {
+            @Override
+            public void onResponse(SearchResponse searchResponse) {
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                logger.warn("test failed", e);
+                fail(e.getMessage());
+            }
+        };
+        DiscoveryNode slowNode = new DiscoveryNode("node_1", buildNewFakeTransportAddress(), Version.CURRENT);
+        DiscoveryNode fastNode = new DiscoveryNode("node_2", buildNewFakeTransportAddress(), Version.CURRENT);
+        GroupShardsIterator<SearchShardIterator> shardsIter = getShardsIter("idx",
+            new OriginalIndices(new String[]{"idx"}, IndicesOptions.strictExpandOpenAndForbidClosed()),
+            randomIntBetween(1, 10), true, slowNode, fastNode);
+        Map<String, Transport.Connection> lookup = new HashMap<>();
+        lookup.put(slowNode.getId(), new MockConnection(slowNode));
+        lookup.put(fastNode.getId(), new MockConnection(fastNode));
+        Map<String, AliasFilter> aliasFilters = Collections.singletonMap("_na_", new AliasFilter(null, Strings.EMPTY_ARRAY));
+
+        ThreadPool threadPool = new TestThreadPool(getTestName());
+        Settings settings = Settings.builder()
+            .put(ShardSearchHedging.HEDGING_ENABLED_SETTING.getKey(), true)
+            .put(ShardSearchHedging.HEDGING_MIN_DELAY_SETTING.getKey(), TimeValue.timeValueMillis(1))
+            .put(ShardSearchHedging.HEDGING_MAX_EXTRA_LOAD_SETTING.getKey(), 1.0)
+            .build();
+        ShardSearchHedging hedging = new ShardSearchHedging(settings,
+            new ClusterSettings(settings, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS), threadPool);
+        for (int i = 0; i < ShardSearchHedging.LATENCY_WINDOW; i++) {
+            hedging.onShardResponse(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+
+        AtomicInteger contextIdGenerator = new AtomicInteger(0);
+        CountDownLatch slowNodeLatch = new CountDownLatch(1);
+        List<TestSearchPhaseResult> discardedResults = new CopyOnWriteArrayList<>();
+        AtomicInteger slowRequests = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(randomIntBetween(1, Runtime.getRuntime().availableProcessors()));
+        AbstractSearchAsyncAction asyncAction =
+            new AbstractSearchAsyncAction<TestSearchPhaseResult>(
+                "test",
+                logger,
+                new SearchTransportService(Settings.EMPTY, null, null),
+                (cluster, node) -> lookup.get(node),
+                aliasFilters,
+                Collections.emptyMap(),
+                executor,
+                request,
+                responseListener,
+                shardsIter,
+                new TransportSearchAction.SearchTimeProvider(0, 0, () -> 0),
+                0,
+                null,
+                new InitialSearchPhase.ArraySearchPhaseResults<>(shardsIter.size()),
+                request.getMaxConcurrentShardRequests(),
+                SearchResponse.Clusters.EMPTY) {
+
+                @Override
+                ShardSearchHedging hedging() {
+                    return hedging;
+                }
+
+                @Override
+                void onDiscardedShardResult(TestSearchPhaseResult result) {
+                    discardedResults.add(result);
+                }
+
+                @Override
+                protected void executePhaseOnShard(SearchShardIterator shardIt, ShardRouting shard,
+                                                   SearchActionListener<TestSearchPhaseResult> listener) {
+                    DiscoveryNode node = getConnection(null, shard.currentNodeId()).getNode();
+                    TestSearchPhaseResult result = new TestSearchPhaseResult(contextIdGenerator.incrementAndGet(), node);
+                    if (node.equals(slowNode)) {
+                        slowRequests.incrementAndGet();
+                        new Thread(() -> {
+                            try {
+                                slowNodeLatch.await();
+                            } catch (InterruptedException e) {
+                                throw new AssertionError(e);
+                            }
+                            listener.onResponse(result);
+                        }).start();
+                    } else {
+                        listener.onResponse(result);
+                    }
+                }
+
+                @Override
+                protected SearchPhase getNextPhase(SearchPhaseResults<TestSearchPhaseResult> results, SearchPhaseContext context) {
+                    return new SearchPhase("test") {
+                        @Override
+                        public void run() throws IOException {
+                            for (int i = 0; i < results.getNumShards(); i++) {
+                                TestSearchPhaseResult result = results.getAtomicArray().get(i);
+                                assertEquals(fastNode, result.node);
+                            }
+                            latch.countDown();
+                        }
+                    };
+                }
+            };
+        try {
+            asyncAction.start();
+            // all requests that were sent to the slow node are answered by the fast node
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            assertEquals(slowRequests.get(), hedging.getHedgedRequests());
+            assertEquals(slowRequests.get(), hedging.getWonHedgedRequests());
+
+            // the responses of the slow node arrive too late and are discarded
+            slowNodeLatch.countDown();
+            assertBusy(() -> assertEquals(slowRequests.get(), discardedResults.size()));
+            for (TestSearchPhaseResult result : discardedResults) {
+                assertEquals(slowNode, result.node);
+            }
+        } finally {
+            slowNodeLatch.countDown();
+            executor.shutdown();
+            terminate(threadPool);
+        }
+    }
+
+    public void testLateFailuresOfHedgedShardsAreIgnored() throws Exception {
+        SearchRequest request = new SearchRequest();
+        request.setMaxConcurrentShardRequests(randomIntBetween(1, 10));
+        CountDownLatch latch = new CountDownLatch(1);
+        ActionListener<SearchResponse> responseListener = new ActionListener<SearchResponse>() {
+            @Override
+            public void onResponse(SearchResponse searchResponse) {
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                logger.warn("test failed", e);
+                fail(e.getMessage());
+            }
+        };
+        DiscoveryNode slowNode = new DiscoveryNode("node_1", buildNewFakeTransportAddress(), Version.CURRENT);
+        DiscoveryNode fastNode = new DiscoveryNode("node_2", buildNewFakeTransportAddress(), Version.CURRENT);
+        GroupShardsIterator<SearchShardIterator> shardsIter = getShardsIter("idx",
+            new OriginalIndices(new String[]{"idx"}, IndicesOptions.strictExpandOpenAndForbidClosed()),
+            randomIntBetween(1, 10), true, slowNode, fastNode);
+        Map<String, Transport.Connection> lookup = new HashMap<>();
+        lookup.put(slowNode.getId(), new MockConnection(slowNode));
+        lookup.put(fastNode.getId(), new MockConnection(fastNode));
+        Map<String, AliasFilter> aliasFilters = Collections.singletonMap("_na_", new AliasFilter(null, Strings.EMPTY_ARRAY));
+
+        ThreadPool threadPool = new TestThreadPool(getTestName());
+        Settings settings = Settings.builder()
+            .put(ShardSearchHedging.HEDGING_ENABLED_SETTING.getKey(), true)
+            .put(ShardSearchHedging.HEDGING_MIN_DELAY_SETTING.getKey(), TimeValue.timeValueMillis(1))
+            .put(ShardSearchHedging.HEDGING_MAX_EXTRA_LOAD_SETTING.getKey(), 1.0)
+            .build();
+        ShardSearchHedging hedging = new ShardSearchHedging(settings,
+            new ClusterSettings(settings, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS), threadPool);
+        for (int i = 0; i < ShardSearchHedging.LATENCY_WINDOW; i++) {
+            hedging.onShardResponse(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+
+        AtomicInteger contextIdGenerator = new AtomicInteger(0);
+        CountDownLatch slowNodeLatch = new CountDownLatch(1);
+        List<Thread> slowRequests = new CopyOnWriteArrayList<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(randomIntBetween(1, Runtime.getRuntime().availableProcessors()));
+        AbstractSearchAsyncAction asyncAction =
+            new AbstractSearchAsyncAction<TestSearchPhaseResult>(
+                "test",
+                logger,
+                new SearchTransportService(Settings.EMPTY, null, null),
+                (cluster, node) -> lookup.get(node),
+                aliasFilters,
+                Collections.emptyMap(),
+                executor,
+                request,
+                responseListener,
+                shardsIter,
+                new TransportSearchAction.SearchTimeProvider(0, 0, () -> 0),
+                0,
+                null,
+                new InitialSearchPhase.ArraySearchPhaseResults<>(shardsIter.size()),
+                request.getMaxConcurrentShardRequests(),
+                SearchResponse.Clusters.EMPTY) {
+
+                @Override
+                ShardSearchHedging hedging() {
+                    return hedging;
+                }
+
+                @Override
+                protected void executePhaseOnShard(SearchShardIterator shardIt, ShardRouting shard,
+                                                   SearchActionListener<TestSearchPhaseResult> listener) {
+                    DiscoveryNode node = getConnection(null, shard.currentNodeId()).getNode();
+                    TestSearchPhaseResult result = new TestSearchPhaseResult(contextIdGenerator.incrementAndGet(), node);
+                    if (node.equals(slowNode)) {
+                        Thread thread = new Thread(() -> {
+                            try {
+                                slowNodeLatch.await();
+                            } catch (InterruptedException e) {
+                                throw new AssertionError(e);
+                            }
+                            listener.onFailure(new IOException("slow node failed"));
+                        });
+                        slowRequests.add(thread);
+                        thread.start();
+                    } else {
+                        listener.onResponse(result);
+                    }
+                }
+
+                @Override
+                protected SearchPhase getNextPhase(SearchPhaseResults<TestSearchPhaseResult> results, SearchPhaseContext context) {
+                    return new SearchPhase("test") {
+                        @Override
+                        public void run() throws IOException {
+                            latch.countDown();
+                        }
+                    };
+                }
+            };
+        try {
+            asyncAction.start();
+            // all requests that were sent to the slow node are answered by the fast node
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            assertEquals(slowRequests.size(), hedging.getWonHedgedRequests());
+
+            // the failures of the slow node arrive after the shards were answered and must not fail them
+            slowNodeLatch.countDown();
+            for (Thread thread : slowRequests) {
+                thread.join();
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+            SearchResponse searchResponse = asyncAction.buildSearchResponse(InternalSearchResponse.empty(), null);
+            assertEquals(shardsIter.size(), searchResponse.getSuccessfulShards());
+            assertEquals(0, searchResponse.getFailedShards());
+            assertEquals(0, searchResponse.getShardFailures().length);
+        } finally {
+            slowNodeLatch.countDown();
+            executor.shutdown();
+            terminate(threadPool);
+        }
+    }
+
+    public void testRetriesAreNotHedged() throws Exception {
+        SearchRequest request = new SearchRequest();
+        CountDownLatch latch = new CountDownLatch(1);
+        ActionListener<SearchResponse> responseListener = new ActionListener<SearchResponse>() {
+            @Override
+            public void onResponse(SearchResponse searchResponse) {
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                logger.warn("test failed", e);
+                fail(e.getMessage());
+            }
+        };
+        DiscoveryNode failingNode = new DiscoveryNode("node_1", buildNewFakeTransportAddress(), Version.CURRENT);
+        DiscoveryNode slowNode = new DiscoveryNode("node_2", buildNewFakeTransportAddress(), Version.CURRENT);
+        DiscoveryNode fastNode = new DiscoveryNode("node_3", buildNewFakeTransportAddress(), Version.CURRENT);
+        OriginalIndices originalIndices = new OriginalIndices(new String[]{"idx"}, IndicesOptions.strictExpandOpenAndForbidClosed());
+        ShardId shardId = new ShardId(new Index("idx", "_na_"), 0);
+        List<ShardRouting> copies = new ArrayList<>();
+        for (DiscoveryNode node : new DiscoveryNode[] {failingNode, slowNode, fastNode}) {
+            ShardRouting routing = ShardRouting.newUnassigned(shardId, copies.isEmpty(),
+                copies.isEmpty() ? RecoverySource.StoreRecoverySource.EMPTY_STORE_INSTANCE : RecoverySource.PeerRecoverySource.INSTANCE,
+                new UnassignedInfo(UnassignedInfo.Reason.INDEX_CREATED, "foobar"));
+            copies.add(routing.initialize(node.getId(), node.getId(), 0).moveToStarted());
+        }
+        GroupShardsIterator<SearchShardIterator> shardsIter = new GroupShardsIterator<>(
+            Collections.singletonList(new SearchShardIterator(null, shardId, copies, originalIndices)));
+        Map<String, Transport.Connection> lookup = new HashMap<>();
+        for (DiscoveryNode node : new DiscoveryNode[] {failingNode, slowNode, fastNode}) {
+            lookup.put(node.getId(), new MockConnection(node));
+        }
+        Map<String, AliasFilter> aliasFilters = Collections.singletonMap("_na_", new AliasFilter(null, Strings.EMPTY_ARRAY));
+
+        ThreadPool threadPool = new TestThreadPool(getTestName());
+        Settings settings = Settings.builder()
+            .put(ShardSearchHedging.HEDGING_ENABLED_SETTING.getKey(), true)
+            .put(ShardSearchHedging.HEDGING_MIN_DELAY_SETTING.getKey(), TimeValue.timeValueMillis(1))
+            .put(ShardSearchHedging.HEDGING_MAX_EXTRA_LOAD_SETTING.getKey(), 1.0)
+            .build();
+        ShardSearchHedging hedging = new ShardSearchHedging(settings,
+            new ClusterSettings(settings, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS), threadPool);
+        for (int i = 0; i < ShardSearchHedging.LATENCY_WINDOW; i++) {
+            hedging.onShardResponse(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+
+        AtomicInteger contextIdGenerator = new AtomicInteger(0);
+        CountDownLatch slowNodeLatch = new CountDownLatch(1);
+        AtomicInteger fastRequests = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(randomIntBetween(1, Runtime.getRuntime().availableProcessors()));
+        AbstractSearchAsyncAction asyncAction =
+            new AbstractSearchAsyncAction<TestSearchPhaseResult>(
+                "test",
+                logger,
+                new SearchTransportService(Settings.EMPTY, null, null),
+                (cluster, node) -> lookup.get(node),
+                aliasFilters,
+                Collections.emptyMap(),
+                executor,
+                request,
+                responseListener,
+                shardsIter,
+                new TransportSearchAction.SearchTimeProvider(0, 0, () -> 0),
+                0,
+                null,
+                new InitialSearchPhase.ArraySearchPhaseResults<>(shardsIter.size()),
+                request.getMaxConcurrentShardRequests(),
+                SearchResponse.Clusters.EMPTY) {
+
+                @Override
+                ShardSearchHedging hedging() {
+                    return hedging;
+                }
+
+                @Override
+                protected void executePhaseOnShard(SearchShardIterator shardIt, ShardRouting shard,
+                                                   SearchActionListener<TestSearchPhaseResult> listener) {
+                    DiscoveryNode node = getConnection(null, shard.currentNodeId()).getNode();
+                    TestSearchPhaseResult result = new TestSearchPhaseResult(contextIdGenerator.incrementAndGet(), node);
+                    if (node.equals(failingNode)) {
+                        listener.onFailure(new RuntimeException("boom"));
+                    } else if (node.equals(slowNode)) {
+                        new Thread(() -> {
+                            try {
+                                slowNodeLatch.await();
+                            } catch (InterruptedException e) {
+                                throw new AssertionError(e);
+                            }
+                            listener.onResponse(result);
+                        }).start();
+                    } else {
+                        fastRequests.incrementAndGet();
+                        listener.onResponse(result);
+                    }
+                }
+
+                @Override
+                protected SearchPhase getNextPhase(SearchPhaseResults<TestSearchPhaseResult> results, SearchPhaseContext context) {
+                    return new SearchPhase("test") {
+                        @Override
+                        public void run() throws IOException {
+                            assertEquals(slowNode, results.getAtomicArray().get(0).node);
+                            latch.countDown();
+                        }
+                    };
+                }
+            };
+        try {
+            asyncAction.start();
+            // the retry on the slow copy after the failure of the first copy is not hedged to the fast copy
+            assertFalse(latch.await(100, TimeUnit.MILLISECONDS));
+            slowNodeLatch.countDown();
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            assertEquals(0, fastRequests.get());
+            assertEquals(0, hedging.getHedgedRequests());
+        } finally {
+            slowNodeLatch.countDown();
+            executor.shutdown();
+            terminate(threadPool);
+        }
+    }
+
     static GroupShardsIterator<SearchShardIterator> getShardsIter(String index, OriginalIndices originalIndices, int numShards,
                                                      boolean doReplicas, DiscoveryNode primaryNode, DiscoveryNode replicaNode) {
         ArrayList<SearchShardIterator> list = new ArrayList<>();
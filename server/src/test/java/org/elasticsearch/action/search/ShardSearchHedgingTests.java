@@ -0,0 +1,114 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.test.ESTestCase;
+
+public class ShardSearchHedgingTests extends ESTestCase {
+
+    private static ShardSearchHedging newHedging(Settings settings, ClusterSettings clusterSettings) {
+        return new ShardSearchHedging(settings, clusterSettings, null);
+    }
+
+    private static ShardSearchHedging newHedging(Settings settings) {
+        return newHedging(settings, new ClusterSettings(settings, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+    }
+
+    public void testDelayIsPercentileOfRecentLatencies() {
+        Settings settings = Settings.builder()
+            .put(ShardSearchHedging.HEDGING_LATENCY_PERCENTILE_SETTING.getKey(), 90.0)
+            .put(ShardSearchHedging.HEDGING_MIN_DELAY_SETTING.getKey(), TimeValue.timeValueMillis(1))
+            .build();
+        ShardSearchHedging hedging = newHedging(settings);
+        assertEquals(-1, hedging.getDelayNanos());
+        // latencies from 1ms to 1024ms, the oldest ones are replaced by the second round
+        for (int round = 0; round < 2; round++) {
+            for (int i = 1; i <= ShardSearchHedging.LATENCY_WINDOW; i++) {
+                hedging.onShardResponse(TimeValue.timeValueMillis(i).nanos());
+            }
+        }
+        long delay = hedging.getDelayNanos();
+        assertEquals(TimeValue.timeValueMillis(922).nanos(), delay);
+    }
+
+    public void testDelayIsAtLeastMinDelay() {
+        Settings settings = Settings.builder()
+            .put(ShardSearchHedging.HEDGING_MIN_DELAY_SETTING.getKey(), TimeValue.timeValueMillis(50))
+            .build();
+        ShardSearchHedging hedging = newHedging(settings);
+        for (int i = 0; i < ShardSearchHedging.LATENCY_WINDOW; i++) {
+            hedging.onShardResponse(TimeValue.timeValueMillis(2).nanos());
+        }
+        assertEquals(TimeValue.timeValueMillis(50).nanos(), hedging.getDelayNanos());
+    }
+
+    public void testHedgesAreLimitedByBudget() {
+        Settings settings = Settings.builder()
+            .put(ShardSearchHedging.HEDGING_MAX_EXTRA_LOAD_SETTING.getKey(), 0.1)
+            .build();
+        ShardSearchHedging hedging = newHedging(settings);
+        assertFalse(hedging.tryStartHedge());
+        for (int i = 0; i < 9; i++) {
+            hedging.onShardRequest();
+        }
+        assertFalse(hedging.tryStartHedge());
+        hedging.onShardRequest();
+        assertTrue(hedging.tryStartHedge());
+        assertFalse(hedging.tryStartHedge());
+        hedging.onHedgeDone(true);
+        assertEquals(1, hedging.getHedgedRequests());
+        assertEquals(1, hedging.getWonHedgedRequests());
+    }
+
+    public void testHedgesAreLimitedByInFlight() {
+        Settings settings = Settings.builder()
+            .put(ShardSearchHedging.HEDGING_MAX_EXTRA_LOAD_SETTING.getKey(), 1.0)
+            .put(ShardSearchHedging.HEDGING_MAX_IN_FLIGHT_SETTING.getKey(), 2)
+            .build();
+        ShardSearchHedging hedging = newHedging(settings);
+        for (int i = 0; i < 10; i++) {
+            hedging.onShardRequest();
+        }
+        assertTrue(hedging.tryStartHedge());
+        assertTrue(hedging.tryStartHedge());
+        assertFalse(hedging.tryStartHedge());
+        hedging.onHedgeDone(false);
+        assertTrue(hedging.tryStartHedge());
+        assertEquals(3, hedging.getHedgedRequests());
+        assertEquals(0, hedging.getWonHedgedRequests());
+    }
+
+    public void testDynamicSettings() {
+        ClusterSettings clusterSettings = new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS);
+        ShardSearchHedging hedging = newHedging(Settings.EMPTY, clusterSettings);
+        assertFalse(hedging.isEnabled());
+        clusterSettings.applySettings(Settings.builder()
+            .put(ShardSearchHedging.HEDGING_ENABLED_SETTING.getKey(), true)
+            .put(ShardSearchHedging.HEDGING_MAX_IN_FLIGHT_SETTING.getKey(), 0)
+            .put(ShardSearchHedging.HEDGING_MAX_EXTRA_LOAD_SETTING.getKey(), 1.0)
+            .build());
+        assertTrue(hedging.isEnabled());
+        hedging.onShardRequest();
+        assertFalse(hedging.tryStartHedge());
+    }
+}
@@ -33,6 +33,10 @@ import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.Randomness;
 import org.elasticsearch.common.UUIDs;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.TermsValuesSourceBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.tasks.TaskManager;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.threadpool.TestThreadPool;
@@ -150,6 +154,97 @@ public class TransportMultiSearchActionTests extends ESTestCase {
         }
     }
 
+    public void testRetriesOfFailedCombinedSearchesRespectMaxConcurrentSearches() throws Exception {
+        Settings settings = Settings.builder()
+                .put("node.name", TransportMultiSearchActionTests.class.getSimpleName())
+                .build();
+        ActionFilters actionFilters = mock(ActionFilters.class);
+        when(actionFilters.filters()).thenReturn(new ActionFilter[0]);
+        TaskManager taskManager = mock(TaskManager.class);
+        TransportService transportService = new TransportService(Settings.EMPTY, null, threadPool,
+            TransportService.NOOP_TRANSPORT_INTERCEPTOR,
+            boundAddress -> DiscoveryNode.createLocal(settings, boundAddress.publishAddress(), UUIDs.randomBase64UUID()), null,
+            Collections.emptySet()) {
+            @Override
+            public TaskManager getTaskManager() {
+                return taskManager;
+            }
+        };
+        ClusterService clusterService = mock(ClusterService.class);
+        when(clusterService.state()).thenReturn(ClusterState.builder(new ClusterName("test")).build());
+        IndexNameExpressionResolver resolver = new IndexNameExpressionResolver(Settings.EMPTY);
+
+        int maxAllowedConcurrentSearches = randomIntBetween(2, 8);
+        AtomicInteger counter = new AtomicInteger();
+        AtomicInteger failedCombinedSearches = new AtomicInteger();
+        AtomicReference<AssertionError> errorHolder = new AtomicReference<>();
+        final ExecutorService executor = threadPool.executor(ThreadPool.Names.GENERIC);
+        TransportAction<SearchRequest, SearchResponse> searchAction = new TransportAction<SearchRequest, SearchResponse>
+                (Settings.EMPTY, "action", threadPool, actionFilters, resolver, taskManager) {
+            @Override
+            protected void doExecute(SearchRequest request, ActionListener<SearchResponse> listener) {
+                int currentConcurrentSearches = counter.incrementAndGet();
+                if (currentConcurrentSearches > maxAllowedConcurrentSearches) {
+                    errorHolder.set(new AssertionError("Current concurrent search [" + currentConcurrentSearches +
+                            "] is higher than is allowed [" + maxAllowedConcurrentSearches + "]"));
+                }
+                // only the combined requests have more than one aggregation
+                final boolean combined = request.source().aggregations().count() > 1;
+                executor.execute(() -> {
+                    counter.decrementAndGet();
+                    if (combined) {
+                        failedCombinedSearches.incrementAndGet();
+                        listener.onFailure(new IllegalArgumentException("combined search failed"));
+                    } else {
+                        listener.onResponse(new SearchResponse());
+                    }
+                });
+            }
+        };
+
+        TransportMultiSearchAction action =
+                new TransportMultiSearchAction(threadPool, actionFilters, transportService, clusterService, searchAction, resolver, 10,
+                System::nanoTime);
+
+        // every group of requests that only differ by their aggregations is combined into a single search that fails
+        int numGroups = randomIntBetween(2, 10);
+        int numSearchRequests = 0;
+        MultiSearchRequest multiSearchRequest = new MultiSearchRequest();
+        multiSearchRequest.maxConcurrentSearchRequests(maxAllowedConcurrentSearches);
+        for (int i = 0; i < numGroups; i++) {
+            int groupSize = randomIntBetween(2, 10);
+            for (int j = 0; j < groupSize; j++) {
+                multiSearchRequest.add(new SearchRequest("index_" + i).source(new SearchSourceBuilder().size(0)
+                    .aggregation(AggregationBuilders.max("max_" + j).field("number"))));
+            }
+            numSearchRequests += groupSize;
+        }
+
+        MultiSearchResponse response = action.execute(multiSearchRequest).actionGet();
+        assertThat(response.getResponses().length, equalTo(numSearchRequests));
+        for (MultiSearchResponse.Item item : response.getResponses()) {
+            assertFalse(item.isFailure());
+        }
+        assertThat(failedCombinedSearches.get(), equalTo(numGroups));
+        assertThat(errorHolder.get(), nullValue());
+    }
+
+    public void testTopLevelOnlyAggregationsAreNotCombined() {
+        SearchRequest request = new SearchRequest("test").source(new SearchSourceBuilder().size(0)
+            .aggregation(AggregationBuilders.max("max").field("number")));
+        assertNotNull(TransportMultiSearchAction.withoutAggregations(request));
+
+        request = new SearchRequest("test").source(new SearchSourceBuilder().size(0)
+            .aggregation(AggregationBuilders.max("max").field("number"))
+            .aggregation(AggregationBuilders.global("global")));
+        assertNull(TransportMultiSearchAction.withoutAggregations(request));
+
+        request = new SearchRequest("test").source(new SearchSourceBuilder().size(0)
+            .aggregation(new CompositeAggregationBuilder("composite",
+                Collections.singletonList(new TermsValuesSourceBuilder("terms").field("keyword")))));
+        assertNull(TransportMultiSearchAction.withoutAggregations(request));
+    }
+
     public void testDefaultMaxConcurrentSearches() {
         int numDataNodes = randomIntBetween(1, 10);
         DiscoveryNodes.Builder builder = DiscoveryNodes.builder();
@@ -48,6 +48,7 @@ import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.object.HasToString.hasToString;
 
 public class OperationRoutingTests extends ESTestCase{
@@ -607,4 +608,39 @@ public class OperationRoutingTests extends ESTestCase{
         terminate(threadPool);
     }
 
+    public void testAdaptiveReplicaSelectionOfGets() throws Exception {
+        ClusterState state = ClusterStateCreationUtils.stateWithAssignedPrimariesAndReplicas(new String[] {"test"}, 1, 2);
+        OperationRouting opRouting = new OperationRouting(Settings.EMPTY,
+                new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        opRouting.setUseAdaptiveReplicaSelection(true);
+        TestThreadPool threadPool = new TestThreadPool("testAdaptiveReplicaSelectionOfGets");
+        ClusterService clusterService = ClusterServiceUtils.createClusterService(threadPool);
+        ResponseCollectorService collector = new ResponseCollectorService(Settings.EMPTY, clusterService);
+        ResponseCollectorService gets = collector.readCollector("get");
+
+        // searches are slow on node 1, gets are not
+        collector.addNodeStatistics("node_0", 1, TimeValue.timeValueMillis(10).nanos(), TimeValue.timeValueMillis(10).nanos());
+        collector.addNodeStatistics("node_1", 5, TimeValue.timeValueMillis(500).nanos(), TimeValue.timeValueMillis(400).nanos());
+        collector.addNodeStatistics("node_2", 1, TimeValue.timeValueMillis(10).nanos(), TimeValue.timeValueMillis(10).nanos());
+        gets.addResponseTime("node_0", TimeValue.timeValueMillis(50).nanos());
+        gets.addResponseTime("node_1", TimeValue.timeValueMillis(1).nanos());
+        gets.addResponseTime("node_2", TimeValue.timeValueMillis(50).nanos());
+
+        ShardIterator shardIterator = opRouting.getShards(state, "test", 0, null, gets);
+        assertThat(shardIterator.size(), equalTo(3));
+        assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo("node_1"));
+        shardIterator = opRouting.getShards(state, "test", "id", null, null, gets);
+        assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo("node_1"));
+
+        // the rank accounts for the gets in flight
+        for (int i = 0; i < 10; i++) {
+            gets.onReadSent("node_1");
+        }
+        shardIterator = opRouting.getShards(state, "test", 0, null, gets);
+        assertThat(shardIterator.nextOrNull().currentNodeId(), not(equalTo("node_1")));
+
+        IOUtils.close(clusterService);
+        terminate(threadPool);
+    }
+
 }
@@ -0,0 +1,155 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.breaker;
+
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.indices.breaker.BreakerSettings;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class StripedMemoryCircuitBreakerTests extends ESTestCase {
+
+    private StripedMemoryCircuitBreaker newBreaker(long limit, int stripes) {
+        HierarchyCircuitBreakerService service = new HierarchyCircuitBreakerService(Settings.EMPTY,
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS)) {
+            @Override
+            public void checkParentLimit(String label) throws CircuitBreakingException {
+                // only the child limit is tested here
+            }
+        };
+        BreakerSettings settings = new BreakerSettings(CircuitBreaker.REQUEST, limit, 1.0, CircuitBreaker.Type.STRIPED);
+        return new StripedMemoryCircuitBreaker(settings, null, logger, service, CircuitBreaker.REQUEST, stripes);
+    }
+
+    public void testSmallAdditionsAreTakenFromCredit() {
+        StripedMemoryCircuitBreaker breaker = newBreaker(-1, 1);
+        breaker.addEstimateBytesAndMaybeBreak(100, "test");
+        assertEquals(StripedMemoryCircuitBreaker.CHUNK_SIZE, breaker.getReserved());
+        assertEquals(100, breaker.getUsed());
+
+        breaker.addEstimateBytesAndMaybeBreak(200, "test");
+        assertEquals(StripedMemoryCircuitBreaker.CHUNK_SIZE, breaker.getReserved());
+        assertEquals(300, breaker.getUsed());
+
+        breaker.addWithoutBreaking(-300);
+        assertEquals(0, breaker.getUsed());
+        assertEquals(StripedMemoryCircuitBreaker.CHUNK_SIZE, breaker.getCredits());
+    }
+
+    public void testLargeAdditionsBypassStripes() {
+        StripedMemoryCircuitBreaker breaker = newBreaker(-1, 1);
+        long bytes = StripedMemoryCircuitBreaker.CHUNK_SIZE + randomIntBetween(0, 1000);
+        breaker.addEstimateBytesAndMaybeBreak(bytes, "test");
+        assertEquals(bytes, breaker.getReserved());
+        assertEquals(0, breaker.getCredits());
+    }
+
+    public void testReleasedCreditIsBounded() {
+        StripedMemoryCircuitBreaker breaker = newBreaker(-1, 1);
+        long bytes = StripedMemoryCircuitBreaker.CHUNK_SIZE * randomIntBetween(3, 10);
+        breaker.addEstimateBytesAndMaybeBreak(bytes, "test");
+        breaker.addEstimateBytesAndMaybeBreak(-bytes, "test");
+        assertEquals(0, breaker.getUsed());
+        assertEquals(StripedMemoryCircuitBreaker.CHUNK_SIZE, breaker.getCredits());
+    }
+
+    public void testBreaksWithinSlack() {
+        long limit = StripedMemoryCircuitBreaker.CHUNK_SIZE * randomIntBetween(4, 20);
+        StripedMemoryCircuitBreaker breaker = newBreaker(limit, 1);
+        long added = 0;
+        try {
+            while (true) {
+                breaker.addEstimateBytesAndMaybeBreak(1024, "test");
+                added += 1024;
+            }
+        } catch (CircuitBreakingException e) {
+            assertEquals(1, breaker.getTrippedCount());
+        }
+        // with a single thread the credit is returned before breaking, so the limit is exact
+        assertThat(added + 1024, greaterThan(limit));
+        assertThat(added, lessThanOrEqualTo(limit));
+        assertEquals(added, breaker.getUsed());
+    }
+
+    public void testConcurrentUpdates() throws Exception {
+        StripedMemoryCircuitBreaker breaker = newBreaker(-1, randomIntBetween(1, 16));
+        int numThreads = randomIntBetween(2, 8);
+        int iterations = scaledRandomIntBetween(1000, 10000);
+        AtomicLong maxUsed = new AtomicLong();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int j = 0; j < iterations; j++) {
+                        long bytes = randomIntBetween(1, 100_000);
+                        breaker.addEstimateBytesAndMaybeBreak(bytes, "test");
+                        maxUsed.accumulateAndGet(breaker.getReserved(), Math::max);
+                        breaker.addWithoutBreaking(-bytes);
+                    }
+                } catch (Exception e) {
+                    failure.set(e);
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+        assertEquals(0, breaker.getUsed());
+        assertThat(breaker.getReserved(), lessThanOrEqualTo(breaker.getMaxSlack()));
+        // every thread may hold its bytes and a chunk that it hasn't credited to its stripe yet
+        long inFlight = numThreads * (100_000L + 2 * StripedMemoryCircuitBreaker.CHUNK_SIZE);
+        assertThat(maxUsed.get(), lessThanOrEqualTo(inFlight + breaker.getMaxSlack()));
+    }
+
+    public void testInheritsUsedBytesAndReturnsCredit() {
+        StripedMemoryCircuitBreaker breaker = newBreaker(-1, 1);
+        breaker.addEstimateBytesAndMaybeBreak(100, "test");
+        BreakerSettings settings = new BreakerSettings(CircuitBreaker.REQUEST, -1, 1.0, CircuitBreaker.Type.STRIPED);
+        StripedMemoryCircuitBreaker newBreaker = new StripedMemoryCircuitBreaker(settings, breaker, logger, null, CircuitBreaker.REQUEST);
+        assertEquals(100, newBreaker.getUsed());
+        assertEquals(100, newBreaker.getReserved());
+    }
+
+    public void testServiceCreatesStripedBreaker() {
+        Settings settings = Settings.builder()
+            .put(HierarchyCircuitBreakerService.REQUEST_CIRCUIT_BREAKER_TYPE_SETTING.getKey(), "striped")
+            .build();
+        HierarchyCircuitBreakerService service = new HierarchyCircuitBreakerService(settings,
+            new ClusterSettings(settings, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        assertThat(service.getBreaker(CircuitBreaker.REQUEST), instanceOf(StripedMemoryCircuitBreaker.class));
+        assertThat(service.getBreaker(CircuitBreaker.FIELDDATA).getClass(), equalTo(ChildMemoryCircuitBreaker.class));
+    }
+}
@@ -41,8 +41,10 @@ import java.util.concurrent.TimeUnit;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.startsWith;
 
 public class TimeZoneRoundingTests extends ESTestCase {
@@ -206,6 +208,70 @@ public class TimeZoneRoundingTests extends ESTestCase {
         }
     }
 
+    /**
+     * The prepared rounding must round every value like the rounding it was prepared from, in and out of its range.
+     */
+    public void testPreparedRoundingRandom() {
+        for (int i = 0; i < 100; i++) {
+            DateTimeZone tz = randomDateTimeZone();
+            final Rounding rounding;
+            final long unitMillis;
+            if (randomBoolean()) {
+                DateTimeUnit timeUnit = randomTimeUnit();
+                rounding = new Rounding.TimeUnitRounding(timeUnit, tz);
+                unitMillis = timeUnit.field(tz).getDurationField().getUnitMillis();
+            } else {
+                TimeUnit unit = randomFrom(new TimeUnit[] {TimeUnit.MINUTES, TimeUnit.HOURS, TimeUnit.DAYS});
+                unitMillis = unit.toMillis(randomIntBetween(1, 365));
+                rounding = new Rounding.TimeIntervalRounding(unitMillis, tz);
+            }
+            long min = Math.abs(randomLong() % (2 * (long) 10e11)); // 1970-01-01T00:00:00Z - 2033-05-18T05:33:20.000+02:00
+            long max = min + Math.abs(randomLong() % (5 * 365 * (long) DateTimeConstants.MILLIS_PER_DAY));
+            Rounding.Prepared prepared = rounding.prepare(min, max);
+            for (int j = 0; j < 100; j++) {
+                long date = min + Math.abs(randomLong() % (max - min + 1));
+                if (randomBoolean()) {
+                    date = nastyDate(date, tz, unitMillis);
+                } else if (rarely()) {
+                    // outside of the prepared range
+                    date = randomBoolean() ? min - 1 - randomInt(1000) : max + 1 + randomInt(1000);
+                }
+                assertThat("prepared rounding of [" + new DateTime(date, tz) + "] with [" + rounding + "] between ["
+                        + new DateTime(min, tz) + "] and [" + new DateTime(max, tz) + "]",
+                    prepared.round(date), equalTo(rounding.round(date)));
+            }
+            // the bounds and the transitions between them
+            assertThat(prepared.round(min), equalTo(rounding.round(min)));
+            assertThat(prepared.round(max), equalTo(rounding.round(max)));
+            for (long transition = tz.nextTransition(min); transition > min && transition <= max;
+                    transition = tz.nextTransition(transition)) {
+                for (long date = transition - 1; date <= transition + 1; date++) {
+                    assertThat(prepared.round(date), equalTo(rounding.round(date)));
+                }
+            }
+        }
+    }
+
+    public void testPreparedRoundingStrategy() {
+        DateTimeZone tz = DateTimeZone.forID("Europe/Berlin");
+        long min = time("2015-01-01T00:00:00Z");
+        long max = time("2017-12-31T23:59:59Z");
+        assertThat(new TimeUnitRounding(DateTimeUnit.HOUR_OF_DAY, tz).prepare(min, max),
+            instanceOf(Rounding.FixedLengthRounding.class));
+        assertThat(new TimeUnitRounding(DateTimeUnit.DAY_OF_MONTH, tz).prepare(min, max),
+            instanceOf(Rounding.FixedLengthRounding.class));
+        assertThat(new TimeIntervalRounding(TimeUnit.MINUTES.toMillis(90), tz).prepare(min, max),
+            instanceOf(Rounding.FixedLengthRounding.class));
+        assertThat(new TimeUnitRounding(DateTimeUnit.MONTH_OF_YEAR, tz).prepare(min, max),
+            instanceOf(Rounding.RoundedValuesLookup.class));
+        // too many rounded values to look them up
+        assertThat(new TimeUnitRounding(DateTimeUnit.WEEK_OF_WEEKYEAR, tz).prepare(0, time("2300-01-01T00:00:00Z")),
+            not(instanceOf(Rounding.RoundedValuesLookup.class)));
+        // an empty range
+        Rounding.Prepared prepared = new TimeUnitRounding(DateTimeUnit.DAY_OF_MONTH, tz).prepare(max, min);
+        assertThat(prepared.round(time("2016-03-27T02:30:00Z")), equalTo(time("2016-03-26T23:00:00Z")));
+    }
+
     /**
      * To be even more nasty, go to a transition in the selected time zone.
      * In one third of the cases stay there, otherwise go half a unit back or forth
@@ -0,0 +1,146 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.util.concurrent;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Tests for the automatic sizing of the {@code AutoSizingEsThreadPoolExecutor} based on the time taken for each task.
+ */
+public class AutoSizingEsThreadPoolExecutorTests extends ESTestCase {
+
+    public void testCalculateDesiredSize() {
+        // one thread busy for the whole frame needs a second thread to stay at the target utilization
+        assertThat(AutoSizingEsThreadPoolExecutor.calculateDesiredSize(1000, 1000), equalTo(2));
+        // three threads busy for the whole frame
+        assertThat(AutoSizingEsThreadPoolExecutor.calculateDesiredSize(3000, 1000), equalTo(4));
+        // three threads busy for half of the frame
+        assertThat(AutoSizingEsThreadPoolExecutor.calculateDesiredSize(1500, 1000), equalTo(2));
+        // an idle pool keeps at least one thread
+        assertThat(AutoSizingEsThreadPoolExecutor.calculateDesiredSize(1, 1000), equalTo(1));
+        assertThat(AutoSizingEsThreadPoolExecutor.calculateDesiredSize(Long.MAX_VALUE, 1), equalTo(Integer.MAX_VALUE));
+    }
+
+    public void testGrowsUpToMax() throws Exception {
+        ThreadContext context = new ThreadContext(Settings.EMPTY);
+        int max = randomIntBetween(3, 6);
+        int measureWindow = randomIntBetween(10, 100);
+        AutoSizingEsThreadPoolExecutor executor = newExecutor(context, 2, 1, max, slowWrapper(), measureWindow, () -> -1);
+        assertThat(executor.getLastAdjustment(), equalTo(AutoSizingEsThreadPoolExecutor.SizeAdjustment.NONE));
+
+        // every task claims to have taken two minutes, so the pool looks saturated after each frame
+        executeTask(executor, measureWindow * (max + 2));
+
+        assertBusy(() -> {
+            assertThat(executor.getCurrentSize(), equalTo(max));
+            assertThat(executor.getMaximumPoolSize(), equalTo(max));
+        });
+        assertThat(executor.getLastAdjustment(), equalTo(AutoSizingEsThreadPoolExecutor.SizeAdjustment.DEMAND));
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        context.close();
+    }
+
+    public void testShrinksDownToMin() throws Exception {
+        ThreadContext context = new ThreadContext(Settings.EMPTY);
+        int size = randomIntBetween(3, 6);
+        int min = randomIntBetween(1, 2);
+        int measureWindow = randomIntBetween(10, 100);
+        AutoSizingEsThreadPoolExecutor executor = newExecutor(context, size, min, size, fastWrapper(), measureWindow, () -> -1);
+
+        executeTask(executor, measureWindow * (size + 2));
+
+        assertBusy(() -> {
+            assertThat(executor.getCurrentSize(), equalTo(min));
+            assertThat(executor.getMaximumPoolSize(), equalTo(min));
+        });
+        assertThat(executor.getLastAdjustment(), equalTo(AutoSizingEsThreadPoolExecutor.SizeAdjustment.IDLE));
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        context.close();
+    }
+
+    public void testDoesNotGrowWhenCpuIsSaturated() throws Exception {
+        ThreadContext context = new ThreadContext(Settings.EMPTY);
+        int measureWindow = randomIntBetween(10, 100);
+        AutoSizingEsThreadPoolExecutor executor = newExecutor(context, 2, 1, 8, slowWrapper(), measureWindow, () -> 95);
+
+        executeTask(executor, measureWindow * 3);
+
+        assertBusy(() -> assertThat(executor.getCompletedTaskCount(), equalTo((long) measureWindow * 3)));
+        assertThat(executor.getCurrentSize(), equalTo(2));
+        assertThat(executor.getLastAdjustment(), equalTo(AutoSizingEsThreadPoolExecutor.SizeAdjustment.NONE));
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        context.close();
+    }
+
+    private AutoSizingEsThreadPoolExecutor newExecutor(ThreadContext context, int size, int min, int max,
+                                                       Function<Runnable, Runnable> wrapper, int measureWindow, IntSupplier cpuPercent) {
+        AutoSizingEsThreadPoolExecutor executor = new AutoSizingEsThreadPoolExecutor("test-threadpool", size, min, max,
+            ConcurrentCollections.newBlockingQueue(), wrapper, measureWindow, 90, cpuPercent,
+            EsExecutors.daemonThreadFactory("autosizetest"), new EsAbortPolicy(), context);
+        executor.prestartAllCoreThreads();
+        logger.info("--> executor: {}", executor);
+        return executor;
+    }
+
+    private Function<Runnable, Runnable> fastWrapper() {
+        return (runnable) -> new SettableTimedRunnable(TimeUnit.NANOSECONDS.toNanos(1));
+    }
+
+    private Function<Runnable, Runnable> slowWrapper() {
+        return (runnable) -> new SettableTimedRunnable(TimeUnit.MINUTES.toNanos(2));
+    }
+
+    /** Execute a blank task {@code times} times for the executor */
+    private void executeTask(AutoSizingEsThreadPoolExecutor executor, int times) {
+        logger.info("--> executing a task [{}] times", times);
+        for (int i = 0; i < times; i++) {
+            executor.execute(() -> {});
+        }
+    }
+
+    public class SettableTimedRunnable extends TimedRunnable {
+        private final long timeTaken;
+
+        public SettableTimedRunnable(long timeTaken) {
+            super(() -> {});
+            this.timeTaken = timeTaken;
+        }
+
+        @Override
+        public long getTotalNanos() {
+            return timeTaken;
+        }
+
+        @Override
+        public long getTotalExecutionNanos() {
+            return timeTaken;
+        }
+    }
+}
@@ -623,6 +623,30 @@ public class ThreadContextTests extends ESTestCase {
         assertEquals("value for key [foo] already present", e.getMessage());
     }
 
+    public void testGetHeadersIsNotAffectedByLaterChanges() {
+        Settings.Builder settings = Settings.builder();
+        if (randomBoolean()) {
+            settings.put("request.headers.default", "1");
+        }
+        ThreadContext threadContext = new ThreadContext(settings.build());
+        threadContext.putHeader("foo", "bar");
+        Map<String, String> headers = threadContext.getHeaders();
+        Map<String, List<String>> responseHeaders = threadContext.getResponseHeaders();
+        assertEquals("bar", headers.get("foo"));
+        assertTrue(responseHeaders.isEmpty());
+        expectThrows(UnsupportedOperationException.class, () -> headers.put("baz", "qux"));
+
+        try (ThreadContext.StoredContext ignored = threadContext.newStoredContext(false)) {
+            threadContext.putHeader("baz", "qux");
+            threadContext.addResponseHeader("foo", "bar");
+            assertEquals("qux", threadContext.getHeaders().get("baz"));
+            assertEquals(Collections.singletonList("bar"), threadContext.getResponseHeaders().get("foo"));
+        }
+        assertNull(headers.get("baz"));
+        assertTrue(responseHeaders.isEmpty());
+        assertNull(threadContext.getHeader("baz"));
+    }
+
     /**
      * Sometimes wraps a Runnable in an AbstractRunnable.
      */
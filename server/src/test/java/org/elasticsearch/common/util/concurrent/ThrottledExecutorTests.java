@@ -0,0 +1,152 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.util.concurrent;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class ThrottledExecutorTests extends ESTestCase {
+
+    public void testInvalidMaxConcurrency() {
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> new ThrottledExecutor(EsExecutors.newDirectExecutorService(), 0, new ThreadContext(Settings.EMPTY)));
+        assertThat(e.getMessage(), equalTo("max concurrency must be at least 1, got [0]"));
+    }
+
+    public void testLimitsConcurrency() throws Exception {
+        ThreadContext context = new ThreadContext(Settings.EMPTY);
+        ExecutorService delegate = EsExecutors.newScaling(getTestName(), 1, 32, 1, TimeUnit.MINUTES,
+            EsExecutors.daemonThreadFactory("test"), context);
+        try {
+            int maxConcurrency = randomIntBetween(1, 4);
+            ThrottledExecutor executor = new ThrottledExecutor(delegate, maxConcurrency, context);
+            int tasks = randomIntBetween(maxConcurrency, 100);
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger maxRunning = new AtomicInteger();
+            CountDownLatch done = new CountDownLatch(tasks);
+            for (int i = 0; i < tasks; i++) {
+                executor.execute(() -> {
+                    int current = running.incrementAndGet();
+                    maxRunning.accumulateAndGet(current, Math::max);
+                    try {
+                        Thread.sleep(randomIntBetween(0, 2));
+                    } catch (InterruptedException e) {
+                        throw new AssertionError(e);
+                    }
+                    running.decrementAndGet();
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+            assertThat(maxRunning.get(), lessThanOrEqualTo(maxConcurrency));
+            assertBusy(() -> assertThat(executor.getRunning(), equalTo(0)));
+            assertThat(executor.getQueueSize(), equalTo(0));
+        } finally {
+            terminate(delegate);
+        }
+    }
+
+    public void testQueuedTasksDoNotHoldThreads() throws Exception {
+        ThreadContext context = new ThreadContext(Settings.EMPTY);
+        ExecutorService delegate = EsExecutors.newScaling(getTestName(), 1, 32, 1, TimeUnit.MINUTES,
+            EsExecutors.daemonThreadFactory("test"), context);
+        try {
+            ThrottledExecutor executor = new ThrottledExecutor(delegate, 1, context);
+            CountDownLatch block = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(11);
+            executor.execute(() -> {
+                try {
+                    block.await();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                done.countDown();
+            });
+            for (int i = 0; i < 10; i++) {
+                executor.execute(done::countDown);
+            }
+            assertThat(executor.getRunning(), equalTo(1));
+            assertThat(executor.getQueueSize(), equalTo(10));
+            assertThat(((EsThreadPoolExecutor) delegate).getPoolSize(), equalTo(1));
+            block.countDown();
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+        } finally {
+            terminate(delegate);
+        }
+    }
+
+    public void testReleasesPermitOnFailure() {
+        ThrottledExecutor executor = new ThrottledExecutor(EsExecutors.newDirectExecutorService(), 1, new ThreadContext(Settings.EMPTY));
+        IllegalStateException e = expectThrows(IllegalStateException.class, () -> executor.execute(() -> {
+            throw new IllegalStateException("simulated");
+        }));
+        assertThat(e.getMessage(), equalTo("simulated"));
+        assertThat(executor.getRunning(), equalTo(0));
+        AtomicInteger counter = new AtomicInteger();
+        executor.execute(counter::incrementAndGet);
+        assertThat(counter.get(), equalTo(1));
+        assertThat(executor.getRunning(), equalTo(0));
+    }
+
+    public void testReleasesPermitOnRejection() {
+        ThrottledExecutor executor = new ThrottledExecutor(r -> {
+            throw new EsRejectedExecutionException("rejected");
+        }, 1, new ThreadContext(Settings.EMPTY));
+        expectThrows(EsRejectedExecutionException.class, () -> executor.execute(() -> {}));
+        assertThat(executor.getRunning(), equalTo(0));
+        assertThat(executor.getQueueSize(), equalTo(0));
+    }
+
+    public void testPreservesThreadContext() throws Exception {
+        ThreadContext context = new ThreadContext(Settings.EMPTY);
+        ExecutorService delegate = EsExecutors.newScaling(getTestName(), 1, 4, 1, TimeUnit.MINUTES,
+            EsExecutors.daemonThreadFactory("test"), context);
+        try {
+            ThrottledExecutor executor = new ThrottledExecutor(delegate, 1, context);
+            int tasks = randomIntBetween(2, 20);
+            CountDownLatch done = new CountDownLatch(tasks);
+            AtomicInteger mismatches = new AtomicInteger();
+            for (int i = 0; i < tasks; i++) {
+                final String value = Integer.toString(i);
+                try (ThreadContext.StoredContext ignored = context.stashContext()) {
+                    context.putHeader("task", value);
+                    executor.execute(() -> {
+                        if (value.equals(context.getHeader("task")) == false) {
+                            mismatches.incrementAndGet();
+                        }
+                        done.countDown();
+                    });
+                }
+            }
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+            assertThat(mismatches.get(), equalTo(0));
+        } finally {
+            terminate(delegate);
+        }
+    }
+}
@@ -39,8 +39,12 @@ import org.apache.lucene.store.RAMDirectory;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.BitSet;
 import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
 import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.test.ESTestCase;
@@ -51,6 +55,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
 
 public class BitSetFilterCacheTests extends ESTestCase {
 
@@ -182,6 +188,52 @@ public class BitSetFilterCacheTests extends ESTestCase {
         assertEquals(0, stats.get());
     }
 
+    public void testOffHeapBitSetsAreAccounted() throws IOException {
+        IndexWriter writer = new IndexWriter(
+                new RAMDirectory(),
+                new IndexWriterConfig(new StandardAnalyzer()).setMergePolicy(new LogByteSizeMergePolicy())
+        );
+        for (int i = 0; i < 10; i++) {
+            Document document = new Document();
+            document.add(new StringField("field", "value", Field.Store.NO));
+            writer.addDocument(document);
+        }
+        writer.commit();
+        IndexReader reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), new ShardId("test", "_na_", 0));
+
+        IndexSettings indexSettings = IndexSettingsModule.newIndexSettings("test", Settings.builder()
+            .put(BitsetFilterCache.INDEX_STORE_FIXED_BITSET_FILTERS_OFF_HEAP_SETTING.getKey(), true)
+            .build());
+        CircuitBreaker breaker = new MemoryCircuitBreaker(new ByteSizeValue(1, ByteSizeUnit.KB), 1.0, logger);
+        BitsetFilterCache cache = new BitsetFilterCache(indexSettings, new BitsetFilterCache.Listener() {
+            @Override
+            public void onCache(ShardId shardId, Accountable accountable) {
+
+            }
+
+            @Override
+            public void onRemoval(ShardId shardId, Accountable accountable) {
+
+            }
+        }, breaker);
+        BitSetProducer filter = cache.getBitSetProducer(new TermQuery(new Term("field", "value")));
+        assertThat(matchCount(filter, reader), equalTo(10));
+        BitSet bitSet = filter.getBitSet(reader.leaves().get(0));
+        assertThat(bitSet, instanceOf(OffHeapBitSet.class));
+        assertEquals(((OffHeapBitSet) bitSet).offHeapBytes(), breaker.getUsed());
+
+        // bitsets that don't fit in the breaker stay on heap
+        breaker.addEstimateBytesAndMaybeBreak(1024 - breaker.getUsed(), "test");
+        filter = cache.getBitSetProducer(new MatchAllDocsQuery());
+        assertThat(matchCount(filter, reader), equalTo(10));
+        assertThat(filter.getBitSet(reader.leaves().get(0)), not(instanceOf(OffHeapBitSet.class)));
+        breaker.addWithoutBreaking(-(1024 - ((OffHeapBitSet) bitSet).offHeapBytes()));
+
+        // the memory is released when the segment is closed
+        IOUtils.close(reader, writer);
+        assertEquals(0, breaker.getUsed());
+    }
+
     public void testSetNullListener() {
         try {
             new BitsetFilterCache(INDEX_SETTINGS, null);
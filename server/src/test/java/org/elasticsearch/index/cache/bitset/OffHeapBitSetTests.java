@@ -0,0 +1,49 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.bitset;
+
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.test.ESTestCase;
+
+public class OffHeapBitSetTests extends ESTestCase {
+
+    public void testSameAsFixedBitSet() {
+        final int numBits = randomIntBetween(1, 10000);
+        final FixedBitSet fixedBitSet = new FixedBitSet(numBits);
+        final int numSetBits = randomIntBetween(0, numBits);
+        for (int i = 0; i < numSetBits; i++) {
+            fixedBitSet.set(randomInt(numBits - 1));
+        }
+        final OffHeapBitSet offHeapBitSet = OffHeapBitSet.copyOf(fixedBitSet);
+        assertEquals(fixedBitSet.length(), offHeapBitSet.length());
+        assertEquals(fixedBitSet.cardinality(), offHeapBitSet.cardinality());
+        for (int i = 0; i < numBits; i++) {
+            assertEquals(fixedBitSet.get(i), offHeapBitSet.get(i));
+            assertEquals(fixedBitSet.nextSetBit(i), offHeapBitSet.nextSetBit(i));
+            assertEquals(fixedBitSet.prevSetBit(i), offHeapBitSet.prevSetBit(i));
+        }
+    }
+
+    public void testReadOnly() {
+        final OffHeapBitSet bitSet = OffHeapBitSet.copyOf(new FixedBitSet(randomIntBetween(1, 100)));
+        expectThrows(UnsupportedOperationException.class, () -> bitSet.set(0));
+        expectThrows(UnsupportedOperationException.class, () -> bitSet.clear(0));
+    }
+}
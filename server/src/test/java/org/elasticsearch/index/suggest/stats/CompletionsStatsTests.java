@@ -32,7 +32,7 @@ public class CompletionsStatsTests extends ESTestCase {
     public void testSerialize() throws IOException {
         FieldMemoryStats map = randomBoolean() ? null : FieldMemoryStatsTests.randomFieldMemoryStats();
         CompletionStats stats = new CompletionStats(randomNonNegativeLong(), map == null ? null :
-            map);
+            map, randomNonNegativeLong(), randomNonNegativeLong());
         BytesStreamOutput out = new BytesStreamOutput();
         stats.writeTo(out);
         CompletionStats read = new CompletionStats();
@@ -41,5 +41,7 @@ public class CompletionsStatsTests extends ESTestCase {
         assertEquals(-1, input.read());
         assertEquals(stats.getSizeInBytes(), read.getSizeInBytes());
         assertEquals(stats.getFields(), read.getFields());
+        assertEquals(stats.getCacheHitCount(), read.getCacheHitCount());
+        assertEquals(stats.getCacheMissCount(), read.getCacheMissCount());
     }
 }
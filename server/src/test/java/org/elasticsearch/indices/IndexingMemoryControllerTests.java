@@ -53,6 +53,7 @@ import static java.util.Collections.emptyMap;
 import static java.util.Collections.emptySet;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 
 public class IndexingMemoryControllerTests extends ESSingleNodeTestCase {
 
@@ -286,6 +287,38 @@ public class IndexingMemoryControllerTests extends ESSingleNodeTestCase {
         assertThat(controller.indexingBufferSize(), equalTo(new ByteSizeValue(6, ByteSizeUnit.MB)));
     }
 
+    public void testAllocationFollowsWriteRate() {
+        createIndex("test", Settings.builder().put("index.number_of_shards", 2).put("index.number_of_replicas", 0).build());
+        IndicesService indicesService = getInstanceFromNode(IndicesService.class);
+        IndexService test = indicesService.indexService(resolveIndex("test"));
+
+        MockController controller = new MockController(Settings.builder()
+                                                       .put("indices.memory.index_buffer_size", "10mb").build());
+        IndexShard shard0 = test.getShard(0);
+        IndexShard shard1 = test.getShard(1);
+        controller.simulateIndexing(shard0);
+        controller.simulateIndexing(shard1);
+
+        // shard0 indexes 9 times faster than shard1:
+        controller.recordShardBytes(shard0.shardId(), 9 * 1024 * 1024);
+        controller.recordShardBytes(shard1.shardId(), 1024 * 1024);
+        for (int i = 0; i < 4; i++) {
+            controller.simulateIndexing(shard0);
+            controller.simulateIndexing(shard1);
+        }
+        assertThat(controller.getShardWriteRate(shard0.shardId()), greaterThan(controller.getShardWriteRate(shard1.shardId())));
+        assertThat(shard0.getIndexBufferAllocation(), greaterThan(shard1.getIndexBufferAllocation()));
+        controller.assertBuffer(shard0, 5);
+        controller.assertBuffer(shard1, 5);
+
+        // We are now using 11 MB: shard0 uses more heap but is well within its allocation, so shard1 is written instead
+        controller.simulateIndexing(shard0);
+        controller.assertBuffer(shard0, 6);
+        controller.assertBuffer(shard1, 0);
+        controller.assertWriting(shard0, 0);
+        controller.assertWriting(shard1, 5);
+    }
+
     public void testThrottling() throws Exception {
         createIndex("test", Settings.builder().put("index.number_of_shards", 3).put("index.number_of_replicas", 0).build());
         IndicesService indicesService = getInstanceFromNode(IndicesService.class);
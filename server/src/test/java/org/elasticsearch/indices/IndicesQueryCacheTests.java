@@ -45,6 +45,7 @@ import org.elasticsearch.test.ESTestCase;
 
 import java.io.IOException;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public class IndicesQueryCacheTests extends ESTestCase {
 
@@ -89,6 +90,57 @@ public class IndicesQueryCacheTests extends ESTestCase {
 
     }
 
+    /** A {@link DummyQuery} whose iterator takes a few milliseconds to build a cached doc id set. */
+    private static class SlowQuery extends DummyQuery {
+
+        SlowQuery(int id) {
+            super(id);
+        }
+
+        @Override
+        public Weight createWeight(IndexSearcher searcher, boolean needsScores, float boost)
+                throws IOException {
+            return new ConstantScoreWeight(this, boost) {
+                @Override
+                public Scorer scorer(LeafReaderContext context) throws IOException {
+                    final DocIdSetIterator in = DocIdSetIterator.all(context.reader().maxDoc());
+                    final DocIdSetIterator slow = new DocIdSetIterator() {
+                        @Override
+                        public int docID() {
+                            return in.docID();
+                        }
+
+                        @Override
+                        public int nextDoc() throws IOException {
+                            final long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(2);
+                            while (System.nanoTime() < end) {
+                                // spin
+                            }
+                            return in.nextDoc();
+                        }
+
+                        @Override
+                        public int advance(int target) throws IOException {
+                            return slowAdvance(target);
+                        }
+
+                        @Override
+                        public long cost() {
+                            return in.cost();
+                        }
+                    };
+                    return new ConstantScoreScorer(this, score(), slow);
+                }
+
+                @Override
+                public boolean isCacheable(LeafReaderContext ctx) {
+                    return true;
+                }
+            };
+        }
+
+    }
+
     public void testBasics() throws IOException {
         Directory dir = newDirectory();
         IndexWriter w = new IndexWriter(dir, newIndexWriterConfig());
@@ -160,6 +212,104 @@ public class IndicesQueryCacheTests extends ESTestCase {
         cache.close(); // this triggers some assertions
     }
 
+    public void testIndexQuota() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter w = new IndexWriter(dir, newIndexWriterConfig());
+        w.addDocument(new Document());
+        DirectoryReader r = DirectoryReader.open(w);
+        w.close();
+        ShardId shard = new ShardId("index", "_na_", 0);
+        r = ElasticsearchDirectoryReader.wrap(r, shard);
+        IndexSearcher s = new IndexSearcher(r);
+        s.setQueryCachingPolicy(QueryCachingPolicy.ALWAYS_CACHE);
+
+        // an index with no recorded build cost is admitted so that its cost can be measured
+        Settings settings = Settings.builder()
+                .put(IndicesQueryCache.INDICES_CACHE_QUERY_COUNT_SETTING.getKey(), 10)
+                .put(IndicesQueryCache.INDICES_QUERIES_CACHE_ALL_SEGMENTS_SETTING.getKey(), true)
+                .put(IndicesQueryCache.INDICES_QUERIES_CACHE_INDEX_QUOTA_SETTING.getKey(), 0.0d)
+                .build();
+        IndicesQueryCache cache = new IndicesQueryCache(settings);
+        s.setQueryCache(cache);
+
+        assertEquals(1, s.count(new DummyQuery(0)));
+        assertEquals(1, s.count(new DummyQuery(0)));
+
+        QueryCacheStats stats = cache.getStats(shard);
+        assertEquals(1L, stats.getCacheSize());
+        assertEquals(1L, stats.getCacheCount());
+        assertEquals(1L, stats.getHitCount());
+        assertEquals(1L, stats.getMissCount());
+        assertEquals(0L, stats.getRejectedCount());
+
+        // the only index of the node is exactly as expensive as the average, so it keeps being admitted
+        assertEquals(1, s.count(new DummyQuery(1)));
+
+        stats = cache.getStats(shard);
+        assertEquals(2L, stats.getCacheSize());
+        assertEquals(2L, stats.getCacheCount());
+        assertEquals(0L, stats.getRejectedCount());
+
+        IOUtils.close(r, dir);
+        cache.onClose(shard);
+        cache.close(); // this triggers some assertions
+    }
+
+    public void testIndexQuotaAdmitsExpensiveFilters() throws IOException {
+        Directory dir1 = newDirectory();
+        IndexWriter w1 = new IndexWriter(dir1, newIndexWriterConfig());
+        w1.addDocument(new Document());
+        DirectoryReader r1 = DirectoryReader.open(w1);
+        w1.close();
+        ShardId cheapShard = new ShardId("cheap", "_na_", 0);
+        r1 = ElasticsearchDirectoryReader.wrap(r1, cheapShard);
+        IndexSearcher s1 = new IndexSearcher(r1);
+        s1.setQueryCachingPolicy(QueryCachingPolicy.ALWAYS_CACHE);
+
+        Directory dir2 = newDirectory();
+        IndexWriter w2 = new IndexWriter(dir2, newIndexWriterConfig());
+        w2.addDocument(new Document());
+        DirectoryReader r2 = DirectoryReader.open(w2);
+        w2.close();
+        ShardId expensiveShard = new ShardId("expensive", "_na_", 0);
+        r2 = ElasticsearchDirectoryReader.wrap(r2, expensiveShard);
+        IndexSearcher s2 = new IndexSearcher(r2);
+        s2.setQueryCachingPolicy(QueryCachingPolicy.ALWAYS_CACHE);
+
+        Settings settings = Settings.builder()
+                .put(IndicesQueryCache.INDICES_CACHE_QUERY_COUNT_SETTING.getKey(), 100)
+                .put(IndicesQueryCache.INDICES_QUERIES_CACHE_ALL_SEGMENTS_SETTING.getKey(), true)
+                .put(IndicesQueryCache.INDICES_QUERIES_CACHE_INDEX_QUOTA_SETTING.getKey(), 0.0d)
+                .build();
+        IndicesQueryCache cache = new IndicesQueryCache(settings);
+        s1.setQueryCache(cache);
+        s2.setQueryCache(cache);
+
+        // the first entries of both indices are admitted since nothing is known about their cost yet
+        assertEquals(1, s2.count(new SlowQuery(0)));
+        assertEquals(1, s1.count(new DummyQuery(0)));
+
+        // the filters of the cheap index are below the node average and rejected, except for a sample
+        final int numCheapQueries = 10;
+        for (int i = 1; i <= numCheapQueries; ++i) {
+            assertEquals(1, s1.count(new DummyQuery(i)));
+        }
+        QueryCacheStats cheapStats = cache.getStats(cheapShard);
+        assertEquals(1L, cheapStats.getCacheSize());
+        assertEquals(numCheapQueries, cheapStats.getRejectedCount());
+
+        // the filters of the expensive index are above the node average and keep being admitted
+        assertEquals(1, s2.count(new SlowQuery(1)));
+        QueryCacheStats expensiveStats = cache.getStats(expensiveShard);
+        assertEquals(2L, expensiveStats.getCacheSize());
+        assertEquals(0L, expensiveStats.getRejectedCount());
+
+        IOUtils.close(r1, dir1, r2, dir2);
+        cache.onClose(cheapShard);
+        cache.onClose(expensiveShard);
+        cache.close(); // this triggers some assertions
+    }
+
     public void testTwoShards() throws IOException {
         Directory dir1 = newDirectory();
         IndexWriter w1 = new IndexWriter(dir1, newIndexWriterConfig());
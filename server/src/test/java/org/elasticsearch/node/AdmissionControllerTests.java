@@ -0,0 +1,175 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.node;
+
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class AdmissionControllerTests extends ESTestCase {
+
+    private ClusterSettings clusterSettings;
+
+    private AdmissionController newController(Settings settings, CircuitBreakerService breakerService) {
+        clusterSettings = new ClusterSettings(settings, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS);
+        return new AdmissionController(settings, clusterSettings, breakerService);
+    }
+
+    private AdmissionController newController(Settings settings) {
+        return newController(settings, new NoneCircuitBreakerService());
+    }
+
+    public void testTracksInFlightRequests() {
+        AdmissionController controller = newController(Settings.EMPTY);
+        Releasable search = controller.admitSearch(100, Collections.singletonMap("node1", 3), Collections.emptyMap());
+        Releasable bulk = controller.admitBulk(50);
+        AdmissionControlStats stats = controller.stats();
+        assertThat(stats.getInFlightBytes(), equalTo(150L));
+        assertThat(stats.getSearchInFlight(), equalTo(1L));
+        assertThat(stats.getSearchInFlightShardRequests(), equalTo(3L));
+        assertThat(stats.getBulkInFlight(), equalTo(1L));
+
+        search.close();
+        // releasing twice must not corrupt the counters
+        search.close();
+        bulk.close();
+        stats = controller.stats();
+        assertThat(stats.getInFlightBytes(), equalTo(0L));
+        assertThat(stats.getSearchInFlight(), equalTo(0L));
+        assertThat(stats.getSearchInFlightShardRequests(), equalTo(0L));
+        assertThat(stats.getBulkInFlight(), equalTo(0L));
+    }
+
+    public void testRejectsOverInFlightBytes() {
+        AdmissionController controller = newController(Settings.builder()
+            .put(AdmissionController.ADMISSION_CONTROL_ENABLED_SETTING.getKey(), true)
+            .put(AdmissionController.MAX_IN_FLIGHT_BYTES_SETTING.getKey(), "100b")
+            .build());
+        // a single request is admitted on its own even if it is larger than the limit
+        Releasable large = controller.admitBulk(500);
+        EsRejectedExecutionException e = expectThrows(EsRejectedExecutionException.class, () -> controller.admitBulk(10));
+        assertThat(e.status(), equalTo(RestStatus.TOO_MANY_REQUESTS));
+        expectThrows(EsRejectedExecutionException.class,
+            () -> controller.admitSearch(10, Collections.singletonMap("node1", 1), Collections.emptyMap()));
+        large.close();
+
+        Releasable first = controller.admitBulk(60);
+        expectThrows(EsRejectedExecutionException.class, () -> controller.admitBulk(60));
+        Releasable second = controller.admitBulk(40);
+        first.close();
+        second.close();
+
+        AdmissionControlStats stats = controller.stats();
+        assertThat(stats.getInFlightBytes(), equalTo(0L));
+        assertThat(stats.getBulkRejected(), equalTo(2L));
+        assertThat(stats.getSearchRejected(), equalTo(1L));
+    }
+
+    public void testRejectsOverShardRequestsPerNode() {
+        AdmissionController controller = newController(Settings.builder()
+            .put(AdmissionController.ADMISSION_CONTROL_ENABLED_SETTING.getKey(), true)
+            .put(AdmissionController.MAX_SHARD_REQUESTS_PER_NODE_SETTING.getKey(), 10)
+            .build());
+        Map<String, Integer> shardRequests = new HashMap<>();
+        shardRequests.put("node1", 4);
+        shardRequests.put("node2", 20);
+        // node2 is idle so it may receive more shard requests than the limit
+        controller.admitSearch(10, shardRequests, Collections.singletonMap("node1", 6L)).close();
+
+        EsRejectedExecutionException e = expectThrows(EsRejectedExecutionException.class,
+            () -> controller.admitSearch(10, shardRequests, Collections.singletonMap("node1", 7L)));
+        assertThat(e.getMessage(), containsString("[node1]"));
+        assertThat(controller.stats().getSearchRejected(), equalTo(1L));
+        assertThat(controller.stats().getInFlightBytes(), equalTo(0L));
+    }
+
+    public void testDisabledNeverRejects() {
+        AdmissionController controller = newController(Settings.builder()
+            .put(AdmissionController.MAX_IN_FLIGHT_BYTES_SETTING.getKey(), "100b")
+            .put(AdmissionController.MAX_SHARD_REQUESTS_PER_NODE_SETTING.getKey(), 1)
+            .build());
+        Releasable first = controller.admitBulk(500);
+        Releasable second = controller.admitSearch(500, Collections.singletonMap("node1", 5), Collections.singletonMap("node1", 5L));
+        assertThat(controller.stats().getInFlightBytes(), equalTo(1000L));
+
+        clusterSettings.applySettings(Settings.builder()
+            .put(AdmissionController.ADMISSION_CONTROL_ENABLED_SETTING.getKey(), true)
+            .put(AdmissionController.MAX_IN_FLIGHT_BYTES_SETTING.getKey(), "100b")
+            .build());
+        expectThrows(EsRejectedExecutionException.class, () -> controller.admitBulk(1));
+        first.close();
+        second.close();
+        controller.admitBulk(1).close();
+    }
+
+    public void testRejectsUnderHeapPressure() {
+        Settings settings = Settings.builder()
+            .put(AdmissionController.ADMISSION_CONTROL_ENABLED_SETTING.getKey(), true)
+            .put(AdmissionController.HEAP_PRESSURE_RATIO_SETTING.getKey(), 0.5)
+            .put(HierarchyCircuitBreakerService.TOTAL_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), "100b")
+            .put(HierarchyCircuitBreakerService.REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), "100b")
+            .build();
+        HierarchyCircuitBreakerService breakerService = new HierarchyCircuitBreakerService(settings,
+            new ClusterSettings(settings, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        AdmissionController controller = newController(settings, breakerService);
+        controller.admitBulk(10).close();
+
+        CircuitBreaker requestBreaker = breakerService.getBreaker(CircuitBreaker.REQUEST);
+        requestBreaker.addWithoutBreaking(60);
+        expectThrows(EsRejectedExecutionException.class, () -> controller.admitBulk(10));
+        requestBreaker.addWithoutBreaking(-60);
+        controller.admitBulk(10).close();
+        assertThat(controller.stats().getBulkRejected(), equalTo(1L));
+    }
+
+    public void testEstimateSearchBytes() {
+        SearchRequest request = new SearchRequest();
+        long noSource = AdmissionController.estimateSearchBytes(request, 5);
+        assertThat(noSource, greaterThan(AdmissionController.estimateSearchBytes(request, 1)));
+
+        request.source(new SearchSourceBuilder().size(0)
+            .aggregation(AggregationBuilders.terms("terms").field("field").subAggregation(AggregationBuilders.max("max").field("n"))));
+        long withAggs = AdmissionController.estimateSearchBytes(request, 5);
+        assertThat(withAggs, equalTo(5 * (AdmissionController.SHARD_RESULT_BYTES + 2 * AdmissionController.AGGREGATION_BYTES)));
+
+        // only a batch of shard results is buffered at a time
+        request.setBatchedReduceSize(2);
+        assertThat(AdmissionController.estimateSearchBytes(request, 5),
+            equalTo(2 * (AdmissionController.SHARD_RESULT_BYTES + 2 * AdmissionController.AGGREGATION_BYTES)));
+    }
+}
@@ -72,6 +72,59 @@ public class ResponseCollectorServiceTests extends ESTestCase {
         assertThat(nodeStats.get("node1").serviceTime, equalTo(10.0));
     }
 
+    public void testResponseTimeOfReads() {
+        ResponseCollectorService gets = collector.readCollector("get");
+        assertSame(gets, collector.readCollector("get"));
+        gets.addResponseTime("node1", 100);
+        ResponseCollectorService.ComputedNodeStats stats = gets.getNodeStatistics("node1").get();
+        assertThat(stats.queueSize, equalTo(0));
+        assertThat(stats.responseTime, equalTo(100.0));
+        assertThat(stats.serviceTime, equalTo(100.0));
+        gets.addResponseTime("node1", 200);
+        stats = gets.getNodeStatistics("node1").get();
+        assertThat(stats.responseTime, equalTo(130.0));
+        assertThat(stats.serviceTime, equalTo(130.0));
+
+        // reads don't change the statistics of searches nor of other reads
+        collector.addNodeStatistics("node2", 4, 1000, 50);
+        gets.addResponseTime("node2", 100);
+        stats = collector.getNodeStatistics("node2").get();
+        assertThat(stats.queueSize, equalTo(4));
+        assertThat(stats.responseTime, equalTo(1000.0));
+        assertThat(stats.serviceTime, equalTo(50.0));
+        assertFalse(collector.getNodeStatistics("node1").isPresent());
+        assertFalse(collector.readCollector("explain").getNodeStatistics("node1").isPresent());
+
+        // all nodes share the mean response time as service time
+        stats = gets.getNodeStatistics("node2").get();
+        assertThat(stats.responseTime, equalTo(100.0));
+        assertThat(stats.serviceTime, equalTo(115.0));
+        assertThat(gets.getNodeStatistics("node1").get().serviceTime, equalTo(115.0));
+
+        collector.removeNode("node1");
+        assertFalse(gets.getNodeStatistics("node1").isPresent());
+    }
+
+    public void testOutgoingReads() {
+        ResponseCollectorService gets = collector.readCollector("get");
+        gets.onReadSent("node1");
+        gets.onReadSent("node1");
+        gets.onReadSent("node2");
+        collector.readCollector("explain").onReadSent("node1");
+        assertThat(gets.getOutgoingReads().get("node1"), equalTo(2L));
+        assertThat(gets.getOutgoingReads().get("node2"), equalTo(1L));
+        assertThat(collector.getAdaptiveStats(Collections.emptyMap()).getOutgoingReads().get("node1"), equalTo(3L));
+
+        gets.onReadCompleted("node1");
+        gets.onReadCompleted("node2");
+        assertThat(gets.getOutgoingReads().get("node1"), equalTo(1L));
+        assertFalse(gets.getOutgoingReads().containsKey("node2"));
+
+        collector.removeNode("node1");
+        gets.onReadCompleted("node1");
+        assertTrue(gets.getOutgoingReads().isEmpty());
+    }
+
     /*
      * Test that concurrently adding values and removing nodes does not cause exceptions
      */
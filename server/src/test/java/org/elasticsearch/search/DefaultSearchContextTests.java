@@ -26,6 +26,7 @@ import org.apache.lucene.search.QueryCachingPolicy;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.store.Directory;
 import org.elasticsearch.Version;
+import org.elasticsearch.action.search.SearchTask;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.settings.Settings;
@@ -51,11 +52,26 @@ import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.search.rescore.RescoreContext;
 import org.elasticsearch.search.slice.SliceBuilder;
 import org.elasticsearch.search.sort.SortAndFormats;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskId;
+import org.elasticsearch.tasks.TaskManager;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.RequestHandlerRegistry;
+import org.elasticsearch.transport.TransportChannel;
+import org.elasticsearch.transport.TransportRequest;
+import org.elasticsearch.transport.TransportRequestHandler;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
@@ -177,4 +193,70 @@ public class DefaultSearchContextTests extends ESTestCase {
             assertEquals(context3.query(), context3.buildFilteredQuery(parsedQuery.query()));
         }
     }
+
+    public void testSearchPhaseCpuTimeIsNotCountedTwice() throws Exception {
+        assumeTrue("the JVM must measure thread CPU time", TaskManager.currentThreadCpuTimeNanos() > 0);
+        ShardSearchRequest shardSearchRequest = mock(ShardSearchRequest.class);
+        ShardId shardId = new ShardId("index", UUID.randomUUID().toString(), 1);
+        when(shardSearchRequest.shardId()).thenReturn(shardId);
+        when(shardSearchRequest.types()).thenReturn(new String[]{});
+        IndexShard indexShard = mock(IndexShard.class);
+        when(indexShard.getQueryCachingPolicy()).thenReturn(mock(QueryCachingPolicy.class));
+        IndexService indexService = mock(IndexService.class);
+        IndexCache indexCache = mock(IndexCache.class);
+        when(indexCache.query()).thenReturn(mock(QueryCache.class));
+        when(indexService.cache()).thenReturn(indexCache);
+        when(indexService.newQueryShardContext(eq(shardId.id()), anyObject(), anyObject(), anyString()))
+            .thenReturn(mock(QueryShardContext.class));
+        BigArrays bigArrays = new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new NoneCircuitBreakerService());
+        ThreadPool threadPool = new TestThreadPool(getTestName());
+        try (Directory dir = newDirectory();
+             RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+             IndexReader reader = w.getReader();
+             Engine.Searcher searcher = new Engine.Searcher("test", new IndexSearcher(reader))) {
+            DefaultSearchContext context = new DefaultSearchContext(1L, shardSearchRequest, null, searcher, indexService,
+                indexShard, bigArrays, null, TimeValue.MINUS_ONE, null, null);
+            long phaseCpuTimeNanos = TimeUnit.MILLISECONDS.toNanos(20);
+            AtomicReference<Task> taskRef = new AtomicReference<>();
+            // executes a search phase like the handlers of SearchTransportService do
+            TransportRequestHandler<TransportRequest> handler = new TransportRequestHandler<TransportRequest>() {
+                @Override
+                public void messageReceived(TransportRequest request, TransportChannel channel, Task task) {
+                    taskRef.set(task);
+                    context.setTask((SearchTask) task);
+                    long start = TaskManager.currentThreadCpuTimeNanos();
+                    while (TaskManager.currentThreadCpuTimeNanos() - start < phaseCpuTimeNanos) {
+                        // burn CPU
+                    }
+                    context.setTask(null);
+                }
+
+                @Override
+                public void messageReceived(TransportRequest request, TransportChannel channel) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+            TaskManager taskManager = new TaskManager(Settings.EMPTY, threadPool, Collections.emptySet());
+            RequestHandlerRegistry<TransportRequest> registry = new RequestHandlerRegistry<>("test", in -> null, taskManager, handler,
+                ThreadPool.Names.SAME, false, false);
+            TransportChannel channel = mock(TransportChannel.class);
+            when(channel.getChannelType()).thenReturn("test");
+
+            long start = TaskManager.currentThreadCpuTimeNanos();
+            registry.processMessageReceived(new TransportRequest() {
+                @Override
+                public Task createTask(long id, String type, String action, TaskId parentTaskId, Map<String, String> headers) {
+                    return new SearchTask(id, type, action, "test", parentTaskId, headers);
+                }
+            }, channel);
+            long elapsed = TaskManager.currentThreadCpuTimeNanos() - start;
+
+            long taskCpuTimeNanos = taskRef.get().getResourceStats().getCpuTimeInNanos();
+            assertThat(taskCpuTimeNanos, greaterThanOrEqualTo(phaseCpuTimeNanos));
+            assertThat(taskCpuTimeNanos, lessThanOrEqualTo(elapsed));
+            taskManager.unregister(taskRef.get());
+        } finally {
+            terminate(threadPool);
+        }
+    }
 }
@@ -0,0 +1,132 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class BucketCollectorTests extends ESTestCase {
+
+    /**
+     * Counts the collected documents and terminates the collection of a segment after the given number of documents.
+     */
+    private static class TerminatingBucketCollector extends BucketCollector {
+
+        private final int terminateAfter;
+        private int collected;
+
+        TerminatingBucketCollector(int terminateAfter) {
+            this.terminateAfter = terminateAfter;
+        }
+
+        @Override
+        public LeafBucketCollector getLeafCollector(LeafReaderContext ctx) throws IOException {
+            if (terminateAfter == 0) {
+                throw new CollectionTerminatedException();
+            }
+            return new LeafBucketCollector() {
+                @Override
+                public void setScorer(Scorer scorer) {
+                }
+
+                @Override
+                public void collect(int doc, long bucket) {
+                    if (collected == terminateAfter) {
+                        throw new CollectionTerminatedException();
+                    }
+                    collected++;
+                }
+            };
+        }
+
+        @Override
+        public void preCollection() {
+        }
+
+        @Override
+        public void postCollection() {
+        }
+
+        @Override
+        public boolean needsScores() {
+            return false;
+        }
+    }
+
+    private static void collect(int numDocs, BucketCollector... collectors) throws IOException {
+        try (Directory directory = newDirectory()) {
+            try (IndexWriter w = new IndexWriter(directory, new IndexWriterConfig())) {
+                for (int i = 0; i < numDocs; i++) {
+                    w.addDocument(new Document());
+                }
+                w.forceMerge(1);
+            }
+            try (IndexReader reader = DirectoryReader.open(directory)) {
+                BucketCollector collector = BucketCollector.wrap(Arrays.asList(collectors));
+                collector.preCollection();
+                new IndexSearcher(reader).search(new MatchAllDocsQuery(), collector);
+                collector.postCollection();
+            }
+        }
+    }
+
+    public void testSiblingTerminatesDuringCollection() throws IOException {
+        int numDocs = randomIntBetween(10, 100);
+        TerminatingBucketCollector terminating = new TerminatingBucketCollector(randomIntBetween(1, numDocs - 1));
+        TerminatingBucketCollector sibling = new TerminatingBucketCollector(Integer.MAX_VALUE);
+        collect(numDocs, terminating, sibling);
+        assertEquals(terminating.terminateAfter, terminating.collected);
+        assertEquals(numDocs, sibling.collected);
+    }
+
+    public void testSiblingTerminatesBeforeCollection() throws IOException {
+        int numDocs = randomIntBetween(10, 100);
+        TerminatingBucketCollector terminating = new TerminatingBucketCollector(0);
+        TerminatingBucketCollector sibling = new TerminatingBucketCollector(Integer.MAX_VALUE);
+        collect(numDocs, terminating, sibling);
+        assertEquals(0, terminating.collected);
+        assertEquals(numDocs, sibling.collected);
+    }
+
+    public void testAllSiblingsTerminate() throws IOException {
+        int numDocs = randomIntBetween(10, 100);
+        TerminatingBucketCollector first = new TerminatingBucketCollector(randomIntBetween(0, numDocs - 1));
+        TerminatingBucketCollector second = new TerminatingBucketCollector(randomIntBetween(0, numDocs - 1));
+        TerminatingBucketCollector third = new TerminatingBucketCollector(randomIntBetween(0, numDocs - 1));
+        // the segment is terminated once all collectors terminated it
+        collect(numDocs, first, second, third);
+        assertEquals(first.terminateAfter, first.collected);
+        assertEquals(second.terminateAfter, second.collected);
+        assertEquals(third.terminateAfter, third.collected);
+    }
+}
@@ -21,8 +21,10 @@ package org.elasticsearch.search.aggregations.bucket.composite;
 
 import org.apache.lucene.analysis.MockAnalyzer;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
 import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriterConfig;
@@ -52,6 +54,9 @@ import org.elasticsearch.search.aggregations.AggregatorTestCase;
 import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
 import org.elasticsearch.search.aggregations.metrics.tophits.TopHits;
 import org.elasticsearch.search.aggregations.metrics.tophits.TopHitsAggregationBuilder;
+import org.elasticsearch.search.profile.ProfileResult;
+import org.elasticsearch.search.profile.aggregation.AggregationProfiler;
+import org.elasticsearch.search.profile.aggregation.ProfilingAggregator;
 import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.test.IndexSettingsModule;
 import org.joda.time.DateTimeZone;
@@ -64,10 +69,14 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
+import static org.hamcrest.Matchers.greaterThan;
+
 public class CompositeAggregatorTests extends AggregatorTestCase {
     private static MappedFieldType[] FIELD_TYPES;
 
@@ -1133,6 +1142,183 @@ public class CompositeAggregatorTests extends AggregatorTestCase {
         );
     }
 
+    public void testPagingInTermsOrder() throws Exception {
+        final TreeMap<String, TreeMap<Long, Integer>> expected = new TreeMap<>();
+        try (Directory directory = newDirectory()) {
+            IndexWriterConfig config = LuceneTestCase.newIndexWriterConfig(random(), new MockAnalyzer(random()));
+            // the asserting codec hides that the keyword field is single-valued
+            config.setCodec(TestUtil.getDefaultCodec());
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory, config)) {
+                int numDocs = randomIntBetween(50, 200);
+                for (int i = 0; i < numDocs; i++) {
+                    Document document = new Document();
+                    if (rarely() == false) {
+                        String keyword = String.format(Locale.ROOT, "term_%03d", randomIntBetween(0, 30));
+                        long value = randomIntBetween(0, 5);
+                        document.add(new StringField("keyword", keyword, Field.Store.NO));
+                        document.add(new SortedSetDocValuesField("keyword", new BytesRef(keyword)));
+                        document.add(new SortedNumericDocValuesField("long", value));
+                        expected.computeIfAbsent(keyword, k -> new TreeMap<>()).merge(value, 1, Integer::sum);
+                    }
+                    indexWriter.addDocument(document);
+                }
+                indexWriter.forceMerge(1);
+            }
+            final List<String> expectedKeys = new ArrayList<>();
+            final List<Long> expectedDocCounts = new ArrayList<>();
+            for (Map.Entry<String, TreeMap<Long, Integer>> keyword : expected.entrySet()) {
+                for (Map.Entry<Long, Integer> value : keyword.getValue().entrySet()) {
+                    expectedKeys.add("{keyword=" + keyword.getKey() + ", long=" + value.getKey() + "}");
+                    expectedDocCounts.add((long) value.getValue());
+                }
+            }
+
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = newSearcher(indexReader, false, false);
+                int size = randomIntBetween(1, 5);
+                Map<String, Object> after = null;
+                int pos = 0;
+                long skippedDocs = 0;
+                while (true) {
+                    CompositeAggregationBuilder builder = new CompositeAggregationBuilder("name",
+                        Arrays.asList(
+                            new TermsValuesSourceBuilder("keyword").field("keyword"),
+                            new TermsValuesSourceBuilder("long").field("long")
+                        )
+                    ).size(size);
+                    if (after != null) {
+                        builder.aggregateAfter(after);
+                    }
+                    Query query = new MatchAllDocsQuery();
+                    CompositeAggregator aggregator =
+                        createAggregator(query, builder, indexSearcher, createIndexSettings(null), FIELD_TYPES);
+                    assertTrue(aggregator.canVisitInTermsOrder());
+                    aggregator.preCollection();
+                    indexSearcher.search(query, aggregator);
+                    aggregator.postCollection();
+                    InternalComposite result = (InternalComposite) aggregator.buildAggregation(0L);
+                    skippedDocs += aggregator.getSkippedDocs();
+                    if (result.getBuckets().isEmpty()) {
+                        break;
+                    }
+                    for (InternalComposite.InternalBucket bucket : result.getBuckets()) {
+                        assertEquals(expectedKeys.get(pos), bucket.getKeyAsString());
+                        assertEquals((long) expectedDocCounts.get(pos), bucket.getDocCount());
+                        pos++;
+                    }
+                    after = result.afterKey();
+                }
+                assertEquals(expectedKeys.size(), pos);
+                if (expected.size() > size) {
+                    assertThat(skippedDocs, greaterThan(0L));
+                }
+            }
+        }
+    }
+
+    public void testEarlyTerminationOnLeadingIndexSort() throws Exception {
+        // the index is only sorted on the leading source
+        final Sort sort = new Sort(new SortedNumericSortField("long", SortField.Type.LONG));
+        try (Directory directory = newDirectory()) {
+            indexSortedOnLong(directory, sort);
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = newSearcher(indexReader, false, false);
+                int size = randomIntBetween(1, 5);
+                Map<String, Object> after = null;
+                int pos = 0;
+                while (true) {
+                    CompositeAggregationBuilder builder = leadingLongBuilder(size);
+                    if (after != null) {
+                        builder.aggregateAfter(after);
+                    }
+                    Query query = new MatchAllDocsQuery();
+                    CompositeAggregator aggregator =
+                        createAggregator(query, builder, indexSearcher, createIndexSettings(sort), FIELD_TYPES);
+                    assertFalse(aggregator.canEarlyTerminate());
+                    assertFalse(aggregator.canVisitInTermsOrder());
+                    aggregator.preCollection();
+                    indexSearcher.search(query, aggregator);
+                    aggregator.postCollection();
+                    InternalComposite result = (InternalComposite) aggregator.buildAggregation(0L);
+                    if (result.getBuckets().isEmpty()) {
+                        break;
+                    }
+                    if (after == null) {
+                        // all the top buckets of the first page have the first leading value, the documents of the other values
+                        // are skipped
+                        assertThat(aggregator.getSkippedDocs(), greaterThan(0L));
+                    }
+                    for (InternalComposite.InternalBucket bucket : result.getBuckets()) {
+                        assertEquals("{long=" + (pos / 5) + ", keyword=k" + (pos % 5) + "}", bucket.getKeyAsString());
+                        assertEquals(1L, bucket.getDocCount());
+                        pos++;
+                    }
+                    after = result.afterKey();
+                }
+                assertEquals(50, pos);
+            }
+        }
+    }
+
+    public void testSkippedDocsAreProfiled() throws Exception {
+        final Sort sort = new Sort(new SortedNumericSortField("long", SortField.Type.LONG));
+        try (Directory directory = newDirectory()) {
+            indexSortedOnLong(directory, sort);
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = newSearcher(indexReader, false, false);
+                Query query = new MatchAllDocsQuery();
+                CompositeAggregator aggregator =
+                    createAggregator(query, leadingLongBuilder(1), indexSearcher, createIndexSettings(sort), FIELD_TYPES);
+                AggregationProfiler profiler = new AggregationProfiler();
+                ProfilingAggregator profilingAggregator = new ProfilingAggregator(aggregator, profiler);
+                profilingAggregator.preCollection();
+                indexSearcher.search(query, profilingAggregator);
+                profilingAggregator.postCollection();
+                profilingAggregator.buildAggregation(0L);
+
+                assertThat(aggregator.getSkippedDocs(), greaterThan(0L));
+                List<ProfileResult> profileResults = profiler.getTree();
+                assertEquals(1, profileResults.size());
+                assertEquals(aggregator.getSkippedDocs(), (long) profileResults.get(0).getTimeBreakdown().get("skipped_docs"));
+            }
+        }
+    }
+
+    /**
+     * Indexes one document for each of the 10 values of the <code>long</code> field and the 5 values of the
+     * <code>keyword</code> field, in a single segment sorted with the given sort.
+     */
+    private void indexSortedOnLong(Directory directory, Sort sort) throws IOException {
+        IndexWriterConfig config = LuceneTestCase.newIndexWriterConfig(random(), new MockAnalyzer(random()));
+        config.setIndexSort(sort);
+        config.setCodec(TestUtil.getDefaultCodec());
+        final List<Document> documents = new ArrayList<>();
+        for (long value = 0; value < 10; value++) {
+            for (int keyword = 0; keyword < 5; keyword++) {
+                Document document = new Document();
+                document.add(new SortedNumericDocValuesField("long", value));
+                document.add(new SortedSetDocValuesField("keyword", new BytesRef("k" + keyword)));
+                documents.add(document);
+            }
+        }
+        Collections.shuffle(documents, random());
+        try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory, config)) {
+            for (Document document : documents) {
+                indexWriter.addDocument(document);
+            }
+            indexWriter.forceMerge(1);
+        }
+    }
+
+    private static CompositeAggregationBuilder leadingLongBuilder(int size) {
+        return new CompositeAggregationBuilder("name",
+            Arrays.asList(
+                new TermsValuesSourceBuilder("long").field("long"),
+                new TermsValuesSourceBuilder("keyword").field("keyword")
+            )
+        ).size(size);
+    }
+
     private void testSearchCase(Query query, Sort sort,
                                 List<Map<String, List<Object>>> dataset,
                                 Supplier<CompositeAggregationBuilder> create,
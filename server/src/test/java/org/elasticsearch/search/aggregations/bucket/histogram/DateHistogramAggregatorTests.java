@@ -33,14 +33,21 @@ import org.apache.lucene.store.Directory;
 import org.elasticsearch.index.mapper.DateFieldMapper;
 import org.elasticsearch.search.aggregations.AggregationBuilders;
 import org.elasticsearch.search.aggregations.AggregatorTestCase;
+import org.elasticsearch.search.aggregations.MultiBucketConsumerService;
+import org.elasticsearch.search.aggregations.MultiBucketConsumerService.MultiBucketConsumer;
+import org.joda.time.DateTime;
 
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.function.Consumer;
 
 import static org.elasticsearch.search.aggregations.MultiBucketConsumerService.TooManyBucketsException;
+import static org.hamcrest.Matchers.greaterThan;
 
 public class DateHistogramAggregatorTests extends AggregatorTestCase {
 
@@ -370,6 +377,66 @@ public class DateHistogramAggregatorTests extends AggregatorTestCase {
             histogram -> {}, 5));
     }
 
+    public void testCountFromPoints() throws IOException {
+        final long start = asLong("2017-01-01T00:00:00");
+        final long day = 24 * 60 * 60 * 1000L;
+        final boolean rangeQuery = randomBoolean();
+        final long from = start + randomIntBetween(0, 30) * day + randomIntBetween(0, 1000);
+        final long to = from + randomIntBetween(0, 60) * day;
+        final Query query = rangeQuery ? LongPoint.newRangeQuery(DATE_FIELD, from, to) : new MatchAllDocsQuery();
+        final Map<Long, Integer> expected = new TreeMap<>();
+        int numDocsWithValue = 0;
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                final int numDocs = randomIntBetween(1, 2000);
+                for (int i = 0; i < numDocs; i++) {
+                    Document document = new Document();
+                    if (randomBoolean()) {
+                        long instant = start + randomLongBetween(0, 100 * day);
+                        document.add(new SortedNumericDocValuesField(DATE_FIELD, instant));
+                        document.add(new LongPoint(DATE_FIELD, instant));
+                        numDocsWithValue++;
+                        if (rangeQuery == false || (instant >= from && instant <= to)) {
+                            expected.merge(Math.floorDiv(instant, day) * day, 1, Integer::sum);
+                        }
+                    }
+                    indexWriter.addDocument(document);
+                }
+            }
+
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = newSearcher(indexReader, true, true);
+                DateHistogramAggregationBuilder aggregationBuilder = new DateHistogramAggregationBuilder("_name")
+                    .field(DATE_FIELD).dateHistogramInterval(DateHistogramInterval.DAY);
+                DateFieldMapper.DateFieldType fieldType = new DateFieldMapper.Builder("_name").fieldType();
+                fieldType.setHasDocValues(true);
+                fieldType.setName(DATE_FIELD);
+
+                DateHistogramAggregator aggregator = createAggregator(query, aggregationBuilder, indexSearcher,
+                    new MultiBucketConsumer(MultiBucketConsumerService.DEFAULT_MAX_BUCKETS), fieldType);
+                aggregator.preCollection();
+                indexSearcher.search(query, aggregator);
+                aggregator.postCollection();
+                InternalDateHistogram histogram = (InternalDateHistogram) aggregator.buildAggregation(0L);
+
+                Map<Long, Integer> actual = new TreeMap<>();
+                for (Histogram.Bucket bucket : histogram.getBuckets()) {
+                    actual.put(((DateTime) bucket.getKey()).getMillis(), (int) bucket.getDocCount());
+                }
+                assertEquals(expected, actual);
+
+                Map<String, Long> debugInfo = new HashMap<>();
+                aggregator.collectDebugInfo(debugInfo::put);
+                // segments without any date are collected
+                long counted = debugInfo.get("segments_counted_from_points");
+                assertEquals(indexReader.leaves().size(), counted + debugInfo.get("segments_collected"));
+                if (numDocsWithValue > 0) {
+                    assertThat(counted, greaterThan(0L));
+                }
+            }
+        }
+    }
+
     private void testSearchCase(Query query, List<String> dataset,
                                 Consumer<DateHistogramAggregationBuilder> configure,
                                 Consumer<Histogram> verify) throws IOException {
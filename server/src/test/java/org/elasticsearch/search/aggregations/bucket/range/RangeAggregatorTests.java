@@ -0,0 +1,105 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.range;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.search.aggregations.AggregatorTestCase;
+import org.elasticsearch.search.aggregations.MultiBucketConsumerService;
+import org.elasticsearch.search.aggregations.MultiBucketConsumerService.MultiBucketConsumer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class RangeAggregatorTests extends AggregatorTestCase {
+
+    public void testCountFromPoints() throws Exception {
+        RangeAggregationBuilder builder = new RangeAggregationBuilder("test_agg").field("field");
+        int numRanges = randomIntBetween(1, 10);
+        for (int i = 0; i < numRanges; i++) {
+            // ranges may overlap
+            double from = randomIntBetween(0, 1000);
+            if (rarely()) {
+                builder.addUnboundedFrom(from);
+            } else if (rarely()) {
+                builder.addUnboundedTo(from);
+            } else {
+                builder.addRange(from, from + randomIntBetween(0, 500));
+            }
+        }
+        final boolean rangeQuery = randomBoolean();
+        final long lower = randomIntBetween(0, 1000);
+        final long upper = lower + randomIntBetween(0, 500);
+        final Query query = rangeQuery ? LongPoint.newRangeQuery("field", lower, upper) : new MatchAllDocsQuery();
+        try (Directory dir = newDirectory();
+             RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            int numDocs = randomIntBetween(1, 2000);
+            long[] values = new long[numDocs];
+            int numValues = 0;
+            for (int i = 0; i < numDocs; i++) {
+                Document doc = new Document();
+                if (frequently()) {
+                    long value = randomIntBetween(-100, 1600);
+                    doc.add(new SortedNumericDocValuesField("field", value));
+                    doc.add(new LongPoint("field", value));
+                    if (rangeQuery == false || (value >= lower && value <= upper)) {
+                        values[numValues++] = value;
+                    }
+                }
+                w.addDocument(doc);
+            }
+            NumberFieldMapper.NumberFieldType fieldType = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.LONG);
+            fieldType.setName("field");
+            try (IndexReader reader = w.getReader()) {
+                IndexSearcher searcher = newSearcher(reader, true, true);
+                RangeAggregator aggregator = createAggregator(query, builder, searcher,
+                    new MultiBucketConsumer(MultiBucketConsumerService.DEFAULT_MAX_BUCKETS), fieldType);
+                aggregator.preCollection();
+                searcher.search(query, aggregator);
+                aggregator.postCollection();
+                InternalRange<?, ?> range = (InternalRange<?, ?>) aggregator.buildAggregation(0L);
+                assertEquals(numRanges, range.getBuckets().size());
+                for (Range.Bucket bucket : range.getBuckets()) {
+                    double from = ((Number) bucket.getFrom()).doubleValue();
+                    double to = ((Number) bucket.getTo()).doubleValue();
+                    int expected = 0;
+                    for (int i = 0; i < numValues; i++) {
+                        if (values[i] >= from && values[i] < to) {
+                            expected++;
+                        }
+                    }
+                    assertEquals(bucket.getKeyAsString(), expected, bucket.getDocCount());
+                }
+
+                Map<String, Long> debugInfo = new HashMap<>();
+                aggregator.collectDebugInfo(debugInfo::put);
+                assertEquals(reader.leaves().size(),
+                    debugInfo.get("segments_counted_from_points") + debugInfo.get("segments_collected"));
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.significant;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FilterDirectoryReader;
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.IndexSettingsModule;
+
+import java.io.IOException;
+
+public class BackgroundFrequencyCacheTests extends ESTestCase {
+
+    public void testDisabledByDefault() {
+        IndexSettings indexSettings = IndexSettingsModule.newIndexSettings("test", Settings.EMPTY);
+        assertFalse(new BackgroundFrequencyCache(indexSettings).isEnabled());
+    }
+
+    public void testFrequencies() throws IOException {
+        IndexSettings indexSettings = IndexSettingsModule.newIndexSettings("test", Settings.builder()
+            .put(BackgroundFrequencyCache.INDEX_SIGNIFICANT_TERMS_BACKGROUND_CACHE_SIZE_SETTING.getKey(), 1000)
+            .build());
+        BackgroundFrequencyCache cache = new BackgroundFrequencyCache(indexSettings);
+        assertTrue(cache.isEnabled());
+
+        try (Directory dir = newDirectory();
+             IndexWriter w = new IndexWriter(dir, new IndexWriterConfig())) {
+            int numDocs = scaledRandomIntBetween(100, 1000);
+            for (int i = 0; i < numDocs; i++) {
+                Document doc = new Document();
+                doc.add(new StringField("text", "t" + (i % 7), Field.Store.NO));
+                doc.add(new StringField("filter", i % 3 == 0 ? "yes" : "no", Field.Store.NO));
+                doc.add(new IntPoint("number", i % 11));
+                w.addDocument(doc);
+                if (rarely()) {
+                    w.commit();
+                }
+            }
+            if (randomBoolean()) {
+                w.deleteDocuments(new Term("text", "t3"));
+            }
+            try (DirectoryReader reader = DirectoryReader.open(w)) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                Query filter = new TermQuery(new Term("filter", "yes"));
+                for (int round = 0; round < 2; round++) {
+                    BackgroundFrequencyCache.Lookup unfiltered = cache.lookup(searcher, null);
+                    BackgroundFrequencyCache.Lookup filtered = cache.lookup(searcher, filter);
+                    assertEquals(searcher.count(filter), filtered.supersetSize());
+                    for (int i = 0; i < 8; i++) {
+                        Term term = new Term("text", "t" + i);
+                        assertEquals(reader.docFreq(term), unfiltered.frequency(new TermQuery(term)));
+                        assertEquals(count(searcher, new TermQuery(term), filter), filtered.frequency(new TermQuery(term)));
+                    }
+                    for (int i = 0; i < 12; i++) {
+                        Query query = IntPoint.newExactQuery("number", i);
+                        assertEquals(searcher.count(query), unfiltered.frequency(query));
+                        assertEquals(count(searcher, query, filter), filtered.frequency(query));
+                    }
+                    if (round == 0) {
+                        assertEquals(0, cache.getHitCount());
+                    }
+                }
+                // the second round only hit the cache
+                assertEquals(cache.getMissCount(), cache.getHitCount());
+            }
+        }
+    }
+
+    public void testEvictsClosedSegments() throws IOException {
+        IndexSettings indexSettings = IndexSettingsModule.newIndexSettings("test", Settings.builder()
+            .put(BackgroundFrequencyCache.INDEX_SIGNIFICANT_TERMS_BACKGROUND_CACHE_SIZE_SETTING.getKey(), 1000)
+            .build());
+        BackgroundFrequencyCache cache = new BackgroundFrequencyCache(indexSettings);
+
+        try (Directory dir = newDirectory();
+             IndexWriter w = new IndexWriter(dir, new IndexWriterConfig())) {
+            for (int i = 0; i < 10; i++) {
+                Document doc = new Document();
+                doc.add(new StringField("text", "t" + (i % 2), Field.Store.NO));
+                w.addDocument(doc);
+            }
+            w.commit();
+            Document doc = new Document();
+            doc.add(new StringField("text", "t0", Field.Store.NO));
+            w.addDocument(doc);
+            DirectoryReader reader = DirectoryReader.open(w);
+            IndexSearcher searcher = new IndexSearcher(reader);
+            BackgroundFrequencyCache.Lookup lookup = cache.lookup(searcher, null);
+            assertEquals(6, lookup.frequency(new TermQuery(new Term("text", "t0"))));
+            assertEquals(reader.leaves().size(), cache.count());
+
+            // merging the segments away and closing the reader closes their cores
+            w.forceMerge(1);
+            DirectoryReader newReader = DirectoryReader.openIfChanged(reader);
+            assertNotNull(newReader);
+            reader.close();
+            assertEquals(0, cache.count());
+
+            lookup = cache.lookup(new IndexSearcher(newReader), null);
+            assertEquals(6, lookup.frequency(new TermQuery(new Term("text", "t0"))));
+            assertEquals(1, cache.count());
+            newReader.close();
+        }
+    }
+
+    public void testReaderWithoutCoreCacheHelper() throws IOException {
+        IndexSettings indexSettings = IndexSettingsModule.newIndexSettings("test", Settings.builder()
+            .put(BackgroundFrequencyCache.INDEX_SIGNIFICANT_TERMS_BACKGROUND_CACHE_SIZE_SETTING.getKey(), 1000)
+            .build());
+        BackgroundFrequencyCache cache = new BackgroundFrequencyCache(indexSettings);
+
+        try (Directory dir = newDirectory();
+             IndexWriter w = new IndexWriter(dir, new IndexWriterConfig())) {
+            for (int i = 0; i < 10; i++) {
+                Document doc = new Document();
+                doc.add(new StringField("text", "t" + (i % 2), Field.Store.NO));
+                w.addDocument(doc);
+            }
+            try (DirectoryReader reader = new NoCacheDirectoryReader(DirectoryReader.open(w))) {
+                BackgroundFrequencyCache.Lookup lookup = cache.lookup(new IndexSearcher(reader), null);
+                for (int round = 0; round < 2; round++) {
+                    assertEquals(5, lookup.frequency(new TermQuery(new Term("text", "t0"))));
+                }
+                // the frequencies were computed without going through the cache
+                assertEquals(0, cache.count());
+                assertEquals(0, cache.getHitCount());
+            }
+        }
+    }
+
+    /** A reader whose segments can't be cached. */
+    private static class NoCacheDirectoryReader extends FilterDirectoryReader {
+
+        NoCacheDirectoryReader(DirectoryReader in) throws IOException {
+            super(in, new SubReaderWrapper() {
+                @Override
+                public LeafReader wrap(LeafReader reader) {
+                    return new FilterLeafReader(reader) {
+                        @Override
+                        public CacheHelper getCoreCacheHelper() {
+                            return null;
+                        }
+
+                        @Override
+                        public CacheHelper getReaderCacheHelper() {
+                            return null;
+                        }
+                    };
+                }
+            });
+        }
+
+        @Override
+        protected DirectoryReader doWrapDirectoryReader(DirectoryReader in) throws IOException {
+            return new NoCacheDirectoryReader(in);
+        }
+
+        @Override
+        public CacheHelper getReaderCacheHelper() {
+            return null;
+        }
+    }
+
+    private static long count(IndexSearcher searcher, Query query, Query filter) throws IOException {
+        return searcher.count(new BooleanQuery.Builder()
+            .add(query, Occur.FILTER)
+            .add(filter, Occur.FILTER)
+            .build());
+    }
+}
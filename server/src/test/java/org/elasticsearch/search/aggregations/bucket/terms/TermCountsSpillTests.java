@@ -0,0 +1,76 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.greaterThan;
+
+public class TermCountsSpillTests extends ESTestCase {
+
+    public void testMerge() throws Exception {
+        Map<BytesRef, Long> expected = new HashMap<>();
+        try (TermCountsSpill spill = new TermCountsSpill(BigArrays.NON_RECYCLING_INSTANCE, randomLongBetween(0, 1024 * 1024))) {
+            int numRuns = randomIntBetween(1, 5);
+            for (int run = 0; run < numRuns; run++) {
+                int numTerms = randomIntBetween(1, 2000);
+                for (int i = 0; i < numTerms; i++) {
+                    BytesRef term = new BytesRef(Integer.toString(randomIntBetween(0, 5000)));
+                    long docCount = randomLongBetween(1, 100);
+                    spill.add(term, docCount);
+                    expected.merge(term, docCount, Long::sum);
+                }
+                spill.endRun();
+            }
+            assertEquals(numRuns, spill.runs());
+            assertEquals(expected, merge(spill));
+        }
+    }
+
+    public void testSplitPartitionsThatDoNotFitInMemory() throws Exception {
+        Map<BytesRef, Long> expected = new HashMap<>();
+        // a budget of a few terms for more distinct terms than all partitions of the first level can hold
+        try (TermCountsSpill spill = new TermCountsSpill(BigArrays.NON_RECYCLING_INSTANCE, 256)) {
+            int numTerms = TermCountsSpill.NUM_PARTITIONS * 64;
+            for (int i = 0; i < numTerms; i++) {
+                BytesRef term = new BytesRef(Integer.toString(i));
+                spill.add(term, 1);
+                expected.put(term, 1L);
+            }
+            spill.endRun();
+            assertEquals(expected, merge(spill));
+            assertThat(spill.splits(), greaterThan(0L));
+        }
+    }
+
+    private static Map<BytesRef, Long> merge(TermCountsSpill spill) throws Exception {
+        Map<BytesRef, Long> actual = new HashMap<>();
+        try (TermCountsSpill.Cursor cursor = spill.merge()) {
+            while (cursor.next()) {
+                assertNull(actual.put(BytesRef.deepCopyOf(cursor.term()), cursor.docCount()));
+            }
+        }
+        return actual;
+    }
+}
@@ -27,14 +27,18 @@ import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.network.InetAddresses;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.MockBigArrays;
@@ -54,6 +58,8 @@ import org.elasticsearch.search.aggregations.AggregatorTestCase;
 import org.elasticsearch.search.aggregations.BucketOrder;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.InternalMultiBucketAggregation;
+import org.elasticsearch.search.aggregations.MultiBucketConsumerService;
+import org.elasticsearch.search.aggregations.MultiBucketConsumerService.MultiBucketConsumer;
 import org.elasticsearch.search.aggregations.bucket.MultiBucketsAggregation;
 import org.elasticsearch.search.aggregations.bucket.filter.Filter;
 import org.elasticsearch.search.aggregations.bucket.filter.FilterAggregationBuilder;
@@ -68,9 +74,11 @@ import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
@@ -182,6 +190,155 @@ public class TermsAggregatorTests extends AggregatorTestCase {
         }
     }
 
+    public void testCountFromPostings() throws Exception {
+        try (Directory directory = newDirectory()) {
+            Map<String, Integer> expected = new HashMap<>();
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                int numDocs = randomIntBetween(1, 500);
+                List<Set<String>> docValues = new ArrayList<>();
+                for (int i = 0; i < numDocs; i++) {
+                    Document document = new Document();
+                    document.add(new StringField("id", Integer.toString(i), Field.Store.NO));
+                    Set<String> values = new HashSet<>();
+                    int numValues = randomIntBetween(0, 3);
+                    for (int j = 0; j < numValues; j++) {
+                        values.add(Integer.toString(randomIntBetween(0, 50)));
+                    }
+                    for (String value : values) {
+                        document.add(new StringField("string", value, Field.Store.NO));
+                        document.add(new SortedSetDocValuesField("string", new BytesRef(value)));
+                    }
+                    docValues.add(values);
+                    indexWriter.addDocument(document);
+                }
+                for (int i = 0; i < numDocs; i++) {
+                    if (rarely()) {
+                        indexWriter.deleteDocuments(new Term("id", Integer.toString(i)));
+                    } else {
+                        for (String value : docValues.get(i)) {
+                            expected.merge(value, 1, Integer::sum);
+                        }
+                    }
+                }
+                try (IndexReader indexReader = maybeWrapReaderEs(indexWriter.getReader())) {
+                    IndexSearcher indexSearcher = newIndexSearcher(indexReader);
+                    TermsAggregationBuilder aggregationBuilder = new TermsAggregationBuilder("_name", ValueType.STRING)
+                        .executionHint("global_ordinals")
+                        .field("string")
+                        .size(100);
+                    if (randomBoolean()) {
+                        aggregationBuilder.minDocCount(0);
+                    }
+                    MappedFieldType fieldType = new KeywordFieldMapper.KeywordFieldType();
+                    fieldType.setName("string");
+                    fieldType.setHasDocValues(true);
+                    fieldType.setIndexOptions(IndexOptions.DOCS);
+
+                    final MatchAllDocsQuery query = new MatchAllDocsQuery();
+                    final TermsAggregator aggregator;
+                    try {
+                        TermsAggregatorFactory.COLLECT_SEGMENT_ORDS = randomBoolean();
+                        TermsAggregatorFactory.REMAP_GLOBAL_ORDS = randomBoolean();
+                        aggregator = createAggregator(query, aggregationBuilder, indexSearcher,
+                            new MultiBucketConsumer(MultiBucketConsumerService.DEFAULT_MAX_BUCKETS), fieldType);
+                    } finally {
+                        TermsAggregatorFactory.COLLECT_SEGMENT_ORDS = null;
+                        TermsAggregatorFactory.REMAP_GLOBAL_ORDS = null;
+                    }
+                    aggregator.preCollection();
+                    indexSearcher.search(query, aggregator);
+                    aggregator.postCollection();
+                    Terms result = (Terms) aggregator.buildAggregation(0L);
+                    Map<String, Integer> actual = new HashMap<>();
+                    for (Terms.Bucket bucket : result.getBuckets()) {
+                        if (bucket.getDocCount() > 0) {
+                            actual.put(bucket.getKeyAsString(), (int) bucket.getDocCount());
+                        }
+                    }
+                    assertEquals(expected, actual);
+
+                    Map<String, Long> debugInfo = new HashMap<>();
+                    aggregator.collectDebugInfo(debugInfo::put);
+                    assertEquals(indexReader.leaves().size(),
+                        debugInfo.get("segments_counted_from_postings") + debugInfo.get("segments_collected"));
+                    if (indexReader.hasDeletions() == false && expected.isEmpty() == false) {
+                        assertThat(debugInfo.get("segments_counted_from_postings"), greaterThan(0L));
+                    }
+                }
+            }
+        }
+    }
+
+    public void testSpillToDisk() throws Exception {
+        try (Directory directory = newDirectory()) {
+            Map<Long, Integer> expected = new HashMap<>();
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                int numDocs = randomIntBetween(1, 1000);
+                for (int i = 0; i < numDocs; i++) {
+                    Document document = new Document();
+                    Set<Long> values = new HashSet<>();
+                    int numValues = randomIntBetween(0, 3);
+                    for (int j = 0; j < numValues; j++) {
+                        values.add((long) randomIntBetween(0, 500));
+                    }
+                    for (long value : values) {
+                        document.add(new SortedSetDocValuesField("string", new BytesRef(Long.toString(value))));
+                        document.add(new SortedNumericDocValuesField("long", value));
+                        expected.merge(value, 1, Integer::sum);
+                    }
+                    indexWriter.addDocument(document);
+                }
+            }
+            IndexSettings indexSettings = new IndexSettings(
+                IndexMetaData.builder("_index").settings(Settings.builder()
+                    .put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
+                    .put(IndexSettings.TERMS_AGG_SPILL_THRESHOLD_SETTING.getKey(), randomIntBetween(0, 20) + "b"))
+                    .numberOfShards(1)
+                    .numberOfReplicas(0)
+                    .build(),
+                Settings.EMPTY);
+            try (IndexReader indexReader = maybeWrapReaderEs(DirectoryReader.open(directory))) {
+                IndexSearcher indexSearcher = newIndexSearcher(indexReader);
+                for (ValueType valueType : new ValueType[] { ValueType.STRING, ValueType.LONG }) {
+                    TermsAggregationBuilder aggregationBuilder = new TermsAggregationBuilder("_name", valueType)
+                        .order(BucketOrder.key(true))
+                        .size(1000);
+                    MappedFieldType fieldType;
+                    if (valueType == ValueType.STRING) {
+                        aggregationBuilder.executionHint("map").field("string");
+                        fieldType = new KeywordFieldMapper.KeywordFieldType();
+                        fieldType.setName("string");
+                    } else {
+                        aggregationBuilder.field("long");
+                        fieldType = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.LONG);
+                        fieldType.setName("long");
+                    }
+                    fieldType.setHasDocValues(true);
+
+                    TermsAggregator aggregator = createAggregator(new MatchAllDocsQuery(), aggregationBuilder, indexSearcher,
+                        indexSettings, new MultiBucketConsumer(MultiBucketConsumerService.DEFAULT_MAX_BUCKETS), fieldType);
+                    aggregator.preCollection();
+                    indexSearcher.search(new MatchAllDocsQuery(), aggregator);
+                    aggregator.postCollection();
+                    Terms result = (Terms) aggregator.buildAggregation(0L);
+                    Map<Long, Integer> actual = new HashMap<>();
+                    for (Terms.Bucket bucket : result.getBuckets()) {
+                        actual.put(Long.parseLong(bucket.getKeyAsString()), (int) bucket.getDocCount());
+                        assertEquals(0, bucket.getAggregations().asList().size());
+                    }
+                    assertEquals(expected, actual);
+                    assertEquals(0, result.getSumOfOtherDocCounts());
+
+                    Map<String, Long> debugInfo = new HashMap<>();
+                    aggregator.collectDebugInfo(debugInfo::put);
+                    if (expected.isEmpty() == false) {
+                        assertThat(debugInfo.get("spilled_runs"), greaterThan(0L));
+                    }
+                }
+            }
+        }
+    }
+
     public void testStringIncludeExclude() throws Exception {
         try (Directory directory = newDirectory()) {
             try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
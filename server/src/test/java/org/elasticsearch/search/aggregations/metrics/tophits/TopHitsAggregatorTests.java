@@ -43,6 +43,7 @@ import org.elasticsearch.index.mapper.KeywordFieldMapper;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.mapper.Uid;
 import org.elasticsearch.index.mapper.UidFieldMapper;
+import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.aggregations.Aggregation;
 import org.elasticsearch.search.aggregations.AggregationBuilder;
@@ -52,6 +53,10 @@ import org.elasticsearch.search.aggregations.bucket.terms.Terms;
 import org.elasticsearch.search.sort.SortOrder;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 import static org.elasticsearch.search.aggregations.AggregationBuilders.terms;
 import static org.elasticsearch.search.aggregations.AggregationBuilders.topHits;
@@ -123,6 +128,43 @@ public class TopHitsAggregatorTests extends AggregatorTestCase {
         assertEquals("3", searchHits.getAt(0).getId());
     }
 
+    /**
+     * Tests that the hits of many buckets, which are fetched at once, are returned with the right bucket.
+     */
+    public void testManyBucketsInsideTerms() throws Exception {
+        int numBuckets = randomIntBetween(1, 50);
+        Map<String, Set<String>> expected = new HashMap<>();
+        Directory directory = newDirectory();
+        RandomIndexWriter iw = new RandomIndexWriter(random(), directory);
+        int numDocs = randomIntBetween(1, 500);
+        for (int i = 0; i < numDocs; i++) {
+            String value = "v" + randomInt(numBuckets - 1);
+            iw.addDocument(document(Integer.toString(i), value));
+            expected.computeIfAbsent(value, k -> new HashSet<>()).add(Integer.toString(i));
+        }
+        iw.close();
+
+        IndexReader indexReader = DirectoryReader.open(directory);
+        IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+        int size = randomIntBetween(1, 5);
+        Terms terms = searchAndReduce(indexSearcher, new MatchAllDocsQuery(),
+            terms("term").field("string").size(numBuckets).subAggregation(topHits("top").size(size)), STRING_FIELD_TYPE);
+        assertEquals(expected.size(), terms.getBuckets().size());
+        for (Terms.Bucket bucket : terms.getBuckets()) {
+            Set<String> ids = expected.get(bucket.getKeyAsString());
+            SearchHits searchHits = ((TopHits) bucket.getAggregations().get("top")).getHits();
+            assertEquals(ids.size(), searchHits.getTotalHits());
+            assertEquals(Math.min(size, ids.size()), searchHits.getHits().length);
+            Set<String> seen = new HashSet<>();
+            for (SearchHit hit : searchHits) {
+                assertTrue(ids.contains(hit.getId()));
+                assertTrue(seen.add(hit.getId()));
+            }
+        }
+        indexReader.close();
+        directory.close();
+    }
+
     private static final MappedFieldType STRING_FIELD_TYPE = new KeywordFieldMapper.KeywordFieldType();
     static {
         STRING_FIELD_TYPE.setName("string");
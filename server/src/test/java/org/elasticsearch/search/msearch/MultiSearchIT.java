@@ -23,13 +23,19 @@ import org.elasticsearch.action.search.MultiSearchRequest;
 import org.elasticsearch.action.search.MultiSearchResponse;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.metrics.max.Max;
+import org.elasticsearch.search.aggregations.metrics.min.Min;
 import org.elasticsearch.test.ESIntegTestCase;
 
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertFirstHit;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.hasId;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 
 public class MultiSearchIT extends ESIntegTestCase {
 
@@ -81,4 +87,45 @@ public class MultiSearchIT extends ESIntegTestCase {
         }
     }
 
+    public void testCombinedAggregations() {
+        assertAcked(prepareCreate("test").addMapping("type", "number", "type=long", "text", "type=text"));
+        int numDocs = randomIntBetween(1, 32);
+        for (int i = 0; i < numDocs; i++) {
+            client().prepareIndex("test", "type", Integer.toString(i)).setSource("number", i, "text", "value" + i).get();
+        }
+        refresh();
+
+        boolean withFailure = randomBoolean();
+        MultiSearchResponse response = client().prepareMultiSearch()
+                .add(client().prepareSearch("test").setSize(0).addAggregation(AggregationBuilders.max("agg").field("number")))
+                .add(client().prepareSearch("test").setSize(0).addAggregation(AggregationBuilders.min("agg").field("number")))
+                .add(client().prepareSearch("test").setQuery(QueryBuilders.termQuery("number", 0))
+                    .setSize(0).addAggregation(AggregationBuilders.max("agg").field("number")))
+                .add(client().prepareSearch("test").setSize(0).addAggregation(withFailure
+                    // terms on a text field without fielddata fail
+                    ? AggregationBuilders.terms("agg").field("text")
+                    : AggregationBuilders.max("agg").field("number")))
+                .get();
+
+        assertThat(response.getResponses().length, equalTo(4));
+        for (int i = 0; i < 3; i++) {
+            assertNoFailures(response.getResponses()[i].getResponse());
+        }
+        assertHitCount(response.getResponses()[0].getResponse(), numDocs);
+        Max max = response.getResponses()[0].getResponse().getAggregations().get("agg");
+        assertThat(max.getValue(), equalTo((double) numDocs - 1));
+        assertHitCount(response.getResponses()[1].getResponse(), numDocs);
+        Min min = response.getResponses()[1].getResponse().getAggregations().get("agg");
+        assertThat(min.getValue(), equalTo(0d));
+        assertHitCount(response.getResponses()[2].getResponse(), 1L);
+        max = response.getResponses()[2].getResponse().getAggregations().get("agg");
+        assertThat(max.getValue(), equalTo(0d));
+        if (withFailure) {
+            assertThat(response.getResponses()[3].getFailure(), notNullValue());
+        } else {
+            assertThat(response.getResponses()[3].getFailure(), nullValue());
+            max = response.getResponses()[3].getResponse().getAggregations().get("agg");
+            assertThat(max.getValue(), equalTo((double) numDocs - 1));
+        }
+    }
 }
@@ -42,6 +42,7 @@ import org.elasticsearch.search.aggregations.AggregationBuilders;
 import org.elasticsearch.search.aggregations.Aggregator.SubAggCollectionMode;
 import org.elasticsearch.search.sort.FieldSortBuilder;
 import org.elasticsearch.search.suggest.completion.CompletionStats;
+import org.elasticsearch.search.suggest.completion.CompletionSuggestionCache;
 import org.elasticsearch.search.suggest.completion.CompletionSuggestion;
 import org.elasticsearch.search.suggest.completion.CompletionSuggestionBuilder;
 import org.elasticsearch.search.suggest.completion.FuzzyOptions;
@@ -784,6 +785,40 @@ public class CompletionSuggestSearchIT extends ESIntegTestCase {
         assertThat(regexSizeInBytes, is(totalSizeInBytes));
     }
 
+    public void testResultCache() throws Exception {
+        createIndexAndMappingAndSettings(Settings.builder()
+                .put(SETTING_NUMBER_OF_SHARDS, 1)
+                .put(SETTING_NUMBER_OF_REPLICAS, 0)
+                .put(CompletionSuggestionCache.INDEX_COMPLETION_RESULT_CACHE_SIZE_SETTING.getKey(), 100)
+                .build(), completionMappingBuilder);
+        int numDocs = 10;
+        List<IndexRequestBuilder> indexRequestBuilders = new ArrayList<>();
+        for (int i = 1; i <= numDocs; i++) {
+            indexRequestBuilders.add(client().prepareIndex(INDEX, TYPE, "" + i).setSource(jsonBuilder().startObject().startObject(FIELD)
+                    .field("input", "suggestion" + i).field("weight", i).endObject().endObject()));
+        }
+        indexRandom(true, indexRequestBuilders);
+        CompletionSuggestionBuilder prefix = SuggestBuilders.completionSuggestion(FIELD).prefix("sugg");
+        assertSuggestions("foo", prefix, "suggestion10", "suggestion9", "suggestion8", "suggestion7", "suggestion6");
+        CompletionStats completionStats = client().admin().indices().prepareStats(INDEX).setCompletion(true).get()
+                .getIndex(INDEX).getPrimaries().completion;
+        assertThat(completionStats.getCacheHitCount(), equalTo(0L));
+        long missCount = completionStats.getCacheMissCount();
+        assertThat(missCount, greaterThan(0L));
+
+        // the same suggestion is served from the cache
+        assertSuggestions("foo", prefix, "suggestion10", "suggestion9", "suggestion8", "suggestion7", "suggestion6");
+        completionStats = client().admin().indices().prepareStats(INDEX).setCompletion(true).get()
+                .getIndex(INDEX).getPrimaries().completion;
+        assertThat(completionStats.getCacheHitCount(), equalTo(missCount));
+        assertThat(completionStats.getCacheMissCount(), equalTo(missCount));
+
+        // deleted documents are not suggested anymore
+        client().prepareDelete(INDEX, TYPE, "10").get();
+        refresh();
+        assertSuggestions("foo", prefix, "suggestion9", "suggestion8", "suggestion7", "suggestion6", "suggestion5");
+    }
+
     public void testThatSortingOnCompletionFieldReturnsUsefulException() throws Exception {
         createIndexAndMapping(completionMappingBuilder);
 
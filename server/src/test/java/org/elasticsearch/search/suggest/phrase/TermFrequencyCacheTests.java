@@ -0,0 +1,52 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.suggest.phrase;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TermFrequencyCacheTests extends ESTestCase {
+
+    public void testLoadsOnce() throws IOException {
+        TermFrequencyCache cache = new TermFrequencyCache();
+        AtomicInteger loads = new AtomicInteger();
+        TermFrequencyCache.FrequencyLoader loader = term -> {
+            loads.incrementAndGet();
+            return term.length;
+        };
+        BytesRefBuilder spare = new BytesRefBuilder();
+        spare.copyChars("foo");
+        assertEquals(3, cache.frequency("field", true, spare.get(), loader));
+        // the cache must not keep a reference to the spare
+        spare.copyChars("foobar");
+        assertEquals(6, cache.frequency("field", true, spare.get(), loader));
+        assertEquals(3, cache.frequency("field", true, new BytesRef("foo"), loader));
+        assertEquals(2, loads.get());
+
+        // fields and frequency types are cached separately
+        assertEquals(3, cache.frequency("other_field", true, new BytesRef("foo"), loader));
+        assertEquals(3, cache.frequency("field", false, new BytesRef("foo"), loader));
+        assertEquals(4, loads.get());
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.tasks;
+
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.junit.After;
+import org.junit.Before;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+
+public class TaskManagerTests extends ESTestCase {
+
+    private ThreadPool threadPool;
+
+    @Before
+    public void setupThreadPool() {
+        threadPool = new TestThreadPool(getTestName());
+    }
+
+    @After
+    public void terminateThreadPool() {
+        terminate(threadPool);
+    }
+
+    private static final Settings RESOURCE_TRACKING = Settings.builder()
+        .put(TaskManager.TASK_RESOURCE_TRACKING_SETTING.getKey(), true)
+        .build();
+
+    public void testRequestBreakerUsageIsAccountedToCurrentTask() throws Exception {
+        TaskManager taskManager = new TaskManager(RESOURCE_TRACKING, threadPool, Collections.emptySet());
+        ThreadContext threadContext = threadPool.getThreadContext();
+        try (ThreadContext.StoredContext ignored = threadContext.stashContext()) {
+            Task task = taskManager.register("test", "test", new TestRequest());
+            assertNull(taskManager.getCurrentTask());
+            ThreadContext.StoredContext tracking = taskManager.trackResources(task);
+            assertSame(task, taskManager.getCurrentTask());
+
+            taskManager.onCircuitBreakerUsage(CircuitBreaker.REQUEST, 100);
+            taskManager.onCircuitBreakerUsage(CircuitBreaker.FIELDDATA, 1000);
+            // the task is preserved when the work is forked to another thread
+            CountDownLatch latch = new CountDownLatch(1);
+            threadPool.generic().execute(() -> {
+                taskManager.onCircuitBreakerUsage(CircuitBreaker.REQUEST, 50);
+                latch.countDown();
+            });
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            assertEquals(150, task.getResourceStats().getMemoryInBytes());
+
+            taskManager.onCircuitBreakerUsage(CircuitBreaker.REQUEST, -120);
+            assertEquals(30, task.getResourceStats().getMemoryInBytes());
+            assertEquals(150, task.getResourceStats().getPeakMemoryInBytes());
+
+            // nested tasks are accounted to the outermost task
+            Task child = taskManager.register("test", "child", new TestRequest());
+            try (ThreadContext.StoredContext ignoredChild = taskManager.trackResources(child)) {
+                assertSame(task, taskManager.getCurrentTask());
+            }
+            assertSame(task, taskManager.getCurrentTask());
+            taskManager.unregister(child);
+            tracking.close();
+            // the caller's context doesn't keep the task
+            assertNull(taskManager.getCurrentTask());
+            taskManager.unregister(task);
+        }
+        assertNull(taskManager.getCurrentTask());
+    }
+
+    public void testCompletedTaskIsNotCharged() {
+        TaskManager taskManager = new TaskManager(RESOURCE_TRACKING, threadPool, Collections.emptySet());
+        ThreadContext threadContext = threadPool.getThreadContext();
+        try (ThreadContext.StoredContext ignored = threadContext.stashContext()) {
+            Task task = taskManager.register("test", "test", new TestRequest());
+            final Supplier<ThreadContext.StoredContext> forkedContext;
+            try (ThreadContext.StoredContext tracking = taskManager.trackResources(task)) {
+                // a continuation of the task, like a listener, that only runs once the task completed
+                forkedContext = threadContext.newRestorableContext(false);
+            }
+            try (ThreadContext.StoredContext restored = forkedContext.get()) {
+                assertSame(task, taskManager.getCurrentTask());
+                taskManager.onCircuitBreakerUsage(CircuitBreaker.REQUEST, 10);
+            }
+            taskManager.unregister(task);
+            try (ThreadContext.StoredContext restored = forkedContext.get()) {
+                assertNull(taskManager.getCurrentTask());
+                taskManager.onCircuitBreakerUsage(CircuitBreaker.REQUEST, 100);
+            }
+            assertEquals(10, task.getResourceStats().getMemoryInBytes());
+        }
+    }
+
+    public void testResourceTrackingIsDisabledByDefault() {
+        TaskManager taskManager = new TaskManager(Settings.EMPTY, threadPool, Collections.emptySet());
+        assertFalse(taskManager.isResourceTrackingEnabled());
+        try (ThreadContext.StoredContext ignored = threadPool.getThreadContext().stashContext()) {
+            Task task = taskManager.register("test", "test", new TestRequest());
+            try (ThreadContext.StoredContext tracking = taskManager.trackResources(task)) {
+                assertNull(taskManager.getCurrentTask());
+                taskManager.onCircuitBreakerUsage(CircuitBreaker.REQUEST, 100);
+            }
+            assertEquals(0, task.getResourceStats().getMemoryInBytes());
+            taskManager.unregister(task);
+        }
+    }
+
+    public void testCancelTopMemoryConsumer() {
+        TaskManager taskManager = new TaskManager(Settings.EMPTY, threadPool, Collections.emptySet());
+        assertNull(taskManager.cancelTopMemoryConsumer());
+
+        CancellableTask small = (CancellableTask) taskManager.register("test", "small", new TestRequest(true));
+        CancellableTask large = (CancellableTask) taskManager.register("test", "large", new TestRequest(true));
+        small.addMemoryBytes(10);
+        large.addMemoryBytes(100);
+
+        assertSame(large, taskManager.cancelTopMemoryConsumer());
+        assertTrue(large.isCancelled());
+        assertFalse(small.isCancelled());
+        // cancelled tasks are skipped
+        assertSame(small, taskManager.cancelTopMemoryConsumer());
+        assertTrue(small.isCancelled());
+        assertNull(taskManager.cancelTopMemoryConsumer());
+
+        taskManager.unregister(small);
+        taskManager.unregister(large);
+    }
+
+    public void testCpuTimeIsNeverNegative() {
+        Task task = new Task(1, "test", "test", "", TaskId.EMPTY_TASK_ID, Collections.emptyMap());
+        long start = TaskManager.currentThreadCpuTimeNanos();
+        task.addCpuTimeNanos(TaskManager.currentThreadCpuTimeNanos() - start);
+        task.addCpuTimeNanos(-1);
+        assertThat(task.getResourceStats().getCpuTimeInNanos(), greaterThanOrEqualTo(0L));
+    }
+
+    private static class TestRequest implements TaskAwareRequest {
+        private final boolean cancellable;
+        private TaskId parentTaskId = TaskId.EMPTY_TASK_ID;
+
+        TestRequest() {
+            this(false);
+        }
+
+        TestRequest(boolean cancellable) {
+            this.cancellable = cancellable;
+        }
+
+        @Override
+        public void setParentTask(TaskId taskId) {
+            this.parentTaskId = taskId;
+        }
+
+        @Override
+        public TaskId getParentTask() {
+            return parentTaskId;
+        }
+
+        @Override
+        public Task createTask(long id, String type, String action, TaskId parentTaskId, Map<String, String> headers) {
+            if (cancellable) {
+                return new CancellableTask(id, type, action, getDescription(), parentTaskId, headers) {
+                    @Override
+                    public boolean shouldCancelChildrenOnCancellation() {
+                        return false;
+                    }
+                };
+            }
+            return new Task(id, type, action, getDescription(), parentTaskId, headers);
+        }
+    }
+}
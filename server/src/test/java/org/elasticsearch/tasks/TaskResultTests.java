@@ -136,7 +136,10 @@ public class TaskResultTests extends ESTestCase {
         TaskId parentTaskId = randomBoolean() ? TaskId.EMPTY_TASK_ID : randomTaskId();
         Map<String, String> headers =
             randomBoolean() ? Collections.emptyMap() : Collections.singletonMap(randomAlphaOfLength(5), randomAlphaOfLength(5));
-        return new TaskInfo(taskId, type, action, description, status, startTime, runningTimeNanos, cancellable, parentTaskId, headers);
+        TaskResourceStats resourceStats = randomBoolean() ? null
+            : new TaskResourceStats(randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong());
+        return new TaskInfo(taskId, type, action, description, status, startTime, runningTimeNanos, cancellable, parentTaskId, headers,
+            resourceStats);
     }
 
     private static TaskId randomTaskId() {
@@ -20,12 +20,14 @@
 package org.elasticsearch.threadpool;
 
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.AutoSizingEsThreadPoolExecutor;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 
 import java.util.concurrent.CountDownLatch;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
 
 public class FixedThreadPoolTests extends ESThreadPoolTestCase {
 
@@ -90,4 +92,47 @@ public class FixedThreadPoolTests extends ESThreadPoolTestCase {
         }
     }
 
+    public void testAutoSize() throws InterruptedException {
+        final String threadPoolName = randomThreadPool(ThreadPool.ThreadPoolType.FIXED);
+        // some of the fixed thread pool are bound by the number of
+        // cores so we can not exceed that
+        final int maxSize = randomIntBetween(1, EsExecutors.numberOfProcessors(Settings.EMPTY));
+        final int size = randomIntBetween(1, maxSize);
+        final int minSize = randomIntBetween(1, size);
+
+        ThreadPool threadPool = null;
+        final Settings nodeSettings =
+            Settings.builder()
+                .put("node.name", "testAutoSize")
+                .put("thread_pool." + threadPoolName + ".auto_size", true)
+                .put("thread_pool." + threadPoolName + ".size", size)
+                .put("thread_pool." + threadPoolName + ".min_size", minSize)
+                .put("thread_pool." + threadPoolName + ".max_size", maxSize)
+                .build();
+        try {
+            threadPool = new ThreadPool(nodeSettings);
+            assertThat(threadPool.executor(threadPoolName), instanceOf(AutoSizingEsThreadPoolExecutor.class));
+            assertThat(info(threadPool, threadPoolName).getMin(), equalTo(minSize));
+            assertThat(info(threadPool, threadPoolName).getMax(), equalTo(maxSize));
+            assertThat(stats(threadPool, threadPoolName).getSize(), equalTo(size));
+            assertThat(stats(threadPool, threadPoolName).getLastSizeAdjustment(), equalTo("none"));
+        } finally {
+            terminateThreadPoolIfNeeded(threadPool);
+        }
+    }
+
+    public void testAutoSizeBounds() {
+        final Settings nodeSettings =
+            Settings.builder()
+                .put("node.name", "testAutoSizeBounds")
+                .put("thread_pool.my_pool.auto_size", true)
+                .put("thread_pool.my_pool.size", 1)
+                .put("thread_pool.my_pool.min_size", 2)
+                .build();
+        final FixedExecutorBuilder builder = new FixedExecutorBuilder(nodeSettings, "my_pool", 1, 1);
+        final IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> builder.getSettings(nodeSettings));
+        assertThat(e.getMessage(), equalTo("[thread_pool.my_pool.size] must be between [thread_pool.my_pool.min_size] and "
+            + "[thread_pool.my_pool.max_size], got [1] with bounds [2] and [2]"));
+    }
+
 }